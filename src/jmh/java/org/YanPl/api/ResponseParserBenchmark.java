@@ -0,0 +1,51 @@
+package org.YanPl.api;
+
+import org.YanPl.benchmark.Corpus;
+import org.YanPl.model.AIResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 响应解析基准：从原始响应体字节开始计时，与 CloudFlareAI 中从响应流直接解码的路径一致
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseParserBenchmark {
+
+    @Param({"openai-response", "cloudflare-output", "cloudflare-result"})
+    public String payload;
+
+    private final ResponseParser parser = new ResponseParser();
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws IOException {
+        body = Corpus.read(payload + ".json").getBytes(StandardCharsets.UTF_8);
+        if (parseResponse() == null) {
+            throw new IllegalStateException("语料无法解析: " + payload);
+        }
+    }
+
+    @Benchmark
+    public AIResponse parseResponse() throws IOException {
+        return parser.decode(new ByteArrayInputStream(body), 0).getResponse();
+    }
+}
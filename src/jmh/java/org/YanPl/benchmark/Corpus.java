@@ -0,0 +1,58 @@
+package org.YanPl.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 基准测试语料：从测试资源 benchmark/ 目录读取，保证每次运行的输入一致，便于对比不同版本的结果
+ */
+public final class Corpus {
+    /**
+     * assistant-replies.txt 中分隔每条回复的行
+     */
+    public static final String REPLY_SEPARATOR = "\n=====\n";
+
+    private Corpus() {
+    }
+
+    /**
+     * 读取整个语料文件
+     *
+     * @param name benchmark/ 目录下的文件名
+     */
+    public static String read(String name) {
+        try (InputStream in = Corpus.class.getClassLoader().getResourceAsStream("benchmark/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("找不到基准测试语料: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 按行读取语料文件（忽略空行）
+     */
+    public static List<String> lines(String name) {
+        List<String> lines = new ArrayList<>();
+        for (String line : read(name).split("\\R")) {
+            if (!line.isEmpty()) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * 按分隔符切分语料文件
+     */
+    public static List<String> split(String name, String separator) {
+        return Arrays.asList(read(name).replace("\r\n", "\n").split(separator));
+    }
+}
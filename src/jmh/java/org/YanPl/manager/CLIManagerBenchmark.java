@@ -0,0 +1,62 @@
+package org.YanPl.manager;
+
+import org.YanPl.benchmark.Corpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CLI 回复处理基准：工具调用提取（handleAIResponse）与重复调用检测中的相似度计算
+ * 每次调用处理整份语料，结果为处理一份语料的平均耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CLIManagerBenchmark {
+
+    private List<String> replies;
+    private List<String> toolHistory;
+
+    @Setup
+    public void setUp() {
+        replies = Corpus.split("assistant-replies.txt", Corpus.REPLY_SEPARATOR);
+        toolHistory = Corpus.lines("tool-history.txt");
+    }
+
+    @Benchmark
+    public void extractToolCalls(Blackhole bh) {
+        for (String reply : replies) {
+            List<String> toolCalls = new ArrayList<>();
+            bh.consume(CLIManager.extractToolCalls(reply, toolCalls));
+            bh.consume(toolCalls);
+        }
+    }
+
+    /**
+     * 按最坏情况计：每个新调用与之前的全部历史逐一比较（实际检测遇到不相似的调用即停止）
+     */
+    @Benchmark
+    public void calculateSimilarity(Blackhole bh) {
+        for (int i = 1; i < toolHistory.size(); i++) {
+            String current = toolHistory.get(i);
+            for (int j = 0; j < i; j++) {
+                bh.consume(CLIManager.calculateSimilarity(current, toolHistory.get(j)));
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.YanPl.manager;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.YanPl.benchmark.Corpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 玩家记忆提示词基准：每次构建系统提示词时都会执行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstructionManagerBenchmark {
+
+    private List<InstructionManager.PlayerInstruction> instructions;
+
+    @Setup
+    public void setUp() {
+        instructions = new Gson().fromJson(Corpus.read("instructions.json"),
+                new TypeToken<List<InstructionManager.PlayerInstruction>>(){}.getType());
+    }
+
+    @Benchmark
+    public String getInstructionsAsPrompt() {
+        return InstructionManager.formatPrompt("Steve", instructions);
+    }
+}
@@ -0,0 +1,45 @@
+package org.YanPl.manager;
+
+import org.YanPl.benchmark.Corpus;
+import org.bukkit.ChatColor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据包捕获过滤基准：对每条捕获到的消息去除颜色代码并判断是否丢弃
+ * 语料包含命令输出、插件自身提示与玩家聊天消息
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketCaptureBenchmark {
+
+    private List<String> messages;
+
+    @Setup
+    public void setUp() {
+        messages = Corpus.lines("captured-output.txt");
+    }
+
+    @Benchmark
+    public void filter(Blackhole bh) {
+        for (String message : messages) {
+            bh.consume(PacketCaptureManager.isFiltered(ChatColor.stripColor(message).trim()));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.YanPl.model;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.YanPl.benchmark.Corpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token 估算基准：每轮对话发送前都会对完整历史计数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DialogueSessionBenchmark {
+
+    @Param({"deepseek-chat", "gpt-4o"})
+    public String model;
+
+    private DialogueSession session;
+
+    @Setup
+    public void setUp() {
+        session = new DialogueSession();
+        JsonArray messages = new Gson().fromJson(Corpus.read("dialogue.json"), JsonArray.class);
+        for (JsonElement element : messages) {
+            JsonObject message = element.getAsJsonObject();
+            session.addMessage(message.get("role").getAsString(), message.get("content").getAsString());
+        }
+    }
+
+    @Benchmark
+    public int getEstimatedTokens() {
+        return session.getEstimatedTokens(model);
+    }
+}
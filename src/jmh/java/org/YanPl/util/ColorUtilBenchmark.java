@@ -0,0 +1,43 @@
+package org.YanPl.util;
+
+import org.YanPl.benchmark.Corpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自定义颜色代码转换基准，语料为插件实际发送的提示消息
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorUtilBenchmark {
+
+    private List<String> lines;
+
+    @Setup
+    public void setUp() {
+        lines = Corpus.lines("chat-lines.txt");
+    }
+
+    @Benchmark
+    public void translateCustomColors(Blackhole bh) {
+        for (String line : lines) {
+            bh.consume(ColorUtil.translateCustomColors(line));
+        }
+    }
+}
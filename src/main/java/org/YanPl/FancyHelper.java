@@ -1,6 +1,13 @@
 package org.YanPl;
 
+import org.YanPl.api.AnswerCache;
+import org.YanPl.api.CircuitBreakerRegistry;
+import org.YanPl.api.ConnectionWarmer;
+import org.YanPl.api.HttpClientRegistry;
 import org.YanPl.api.MetasoAPI;
+import org.YanPl.api.ModelTierRouter;
+import org.YanPl.api.ProviderRouter;
+import org.YanPl.api.SearchAggregator;
 import org.YanPl.api.TavilyAPI;
 import org.YanPl.command.CLICommand;
 import org.YanPl.listener.ChatListener;
@@ -14,9 +21,18 @@ import org.YanPl.manager.WorkspaceIndexer;
 import org.YanPl.manager.TodoManager;
 import org.YanPl.manager.NoticeManager;
 import org.YanPl.manager.FileWatcherManager;
+import org.YanPl.manager.FileEventHub;
 import org.YanPl.manager.InstructionManager;
+import org.YanPl.manager.LineIndexCache;
+import org.YanPl.manager.WorkspaceSearchIndex;
+import org.YanPl.manager.ConfigKeyIndex;
+import org.YanPl.manager.PresetIndex;
 import org.YanPl.manager.GuiManager;
 import org.YanPl.util.CloudErrorReport;
+import org.YanPl.util.IoExecutor;
+import org.YanPl.util.MetricsRegistry;
+import org.YanPl.util.SessionLogWriter;
+import org.YanPl.util.TickProfiler;
 import org.YanPl.util.ErrorHandler;
 import org.bstats.bukkit.Metrics;
 import org.bukkit.Bukkit;
@@ -43,11 +59,27 @@ public final class FancyHelper extends JavaPlugin {
     private TodoManager todoManager;
     private NoticeManager noticeManager;
     private FileWatcherManager fileWatcherManager;
+    private FileEventHub fileEventHub;
     private TavilyAPI tavilyAPI;
     private MetasoAPI metasoAPI;
+    private HttpClientRegistry httpClients;
+    private IoExecutor ioExecutor;
+    private SessionLogWriter sessionLogWriter;
+    private MetricsRegistry metrics;
+    private TickProfiler tickProfiler;
+    private ProviderRouter providerRouter;
+    private ModelTierRouter modelTierRouter;
+    private AnswerCache answerCache;
+    private CircuitBreakerRegistry circuitBreakers;
+    private ConnectionWarmer connectionWarmer;
+    private SearchAggregator searchAggregator;
     private ErrorHandler errorHandler;
     private InstructionManager instructionManager;
     private GuiManager guiManager;
+    private LineIndexCache lineIndexCache;
+    private WorkspaceSearchIndex workspaceSearchIndex;
+    private ConfigKeyIndex configKeyIndex;
+    private PresetIndex presetIndex;
 
     @Override
     public void onEnable() {
@@ -64,12 +96,45 @@ public final class FancyHelper extends JavaPlugin {
             // 释放热重载服务 jar 到 plugins/FancyHelper/lib
             saveResource("lib/FancyHelperReloadService.jar", true);
 
+            // 初始化文件事件中心（EULA、配置重载与各类索引共用同一个监听线程）
+            fileEventHub = new FileEventHub(this);
+
             // 初始化 EULA 管理器（优先于配置，以便更新时强制替换 EULA）
             eulaManager = new EulaManager(this);
 
             // 初始化配置管理器
             configManager = new ConfigManager(this);
             
+            // 初始化运行指标（未启用时不记录，按配置启动 Prometheus 监听）
+            metrics = new MetricsRegistry(this);
+            metrics.reload();
+
+            // 初始化主线程耗时分析（统计插件在每个 tick 上花费的时间）
+            tickProfiler = new TickProfiler(this);
+            tickProfiler.start();
+
+            // 初始化共享 HTTP 客户端注册表（所有对外请求复用连接池）
+            httpClients = new HttpClientRegistry(this);
+
+            // 初始化阻塞 I/O 执行器（Java 21+ 使用虚拟线程）
+            ioExecutor = new IoExecutor(this);
+
+            // 初始化会话日志写入线程（交互日志的格式化与写入不占用请求线程）
+            sessionLogWriter = new SessionLogWriter(this);
+
+            // 初始化 AI 服务商路由器（延迟与错误统计在所有会话间共享）
+            providerRouter = new ProviderRouter(this);
+
+            // 初始化模型分层路由（简单轮次交给副模型）
+            modelTierRouter = new ModelTierRouter(this);
+
+            // 初始化外部服务熔断器，并在后台探测已熔断服务的恢复情况
+            circuitBreakers = new CircuitBreakerRegistry(this);
+            circuitBreakers.startProbes();
+
+            // 上传上次运行时暂存、尚未送达的错误报告
+            cloudErrorReport.start();
+
             // 初始化验证管理器
             verificationManager = new VerificationManager(this);
             
@@ -85,9 +150,30 @@ public final class FancyHelper extends JavaPlugin {
                 packetCaptureManager = null;
             }
             
-            // 异步索引服务器命令与预设文件
+            // 索引服务器命令（主线程读取命令表，之后随插件启用/禁用增量更新），并异步索引预设文件（预设释放后会同时重建预设片段索引）
+            presetIndex = new PresetIndex(this);
             workspaceIndexer = new WorkspaceIndexer(this);
-            Bukkit.getScheduler().runTaskAsynchronously(this, () -> workspaceIndexer.indexAll());
+            workspaceIndexer.indexCommands();
+            getServer().getPluginManager().registerEvents(workspaceIndexer, this);
+            Bukkit.getScheduler().runTaskAsynchronously(this, () -> workspaceIndexer.indexPresets());
+
+            // 初始化文件行索引缓存（供 #read / #edit 使用）
+            lineIndexCache = new LineIndexCache(this);
+
+            // 后台构建工作区内容索引（供 #grep / #find 使用）
+            workspaceSearchIndex = new WorkspaceSearchIndex(this);
+            workspaceSearchIndex.start();
+
+            // 后台构建插件配置键索引（供 #config 使用），随工作区索引的文件事件增量更新
+            configKeyIndex = new ConfigKeyIndex(this);
+            configKeyIndex.start();
+
+            // 预设目录变动时重建预设片段索引
+            presetIndex.start();
+
+            // 初始化问答缓存，预设目录变动时清空
+            answerCache = new AnswerCache(this);
+            answerCache.start();
 
             // 初始化待办管理器
             todoManager = new TodoManager(this);
@@ -109,7 +195,7 @@ public final class FancyHelper extends JavaPlugin {
             // 初始化公告管理器（构造函数中会自动开始定期获取公告）
             noticeManager = new NoticeManager(this);
 
-            // 初始化文件监听管理器
+            // 初始化配置文件自动重载
             fileWatcherManager = new FileWatcherManager(this);
 
             // 初始化 Tavily API
@@ -118,6 +204,13 @@ public final class FancyHelper extends JavaPlugin {
             // 初始化 Metaso API
             metasoAPI = new MetasoAPI(this);
 
+            // 初始化搜索聚合器
+            searchAggregator = new SearchAggregator(this);
+
+            // 后台预热：解析 CloudFlare Account ID 并预先连接 AI 与搜索服务
+            connectionWarmer = new ConnectionWarmer(this);
+            connectionWarmer.start();
+
             CLICommand cliCommand = new CLICommand(this);
             PluginCommand command = getCommand("fancyhelper");
             if (command != null) {
@@ -163,7 +256,7 @@ public final class FancyHelper extends JavaPlugin {
      * 检查在线玩家是否有预加载的会话，如果有则自动进入CLI模式
      */
     private void checkOnlinePlayersForPreloadedSessions() {
-        getServer().getScheduler().runTaskLater(this, () -> {
+        TickProfiler.runTaskLater(this, "cli.resume_sessions", () -> {
             for (org.bukkit.entity.Player player : getServer().getOnlinePlayers()) {
                 if (cliManager.hasPreloadedSession(player.getUniqueId())) {
                     if (getConfigManager().isDebug()) {
@@ -383,6 +476,16 @@ public final class FancyHelper extends JavaPlugin {
             fileWatcherManager.shutdown();
         }
 
+        // 关闭工作区内容索引的目录监听
+        if (workspaceSearchIndex != null) {
+            workspaceSearchIndex.shutdown();
+        }
+
+        // 取消插件配置键索引的目录订阅
+        if (configKeyIndex != null) {
+            configKeyIndex.shutdown();
+        }
+
         // 关闭 Metaso API
         if (metasoAPI != null) {
             metasoAPI.shutdown();
@@ -393,6 +496,56 @@ public final class FancyHelper extends JavaPlugin {
             instructionManager.shutdown();
         }
 
+        // 取消问答缓存的预设目录订阅
+        if (answerCache != null) {
+            answerCache.shutdown();
+        }
+
+        // 停止连接预热的定期刷新
+        if (connectionWarmer != null) {
+            connectionWarmer.shutdown();
+        }
+
+        // 停止错误上报的定时任务，尚未上传的报告暂存到磁盘，下次启动时再上传
+        if (cloudErrorReport != null) {
+            cloudErrorReport.shutdown();
+        }
+
+        // 停止熔断器的后台探测
+        if (circuitBreakers != null) {
+            circuitBreakers.shutdown();
+        }
+
+        // 停止主线程耗时统计
+        if (tickProfiler != null) {
+            tickProfiler.shutdown();
+        }
+
+        // 关闭指标监听
+        if (metrics != null) {
+            metrics.shutdown();
+        }
+
+        // 关闭 I/O 执行器，中断仍在等待的请求
+        if (ioExecutor != null) {
+            ioExecutor.shutdown();
+        }
+
+        // 写完剩余的会话日志
+        if (sessionLogWriter != null) {
+            sessionLogWriter.shutdown();
+        }
+
+        // 关闭共享 HTTP 客户端与线程池
+        if (httpClients != null) {
+            httpClients.shutdown();
+        }
+
+        // 关闭文件事件中心（所有订阅随之失效）
+        if (fileEventHub != null) {
+            fileEventHub.shutdown();
+        }
+
         // 等待短暂时间以确保后台任务结束
         try {
             Thread.sleep(500);
@@ -451,6 +604,46 @@ public final class FancyHelper extends JavaPlugin {
         return metasoAPI;
     }
 
+    public SearchAggregator getSearchAggregator() {
+        return searchAggregator;
+    }
+
+    public HttpClientRegistry getHttpClients() {
+        return httpClients;
+    }
+
+    public IoExecutor getIoExecutor() {
+        return ioExecutor;
+    }
+
+    public SessionLogWriter getSessionLogWriter() {
+        return sessionLogWriter;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    public TickProfiler getTickProfiler() {
+        return tickProfiler;
+    }
+
+    public ProviderRouter getProviderRouter() {
+        return providerRouter;
+    }
+
+    public ModelTierRouter getModelTierRouter() {
+        return modelTierRouter;
+    }
+
+    public AnswerCache getAnswerCache() {
+        return answerCache;
+    }
+
+    public CircuitBreakerRegistry getCircuitBreakers() {
+        return circuitBreakers;
+    }
+
     public ErrorHandler getErrorHandler() {
         return errorHandler;
     }
@@ -463,6 +656,26 @@ public final class FancyHelper extends JavaPlugin {
         return guiManager;
     }
 
+    public FileEventHub getFileEventHub() {
+        return fileEventHub;
+    }
+
+    public LineIndexCache getLineIndexCache() {
+        return lineIndexCache;
+    }
+
+    public WorkspaceSearchIndex getWorkspaceSearchIndex() {
+        return workspaceSearchIndex;
+    }
+
+    public ConfigKeyIndex getConfigKeyIndex() {
+        return configKeyIndex;
+    }
+
+    public PresetIndex getPresetIndex() {
+        return presetIndex;
+    }
+
     /**
      * 从 CommandMap 中移除本插件注册的命令，避免重载后出现重复注册或旧引用残留。
      */
@@ -508,7 +721,7 @@ public final class FancyHelper extends JavaPlugin {
     private void syncCommands() {
         try {
             // 延迟一 tick 执行，确保插件完全加载后再同步
-            Bukkit.getScheduler().runTask(this, () -> {
+            TickProfiler.runTask(this, "plugin.sync_commands", () -> {
                 try {
                     Object server = Bukkit.getServer();
                     // 仅在 CraftServer 上尝试调用 syncCommands
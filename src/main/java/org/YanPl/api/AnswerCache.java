@@ -0,0 +1,363 @@
+package org.YanPl.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.YanPl.FancyHelper;
+import org.YanPl.manager.FileEventHub;
+import org.YanPl.model.AIResponse;
+import org.YanPl.model.DialogueSession;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 问答缓存：对会话第一轮、且不产生副作用的回答做精确匹配缓存。
+ * 键由系统提示词的静态部分（去掉玩家名与当前时间）、模型与规范化后的玩家消息共同哈希得到；
+ * 内存中按 LRU 保留最近的条目，并在 cache/answers 目录下保留一份磁盘副本，重启后仍可命中。
+ * 预设文件或配置变动时整体失效。
+ */
+public class AnswerCache {
+    /**
+     * 只调用这些只读工具的回答可以缓存；出现 #run、#edit、#todo、#ask、#remember 等任何其他工具的回答一律不缓存
+     */
+    static final Set<String> CACHEABLE_TOOLS = Set.of(
+            "search", "getpreset", "webread", "list", "find", "read", "grep", "config", "end");
+
+    private static final Pattern TOOL_CALL = Pattern.compile("#([A-Za-z_]+)");
+    private static final Pattern VOLATILE_LINE = Pattern.compile("(?m)^(Player|Current Time): .*(\\R|$)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern CJK_SPACE = Pattern.compile("(?<=[^\\x00-\\x7F]) | (?=[^\\x00-\\x7F])");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\p{P}\\p{S}\\s]+$");
+    private static final String FILE_SUFFIX = ".json";
+
+    private final FancyHelper plugin;
+    private final File dir;
+    private final Gson gson = new Gson();
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile long invalidatedAt;
+    private FileEventHub.Subscription presetSubscription;
+
+    /**
+     * 单条缓存的回答（同时作为磁盘文件的 JSON 结构）
+     */
+    static final class Entry {
+        String content;
+        String thought;
+        long created;
+
+        Entry(String content, String thought, long created) {
+            this.content = content;
+            this.thought = thought;
+            this.created = created;
+        }
+    }
+
+    /**
+     * 一次查询的结果：命中时携带缓存的回答，未命中时用于在请求完成后写入
+     */
+    public static final class Lookup {
+        private final String key;
+        private final long generation;
+        private final AIResponse answer;
+
+        Lookup(String key, long generation, AIResponse answer) {
+            this.key = key;
+            this.generation = generation;
+            this.answer = answer;
+        }
+
+        /**
+         * @return 命中的缓存回答，未命中时为 null
+         */
+        public AIResponse getAnswer() {
+            return answer;
+        }
+    }
+
+    public AnswerCache(FancyHelper plugin) {
+        this.plugin = plugin;
+        this.dir = new File(plugin.getDataFolder(), "cache" + File.separator + "answers");
+    }
+
+    /**
+     * 预设目录变动时清空缓存（预设内容会影响回答，但不会改变提示词）
+     */
+    public void start() {
+        presetSubscription = plugin.getFileEventHub().subscribe(new File(plugin.getDataFolder(), "preset").toPath(), 500L,
+                event -> invalidateAll("预设文件变动"));
+    }
+
+    /**
+     * 查询本轮对话是否已有缓存的回答
+     *
+     * @param session      会话（只有第一轮玩家消息参与缓存）
+     * @param systemPrompt 本轮使用的系统提示词
+     * @param model        本轮使用的模型标识
+     * @return 不参与缓存时返回 null
+     */
+    public Lookup lookup(DialogueSession session, String systemPrompt, String model) {
+        if (!plugin.getConfigManager().isAnswerCacheEnabled()) {
+            return null;
+        }
+        List<DialogueSession.Message> history = session.getHistory();
+        if (history.size() != 1) {
+            return null;
+        }
+        DialogueSession.Message first = history.get(0);
+        if (!"user".equals(first.getRole()) || first.getContent() == null || first.getContent().trim().startsWith("#")) {
+            return null;
+        }
+        String normalized = normalize(first.getContent());
+        if (normalized.isEmpty()) {
+            return null;
+        }
+
+        long currentGeneration = generation.get();
+        String key = keyOf(stablePrompt(systemPrompt), model, normalized);
+        Entry entry = get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return new Lookup(key, currentGeneration, null);
+        }
+        hits.incrementAndGet();
+        if (plugin.getConfigManager().isDebug()) {
+            plugin.getLogger().info("[问答缓存] 命中: " + normalized);
+        }
+        // 缓存命中不消耗 Token
+        return new Lookup(key, currentGeneration, new AIResponse(entry.content, entry.thought, 0, 0, false));
+    }
+
+    /**
+     * 请求完成后写入缓存；截断、出错或调用了有副作用工具的回答不会写入
+     */
+    public void store(Lookup lookup, AIResponse response) {
+        if (lookup == null || lookup.answer != null || !isCacheable(response)) {
+            return;
+        }
+        Entry entry = new Entry(response.getContent(), response.getThought(), System.currentTimeMillis());
+        synchronized (memory) {
+            // 查询之后缓存已失效，说明回答可能基于旧的预设或配置
+            if (lookup.generation != generation.get()) {
+                return;
+            }
+            memory.put(lookup.key, entry);
+            trimMemory();
+        }
+        if (plugin.getConfigManager().getAnswerCacheDiskMaxEntries() > 0) {
+            plugin.getIoExecutor().execute(() -> writeToDisk(lookup.key, lookup.generation, entry));
+        }
+    }
+
+    private Entry get(String key) {
+        long ttl = plugin.getConfigManager().getAnswerCacheTtlMinutes() * 60_000L;
+        long now = System.currentTimeMillis();
+        synchronized (memory) {
+            Entry entry = memory.get(key);
+            if (entry != null) {
+                if (now - entry.created <= ttl) {
+                    return entry;
+                }
+                memory.remove(key);
+            }
+        }
+
+        Entry entry = readFromDisk(key);
+        if (entry == null) {
+            return null;
+        }
+        // 失效之后才删除完的旧文件同样视为过期
+        if (now - entry.created > ttl || entry.created <= invalidatedAt) {
+            deleteQuietly(new File(dir, key + FILE_SUFFIX));
+            return null;
+        }
+        synchronized (memory) {
+            memory.put(key, entry);
+            trimMemory();
+        }
+        return entry;
+    }
+
+    private void trimMemory() {
+        int max = plugin.getConfigManager().getAnswerCacheMaxEntries();
+        Iterator<String> it = memory.keySet().iterator();
+        while (memory.size() > max && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private Entry readFromDisk(String key) {
+        File file = new File(dir, key + FILE_SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            Entry entry = gson.fromJson(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8), Entry.class);
+            return entry != null && entry.content != null ? entry : null;
+        } catch (IOException | JsonParseException e) {
+            deleteQuietly(file);
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, long entryGeneration, Entry entry) {
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                return;
+            }
+            synchronized (dir) {
+                if (entryGeneration != generation.get()) {
+                    return;
+                }
+                Files.write(new File(dir, key + FILE_SUFFIX).toPath(), gson.toJson(entry).getBytes(StandardCharsets.UTF_8));
+                pruneDisk();
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("[问答缓存] 写入缓存文件失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 磁盘上的条目超过上限时删除最旧的文件
+     */
+    private void pruneDisk() {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(FILE_SUFFIX));
+        int max = plugin.getConfigManager().getAnswerCacheDiskMaxEntries();
+        if (files == null || files.length <= max) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length - max; i++) {
+            deleteQuietly(files[i]);
+        }
+    }
+
+    /**
+     * 清空内存与磁盘中的全部缓存
+     *
+     * @param reason 失效原因（用于日志）
+     */
+    public void invalidateAll(String reason) {
+        generation.incrementAndGet();
+        invalidatedAt = System.currentTimeMillis();
+        int cleared;
+        synchronized (memory) {
+            cleared = memory.size();
+            memory.clear();
+        }
+        plugin.getIoExecutor().execute(() -> {
+            synchronized (dir) {
+                File[] files = dir.listFiles((d, name) -> name.endsWith(FILE_SUFFIX));
+                if (files != null) {
+                    for (File file : files) {
+                        deleteQuietly(file);
+                    }
+                }
+            }
+        });
+        if (plugin.getConfigManager().isDebug()) {
+            plugin.getLogger().info("[问答缓存] " + reason + "，已清空缓存（内存中 " + cleared + " 条）");
+        }
+    }
+
+    private static void deleteQuietly(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException ignored) {
+            // 下次写入时会再次清理
+        }
+    }
+
+    /**
+     * 判断回答是否可以缓存：完整、非空、不是错误提示，且只调用了只读工具
+     */
+    static boolean isCacheable(AIResponse response) {
+        if (response == null || response.isTruncated()) {
+            return false;
+        }
+        String content = response.getContent();
+        if (content == null || content.trim().isEmpty() || content.startsWith("错误")) {
+            return false;
+        }
+        Matcher matcher = TOOL_CALL.matcher(content);
+        while (matcher.find()) {
+            if (!CACHEABLE_TOOLS.contains(matcher.group(1).toLowerCase(Locale.ROOT))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 规范化玩家消息：全角转半角、统一小写、合并空白（中文两侧的空白直接去掉）并去掉末尾的标点
+     */
+    static String normalize(String message) {
+        String text = Normalizer.normalize(message, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        text = WHITESPACE.matcher(text.trim()).replaceAll(" ");
+        text = CJK_SPACE.matcher(text).replaceAll("");
+        return TRAILING_PUNCTUATION.matcher(text).replaceAll("");
+    }
+
+    /**
+     * 去掉系统提示词中每个玩家、每次请求都不同的行（玩家名与当前时间）
+     */
+    static String stablePrompt(String systemPrompt) {
+        return systemPrompt == null ? "" : VOLATILE_LINE.matcher(systemPrompt).replaceAll("");
+    }
+
+    static String keyOf(String stablePrompt, String model, String normalizedMessage) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[]{stablePrompt, model, normalizedMessage}) {
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    public void shutdown() {
+        if (presetSubscription != null) {
+            presetSubscription.cancel();
+            presetSubscription = null;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.YanPl.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import org.YanPl.model.DialogueSession;
+
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 玩家对话的请求体（OpenAI 兼容 API 与 CloudFlare API 通用）。
+ * 历史消息在创建时已校验，发送时直接拼接各条消息缓存的 JSON 片段并流式写入请求，
+ * 不再每轮重建整棵 JSON 树：一轮对话只需编码新增的消息与 system 提示词。
+ */
+public class ChatRequestBody {
+    private static final String DEFAULT_SYSTEM_PROMPT = "你是一个得力的助手。";
+    /**
+     * 只有 system 提示词时补充的备用用户消息
+     */
+    private static final DialogueSession.Message FALLBACK_USER = new DialogueSession.Message("user", "hello");
+    private static final byte[] COMMA = {','};
+    private static final byte[] TAIL = {']', '}'};
+    private static final Gson GSON = new Gson();
+
+    private final String model;
+    private final List<DialogueSession.Message> messages;
+    private final Map<String, JsonElement> options = new LinkedHashMap<>();
+    private String messagesField = "messages";
+    private int maxTokens = 4096;
+    private List<byte[]> parts;
+    private long length;
+
+    /**
+     * @param model        模型名称
+     * @param systemPrompt system 提示词，为空时使用默认提示词
+     * @param history      历史消息快照，跳过不可发送的消息
+     */
+    public ChatRequestBody(String model, String systemPrompt, List<DialogueSession.Message> history) {
+        this.model = model;
+        String safeSystemPrompt = systemPrompt != null ? systemPrompt.trim() : "";
+        if (safeSystemPrompt.isEmpty()) {
+            safeSystemPrompt = DEFAULT_SYSTEM_PROMPT;
+        }
+        this.messages = new ArrayList<>(history.size() + 2);
+        this.messages.add(new DialogueSession.Message("system", safeSystemPrompt));
+        for (DialogueSession.Message message : history) {
+            if (message != null && message.isSendable()) {
+                this.messages.add(message);
+            }
+        }
+        // 如果消息数量过少，添加备用用户消息
+        if (this.messages.size() <= 1) {
+            this.messages.add(FALLBACK_USER);
+        }
+    }
+
+    /**
+     * 消息数组的字段名，CloudFlare Responses API 使用 input
+     */
+    public ChatRequestBody messagesField(String messagesField) {
+        this.messagesField = messagesField;
+        return this;
+    }
+
+    public ChatRequestBody maxTokens(int maxTokens) {
+        this.maxTokens = maxTokens;
+        return this;
+    }
+
+    /**
+     * 添加其他请求参数（如 reasoning_effort）
+     */
+    public ChatRequestBody option(String name, JsonElement value) {
+        options.put(name, value);
+        return this;
+    }
+
+    public ChatRequestBody option(String name, String value) {
+        return option(name, new JsonPrimitive(value));
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    /**
+     * 实际发送的消息：第一条为 system 提示词，之后为可发送的历史消息
+     */
+    public List<DialogueSession.Message> getMessages() {
+        return Collections.unmodifiableList(messages);
+    }
+
+    /**
+     * 请求体的 UTF-8 字节长度
+     */
+    public long getLength() {
+        encode();
+        return length;
+    }
+
+    /**
+     * 按片段发送请求体并声明 Content-Length；可重复订阅（重试、对冲请求共用同一个请求体）
+     */
+    public HttpRequest.BodyPublisher publisher() {
+        encode();
+        return HttpRequest.BodyPublishers.fromPublisher(HttpRequest.BodyPublishers.ofByteArrays(parts), length);
+    }
+
+    /**
+     * 拼接完整请求体（用于调试输出与测试）
+     */
+    @Override
+    public String toString() {
+        encode();
+        StringBuilder sb = new StringBuilder((int) Math.min(length, Integer.MAX_VALUE));
+        for (byte[] part : parts) {
+            sb.append(new String(part, StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 组装片段列表：请求头部参数、各消息缓存的片段与结尾，只在首次发送时执行一次
+     */
+    private synchronized void encode() {
+        if (parts != null) return;
+        StringBuilder head = new StringBuilder(128);
+        head.append("{\"model\":").append(GSON.toJson(model))
+                .append(",\"max_tokens\":").append(maxTokens);
+        for (Map.Entry<String, JsonElement> option : options.entrySet()) {
+            head.append(',').append(GSON.toJson(option.getKey())).append(':').append(GSON.toJson(option.getValue()));
+        }
+        head.append(',').append(GSON.toJson(messagesField)).append(":[");
+
+        List<byte[]> list = new ArrayList<>(messages.size() * 2 + 1);
+        list.add(head.toString().getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < messages.size(); i++) {
+            if (i > 0) {
+                list.add(COMMA);
+            }
+            list.add(messages.get(i).toJson());
+        }
+        list.add(TAIL);
+
+        long total = 0;
+        for (byte[] part : list) {
+            total += part.length;
+        }
+        length = total;
+        parts = list;
+    }
+}
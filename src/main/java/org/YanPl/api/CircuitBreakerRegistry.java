@@ -0,0 +1,329 @@
+package org.YanPl.api;
+
+import org.YanPl.FancyHelper;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 熔断器注册表：按主机为每个外部服务（AI、搜索、Wiki、更新镜像、错误上报等）维护一个熔断器。
+ * 连续失败达到阈值后熔断器打开，期间的请求立即失败而不再等待完整超时；
+ * 冷却期结束后由后台探测（或第一个到达的请求）作为试探请求，成功则关闭，失败则以加倍的冷却期重新打开。
+ */
+public class CircuitBreakerRegistry {
+    /**
+     * 冷却期上限
+     */
+    static final long MAX_OPEN_MILLIS = 10 * 60 * 1000L;
+    /**
+     * 后台检查熔断器的间隔（tick）
+     */
+    private static final long PROBE_INTERVAL_TICKS = 100L;
+
+    private final FancyHelper plugin;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private BukkitTask probeTask;
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * 熔断器打开时抛出的异常，消息可直接展示给玩家；该异常不代表插件缺陷，不做云端上报
+     */
+    public static class CircuitOpenException extends IOException {
+        private final String endpoint;
+
+        public CircuitOpenException(String endpoint, long retryInSeconds) {
+            super("服务 " + endpoint + " 暂时不可用（连续请求失败，已暂停访问），"
+                    + (retryInSeconds > 0 ? "约 " + retryInSeconds + " 秒后" : "稍后") + "自动恢复，请稍后再试");
+            this.endpoint = endpoint;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+    }
+
+    /**
+     * 单个外部服务的熔断器
+     */
+    public static final class CircuitBreaker {
+        private final String name;
+        private final String probeUrl;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private int reopenCount;
+        private long openUntil;
+        private boolean trialInFlight;
+        private String lastError;
+        private long totalRejected;
+
+        CircuitBreaker(String name, String probeUrl) {
+            this.name = name;
+            this.probeUrl = probeUrl;
+        }
+
+        /**
+         * 申请发出一次请求；半开状态下同一时间只放行一个试探请求
+         *
+         * @return 是否允许发出请求
+         */
+        synchronized boolean tryAcquire(long now) {
+            if (state == State.OPEN && now >= openUntil) {
+                state = State.HALF_OPEN;
+                trialInFlight = false;
+            }
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (state == State.HALF_OPEN && !trialInFlight) {
+                trialInFlight = true;
+                return true;
+            }
+            totalRejected++;
+            return false;
+        }
+
+        synchronized void recordSuccess() {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            reopenCount = 0;
+            trialInFlight = false;
+        }
+
+        synchronized void recordFailure(long now, String error, int threshold, long openMillis) {
+            lastError = error;
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN) {
+                // 试探失败：冷却期加倍
+                reopenCount++;
+                open(now, openMillis);
+            } else if (state == State.CLOSED && consecutiveFailures >= threshold) {
+                open(now, openMillis);
+            }
+        }
+
+        /**
+         * 请求被取消或中断，不计入结果；释放半开状态下的试探名额
+         */
+        synchronized void release() {
+            trialInFlight = false;
+        }
+
+        private void open(long now, long openMillis) {
+            state = State.OPEN;
+            trialInFlight = false;
+            long cooldown = openMillis << Math.min(reopenCount, 10);
+            openUntil = now + Math.min(cooldown, Math.max(openMillis, MAX_OPEN_MILLIS));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public synchronized State getState() {
+            return state;
+        }
+
+        public synchronized int getConsecutiveFailures() {
+            return consecutiveFailures;
+        }
+
+        public synchronized long getTotalRejected() {
+            return totalRejected;
+        }
+
+        public synchronized String getLastError() {
+            return lastError;
+        }
+
+        /**
+         * 距离下一次允许试探的剩余秒数（仅打开状态下有意义）
+         */
+        public synchronized long getRetryInSeconds(long now) {
+            return state == State.OPEN ? Math.max(0, (openUntil - now + 999) / 1000) : 0;
+        }
+
+        String getProbeUrl() {
+            return probeUrl;
+        }
+    }
+
+    public CircuitBreakerRegistry(FancyHelper plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * 启动后台探测：冷却期结束的熔断器由后台发送轻量请求试探恢复，玩家请求无需承担试探的超时
+     */
+    public void startProbes() {
+        if (probeTask != null) {
+            probeTask.cancel();
+        }
+        if (!plugin.isEnabled()) return;
+        probeTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::probeOpenBreakers,
+                PROBE_INTERVAL_TICKS, PROBE_INTERVAL_TICKS);
+    }
+
+    void probeOpenBreakers() {
+        long now = System.currentTimeMillis();
+        for (CircuitBreaker breaker : breakers.values()) {
+            if (breaker.getState() == State.CLOSED || !breaker.tryAcquire(now)) {
+                continue;
+            }
+            // 探测未能提交时归还半开许可，留待下一轮探测或玩家请求试探
+            plugin.getIoExecutor().execute(() -> probe(breaker), breaker::release);
+        }
+    }
+
+    private void probe(CircuitBreaker breaker) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(breaker.getProbeUrl()))
+                    .timeout(Duration.ofSeconds(5))
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .build();
+            HttpResponse<Void> response = plugin.getHttpClients().get(breaker.getProbeUrl())
+                    .send(request, HttpResponse.BodyHandlers.discarding());
+            record(breaker, response.statusCode(), null);
+        } catch (InterruptedException e) {
+            breaker.release();
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            record(breaker, -1, e);
+        }
+        if (plugin.getConfigManager().isDebug()) {
+            plugin.getLogger().info("[熔断] 探测 " + breaker.getName() + " 完成，当前状态: " + breaker.getState());
+        }
+    }
+
+    /**
+     * 按 URL 的主机获取熔断器
+     */
+    public CircuitBreaker forUrl(String url) {
+        String host = hostOf(url);
+        String name = host != null ? host : url;
+        return breakers.computeIfAbsent(name, key -> new CircuitBreaker(key, probeUrlOf(url)));
+    }
+
+    /**
+     * 通过熔断器发送请求：熔断器打开时立即抛出 {@link CircuitOpenException}；
+     * 网络错误、超时与 5xx 响应计为失败，其他响应（包括 4xx 与 429，说明服务可达）计为成功
+     */
+    public <T> HttpResponse<T> send(HttpClient client, HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        CircuitBreaker breaker = acquire(request.uri().toString());
+        HttpResponse<T> response;
+        try {
+            response = client.send(request, handler);
+        } catch (InterruptedException e) {
+            breaker.release();
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            record(breaker, -1, e);
+            throw e;
+        }
+        record(breaker, response.statusCode(), null);
+        return response;
+    }
+
+    /**
+     * 申请发出请求，熔断器打开时抛出 {@link CircuitOpenException}；调用方需随后调用 {@link #record}
+     */
+    public CircuitBreaker acquire(String url) throws CircuitOpenException {
+        CircuitBreaker breaker = forUrl(url);
+        if (!isEnabled()) {
+            return breaker;
+        }
+        long now = System.currentTimeMillis();
+        if (!breaker.tryAcquire(now)) {
+            throw new CircuitOpenException(breaker.getName(), breaker.getRetryInSeconds(now));
+        }
+        return breaker;
+    }
+
+    /**
+     * 记录请求结果
+     *
+     * @param statusCode HTTP 状态码，未收到响应时为 -1
+     * @param error      未收到响应时的异常
+     */
+    public void record(CircuitBreaker breaker, int statusCode, Throwable error) {
+        if (statusCode > 0 && statusCode < 500) {
+            breaker.recordSuccess();
+            return;
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            // 被取消的请求（如落败的对冲请求）不代表服务故障
+            breaker.release();
+            return;
+        }
+        State before = breaker.getState();
+        String reason = statusCode > 0 ? "HTTP " + statusCode
+                : error == null ? "未知错误" : error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+        breaker.recordFailure(System.currentTimeMillis(), reason,
+                plugin.getConfigManager().getCircuitBreakerFailureThreshold(),
+                plugin.getConfigManager().getCircuitBreakerOpenSeconds() * 1000L);
+        if (before != State.OPEN && breaker.getState() == State.OPEN) {
+            plugin.getLogger().warning("[熔断] " + breaker.getName() + " 连续失败 " + breaker.getConsecutiveFailures()
+                    + " 次（" + reason + "），暂停访问 " + breaker.getRetryInSeconds(System.currentTimeMillis()) + " 秒");
+        }
+    }
+
+    private boolean isEnabled() {
+        return plugin.getConfigManager().isCircuitBreakerEnabled();
+    }
+
+    /**
+     * 所有已创建的熔断器（按名称排序）
+     */
+    public List<CircuitBreaker> getBreakers() {
+        List<CircuitBreaker> list = new ArrayList<>(breakers.values());
+        list.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return list;
+    }
+
+    public void shutdown() {
+        if (probeTask != null) {
+            probeTask.cancel();
+            probeTask = null;
+        }
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String probeUrlOf(String url) {
+        try {
+            URI uri = URI.create(url);
+            if (uri.getScheme() != null && uri.getRawAuthority() != null) {
+                return uri.getScheme() + "://" + uri.getRawAuthority() + "/";
+            }
+        } catch (IllegalArgumentException ignored) {
+        }
+        return url;
+    }
+}
@@ -2,21 +2,31 @@ package org.YanPl.api;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import org.YanPl.FancyHelper;
 import org.YanPl.model.AIResponse;
 import org.YanPl.model.DialogueSession;
+import org.YanPl.util.IoExecutor;
+import org.YanPl.util.MetricsRegistry;
+import org.YanPl.util.TickProfiler;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.FileConfiguration;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 
 /**
@@ -26,26 +36,24 @@ import java.util.function.BiConsumer;
 public class CloudFlareAI {
     private static final String API_COMPLETIONS_URL = "https://api.cloudflare.com/client/v4/accounts/%s/ai/v1/chat/completions";
     private static final String API_RESPONSES_URL = "https://api.cloudflare.com/client/v4/accounts/%s/ai/v1/responses";
-    private static final String ACCOUNTS_URL = "https://api.cloudflare.com/client/v4/accounts";
+    static final String ACCOUNTS_URL = "https://api.cloudflare.com/client/v4/accounts";
+    /**
+     * Account ID 在 playerdata.yml 中的持久化路径，按 cf_key 的哈希区分
+     */
+    private static final String ACCOUNT_ID_PATH = "cache.cloudflare_account_ids.";
+    /**
+     * 调试模式下输出的响应体长度
+     */
+    private static final int DEBUG_BODY_CHARS = 500;
     
     private final FancyHelper plugin;
-    private final HttpClient httpClient;
     private final Gson gson = new Gson();
     private final ResponseParser responseParser = new ResponseParser();
-    private String cachedAccountId = null;
+    private final Map<String, String> accountIds = new ConcurrentHashMap<>();
     private BiConsumer<Integer, String> retryCallback = null;
 
     public CloudFlareAI(FancyHelper plugin) {
         this.plugin = plugin;
-        int timeoutSeconds = plugin.getConfigManager().getApiTimeoutSeconds();
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(timeoutSeconds))
-                .version(HttpClient.Version.HTTP_1_1) // 强制使用 HTTP/1.1 以避免某些 API (如阿里云) 的 HTTP/2 EOF 错误
-                .build();
-    }
-
-    public HttpClient getHttpClient() {
-        return httpClient;
     }
 
     /**
@@ -67,11 +75,13 @@ public class CloudFlareAI {
      * 发送 HTTP 请求并带有重试机制
      * 解决 java.io.IOException: HTTP/1.1 header parser received no bytes 等偶发性网络问题
      */
-    private HttpResponse<String> sendWithRetry(HttpRequest request) throws IOException, InterruptedException {
+    private <T> HttpResponse<T> sendWithRetry(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException, InterruptedException {
         int maxRetries = 3;
         for (int i = 0; i < maxRetries; i++) {
             try {
-                return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                // 强制使用 HTTP/1.1 以避免某些 API (如阿里云) 的 HTTP/2 EOF 错误
+                HttpClient httpClient = plugin.getHttpClients().get(HttpClientRegistry.Profile.API, request.uri().toString());
+                return plugin.getCircuitBreakers().send(httpClient, request, handler);
             } catch (IOException e) {
                 String errorMsg = e.getMessage();
                 // 常见的偶发性网络错误，值得重试
@@ -92,223 +102,254 @@ public class CloudFlareAI {
         throw new IOException("请求失败：超过最大重试次数");
     }
 
-    public void shutdown() {
-        // Java 标准库的 HttpClient 不需要显式关闭
-        // 它使用系统默认的 executor，会随 JVM 退出而终止
-        plugin.getLogger().info("[CloudFlareAI] HTTP 客户端已完成关闭（java.net.http.HttpClient 无需特殊操作）。");
-    }
-
     /**
-     * 记录交互日志到文件
-     * 记录完整的请求和响应内容（排除 API Key，格式化 JSON）
+     * 发送玩家对话请求，并按服务商记录网络耗时（到收到响应头为止，响应体由 {@link #parseChat} 边读边解析）
      */
-    private void logInteraction(DialogueSession session, String requestBody, String responseBody) {
+    private HttpResponse<InputStream> sendChat(HttpRequest request, ProviderRouter.Provider provider) throws IOException, InterruptedException {
+        long start = System.nanoTime();
         try {
-            // 1. 记录请求内容
-            StringBuilder requestSb = new StringBuilder();
-            try {
-                JsonElement reqEl = gson.fromJson(requestBody, JsonElement.class);
-                if (reqEl.isJsonObject()) {
-                    JsonObject reqObj = reqEl.getAsJsonObject();
-                    
-                    // 记录模型信息
-                    if (reqObj.has("model")) {
-                        requestSb.append("Model: ").append(reqObj.get("model").getAsString()).append("\n\n");
-                    }
-                    
-                    // 记录消息（只记录本次新增的消息，避免重复记录历史上下文）
-                    if (reqObj.has("messages") && reqObj.get("messages").isJsonArray()) {
-                        JsonArray messages = reqObj.get("messages").getAsJsonArray();
-                        int lastLoggedCount = session.getLastLoggedMessageCount();
-                        int newMessageCount = messages.size() - lastLoggedCount;
-                        
-                        if (newMessageCount > 0) {
-                            requestSb.append("New Messages (").append(newMessageCount).append(" items):\n");
-                            
-                            // 只记录新增的消息（从 lastLoggedCount 开始）
-                            for (int i = lastLoggedCount; i < messages.size(); i++) {
-                                JsonObject msg = messages.get(i).getAsJsonObject();
-                                if (msg.has("role") && msg.has("content")) {
-                                    String role = msg.get("role").getAsString();
-                                    String content = msg.get("content").getAsString();
-                                    
-                                    // 记录系统提示词（只记录一次）
-                                    if ("system".equals(role)) {
-                                        session.logSystemPrompt(content);
-                                    } else {
-                                        requestSb.append("\n[").append(role.toUpperCase()).append("]:\n");
-                                        requestSb.append(content).append("\n");
-                                    }
-                                }
-                            }
-                            
-                            // 更新已记录的消息数量
-                            session.setLastLoggedMessageCount(messages.size());
-                        } else {
-                            requestSb.append("No new messages (all already logged)\n");
-                        }
-                    }
-                    
-                    // 记录其他参数
-                    if (reqObj.has("max_tokens")) {
-                        requestSb.append("\nMax Tokens: ").append(reqObj.get("max_tokens").getAsInt()).append("\n");
-                    }
-                    if (reqObj.has("temperature")) {
-                        requestSb.append("Temperature: ").append(reqObj.get("temperature").getAsDouble()).append("\n");
-                    }
-                }
-            } catch (Exception e) {
-                requestSb.append("Raw Request:\n").append(requestBody).append("\n");
-            }
-            session.logAIRequest(requestSb.toString());
-            
-            // 2. 记录响应内容
-            StringBuilder responseSb = new StringBuilder();
-            try {
-                JsonElement respEl = gson.fromJson(responseBody, JsonElement.class);
-                if (respEl.isJsonObject()) {
-                    JsonObject respObj = respEl.getAsJsonObject();
-                    
-                    // 记录响应内容
-                    if (respObj.has("choices") && respObj.get("choices").isJsonArray()) {
-                        JsonArray choices = respObj.get("choices").getAsJsonArray();
-                        if (!choices.isEmpty()) {
-                            JsonObject choice = choices.get(0).getAsJsonObject();
-                            if (choice.has("message") && choice.get("message").isJsonObject()) {
-                                JsonObject message = choice.get("message").getAsJsonObject();
-                                if (message.has("content")) {
-                                    String content = message.get("content").getAsString();
-                                    responseSb.append(content).append("\n");
-                                }
-                            }
-                            if (choice.has("finish_reason")) {
-                                responseSb.append("\nFinish Reason: ").append(choice.get("finish_reason").getAsString()).append("\n");
-                            }
-                        }
-                    }
-                    
-                    // 记录 token 使用情况
-                    if (respObj.has("usage") && respObj.get("usage").isJsonObject()) {
-                        JsonObject usage = respObj.get("usage").getAsJsonObject();
-                        responseSb.append("\nToken Usage: ");
-                        if (usage.has("prompt_tokens")) {
-                            responseSb.append("prompt=").append(usage.get("prompt_tokens").getAsInt());
-                        }
-                        if (usage.has("completion_tokens")) {
-                            responseSb.append(", completion=").append(usage.get("completion_tokens").getAsInt());
-                        }
-                        if (usage.has("total_tokens")) {
-                            responseSb.append(", total=").append(usage.get("total_tokens").getAsInt());
-                        }
-                        responseSb.append("\n");
-                    }
-                }
-            } catch (Exception e) {
-                responseSb.append("Raw Response:\n").append(responseBody).append("\n");
+            return sendWithRetry(request, HttpResponse.BodyHandlers.ofInputStream());
+        } finally {
+            MetricsRegistry metrics = plugin.getMetrics();
+            if (metrics != null) {
+                metrics.observeNanos(MetricsRegistry.AI_NETWORK_SECONDS, System.nanoTime() - start, "provider", provider.toString());
             }
-            session.logAIResponse(responseSb.toString());
-            
-        } catch (Exception e) {
-            // 异常回退 - 使用原始方法记录
-            session.appendLog("AI_RAW_DEBUG", "Request:\n" + requestBody + "\n\nResponse:\n" + responseBody);
         }
     }
 
     /**
-     * 构建消息数组（OpenAI 和 CloudFlare API 通用）
+     * 从响应流解析玩家对话的响应，并按服务商记录解析耗时（含读取响应体）与 Token 用量
      */
-    private JsonArray buildMessagesArray(DialogueSession session, String systemPrompt) {
-        JsonArray messagesArray = new JsonArray();
-
-        String safeSystemPrompt = (systemPrompt != null && !systemPrompt.isEmpty()) ? systemPrompt : "你是一个得力的助手。";
-        safeSystemPrompt = safeSystemPrompt.trim();
+    private ResponseParser.Decoded parseChat(HttpResponse<InputStream> response, DialogueSession session,
+                                             ProviderRouter.Provider provider) throws IOException {
+        long start = System.nanoTime();
+        ResponseParser.Decoded decoded = decode(response, session);
+        AIResponse aiResponse = decoded.getResponse();
+        MetricsRegistry metrics = plugin.getMetrics();
+        if (metrics != null && metrics.isEnabled()) {
+            String name = provider.toString();
+            metrics.observeNanos(MetricsRegistry.AI_PARSE_SECONDS, System.nanoTime() - start, "provider", name);
+            if (aiResponse != null) {
+                metrics.add(MetricsRegistry.AI_TOKENS, aiResponse.getPromptTokens(), "provider", name, "direction", "in");
+                metrics.add(MetricsRegistry.AI_TOKENS, aiResponse.getCompletionTokens(), "provider", name, "direction", "out");
+            }
+        }
+        return decoded;
+    }
 
-        if (safeSystemPrompt.isEmpty()) {
-            safeSystemPrompt = "你是一个得力的助手。";
+    /**
+     * 从响应流直接解码，不再先读成字符串。
+     * 只有会话日志开启时才保留完整的原始响应体；仅开启调试时保留开头部分用于控制台输出
+     *
+     * @param session 当前会话，为 null 时不保留原始响应体（调试模式除外）
+     */
+    private ResponseParser.Decoded decode(HttpResponse<InputStream> response, DialogueSession session) throws IOException {
+        int keepChars = 0;
+        if (session != null && session.getLogFilePath() != null) {
+            keepChars = Integer.MAX_VALUE;
+        } else if (plugin.getConfigManager().isDebug()) {
+            keepChars = DEBUG_BODY_CHARS;
+        }
+        try (InputStream body = response.body()) {
+            ResponseParser.Decoded decoded = responseParser.decode(body, keepChars);
+            if (decoded.getRaw() != null && plugin.getConfigManager().isDebug()) {
+                logDebugBody(decoded.getRaw());
+            }
+            return decoded;
         }
+    }
 
-        JsonObject systemMsg = new JsonObject();
-        systemMsg.addProperty("role", "system");
-        systemMsg.addProperty("content", safeSystemPrompt);
-        messagesArray.add(systemMsg);
-        if (plugin.getConfigManager().isDebug()) {
-            plugin.getLogger().info("[AI 请求] 已添加 System Prompt (长度: " + safeSystemPrompt.length() + ")");
+    /**
+     * 完整读取响应体，仅用于非 200 的错误响应（通常很短）
+     */
+    private String readBody(HttpResponse<InputStream> response) throws IOException {
+        try (InputStream body = response.body()) {
+            String text = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+            if (plugin.getConfigManager().isDebug()) {
+                logDebugBody(text);
+            }
+            return text;
         }
+    }
 
-        List<DialogueSession.Message> historyCopy = new ArrayList<>(session.getHistory());
-        if (plugin.getConfigManager().isDebug()) {
-            plugin.getLogger().info("[AI 请求] 正在处理 " + historyCopy.size() + " 条历史消息");
+    /**
+     * 丢弃不再需要的响应体，释放连接
+     */
+    private static void discardBody(HttpResponse<InputStream> response) {
+        try {
+            response.body().close();
+        } catch (IOException ignored) {
+            // 连接随后由客户端回收
         }
+    }
 
-        for (DialogueSession.Message msg : historyCopy) {
-            String content = msg.getContent();
-            String role = msg.getRole();
+    /**
+     * 调试日志：输出响应体前 500 个字符
+     */
+    private void logDebugBody(String body) {
+        String debugBody = body.length() > DEBUG_BODY_CHARS ? body.substring(0, DEBUG_BODY_CHARS) + "..." : body;
+        plugin.getLogger().info("[AI 调试] 响应体内容: " + debugBody);
+    }
 
-            if (content == null || role == null) {
-                if (plugin.getConfigManager().isDebug()) {
-                    plugin.getLogger().info("[AI 请求] 已跳过内容或角色为空的消息 (Role: " + role + ")");
-                }
-                continue;
-            }
+    /**
+     * 无法解析时用于警告的响应描述：有保留的原始响应体时输出原文，否则只输出 finish_reason
+     */
+    private static String describe(ResponseParser.Decoded decoded) {
+        if (decoded.getRaw() != null) {
+            return decoded.getRaw();
+        }
+        return "finish_reason=" + decoded.getFinishReason() + "（开启 debug 或会话日志可查看原始响应）";
+    }
 
-            content = content.trim();
-            role = role.trim();
+    public void shutdown() {
+        // HTTP 客户端由 HttpClientRegistry 统一管理，在插件禁用时关闭
+        plugin.getLogger().info("[CloudFlareAI] 已完成关闭。");
+    }
 
-            if (content.isEmpty() || role.isEmpty()) {
-                if (plugin.getConfigManager().isDebug()) {
-                    plugin.getLogger().info("[AI 请求] 已跳过修整后为空的消息 (Role: " + role + ")");
-                }
-                continue;
+    /**
+     * 记录一次成功的交互到会话日志。
+     * 直接使用已构建的请求体与解码结果，格式化与写入都交给会话日志的写入线程，请求线程上不做任何日志相关的 JSON 处理；
+     * 会话日志未开启时直接返回
+     *
+     * @param body 已发送的请求体（发送后不再修改）
+     */
+    private void logInteraction(DialogueSession session, ChatRequestBody body, ResponseParser.Decoded decoded) {
+        if (session.getLogFilePath() == null) return;
+        session.submitLog(() -> {
+            logRequest(session, body);
+
+            StringBuilder responseSb = new StringBuilder();
+            AIResponse response = decoded.getResponse();
+            if (response != null && response.getContent() != null) {
+                responseSb.append(response.getContent()).append("\n");
+            } else if (decoded.getRaw() != null) {
+                responseSb.append("Raw Response:\n").append(decoded.getRaw()).append("\n");
+            }
+            if (decoded.getFinishReason() != null) {
+                responseSb.append("\nFinish Reason: ").append(decoded.getFinishReason()).append("\n");
+            }
+            if (decoded.hasUsage()) {
+                responseSb.append("\nToken Usage: prompt=").append(decoded.getPromptTokens())
+                        .append(", completion=").append(decoded.getCompletionTokens())
+                        .append(", total=").append(decoded.getTotalTokens()).append("\n");
             }
+            session.logAIResponse(responseSb.toString());
+        });
+    }
 
-            if ("system".equalsIgnoreCase(role)) {
-                if (plugin.getConfigManager().isDebug()) {
-                    plugin.getLogger().info("[AI 请求] 跳过重复的 system 消息");
+    /**
+     * 记录一次失败的交互（非 200 响应）到会话日志
+     */
+    private void logInteraction(DialogueSession session, ChatRequestBody body, int statusCode, String responseBody) {
+        if (session.getLogFilePath() == null) return;
+        session.submitLog(() -> {
+            logRequest(session, body);
+            session.logAIResponse("Status: " + statusCode + "\n" + responseBody + "\n");
+        });
+    }
+
+    /**
+     * 记录请求内容：模型、本次新增的消息与其他参数（在会话日志写入线程上执行）
+     */
+    private void logRequest(DialogueSession session, ChatRequestBody body) {
+        StringBuilder requestSb = new StringBuilder();
+        // 记录模型信息
+        requestSb.append("Model: ").append(body.getModel()).append("\n\n");
+
+        // 记录消息（只记录本次新增的消息，避免重复记录历史上下文）
+        List<DialogueSession.Message> messages = body.getMessages();
+        int lastLoggedCount = session.getLastLoggedMessageCount();
+        int newMessageCount = messages.size() - lastLoggedCount;
+
+        if (newMessageCount > 0) {
+            requestSb.append("New Messages (").append(newMessageCount).append(" items):\n");
+
+            // 只记录新增的消息（从 lastLoggedCount 开始）
+            for (int i = lastLoggedCount; i < messages.size(); i++) {
+                DialogueSession.Message msg = messages.get(i);
+                // 记录系统提示词（只记录一次）
+                if ("system".equals(msg.getRole())) {
+                    session.logSystemPrompt(msg.getContent());
+                } else {
+                    requestSb.append("\n[").append(msg.getRole().toUpperCase()).append("]:\n");
+                    requestSb.append(msg.getContent()).append("\n");
                 }
-                continue;
             }
 
-            JsonObject m = new JsonObject();
-            m.addProperty("role", role);
-            m.addProperty("content", content);
-            messagesArray.add(m);
+            // 更新已记录的消息数量
+            session.setLastLoggedMessageCount(messages.size());
+        } else {
+            requestSb.append("No new messages (all already logged)\n");
         }
 
-        // 验证消息数组
-        for (int i = 0; i < messagesArray.size(); i++) {
-            JsonObject msg = messagesArray.get(i).getAsJsonObject();
-            String role = msg.get("role").getAsString();
-            String content = msg.get("content").getAsString();
-            if (role == null || content == null) {
-                plugin.getLogger().severe("[AI 请求] 在消息数组索引 " + i + " 处检测到空值");
-                throw new IllegalArgumentException("消息验证失败: 数组中存在空值");
-            }
-        }
+        // 记录其他参数
+        requestSb.append("\nMax Tokens: ").append(body.getMaxTokens()).append("\n");
+        session.logAIRequest(requestSb.toString());
+    }
 
-        // 如果消息数量过少，添加备用用户消息
-        if (messagesArray.size() <= 1) {
-            JsonObject m = new JsonObject();
-            m.addProperty("role", "user");
-            m.addProperty("content", "hello");
-            messagesArray.add(m);
-            if (plugin.getConfigManager().isDebug()) {
-                plugin.getLogger().info("[AI 请求] 已添加备用用户消息");
-            }
+    /**
+     * 构建玩家对话的请求体（OpenAI 和 CloudFlare API 通用）
+     */
+    private ChatRequestBody buildRequestBody(DialogueSession session, String systemPrompt, String model) {
+        List<DialogueSession.Message> historyCopy = new ArrayList<>(session.getHistory());
+        ChatRequestBody body = new ChatRequestBody(model, systemPrompt, historyCopy);
+        if (plugin.getConfigManager().isDebug()) {
+            plugin.getLogger().info("[AI 请求] 历史消息 " + historyCopy.size() + " 条，其中 "
+                    + (body.getMessages().size() - 1) + " 条将被发送");
         }
+        return body;
+    }
 
-        return messagesArray;
+    /**
+     * CloudFlare 请求参数：gpt-oss 模型使用 Responses API（input 字段与 reasoning 参数）
+     */
+    private void applyCloudFlareOptions(ChatRequestBody body, String model, boolean useResponsesApi) {
+        if (useResponsesApi) {
+            body.messagesField("input");
+            JsonObject reasoning = new JsonObject();
+            reasoning.addProperty("effort", "medium");
+            reasoning.addProperty("summary", "detailed");
+            body.option("reasoning", reasoning);
+        } else if (model.contains("gpt") || model.contains("o1") || model.contains("deepseek-reasoner")) {
+            body.option("reasoning_effort", "medium");
+        }
     }
 
     private String fetchAccountId() throws IOException {
-        // 从 Cloudflare API 获取 Account ID 并缓存，依赖配置中的 cf_key
-        if (cachedAccountId != null) return cachedAccountId;
+        return fetchAccountId(plugin.getConfigManager().getCloudflareCfKey());
+    }
+
+    private String fetchAccountId(String cfKey) throws IOException {
+        // 从 Cloudflare API 获取 Account ID 并按 cf_key 缓存
+        String cached = accountIds.get(cfKey);
+        if (cached != null) return cached;
 
-        String cfKey = plugin.getConfigManager().getCloudflareCfKey();
         if (cfKey.isEmpty()) {
             plugin.getLogger().severe("[AI 错误] 未配置 Cloudflare API Key");
             throw new IOException("§zFancyHelper§b§r §7> §fAPI调用发生未知错误，请查看控制台");
         }
 
+        // 重启后优先使用已持久化的 Account ID，省去首次对话前的一次阻塞往返
+        String persisted = plugin.getConfigManager().getPlayerData().getString(ACCOUNT_ID_PATH + keyHash(cfKey));
+        if (persisted != null && !persisted.isEmpty()) {
+            accountIds.put(cfKey, persisted);
+            return persisted;
+        }
+        return refreshAccountId(cfKey);
+    }
+
+    /**
+     * 从 Cloudflare API 重新获取 Account ID，更新内存缓存并持久化
+     *
+     * @param cfKey CloudFlare API Key
+     * @return Account ID
+     */
+    public String refreshAccountId(String cfKey) throws IOException {
+        if (cfKey == null || cfKey.isEmpty()) {
+            plugin.getLogger().severe("[AI 错误] 未配置 Cloudflare API Key");
+            throw new IOException("§zFancyHelper§b§r §7> §fAPI调用发生未知错误，请查看控制台");
+        }
+
         try {
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(ACCOUNTS_URL))
@@ -317,7 +358,7 @@ public class CloudFlareAI {
                     .GET()
                     .build();
 
-            HttpResponse<String> response = sendWithRetry(request);
+            HttpResponse<String> response = sendWithRetry(request, HttpResponse.BodyHandlers.ofString());
 
             if (response.statusCode() != 200) {
                 plugin.getLogger().warning("[AI 错误] 获取 Account ID 失败: " + response.statusCode());
@@ -328,8 +369,10 @@ public class CloudFlareAI {
             JsonObject resultJson = gson.fromJson(response.body(), JsonObject.class);
 
             if (resultJson.has("result") && resultJson.getAsJsonArray("result").size() > 0) {
-                cachedAccountId = resultJson.getAsJsonArray("result").get(0).getAsJsonObject().get("id").getAsString();
-                return cachedAccountId;
+                String accountId = resultJson.getAsJsonArray("result").get(0).getAsJsonObject().get("id").getAsString();
+                accountIds.put(cfKey, accountId);
+                persistAccountId(cfKey, accountId);
+                return accountId;
             } else {
                 plugin.getLogger().warning("[AI 错误] 未找到关联的 CloudFlare 账户");
                 throw new IOException("§zFancyHelper§b§r §7> §fAPI调用发生未知错误，请查看控制台");
@@ -341,22 +384,139 @@ public class CloudFlareAI {
         }
     }
 
-    public AIResponse chat(DialogueSession session, String systemPrompt) throws IOException {
-        // 检测是否启用 OpenAI 模式
-        if (plugin.getConfigManager().isOpenAiEnabled()) {
-            return chatWithOpenAI(session, systemPrompt);
+    /**
+     * 丢弃缓存的 Account ID（账户不匹配时调用），下次请求重新获取
+     */
+    private void forgetAccountId(String cfKey) {
+        if (accountIds.remove(cfKey) != null) {
+            persistAccountId(cfKey, null);
         }
-        // 否则使用 CloudFlare Workers AI
-        return chatWithCloudFlare(session, systemPrompt);
+    }
+
+    /**
+     * 在主线程写入并保存玩家数据文件中的 Account ID（null 表示删除）；
+     * 获取 Account ID 运行在 I/O 线程或连接预热线程上，不能直接修改 Bukkit 配置对象
+     */
+    private void persistAccountId(String cfKey, String accountId) {
+        String path = ACCOUNT_ID_PATH + keyHash(cfKey);
+        Runnable save = () -> {
+            FileConfiguration playerData = plugin.getConfigManager().getPlayerData();
+            if (!Objects.equals(accountId, playerData.getString(path))) {
+                playerData.set(path, accountId);
+                plugin.getConfigManager().savePlayerData();
+            }
+        };
+        if (Bukkit.isPrimaryThread()) {
+            save.run();
+        } else if (plugin.isEnabled()) {
+            TickProfiler.runTask(plugin, "ai.save_account_id", save);
+        }
+    }
+
+    /**
+     * cf_key 的 SHA-256 摘要前 16 位，避免在数据文件中保存密钥原文
+     */
+    static String keyHash(String cfKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(cfKey.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                sb.append(String.format("%02x", digest[i]));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 按模型层级发起一轮玩家对话：FAST 层使用副模型，失败时自动升级到主模型；两层分别记录延迟与 Token。
+     * 会话第一轮会先查询问答缓存
+     *
+     * @param tier 由 {@link ModelTierRouter#classify} 得出的层级
+     */
+    public AIResponse chat(DialogueSession session, String systemPrompt, ModelTierRouter.Tier tier) throws IOException {
+        MetricsRegistry metrics = plugin.getMetrics();
+        if (metrics != null) {
+            metrics.observeNanos(MetricsRegistry.AI_QUEUE_SECONDS, IoExecutor.currentQueuedNanos());
+        }
+        // 会话第一轮的相同问题直接复用缓存的回答
+        AnswerCache cache = plugin.getAnswerCache();
+        AnswerCache.Lookup lookup = cache != null ? cache.lookup(session, systemPrompt, modelKeyOf(tier)) : null;
+        if (lookup != null && lookup.getAnswer() != null) {
+            session.appendLog("ANSWER_CACHE", "命中问答缓存，未调用 AI");
+            return lookup.getAnswer();
+        }
+        AIResponse response = chatByTier(session, systemPrompt, tier);
+        if (lookup != null) {
+            cache.store(lookup, response);
+        }
+        return response;
+    }
+
+    /**
+     * 问答缓存键中的模型部分：同一问题在不同模型下的回答分开缓存
+     */
+    private String modelKeyOf(ModelTierRouter.Tier tier) {
+        ProviderRouter.Provider fast = tier == ModelTierRouter.Tier.FAST ? plugin.getModelTierRouter().getFastProvider() : null;
+        if (fast != null) {
+            return fast.getId();
+        }
+        StringBuilder sb = new StringBuilder();
+        for (ProviderRouter.Provider provider : plugin.getProviderRouter().getProviders()) {
+            sb.append(provider.getId()).append(';');
+        }
+        return sb.toString();
+    }
+
+    private AIResponse chatByTier(DialogueSession session, String systemPrompt, ModelTierRouter.Tier tier) throws IOException {
+        ModelTierRouter tiers = plugin.getModelTierRouter();
+        if (tier == ModelTierRouter.Tier.FAST) {
+            ProviderRouter.Provider fast = tiers.getFastProvider();
+            if (fast != null) {
+                long start = System.currentTimeMillis();
+                try {
+                    AIResponse response = fast.getType() == ProviderRouter.Type.OPENAI
+                            ? chatWithOpenAI(session, systemPrompt, fast, false)
+                            : chatWithCloudFlare(session, systemPrompt, fast, false);
+                    tiers.record(ModelTierRouter.Tier.FAST, System.currentTimeMillis() - start, response);
+                    if (plugin.getConfigManager().isDebug()) {
+                        plugin.getLogger().info("[AI 分层] 本轮使用快速模型 " + fast + "，耗时 " + (System.currentTimeMillis() - start) + "ms");
+                    }
+                    return response;
+                } catch (IOException e) {
+                    tiers.recordEscalation();
+                    plugin.getLogger().warning("[AI 分层] 快速模型调用失败，改用主模型: " + e.getMessage());
+                }
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        AIResponse response = chat(session, systemPrompt);
+        tiers.record(ModelTierRouter.Tier.MAIN, System.currentTimeMillis() - start, response);
+        return response;
+    }
+
+    public AIResponse chat(DialogueSession session, String systemPrompt) throws IOException {
+        // 由路由器选择服务商（OpenAI 兼容 API 或 CloudFlare Workers AI），必要时对冲与故障转移
+        ProviderRouter router = plugin.getProviderRouter();
+        List<ProviderRouter.Provider> providers = router.getProviders();
+        // 只有一个服务商时无处转移，保留服务商内部的退避重试
+        boolean retryInternally = providers.size() == 1;
+        return router.execute(providers, provider -> provider.getType() == ProviderRouter.Type.OPENAI
+                ? chatWithOpenAI(session, systemPrompt, provider, retryInternally)
+                : chatWithCloudFlare(session, systemPrompt, provider, retryInternally));
     }
 
     /**
      * 使用 OpenAI 兼容 API 进行对话
+     * @param retryInternally 是否在 429/5xx 时原地退避重试（多服务商时交由路由器切换）
      */
-    private AIResponse chatWithOpenAI(DialogueSession session, String systemPrompt) throws IOException {
-        String apiUrl = plugin.getConfigManager().getOpenAiApiUrl();
-        String apiKey = plugin.getConfigManager().getOpenAiApiKey();
-        String model = plugin.getConfigManager().getOpenAiModel();
+    private AIResponse chatWithOpenAI(DialogueSession session, String systemPrompt, ProviderRouter.Provider provider,
+                                      boolean retryInternally) throws IOException {
+        String apiUrl = provider.getApiUrl();
+        String apiKey = provider.getApiKey();
+        String model = provider.getModel();
 
         if (apiKey == null || apiKey.isEmpty()) {
             return new AIResponse("错误: 请先在配置文件中设置 openai.api_key。", null, 0, 0, false);
@@ -394,23 +554,16 @@ public class CloudFlareAI {
             }
         }
 
-        // 构建消息数组
-        JsonArray messagesArray = buildMessagesArray(session, systemPrompt);
-
-        // 构建请求体
-        JsonObject bodyJson = new JsonObject();
-        bodyJson.addProperty("model", model);
-        bodyJson.add("messages", messagesArray);
-        bodyJson.addProperty("max_tokens", 4096);
+        // 构建请求体（历史消息使用缓存的 JSON 片段）
+        ChatRequestBody body = buildRequestBody(session, systemPrompt, model);
 
         // 对于支持推理参数的模型（如 deepseek-reasoner、o1、qwen-max 等），添加推理参数
         if (model.contains("reasoner") || model.contains("o1") || model.contains("deepseek") || model.contains("qwen")) {
-            bodyJson.addProperty("reasoning_effort", "medium");
+            body.option("reasoning_effort", "medium");
         }
 
-        String bodyString = gson.toJson(bodyJson);
         if (plugin.getConfigManager().isDebug()) {
-            plugin.getLogger().info("[AI 请求] 消息数: " + messagesArray.size());
+            plugin.getLogger().info("[AI 请求] 消息数: " + body.getMessages().size());
         }
 
         try {
@@ -419,11 +572,10 @@ public class CloudFlareAI {
                     .header("Authorization", "Bearer " + apiKey)
                     .header("Content-Type", "application/json; charset=utf-8")
                     .timeout(Duration.ofSeconds(plugin.getConfigManager().getApiTimeoutSeconds()))
-                    .POST(HttpRequest.BodyPublishers.ofString(bodyString, StandardCharsets.UTF_8))
+                    .POST(body.publisher())
                     .build();
 
-            HttpResponse<String> response = sendWithRetry(request);
-            String responseBody = response.body();
+            HttpResponse<InputStream> response = sendChat(request, provider);
             int statusCode = response.statusCode();
             if (plugin.getConfigManager().isDebug()) {
                 plugin.getLogger().info("[AI 响应] 状态码: " + statusCode);
@@ -432,11 +584,12 @@ public class CloudFlareAI {
             // 处理临时性错误（可重试），包括：429、500、502、503、504
             int maxRetries = 3;
             int retryCount = 0;
-            while (isRetryableError(statusCode) && retryCount < maxRetries) {
+            while (retryInternally && isRetryableError(statusCode) && retryCount < maxRetries) {
                 retryCount++;
                 
                 String errorType = getErrorTypeDescription(statusCode);
                 long waitSeconds = extractRetryAfter(response);
+                discardBody(response);
                 
                 if (waitSeconds <= 0) {
                     // 使用指数退避策略：2秒、4秒、8秒
@@ -465,8 +618,7 @@ public class CloudFlareAI {
                 }
                 
                 // 重新发送请求
-                response = sendWithRetry(request);
-                responseBody = response.body();
+                response = sendChat(request, provider);
                 statusCode = response.statusCode();
                 
                 if (plugin.getConfigManager().isDebug()) {
@@ -474,16 +626,11 @@ public class CloudFlareAI {
                 }
             }
 
-            // 调试日志：输出响应体前 500 个字符
-            if (responseBody != null && plugin.getConfigManager().isDebug()) {
-                String debugBody = responseBody.length() > 500 ? responseBody.substring(0, 500) + "..." : responseBody;
-                plugin.getLogger().info("[AI 调试] 响应体内容: " + debugBody);
-            }
-
-            // 记录原始输入和输出到调试日志文件
-            logInteraction(session, bodyString, responseBody);
-
             if (statusCode != 200) {
+                String responseBody = readBody(response);
+                // 记录原始输入和输出到调试日志文件
+                logInteraction(session, body, statusCode, responseBody);
+
                 String errorPrompt = getErrorPrompt(statusCode);
                 String errorLogMsg = getErrorLogMessage(statusCode);
                 String errorMsg;
@@ -495,11 +642,13 @@ public class CloudFlareAI {
                     plugin.getLogger().warning("状态码: " + statusCode);
                     plugin.getLogger().warning("响应体: " + responseBody);
                 }
-                throw new IOException(errorMsg);
+                throw new ProviderRouter.ProviderException(errorMsg, statusCode, isRetryableError(statusCode));
             }
 
-            JsonObject responseJson = gson.fromJson(responseBody, JsonObject.class);
-            AIResponse aiResponse = responseParser.parseResponse(responseJson);
+            ResponseParser.Decoded decoded = parseChat(response, session, provider);
+            // 记录输入和输出到调试日志文件
+            logInteraction(session, body, decoded);
+            AIResponse aiResponse = decoded.getResponse();
             
             if (aiResponse != null && aiResponse.getContent() != null) {
                 String thoughtContent = aiResponse.getThought();
@@ -511,7 +660,7 @@ public class CloudFlareAI {
                 return aiResponse;
             }
 
-            plugin.getLogger().warning("[AI 错误] 无法解析 OpenAI API 响应: " + responseBody);
+            plugin.getLogger().warning("[AI 错误] 无法解析 OpenAI API 响应: " + describe(decoded));
             throw new IOException("§zFancyHelper§b§r §7> §fAPI调用发生未知错误，请查看控制台");
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -525,7 +674,7 @@ public class CloudFlareAI {
      * @param response HTTP 响应
      * @return 等待秒数，如果未找到则返回 0
      */
-    private long extractRetryAfter(HttpResponse<String> response) {
+    private long extractRetryAfter(HttpResponse<?> response) {
         // 尝试获取 Retry-After 头
         String retryAfter = response.headers().firstValue("Retry-After").orElse(null);
         if (retryAfter != null && !retryAfter.isEmpty()) {
@@ -639,10 +788,11 @@ public class CloudFlareAI {
     /**
      * 使用 CloudFlare Workers AI 进行对话
      */
-    private AIResponse chatWithCloudFlare(DialogueSession session, String systemPrompt) throws IOException {
+    private AIResponse chatWithCloudFlare(DialogueSession session, String systemPrompt, ProviderRouter.Provider provider,
+                                          boolean retryInternally) throws IOException {
         // 将会话历史与 systemPrompt 打包为 CloudFlare Responses API 所需的 JSON，发起 HTTP 请求并解析返回
-        String cfKey = plugin.getConfigManager().getCloudflareCfKey();
-        String model = plugin.getConfigManager().getCloudflareModel();
+        String cfKey = provider.getApiKey();
+        String model = provider.getModel();
 
         if (cfKey == null || cfKey.isEmpty()) {
             return new AIResponse("错误: 请先在配置文件中设置 CloudFlare cf_key。", null, 0, 0, false);
@@ -655,7 +805,7 @@ public class CloudFlareAI {
 
         String accountId;
         try {
-            accountId = fetchAccountId();
+            accountId = fetchAccountId(cfKey);
         } catch (IOException e) {
             plugin.getLogger().severe("[AI 错误] 获取 Account ID 失败: " + e.getMessage());
             plugin.getCloudErrorReport().report(e);
@@ -668,43 +818,13 @@ public class CloudFlareAI {
             plugin.getLogger().info("[AI 请求] URL: " + url);
         }
 
-        // 使用公共方法构建消息数组
-        JsonArray messagesArray = buildMessagesArray(session, systemPrompt);
-
-        JsonObject bodyJson = new JsonObject();
-        bodyJson.addProperty("model", model);
-        bodyJson.addProperty("max_tokens", 4096);
-
-        if (useResponsesApi) {
-            bodyJson.add("input", messagesArray);
-            JsonObject reasoning = new JsonObject();
-            reasoning.addProperty("effort", "medium");
-            reasoning.addProperty("summary", "detailed");
-            bodyJson.add("reasoning", reasoning);
-        } else {
-            bodyJson.add("messages", messagesArray);
-            if (model.contains("gpt") || model.contains("o1") || model.contains("deepseek-reasoner")) {
-                bodyJson.addProperty("reasoning_effort", "medium");
-            }
-        }
-
-        String bodyString = gson.toJson(bodyJson);
+        // 构建请求体（历史消息使用缓存的 JSON 片段；role 与 content 在消息创建时已校验，无需再扫描整个载荷）
+        ChatRequestBody body = buildRequestBody(session, systemPrompt, model);
+        applyCloudFlareOptions(body, model, useResponsesApi);
 
         if (plugin.getConfigManager().isDebug()) {
             plugin.getLogger().info("[AI 请求] 模型: " + model);
-            plugin.getLogger().info("[AI 请求] 数组中的总消息数: " + messagesArray.size());
-        }
-
-        if (bodyString.contains("\"content\":null") || bodyString.contains("\"role\":null")) {
-            plugin.getLogger().severe("[AI 错误] 严重：载荷中包含空的 content 或 role！");
-            plugin.getLogger().severe("[AI 错误] 完整载荷: " + bodyString);
-            throw new IOException("§zFancyHelper§b§r §7> §fAPI调用发生未知错误，请查看控制台");
-        }
-
-        if (bodyString.matches(".*\"content\":\\s*\"\"\\s*[,}].*")) {
-            if (plugin.getConfigManager().isDebug()) {
-                plugin.getLogger().warning("[AI 请求] 警告：检测到空的内容字符串");
-            }
+            plugin.getLogger().info("[AI 请求] 数组中的总消息数: " + body.getMessages().size());
         }
 
         try {
@@ -713,32 +833,40 @@ public class CloudFlareAI {
                     .header("Authorization", "Bearer " + cfKey)
                     .header("Content-Type", "application/json; charset=utf-8")
                     .timeout(Duration.ofSeconds(plugin.getConfigManager().getApiTimeoutSeconds()))
-                    .POST(HttpRequest.BodyPublishers.ofString(bodyString, StandardCharsets.UTF_8))
+                    .POST(body.publisher())
                     .build();
 
-            HttpResponse<String> response = sendWithRetry(request);
-            String responseBody = response.body();
+            HttpResponse<InputStream> response = sendChat(request, provider);
             if (plugin.getConfigManager().isDebug()) {
                 plugin.getLogger().info("[AI 响应] 状态码: " + response.statusCode());
             }
 
-            // 记录原始输入和输出到调试日志文件
-            logInteraction(session, bodyString, responseBody);
-
             if (response.statusCode() != 200) {
+                String responseBody = readBody(response);
+                // 记录原始输入和输出到调试日志文件
+                logInteraction(session, body, response.statusCode(), responseBody);
                 plugin.getLogger().warning("[AI 错误] 响应体: " + responseBody);
 
+                // 持久化的 Account ID 可能已失效（如密钥改绑账户），下次请求时重新获取
+                if (response.statusCode() == 403 || response.statusCode() == 404) {
+                    forgetAccountId(cfKey);
+                }
+
                 // 如果是 400 (常见于 payload 错误) 或 500 (常见于推理模型参数不兼容)，尝试使用最简 payload 重试
-                if ((response.statusCode() == 400 || response.statusCode() == 500) && responseBody != null) {
+                // 多服务商时 500 直接交由路由器切换服务商
+                if ((response.statusCode() == 400 || (response.statusCode() == 500 && retryInternally)) && responseBody != null) {
                     plugin.getLogger().warning("[AI] 检测到 CF API 错误 " + response.statusCode() + "，正在尝试使用简化载荷重试...");
                     return retryWithSimplifiedPayload(session, model, useResponsesApi, url, cfKey);
                 }
 
-                throw new IOException("AI 调用失败: " + response.statusCode() + " - " + responseBody);
+                throw new ProviderRouter.ProviderException("AI 调用失败: " + response.statusCode() + " - " + responseBody,
+                        response.statusCode(), isRetryableError(response.statusCode()));
             }
 
-            JsonObject responseJson = gson.fromJson(responseBody, JsonObject.class);
-            AIResponse aiResponse = responseParser.parseResponse(responseJson);
+            ResponseParser.Decoded decoded = parseChat(response, session, provider);
+            // 记录输入和输出到调试日志文件
+            logInteraction(session, body, decoded);
+            AIResponse aiResponse = decoded.getResponse();
             
             if (aiResponse != null && aiResponse.getContent() != null) {
                 String thoughtContent = aiResponse.getThought();
@@ -754,7 +882,7 @@ public class CloudFlareAI {
                 return aiResponse;
             }
 
-            plugin.getLogger().warning("[AI 错误] 无法解析响应: " + responseBody);
+            plugin.getLogger().warning("[AI 错误] 无法解析响应: " + describe(decoded));
             throw new IOException("§zFancyHelper§b§r §7> §fAPI调用发生未知错误，请查看控制台");
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -769,41 +897,14 @@ public class CloudFlareAI {
      */
     private AIResponse retryWithSimplifiedPayload(DialogueSession session, String model, boolean useResponsesApi, 
                                                     String url, String cfKey) throws IOException, InterruptedException {
-        // 构建简化的消息数组
-        JsonArray simpleInput = new JsonArray();
-        JsonObject simpleSystem = new JsonObject();
-        simpleSystem.addProperty("role", "system");
-        simpleSystem.addProperty("content", "你是一个得力的助手。");
-        simpleInput.add(simpleSystem);
-
-        // 获取最后一条用户消息
+        // 构建简化的请求体：默认 system 提示词 + 最后一条用户消息
         String lastUser = getLastUserMessage(session);
-        JsonObject simpleUser = new JsonObject();
-        simpleUser.addProperty("role", "user");
-        simpleUser.addProperty("content", lastUser);
-        simpleInput.add(simpleUser);
-
-        // 构建简化的请求体
-        JsonObject simpleBody = new JsonObject();
-        simpleBody.addProperty("model", model);
-        simpleBody.addProperty("max_tokens", 4096);
-
-        if (useResponsesApi) {
-            simpleBody.add("input", simpleInput);
-            JsonObject reasoning = new JsonObject();
-            reasoning.addProperty("effort", "medium");
-            reasoning.addProperty("summary", "detailed");
-            simpleBody.add("reasoning", reasoning);
-        } else {
-            simpleBody.add("messages", simpleInput);
-            if (model.contains("gpt") || model.contains("o1") || model.contains("deepseek-reasoner")) {
-                simpleBody.addProperty("reasoning_effort", "medium");
-            }
-        }
+        ChatRequestBody simpleBody = new ChatRequestBody(model, null,
+                List.of(new DialogueSession.Message("user", lastUser)));
+        applyCloudFlareOptions(simpleBody, model, useResponsesApi);
 
-        String simpleBodyString = gson.toJson(simpleBody);
         if (plugin.getConfigManager().isDebug()) {
-            plugin.getLogger().info("[AI Request] Retrying with simplified payload: " + simpleBodyString);
+            plugin.getLogger().info("[AI Request] Retrying with simplified payload: " + simpleBody);
         }
 
         HttpRequest simpleRequest = HttpRequest.newBuilder()
@@ -811,31 +912,32 @@ public class CloudFlareAI {
                 .header("Authorization", "Bearer " + cfKey)
                 .header("Content-Type", "application/json; charset=utf-8")
                 .timeout(Duration.ofSeconds(plugin.getConfigManager().getApiTimeoutSeconds()))
-                .POST(HttpRequest.BodyPublishers.ofString(simpleBodyString, StandardCharsets.UTF_8))
+                .POST(simpleBody.publisher())
                 .build();
 
-        HttpResponse<String> simpleResp = sendWithRetry(simpleRequest);
-        String simpleRespBody = simpleResp.body();
+        HttpResponse<InputStream> simpleResp = sendWithRetry(simpleRequest, HttpResponse.BodyHandlers.ofInputStream());
         if (plugin.getConfigManager().isDebug()) {
             plugin.getLogger().info("[AI Response - Retry] Code: " + simpleResp.statusCode());
         }
 
         // 记录重试的原始输入和输出到调试日志文件
         session.appendLog("SYSTEM", "Retrying with simplified payload...");
-        logInteraction(session, simpleBodyString, simpleRespBody);
 
         if (simpleResp.statusCode() != 200) {
+            String simpleRespBody = readBody(simpleResp);
+            logInteraction(session, simpleBody, simpleResp.statusCode(), simpleRespBody);
             plugin.getLogger().warning("[AI Error - Retry] 状态码: " + simpleResp.statusCode());
             plugin.getLogger().warning("[AI Error - Retry] 响应体: " + simpleRespBody);
             throw new IOException("§zFancyHelper§b§r §7> §fAPI调用发生未知错误，请查看控制台");
         }
 
-        JsonObject responseJson = gson.fromJson(simpleRespBody, JsonObject.class);
-        AIResponse retryResponse = responseParser.parseResponse(responseJson);
+        ResponseParser.Decoded decoded = decode(simpleResp, session);
+        logInteraction(session, simpleBody, decoded);
+        AIResponse retryResponse = decoded.getResponse();
         if (retryResponse != null && retryResponse.getContent() != null) {
             return retryResponse;
         }
-        plugin.getLogger().warning("[AI 错误] 无法解析重试响应: " + simpleRespBody);
+        plugin.getLogger().warning("[AI 错误] 无法解析重试响应: " + describe(decoded));
         throw new IOException("§zFancyHelper§b§r §7> §fAPI调用发生未知错误，请查看控制台");
     }
 
@@ -921,16 +1023,15 @@ public class CloudFlareAI {
                     .POST(HttpRequest.BodyPublishers.ofString(bodyString, StandardCharsets.UTF_8))
                     .build();
 
-            HttpResponse<String> response = sendWithRetry(request);
-            String responseBody = response.body();
+            HttpResponse<InputStream> response = sendWithRetry(request, HttpResponse.BodyHandlers.ofInputStream());
 
             if (response.statusCode() != 200) {
+                discardBody(response);
                 plugin.getLogger().warning("[co-model] CloudFlare API 错误: " + response.statusCode());
                 throw new IOException("API调用失败: " + response.statusCode());
             }
 
-            JsonObject responseJson = gson.fromJson(responseBody, JsonObject.class);
-            AIResponse aiResponse = responseParser.parseResponse(responseJson);
+            AIResponse aiResponse = decode(response, null).getResponse();
             
             if (aiResponse != null && aiResponse.getContent() != null) {
                 return aiResponse.getContent().trim();
@@ -994,16 +1095,15 @@ public class CloudFlareAI {
                     .POST(HttpRequest.BodyPublishers.ofString(bodyString, StandardCharsets.UTF_8))
                     .build();
 
-            HttpResponse<String> response = sendWithRetry(request);
-            String responseBody = response.body();
+            HttpResponse<InputStream> response = sendWithRetry(request, HttpResponse.BodyHandlers.ofInputStream());
 
             if (response.statusCode() != 200) {
+                discardBody(response);
                 plugin.getLogger().warning("[co-model] OpenAI API 错误: " + response.statusCode());
                 throw new IOException("API调用失败: " + response.statusCode());
             }
 
-            JsonObject responseJson = gson.fromJson(responseBody, JsonObject.class);
-            AIResponse aiResponse = responseParser.parseResponse(responseJson);
+            AIResponse aiResponse = decode(response, null).getResponse();
             
             if (aiResponse != null && aiResponse.getContent() != null) {
                 return aiResponse.getContent().trim();
@@ -1074,16 +1174,15 @@ public class CloudFlareAI {
                     .POST(HttpRequest.BodyPublishers.ofString(bodyString, StandardCharsets.UTF_8))
                     .build();
 
-            HttpResponse<String> response = sendWithRetry(request);
-            String responseBody = response.body();
+            HttpResponse<InputStream> response = sendWithRetry(request, HttpResponse.BodyHandlers.ofInputStream());
 
             if (response.statusCode() != 200) {
+                discardBody(response);
                 plugin.getLogger().warning("[压缩] CloudFlare API 错误: " + response.statusCode());
                 throw new IOException("压缩失败: " + response.statusCode());
             }
 
-            JsonObject responseJson = gson.fromJson(responseBody, JsonObject.class);
-            AIResponse aiResponse = responseParser.parseResponse(responseJson);
+            AIResponse aiResponse = decode(response, null).getResponse();
             
             if (aiResponse != null && aiResponse.getContent() != null) {
                 return aiResponse.getContent().trim();
@@ -1146,16 +1245,15 @@ public class CloudFlareAI {
                     .POST(HttpRequest.BodyPublishers.ofString(bodyString, StandardCharsets.UTF_8))
                     .build();
 
-            HttpResponse<String> response = sendWithRetry(request);
-            String responseBody = response.body();
+            HttpResponse<InputStream> response = sendWithRetry(request, HttpResponse.BodyHandlers.ofInputStream());
 
             if (response.statusCode() != 200) {
+                discardBody(response);
                 plugin.getLogger().warning("[压缩] OpenAI API 错误: " + response.statusCode());
                 throw new IOException("压缩失败: " + response.statusCode());
             }
 
-            JsonObject responseJson = gson.fromJson(responseBody, JsonObject.class);
-            AIResponse aiResponse = responseParser.parseResponse(responseJson);
+            AIResponse aiResponse = decode(response, null).getResponse();
             
             if (aiResponse != null && aiResponse.getContent() != null) {
                 return aiResponse.getContent().trim();
@@ -0,0 +1,169 @@
+package org.YanPl.api;
+
+import org.YanPl.FancyHelper;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 连接预热：插件启动后在后台解析并持久化 CloudFlare Account ID，
+ * 并向已配置的 AI 与搜索服务预先建立连接（DNS、TCP、TLS），之后定期刷新以保持连接池中的连接存活，
+ * 使重启后第一条消息的延迟与稳定运行时一致。
+ */
+public class ConnectionWarmer {
+    private static final int PRECONNECT_TIMEOUT_SECONDS = 10;
+
+    private final FancyHelper plugin;
+    private final CloudFlareAI ai;
+    private BukkitTask refreshTask;
+
+    public ConnectionWarmer(FancyHelper plugin) {
+        this.plugin = plugin;
+        this.ai = new CloudFlareAI(plugin);
+    }
+
+    /**
+     * 立即在后台执行一次预热，并按配置的间隔定期刷新连接
+     */
+    public void start() {
+        if (!plugin.getConfigManager().isWarmupEnabled() || !plugin.isEnabled()) {
+            return;
+        }
+        plugin.getIoExecutor().execute(() -> warmUp(true));
+
+        long ticks = plugin.getConfigManager().getWarmupRefreshSeconds() * 20L;
+        if (ticks > 0) {
+            refreshTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin,
+                    () -> plugin.getIoExecutor().execute(() -> warmUp(false)), ticks, ticks);
+        }
+    }
+
+    /**
+     * 执行一次预热
+     *
+     * @param refreshAccountIds 是否同时向 Cloudflare 校验并刷新 Account ID（仅启动时需要）
+     */
+    void warmUp(boolean refreshAccountIds) {
+        long start = System.currentTimeMillis();
+        List<ProviderRouter.Provider> providers = plugin.getProviderRouter().getProviders();
+
+        if (refreshAccountIds) {
+            Set<String> cfKeys = new LinkedHashSet<>();
+            for (ProviderRouter.Provider provider : providers) {
+                if (provider.getType() == ProviderRouter.Type.CLOUDFLARE && !provider.getApiKey().isEmpty()) {
+                    cfKeys.add(provider.getApiKey());
+                }
+            }
+            for (String cfKey : cfKeys) {
+                try {
+                    ai.refreshAccountId(cfKey);
+                } catch (IOException e) {
+                    // 已持久化的 Account ID 仍然可用，首次对话时再按需获取
+                    plugin.getLogger().warning("[预热] 获取 CloudFlare Account ID 失败: " + e.getMessage());
+                }
+            }
+        }
+
+        Map<HttpClient, Set<String>> targets = collectTargets(providers);
+        for (Map.Entry<HttpClient, Set<String>> entry : targets.entrySet()) {
+            for (String origin : entry.getValue()) {
+                plugin.getIoExecutor().execute(() -> preconnect(entry.getKey(), origin));
+            }
+        }
+
+        if (plugin.getConfigManager().isDebug()) {
+            plugin.getLogger().info("[预热] 已提交 " + targets.values().stream().mapToInt(Set::size).sum()
+                    + " 个预连接，耗时 " + (System.currentTimeMillis() - start) + "ms");
+        }
+    }
+
+    /**
+     * 收集需要预热的主机，按实际发请求时使用的客户端分组（预建的连接只在同一客户端的连接池内复用）
+     */
+    Map<HttpClient, Set<String>> collectTargets(List<ProviderRouter.Provider> providers) {
+        Map<HttpClient, Set<String>> targets = new LinkedHashMap<>();
+        HttpClientRegistry clients = plugin.getHttpClients();
+
+        for (ProviderRouter.Provider provider : providers) {
+            String url = provider.getType() == ProviderRouter.Type.CLOUDFLARE ? CloudFlareAI.ACCOUNTS_URL : provider.getApiUrl();
+            addTarget(targets, clients.get(HttpClientRegistry.Profile.API, url), url);
+        }
+        MetasoAPI metaso = plugin.getMetasoAPI();
+        if (metaso != null && metaso.isAvailable()) {
+            addTarget(targets, clients.get(MetasoAPI.METASO_API_URL), MetasoAPI.METASO_API_URL);
+        }
+        TavilyAPI tavily = plugin.getTavilyAPI();
+        if (tavily != null && tavily.isAvailable()) {
+            String url = tavily.getApiUrl();
+            addTarget(targets, clients.get(url), url);
+        }
+        addTarget(targets, clients.get(SearchAggregator.WIKI_API_URL), SearchAggregator.WIKI_API_URL);
+        return targets;
+    }
+
+    private void addTarget(Map<HttpClient, Set<String>> targets, HttpClient client, String url) {
+        String origin = originOf(url);
+        if (origin == null) {
+            return;
+        }
+        // 已熔断的服务不做预热，交由熔断器的探测处理
+        CircuitBreakerRegistry breakers = plugin.getCircuitBreakers();
+        if (breakers != null && breakers.forUrl(origin).getState() == CircuitBreakerRegistry.State.OPEN) {
+            return;
+        }
+        targets.computeIfAbsent(client, key -> new LinkedHashSet<>()).add(origin);
+    }
+
+    private void preconnect(HttpClient client, String origin) {
+        long start = System.currentTimeMillis();
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(origin))
+                    .timeout(Duration.ofSeconds(PRECONNECT_TIMEOUT_SECONDS))
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .build();
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (plugin.getConfigManager().isDebug()) {
+                plugin.getLogger().info("[预热] " + origin + " -> " + response.statusCode() + "，耗时 "
+                        + (System.currentTimeMillis() - start) + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            if (plugin.getConfigManager().isDebug()) {
+                plugin.getLogger().info("[预热] 预连接 " + origin + " 失败: "
+                        + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+            }
+        }
+    }
+
+    static String originOf(String url) {
+        try {
+            URI uri = URI.create(url);
+            if (uri.getScheme() == null || uri.getRawAuthority() == null) {
+                return null;
+            }
+            return uri.getScheme() + "://" + uri.getRawAuthority() + "/";
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public void shutdown() {
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+    }
+}
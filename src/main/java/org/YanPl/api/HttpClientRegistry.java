@@ -0,0 +1,227 @@
+package org.YanPl.api;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.manager.ConfigManager;
+
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP 客户端注册表：所有对外请求共用少量长期存活的 HttpClient。
+ * 每个客户端自带连接池（HTTP/1.1 keep-alive 与 HTTP/2 多路复用），复用后不再为每次请求重新握手 TLS 或创建选择器线程；
+ * 所有客户端共用一个有界线程池，并在插件禁用时统一关闭。
+ */
+public class HttpClientRegistry {
+
+    /**
+     * 客户端配置档
+     */
+    public enum Profile {
+        /**
+         * AI 与搜索接口：强制 HTTP/1.1（部分服务商的 HTTP/2 实现会出现 EOF 错误），连接超时取自 api_timeout_seconds
+         */
+        API(HttpClient.Version.HTTP_1_1, -1, HttpClient.Redirect.NEVER),
+        /**
+         * 普通接口：公告、更新检查、Wiki 等
+         */
+        DEFAULT(HttpClient.Version.HTTP_2, 15, HttpClient.Redirect.NEVER),
+        /**
+         * 网页抓取：跟随重定向
+         */
+        BROWSER(HttpClient.Version.HTTP_2, 30, HttpClient.Redirect.NORMAL);
+
+        private final HttpClient.Version version;
+        private final int connectTimeoutSeconds;
+        private final HttpClient.Redirect redirect;
+
+        Profile(HttpClient.Version version, int connectTimeoutSeconds, HttpClient.Redirect redirect) {
+            this.version = version;
+            this.connectTimeoutSeconds = connectTimeoutSeconds;
+            this.redirect = redirect;
+        }
+    }
+
+    /**
+     * 客户端的实际构建参数，相同参数的请求共用同一个客户端
+     */
+    static final class Settings {
+        final HttpClient.Version version;
+        final int connectTimeoutSeconds;
+        final HttpClient.Redirect redirect;
+        final String proxy;
+
+        Settings(HttpClient.Version version, int connectTimeoutSeconds, HttpClient.Redirect redirect, String proxy) {
+            this.version = version;
+            this.connectTimeoutSeconds = connectTimeoutSeconds;
+            this.redirect = redirect;
+            this.proxy = proxy;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Settings)) return false;
+            Settings other = (Settings) o;
+            return connectTimeoutSeconds == other.connectTimeoutSeconds && version == other.version
+                    && redirect == other.redirect && Objects.equals(proxy, other.proxy);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(version, connectTimeoutSeconds, redirect, proxy);
+        }
+    }
+
+    private final FancyHelper plugin;
+    private final Map<String, Profile> hostProfiles = new ConcurrentHashMap<>();
+    private final Map<Settings, HttpClient> clients = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    public HttpClientRegistry(FancyHelper plugin) {
+        this.plugin = plugin;
+        int threads = plugin.getConfigManager().getNetworkMaxThreads();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "FancyHelper-Http-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+
+        // 已知主机的默认配置档
+        hostProfiles.put("api.cloudflare.com", Profile.API);
+        hostProfiles.put("metaso.cn", Profile.API);
+    }
+
+    /**
+     * 为主机指定配置档（包含其子域名）
+     */
+    public void setHostProfile(String host, Profile profile) {
+        hostProfiles.put(host.toLowerCase(Locale.ROOT), profile);
+    }
+
+    /**
+     * 按 URL 的主机选择客户端，未登记的主机使用 DEFAULT 配置档
+     */
+    public HttpClient get(String url) {
+        String host = hostOf(url);
+        Profile profile = Profile.DEFAULT;
+        for (String candidate = host; candidate != null; candidate = parentDomain(candidate)) {
+            Profile mapped = hostProfiles.get(candidate);
+            if (mapped != null) {
+                profile = mapped;
+                break;
+            }
+        }
+        return get(profile, url);
+    }
+
+    /**
+     * 使用指定配置档获取客户端，是否走代理由 URL 的主机决定
+     */
+    public HttpClient get(Profile profile, String url) {
+        return clients.computeIfAbsent(resolve(profile, hostOf(url)), this::build);
+    }
+
+    Settings resolve(Profile profile, String host) {
+        ConfigManager config = plugin.getConfigManager();
+        int connectTimeout = profile.connectTimeoutSeconds > 0 ? profile.connectTimeoutSeconds : config.getApiTimeoutSeconds();
+        String proxy = config.getNetworkProxy();
+        if (proxy == null || proxy.isBlank() || !matchesProxyHosts(host, config.getNetworkProxyHosts())) {
+            proxy = null;
+        }
+        return new Settings(profile.version, connectTimeout, profile.redirect, proxy == null ? null : proxy.trim());
+    }
+
+    private static boolean matchesProxyHosts(String host, List<String> proxyHosts) {
+        if (proxyHosts == null || proxyHosts.isEmpty()) return true;
+        if (host == null) return false;
+        for (String entry : proxyHosts) {
+            String suffix = entry.toLowerCase(Locale.ROOT).trim();
+            if (host.equals(suffix) || host.endsWith("." + suffix)) return true;
+        }
+        return false;
+    }
+
+    private HttpClient build(Settings settings) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(settings.version)
+                .connectTimeout(Duration.ofSeconds(settings.connectTimeoutSeconds))
+                .followRedirects(settings.redirect)
+                .executor(executor);
+        if (settings.proxy != null) {
+            int colon = settings.proxy.lastIndexOf(':');
+            try {
+                String host = settings.proxy.substring(0, colon);
+                int port = Integer.parseInt(settings.proxy.substring(colon + 1));
+                builder.proxy(ProxySelector.of(InetSocketAddress.createUnresolved(host, port)));
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("[Http] 代理地址格式无效（应为 host:port）: " + settings.proxy);
+            }
+        }
+        if (plugin.getConfigManager().isDebug()) {
+            plugin.getLogger().info("[Http] 创建 HTTP 客户端: " + settings.version + "，连接超时 " + settings.connectTimeoutSeconds
+                    + "s" + (settings.proxy != null ? "，代理 " + settings.proxy : ""));
+        }
+        return builder.build();
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String parentDomain(String host) {
+        int dot = host.indexOf('.');
+        return dot != -1 && host.indexOf('.', dot + 1) != -1 ? host.substring(dot + 1) : null;
+    }
+
+    /**
+     * 共享的有界线程池
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * 当前已创建的客户端数量
+     */
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    /**
+     * 关闭所有客户端与共享线程池
+     */
+    public void shutdown() {
+        for (HttpClient client : clients.values()) {
+            // JDK 21 起 HttpClient 提供 shutdownNow，较旧版本在线程池关闭后由 GC 回收
+            try {
+                Method shutdownNow = HttpClient.class.getMethod("shutdownNow");
+                shutdownNow.invoke(client);
+            } catch (ReflectiveOperationException ignored) {
+            }
+        }
+        clients.clear();
+        executor.shutdownNow();
+        plugin.getLogger().info("[Http] HTTP 客户端已全部关闭。");
+    }
+}
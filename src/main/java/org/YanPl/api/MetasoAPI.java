@@ -7,12 +7,15 @@ import com.google.gson.JsonParser;
 import org.YanPl.FancyHelper;
 import org.YanPl.manager.ConfigManager;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Metaso AI 搜索 API 封装类
@@ -24,20 +27,15 @@ public class MetasoAPI {
     
     private final FancyHelper plugin;
     private final ConfigManager configManager;
-    private final HttpClient httpClient;
     private final Gson gson;
     
     // Metaso API 端点
-    private static final String METASO_API_URL = "https://metaso.cn/api/v1/chat/completions";
+    static final String METASO_API_URL = "https://metaso.cn/api/v1/chat/completions";
     
     public MetasoAPI(FancyHelper plugin) {
         this.plugin = plugin;
         this.configManager = plugin.getConfigManager();
         this.gson = new Gson();
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(30))
-                .version(HttpClient.Version.HTTP_1_1) // 强制使用 HTTP/1.1 避免兼容性问题
-                .build();
     }
     
     /**
@@ -67,50 +65,8 @@ public class MetasoAPI {
             return "Metaso API 令牌未配置。请在 config.yml 中设置 metaso.api_token";
         }
         
-        String model = configManager.getMetasoModel();
-        boolean conciseSnippet = configManager.isMetasoConciseSnippet();
-        
         try {
-            // 构建消息数组
-            JsonArray messages = new JsonArray();
-            JsonObject userMessage = new JsonObject();
-            userMessage.addProperty("role", "user");
-            userMessage.addProperty("content", query);
-            messages.add(userMessage);
-            
-            // 构建请求体
-            JsonObject requestBody = new JsonObject();
-            requestBody.addProperty("model", model);
-            requestBody.addProperty("stream", false); // 不使用流式响应，便于解析
-            requestBody.addProperty("conciseSnippet", conciseSnippet);
-            requestBody.add("messages", messages);
-            
-            if (configManager.isDebug()) {
-                plugin.getLogger().info("[Metaso] 发送搜索请求: " + query);
-                plugin.getLogger().info("[Metaso] 模型: " + model);
-                plugin.getLogger().info("[Metaso] 请求体: " + gson.toJson(requestBody));
-            }
-            
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(METASO_API_URL))
-                    .header("Authorization", "Bearer " + apiToken)
-                    .header("Accept", "application/json")
-                    .header("Content-Type", "application/json; charset=utf-8")
-                    .header("User-Agent", "FancyHelper/" + plugin.getDescription().getVersion())
-                    .timeout(Duration.ofSeconds(60))
-                    .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(requestBody), StandardCharsets.UTF_8))
-                    .build();
-            
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
-            
-            if (configManager.isDebug()) {
-                plugin.getLogger().info("[Metaso] 响应状态码: " + response.statusCode());
-                String debugBody = response.body();
-                if (debugBody != null && debugBody.length() > 500) {
-                    debugBody = debugBody.substring(0, 500) + "...";
-                }
-                plugin.getLogger().info("[Metaso] 响应体: " + debugBody);
-            }
+            HttpResponse<String> response = sendSearchRequest(query, apiToken);
             
             if (response.statusCode() == 200) {
                 return parseSearchResponse(response.body(), query);
@@ -129,6 +85,97 @@ public class MetasoAPI {
         }
     }
     
+    /**
+     * 发送搜索请求
+     */
+    private HttpResponse<String> sendSearchRequest(String query, String apiToken) throws IOException, InterruptedException {
+        String model = configManager.getMetasoModel();
+        boolean conciseSnippet = configManager.isMetasoConciseSnippet();
+        
+        // 构建消息数组
+        JsonArray messages = new JsonArray();
+        JsonObject userMessage = new JsonObject();
+        userMessage.addProperty("role", "user");
+        userMessage.addProperty("content", query);
+        messages.add(userMessage);
+        
+        // 构建请求体
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("model", model);
+        requestBody.addProperty("stream", false); // 不使用流式响应，便于解析
+        requestBody.addProperty("conciseSnippet", conciseSnippet);
+        requestBody.add("messages", messages);
+        
+        if (configManager.isDebug()) {
+            plugin.getLogger().info("[Metaso] 发送搜索请求: " + query);
+            plugin.getLogger().info("[Metaso] 模型: " + model);
+            plugin.getLogger().info("[Metaso] 请求体: " + gson.toJson(requestBody));
+        }
+        
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(METASO_API_URL))
+                .header("Authorization", "Bearer " + apiToken)
+                .header("Accept", "application/json")
+                .header("Content-Type", "application/json; charset=utf-8")
+                .header("User-Agent", "FancyHelper/" + plugin.getDescription().getVersion())
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(requestBody), StandardCharsets.UTF_8))
+                .build();
+        
+        // metaso.cn 在注册表中登记为 API 配置档（强制 HTTP/1.1 避免兼容性问题）
+        HttpClient httpClient = plugin.getHttpClients().get(METASO_API_URL);
+        HttpResponse<String> response = plugin.getCircuitBreakers().send(httpClient, request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        
+        if (configManager.isDebug()) {
+            plugin.getLogger().info("[Metaso] 响应状态码: " + response.statusCode());
+            String debugBody = response.body();
+            if (debugBody != null && debugBody.length() > 500) {
+                debugBody = debugBody.substring(0, 500) + "...";
+            }
+            plugin.getLogger().info("[Metaso] 响应体: " + debugBody);
+        }
+        return response;
+    }
+    
+    /**
+     * 供搜索聚合器使用：返回结构化结果，失败时抛出异常
+     * 
+     * @param query 搜索查询
+     * @return AI 回答作为摘要，参考来源与引用作为条目
+     */
+    SearchAggregator.BackendResult searchForAggregation(String query) throws IOException, InterruptedException {
+        HttpResponse<String> response = sendSearchRequest(query, configManager.getMetasoApiToken());
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP " + response.statusCode() + ": " + extractErrorMessage(response.body()));
+        }
+        
+        JsonObject json = JsonParser.parseString(response.body()).getAsJsonObject();
+        String summary = null;
+        if (json.has("choices") && json.get("choices").isJsonArray() && json.getAsJsonArray("choices").size() > 0) {
+            JsonObject choice = json.getAsJsonArray("choices").get(0).getAsJsonObject();
+            if (choice.has("message")) {
+                JsonObject message = choice.getAsJsonObject("message");
+                if (message.has("content") && !message.get("content").isJsonNull()) {
+                    summary = message.get("content").getAsString();
+                }
+            }
+        }
+        
+        List<SearchAggregator.Hit> hits = new ArrayList<>();
+        for (String field : new String[]{"web_pages", "references"}) {
+            if (json.has(field) && json.get(field).isJsonArray()) {
+                JsonArray pages = json.getAsJsonArray(field);
+                for (int i = 0; i < pages.size(); i++) {
+                    JsonObject page = pages.get(i).getAsJsonObject();
+                    hits.add(new SearchAggregator.Hit("Metaso", getStringOrDefault(page, "title", "无标题"),
+                            getStringOrDefault(page, "url", ""), getStringOrDefault(page, "snippet", ""),
+                            SearchAggregator.positionScore(i, 0.9)));
+                }
+            }
+        }
+        return new SearchAggregator.BackendResult(summary, hits);
+    }
+    
     /**
      * 执行 Metaso AI 搜索（带对话历史）
      * 
@@ -272,7 +319,7 @@ public class MetasoAPI {
      * 关闭 HTTP 客户端
      */
     public void shutdown() {
-        // Java 标准库的 HttpClient 不需要显式关闭
-        plugin.getLogger().info("[MetasoAPI] HTTP 客户端已完成关闭。");
+        // HTTP 客户端由 HttpClientRegistry 统一管理，在插件禁用时关闭
+        plugin.getLogger().info("[MetasoAPI] 已完成关闭。");
     }
 }
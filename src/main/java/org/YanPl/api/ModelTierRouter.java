@@ -0,0 +1,216 @@
+package org.YanPl.api;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.manager.ConfigManager;
+import org.YanPl.model.AIResponse;
+import org.YanPl.model.DialogueSession;
+import org.YanPl.model.TodoItem;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 模型分层路由：在本地按工具结果类型、消息长度与待办状态对每一轮对话分类，
+ * 确认、简单查询与工具输出总结交给副模型（co-model），规划与出错恢复升级到主模型，
+ * 并分别统计两个层级的延迟与 Token 用量。
+ */
+public class ModelTierRouter {
+    /**
+     * 不超过该长度且不含规划类关键词的玩家消息视为简单查询
+     */
+    static final int FAST_MAX_MESSAGE_CHARS = 24;
+    /**
+     * 超过该长度的工具输出仍交给主模型，避免超出副模型的上下文
+     */
+    static final int FAST_MAX_RESULT_CHARS = 6000;
+
+    /**
+     * 结果通常只需总结给玩家的工具（batch 为并行执行的只读工具批次）
+     */
+    private static final Set<String> SUMMARY_TOOLS = Set.of(
+            "run", "get", "search", "read", "webread", "ls", "find", "grep", "config", "batch",
+            "remember", "forget", "editmem");
+    private static final Pattern TOOL_RESULT = Pattern.compile("^#([a-z_]+)_result:\\s*(.*)$", Pattern.DOTALL);
+    private static final Pattern ACKNOWLEDGEMENT = Pattern.compile(
+            "^(好的?|好滴|好嘞|嗯+|哦+|噢+|行|可以|没问题|收到|明白了?|知道了|懂了|谢谢|谢了|感谢|多谢|辛苦了|ok(ay)?|thx|thanks?|thank you|got it|nice|cool|👍)[\\s!！。.~～]*$",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern PLANNING_KEYWORDS = Pattern.compile(
+            "计划|规划|步骤|配置|修改|编辑|安装|部署|搭建|设计|优化|排查|为什么|怎么|如何|帮我|批量|所有|plan|design|config|install|fix|debug|why|how",
+            Pattern.CASE_INSENSITIVE);
+
+    private final FancyHelper plugin;
+    private final Map<Tier, TierStats> stats = new EnumMap<>(Tier.class);
+
+    /**
+     * 模型层级
+     */
+    public enum Tier {
+        /**
+         * 副模型：确认、简单查询、总结工具输出
+         */
+        FAST("快速模型"),
+        /**
+         * 主模型：规划、多步骤任务与出错恢复
+         */
+        MAIN("主模型");
+
+        private final String displayName;
+
+        Tier(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * 单个层级的调用统计
+     */
+    public static final class TierStats {
+        private long requests;
+        private long totalLatency;
+        private long promptTokens;
+        private long completionTokens;
+        private long escalations;
+
+        synchronized void record(long latencyMillis, AIResponse response) {
+            requests++;
+            totalLatency += latencyMillis;
+            if (response != null) {
+                promptTokens += response.getPromptTokens();
+                completionTokens += response.getCompletionTokens();
+            }
+        }
+
+        synchronized void recordEscalation() {
+            escalations++;
+        }
+
+        public synchronized long getRequests() {
+            return requests;
+        }
+
+        public synchronized long getAverageLatency() {
+            return requests == 0 ? 0 : totalLatency / requests;
+        }
+
+        public synchronized long getPromptTokens() {
+            return promptTokens;
+        }
+
+        public synchronized long getCompletionTokens() {
+            return completionTokens;
+        }
+
+        /**
+         * 副模型失败后升级到主模型的次数
+         */
+        public synchronized long getEscalations() {
+            return escalations;
+        }
+    }
+
+    public ModelTierRouter(FancyHelper plugin) {
+        this.plugin = plugin;
+        for (Tier tier : Tier.values()) {
+            stats.put(tier, new TierStats());
+        }
+    }
+
+    /**
+     * 对即将发送的一轮对话分类
+     *
+     * @param session 会话（最后一条消息为本轮输入）
+     * @param todos   玩家当前的待办列表
+     * @return 应使用的模型层级
+     */
+    public Tier classify(DialogueSession session, List<TodoItem> todos) {
+        if (!plugin.getConfigManager().isRoutingTiersEnabled() || getFastProvider() == null) {
+            return Tier.MAIN;
+        }
+        List<DialogueSession.Message> history = session.getHistory();
+        if (history.isEmpty()) {
+            return Tier.MAIN;
+        }
+        DialogueSession.Message last = history.get(history.size() - 1);
+        if (!"user".equals(last.getRole()) || last.getContent() == null) {
+            return Tier.MAIN;
+        }
+        return classify(last.getContent().trim(), hasOpenTodos(todos));
+    }
+
+    static Tier classify(String input, boolean openTodos) {
+        if (input.startsWith("#")) {
+            Matcher matcher = TOOL_RESULT.matcher(input);
+            if (!matcher.matches() || !SUMMARY_TOOLS.contains(matcher.group(1))) {
+                // #error、#todo_result、#ask_result 等需要重新规划
+                return Tier.MAIN;
+            }
+            String result = matcher.group(2);
+            String head = result.substring(0, Math.min(result.length(), 80)).toLowerCase(Locale.ROOT);
+            if (head.contains("错误") || head.contains("失败") || head.contains("error")) {
+                return Tier.MAIN;
+            }
+            // 待办未完成说明后续还有步骤要规划
+            return openTodos || input.length() > FAST_MAX_RESULT_CHARS ? Tier.MAIN : Tier.FAST;
+        }
+
+        if (ACKNOWLEDGEMENT.matcher(input).matches()) {
+            return Tier.FAST;
+        }
+        if (openTodos || input.length() > FAST_MAX_MESSAGE_CHARS || PLANNING_KEYWORDS.matcher(input).find()) {
+            return Tier.MAIN;
+        }
+        return Tier.FAST;
+    }
+
+    private static boolean hasOpenTodos(List<TodoItem> todos) {
+        if (todos == null) return false;
+        for (TodoItem item : todos) {
+            if (item.getStatus() == TodoItem.Status.PENDING || item.getStatus() == TodoItem.Status.IN_PROGRESS) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 副模型对应的服务商，沿用 co-model 配置；未配置密钥时返回 null
+     */
+    public ProviderRouter.Provider getFastProvider() {
+        ConfigManager config = plugin.getConfigManager();
+        if ("openai".equalsIgnoreCase(config.getCompressionModelProvider())) {
+            // 副模型未单独配置密钥时使用主模型的 API 地址与密钥
+            String apiKey = config.getCompressionOpenAiApiKey();
+            String apiUrl = config.getCompressionOpenAiApiUrl();
+            if (apiKey == null || apiKey.isEmpty()) {
+                apiKey = config.getOpenAiApiKey();
+                apiUrl = config.getOpenAiApiUrl();
+            }
+            if (apiKey == null || apiKey.isEmpty()) return null;
+            return new ProviderRouter.Provider(ProviderRouter.Type.OPENAI, apiUrl, apiKey, config.getCompressionOpenAiModel());
+        }
+        String cfKey = config.getCloudflareCfKey();
+        if (cfKey == null || cfKey.isEmpty()) return null;
+        return new ProviderRouter.Provider(ProviderRouter.Type.CLOUDFLARE, "", cfKey, config.getCompressionCloudflareModel());
+    }
+
+    public void record(Tier tier, long latencyMillis, AIResponse response) {
+        stats.get(tier).record(latencyMillis, response);
+    }
+
+    public void recordEscalation() {
+        stats.get(Tier.FAST).recordEscalation();
+    }
+
+    public TierStats statsOf(Tier tier) {
+        return stats.get(tier);
+    }
+}
@@ -0,0 +1,407 @@
+package org.YanPl.api;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.manager.ConfigManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AI 服务商路由器：按配置顺序维护多个服务商/模型，记录每个服务商的 EWMA 延迟与错误率，
+ * 优先选择最快的健康服务商；请求超过该服务商的 p95 延迟仍未返回时向下一个服务商发送对冲请求，
+ * 遇到 5xx、429、超时或网络错误时自动切换到下一个服务商，先成功的结果胜出。
+ */
+public class ProviderRouter {
+    /**
+     * 延迟与错误率的 EWMA 平滑系数
+     */
+    static final double EWMA_ALPHA = 0.2;
+    /**
+     * 错误率超过该值即视为不健康
+     */
+    static final double UNHEALTHY_ERROR_RATE = 0.5;
+    /**
+     * 不健康的服务商在该时间后重新参与路由
+     */
+    static final long UNHEALTHY_COOLDOWN_MILLIS = 30000;
+    private static final int LATENCY_WINDOW = 64;
+
+    private final FancyHelper plugin;
+    private final Map<String, ProviderStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 服务商类型
+     */
+    public enum Type {
+        OPENAI,
+        CLOUDFLARE
+    }
+
+    /**
+     * 单个服务商（类型 + 地址 + 密钥 + 模型）
+     */
+    public static final class Provider {
+        private final Type type;
+        private final String apiUrl;
+        private final String apiKey;
+        private final String model;
+
+        public Provider(Type type, String apiUrl, String apiKey, String model) {
+            this.type = type;
+            this.apiUrl = apiUrl == null ? "" : apiUrl;
+            this.apiKey = apiKey == null ? "" : apiKey;
+            this.model = model == null ? "" : model;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public String getApiUrl() {
+            return apiUrl;
+        }
+
+        public String getApiKey() {
+            return apiKey;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        /**
+         * 统计数据的键，不包含密钥
+         */
+        public String getId() {
+            return type == Type.CLOUDFLARE ? "cloudflare/" + model : apiUrl + "#" + model;
+        }
+
+        @Override
+        public String toString() {
+            return type == Type.CLOUDFLARE ? "CloudFlare(" + model + ")" : model + "@" + hostOf(apiUrl);
+        }
+
+        private static String hostOf(String url) {
+            try {
+                String host = java.net.URI.create(url).getHost();
+                return host != null ? host : url;
+            } catch (IllegalArgumentException e) {
+                return url;
+            }
+        }
+    }
+
+    /**
+     * 服务商的延迟与错误统计
+     */
+    public static final class ProviderStats {
+        private final long[] latencies = new long[LATENCY_WINDOW];
+        private int latencyCount;
+        private int latencyIndex;
+        private double ewmaLatency = -1;
+        private double errorRate;
+        private long lastFailureAt;
+        private long successes;
+        private long failures;
+
+        synchronized void recordSuccess(long latencyMillis) {
+            ewmaLatency = ewmaLatency < 0 ? latencyMillis : EWMA_ALPHA * latencyMillis + (1 - EWMA_ALPHA) * ewmaLatency;
+            errorRate = (1 - EWMA_ALPHA) * errorRate;
+            latencies[latencyIndex] = latencyMillis;
+            latencyIndex = (latencyIndex + 1) % LATENCY_WINDOW;
+            latencyCount = Math.min(latencyCount + 1, LATENCY_WINDOW);
+            successes++;
+        }
+
+        synchronized void recordFailure(long now) {
+            errorRate = EWMA_ALPHA + (1 - EWMA_ALPHA) * errorRate;
+            lastFailureAt = now;
+            failures++;
+        }
+
+        /**
+         * 错误率过高且仍在冷却期内时视为不健康，冷却期过后允许重新尝试
+         */
+        synchronized boolean isHealthy(long now) {
+            return errorRate <= UNHEALTHY_ERROR_RATE || now - lastFailureAt >= UNHEALTHY_COOLDOWN_MILLIS;
+        }
+
+        /**
+         * @return EWMA 延迟（毫秒），尚无样本时返回 -1
+         */
+        public synchronized double getEwmaLatency() {
+            return ewmaLatency;
+        }
+
+        /**
+         * @return 最近样本的 p95 延迟（毫秒），尚无样本时返回 -1
+         */
+        public synchronized long getP95Latency() {
+            if (latencyCount == 0) return -1;
+            long[] sorted = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(sorted);
+            return sorted[Math.min(latencyCount - 1, (int) Math.ceil(latencyCount * 0.95) - 1)];
+        }
+
+        public synchronized double getErrorRate() {
+            return errorRate;
+        }
+
+        public synchronized long getSuccesses() {
+            return successes;
+        }
+
+        public synchronized long getFailures() {
+            return failures;
+        }
+    }
+
+    /**
+     * 可路由的单次调用
+     */
+    @FunctionalInterface
+    public interface ProviderCall<T> {
+        T call(Provider provider) throws IOException;
+    }
+
+    /**
+     * 服务商返回的错误；retryable 为 false 时（如 401、402）不再切换服务商，直接向上抛出
+     */
+    public static class ProviderException extends IOException {
+        private final int statusCode;
+        private final boolean retryable;
+
+        public ProviderException(String message, int statusCode, boolean retryable) {
+            super(message);
+            this.statusCode = statusCode;
+            this.retryable = retryable;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public boolean isRetryable() {
+            return retryable;
+        }
+    }
+
+    public ProviderRouter(FancyHelper plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * 读取配置中的服务商列表；未配置 routing.providers 时沿用 openai / cloudflare 的单一配置
+     */
+    public List<Provider> getProviders() {
+        ConfigManager config = plugin.getConfigManager();
+        List<Provider> providers = new ArrayList<>();
+        for (Map<?, ?> entry : config.getRoutingProviders()) {
+            Object type = entry.get("type");
+            if ("cloudflare".equalsIgnoreCase(String.valueOf(type))) {
+                Object key = entry.get("cf_key");
+                providers.add(new Provider(Type.CLOUDFLARE, null,
+                        key != null ? String.valueOf(key) : config.getCloudflareCfKey(), stringOf(entry.get("model"))));
+            } else if ("openai".equalsIgnoreCase(String.valueOf(type))) {
+                providers.add(new Provider(Type.OPENAI, stringOf(entry.get("api_url")),
+                        stringOf(entry.get("api_key")), stringOf(entry.get("model"))));
+            } else {
+                plugin.getLogger().warning("[AI 路由] 忽略未知的服务商类型: " + type);
+            }
+        }
+        if (providers.isEmpty()) {
+            if (config.isOpenAiEnabled()) {
+                providers.add(new Provider(Type.OPENAI, config.getOpenAiApiUrl(), config.getOpenAiApiKey(), config.getOpenAiModel()));
+            } else {
+                providers.add(new Provider(Type.CLOUDFLARE, null, config.getCloudflareCfKey(), config.getCloudflareModel()));
+            }
+        }
+        return providers;
+    }
+
+    private static String stringOf(Object value) {
+        return value == null ? "" : String.valueOf(value);
+    }
+
+    /**
+     * 按健康状态与 EWMA 延迟排序：健康的在前；尚无延迟样本的服务商视为 0，以便按配置顺序获得首次尝试
+     */
+    List<Provider> rank(List<Provider> providers) {
+        long now = System.currentTimeMillis();
+        List<Provider> ranked = new ArrayList<>(providers);
+        ranked.sort(Comparator
+                .comparing((Provider p) -> !statsOf(p).isHealthy(now))
+                .thenComparingDouble(p -> Math.max(0, statsOf(p).getEwmaLatency())));
+        return ranked;
+    }
+
+    public ProviderStats statsOf(Provider provider) {
+        return stats.computeIfAbsent(provider.getId(), id -> new ProviderStats());
+    }
+
+    /**
+     * 当前配置的服务商及其统计，按路由顺序排列
+     */
+    public Map<Provider, ProviderStats> getSnapshot() {
+        Map<Provider, ProviderStats> snapshot = new LinkedHashMap<>();
+        for (Provider provider : rank(getProviders())) {
+            snapshot.put(provider, statsOf(provider));
+        }
+        return snapshot;
+    }
+
+    /**
+     * 按路由顺序执行调用，必要时对冲与故障转移
+     */
+    <T> T execute(List<Provider> providers, ProviderCall<T> call) throws IOException {
+        List<Provider> order = rank(providers);
+        if (order.size() == 1) {
+            return callAndRecord(order.get(0), call);
+        }
+
+        // execute() 本身在 I/O 任务中运行，服务商请求交给子请求执行器，避免占满 I/O 线程池后互相等待
+        ExecutorService executor = plugin.getIoExecutor().getFanOutExecutor();
+        BlockingQueue<Outcome<T>> completed = new LinkedBlockingQueue<>();
+        List<Future<?>> running = new ArrayList<>();
+        boolean hedging = plugin.getConfigManager().isRoutingHedgeEnabled();
+        long timeoutMillis = plugin.getConfigManager().getApiTimeoutSeconds() * 1000L;
+        int next = 0;
+        int inFlight = 0;
+        long lastLaunch = 0;
+        IOException lastError = null;
+
+        try {
+            while (true) {
+                if (inFlight == 0) {
+                    if (next >= order.size()) {
+                        throw lastError != null ? lastError : new IOException("没有可用的 AI 服务商");
+                    }
+                    if (next > 0 && plugin.getConfigManager().isDebug()) {
+                        plugin.getLogger().info("[AI 路由] 故障转移到 " + order.get(next));
+                    }
+                    running.add(launch(executor, order.get(next++), call, completed));
+                    inFlight++;
+                    lastLaunch = System.currentTimeMillis();
+                }
+
+                Outcome<T> outcome;
+                if (hedging && next < order.size()) {
+                    long wait = lastLaunch + hedgeDelay(order.get(next - 1)) - System.currentTimeMillis();
+                    outcome = wait > 0 ? completed.poll(wait, TimeUnit.MILLISECONDS) : null;
+                    if (outcome == null) {
+                        if (plugin.getConfigManager().isDebug()) {
+                            plugin.getLogger().info("[AI 路由] " + order.get(next - 1) + " 响应较慢，向 " + order.get(next) + " 发送对冲请求");
+                        }
+                        running.add(launch(executor, order.get(next++), call, completed));
+                        inFlight++;
+                        lastLaunch = System.currentTimeMillis();
+                        continue;
+                    }
+                } else {
+                    // 最近发起的请求超过 API 超时时间仍未返回时，视为失败并转移到下一个服务商
+                    long wait = lastLaunch + timeoutMillis - System.currentTimeMillis();
+                    outcome = wait > 0 ? completed.poll(wait, TimeUnit.MILLISECONDS) : null;
+                    if (outcome == null) {
+                        lastError = new IOException("AI 服务商 " + order.get(next - 1) + " 在 "
+                                + (timeoutMillis / 1000) + " 秒内未响应");
+                        plugin.getLogger().warning("[AI 路由] " + lastError.getMessage());
+                        if (next >= order.size()) {
+                            throw lastError;
+                        }
+                        running.add(launch(executor, order.get(next++), call, completed));
+                        inFlight++;
+                        lastLaunch = System.currentTimeMillis();
+                        continue;
+                    }
+                }
+
+                inFlight--;
+                if (outcome.error == null) {
+                    return outcome.value;
+                }
+                lastError = outcome.error;
+                if (outcome.error instanceof ProviderException && !((ProviderException) outcome.error).isRetryable()) {
+                    throw outcome.error;
+                }
+                plugin.getLogger().warning("[AI 路由] " + outcome.provider + " 调用失败: " + outcome.error.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("AI 调用被中断: " + e.getMessage(), e);
+        } finally {
+            // 取消仍在进行的请求（对冲中落败的一方）
+            for (Future<?> future : running) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private <T> Future<?> launch(ExecutorService executor, Provider provider, ProviderCall<T> call, BlockingQueue<Outcome<T>> completed) {
+        try {
+            return executor.submit(() -> {
+                try {
+                    completed.add(new Outcome<>(provider, callAndRecord(provider, call), null));
+                } catch (IOException e) {
+                    completed.add(new Outcome<>(provider, null, e));
+                } catch (RuntimeException e) {
+                    completed.add(new Outcome<>(provider, null, new IOException(e.getMessage(), e)));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            completed.add(new Outcome<>(provider, null, new IOException("AI 请求线程已满，无法调用 " + provider, e)));
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private <T> T callAndRecord(Provider provider, ProviderCall<T> call) throws IOException {
+        long start = System.currentTimeMillis();
+        try {
+            T result = call.call(provider);
+            statsOf(provider).recordSuccess(System.currentTimeMillis() - start);
+            return result;
+        } catch (IOException e) {
+            // 对冲落败被取消的请求不计入错误
+            if (!Thread.currentThread().isInterrupted()) {
+                statsOf(provider).recordFailure(System.currentTimeMillis());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 对冲延迟：配置为 0 时取该服务商的 p95 延迟（不低于下限），尚无样本时使用下限的 4 倍
+     */
+    long hedgeDelay(Provider provider) {
+        ConfigManager config = plugin.getConfigManager();
+        long fixed = config.getRoutingHedgeDelayMillis();
+        if (fixed > 0) return fixed;
+        long min = config.getRoutingHedgeMinDelayMillis();
+        long p95 = statsOf(provider).getP95Latency();
+        return p95 < 0 ? min * 4 : Math.max(min, p95);
+    }
+
+    private static final class Outcome<T> {
+        final Provider provider;
+        final T value;
+        final IOException error;
+
+        Outcome(Provider provider, T value, IOException error) {
+            this.provider = provider;
+            this.value = value;
+            this.error = error;
+        }
+    }
+}
@@ -1,13 +1,24 @@
 package org.YanPl.api;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import org.YanPl.model.AIResponse;
 
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * AI API 响应解析器
- * 负责解析多种 API 格式的响应（OpenAI 兼容格式、CloudFlare 原生格式等）
+ * 负责解析多种 API 格式的响应（OpenAI 兼容格式、CloudFlare 原生格式等）。
+ * 使用 JsonReader 从响应流中一次读完，只保留正文、思考内容、Token 用量与 finish_reason，不构建整棵 JSON 树
  */
 public class ResponseParser {
 
@@ -19,115 +30,185 @@ public class ResponseParser {
      * @return 解析后的 AIResponse，如果解析失败返回 null
      */
     public AIResponse parseResponse(JsonObject responseJson) {
-        String textContent = null;
-        String thoughtContent = null;
-        long promptTokens = 0;
-        long completionTokens = 0;
-
-        // 解析 Token 使用情况 (OpenAI 格式)
-        if (responseJson.has("usage") && responseJson.get("usage").isJsonObject()) {
-            JsonObject usage = responseJson.getAsJsonObject("usage");
-            promptTokens = usage.has("prompt_tokens") ? usage.get("prompt_tokens").getAsLong() : 0;
-            completionTokens = usage.has("completion_tokens") ? usage.get("completion_tokens").getAsLong() : 0;
-        }
-        // 解析 Token 使用情况 (CloudFlare result.usage 格式)
-        else if (responseJson.has("result") && responseJson.get("result").isJsonObject()) {
-            JsonObject result = responseJson.getAsJsonObject("result");
-            if (result.has("usage") && result.get("usage").isJsonObject()) {
-                JsonObject usage = result.getAsJsonObject("usage");
-                promptTokens = usage.has("prompt_tokens") ? usage.get("prompt_tokens").getAsLong() : 0;
-                completionTokens = usage.has("completion_tokens") ? usage.get("completion_tokens").getAsLong() : 0;
-            }
+        try {
+            return decode(new StringReader(responseJson.toString()), 0).getResponse();
+        } catch (IOException e) {
+            return null;
         }
+    }
 
-        // 1. 尝试解析 OpenAI 兼容格式 (choices 数组)
-        ParsedContent openAiContent = parseOpenAiFormat(responseJson);
-        if (openAiContent != null) {
-            textContent = openAiContent.text;
-            thoughtContent = openAiContent.thought;
+    /**
+     * 直接从 HTTP 响应流解码 AI 响应（按 UTF-8 读取）
+     *
+     * @param body      响应体输入流，由调用方关闭
+     * @param keepChars 同时保留的原始响应体字符数上限，0 表示不保留
+     * @return 解码结果
+     * @throws IOException 读取失败或响应不是合法的 JSON
+     */
+    public Decoded decode(InputStream body, int keepChars) throws IOException {
+        return decode(new InputStreamReader(body, StandardCharsets.UTF_8), keepChars);
+    }
+
+    /**
+     * 从字符流解码 AI 响应
+     *
+     * @param body      响应体
+     * @param keepChars 同时保留的原始响应体字符数上限，0 表示不保留
+     * @return 解码结果
+     * @throws IOException 读取失败或响应不是合法的 JSON
+     */
+    public Decoded decode(Reader body, int keepChars) throws IOException {
+        CapturingReader capture = keepChars > 0 ? new CapturingReader(body, keepChars) : null;
+        JsonReader reader = new JsonReader(capture != null ? capture : body);
+
+        Decoded decoded = new Decoded();
+        ParsedContent openAi = null;
+        ParsedContent cfOutput = null;
+        ParsedContent cfResult = null;
+        Usage usage = null;
+        Usage resultUsage = null;
+
+        if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                JsonToken token = reader.peek();
+                if ("usage".equals(name) && token == JsonToken.BEGIN_OBJECT) {
+                    usage = readUsage(reader);
+                } else if ("choices".equals(name) && token == JsonToken.BEGIN_ARRAY) {
+                    openAi = readChoices(reader, decoded);
+                } else if ("output".equals(name) && token == JsonToken.BEGIN_ARRAY) {
+                    cfOutput = readOutput(reader);
+                } else if ("result".equals(name) && token == JsonToken.BEGIN_OBJECT) {
+                    Usage[] holder = new Usage[1];
+                    cfResult = readResult(reader, holder);
+                    resultUsage = holder[0];
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } else {
+            reader.skipValue();
+        }
+        if (capture != null) {
+            // 读完剩余内容，保证保留的原始响应体完整
+            char[] rest = new char[1024];
+            while (capture.read(rest, 0, rest.length) != -1) {
+                // 丢弃
+            }
+            decoded.raw = capture.captured();
         }
 
-        // 2. 尝试解析 Cloudflare 原生 output 格式
-        ParsedContent cfOutputContent = parseCloudFlareOutputFormat(responseJson);
-        if (cfOutputContent != null) {
-            if (textContent == null) textContent = cfOutputContent.text;
-            if (thoughtContent == null) thoughtContent = cfOutputContent.thought;
+        // 解析 Token 使用情况：优先 OpenAI 格式的顶层 usage，其次 CloudFlare result.usage
+        Usage effectiveUsage = usage != null ? usage : resultUsage;
+        if (effectiveUsage != null) {
+            decoded.hasUsage = true;
+            decoded.promptTokens = effectiveUsage.promptTokens;
+            decoded.completionTokens = effectiveUsage.completionTokens;
+            decoded.totalTokens = effectiveUsage.totalTokens;
         }
 
-        // 3. 尝试解析 Cloudflare 原生 result 格式
-        ParsedContent cfResultContent = parseCloudFlareResultFormat(responseJson);
-        if (cfResultContent != null) {
-            if (textContent == null) textContent = cfResultContent.text;
-            if (thoughtContent == null) thoughtContent = cfResultContent.thought;
+        // 1. OpenAI 兼容格式 (choices 数组) 优先，2. Cloudflare 原生 output 格式，3. Cloudflare 原生 result 格式
+        String textContent = null;
+        String thoughtContent = null;
+        for (ParsedContent content : new ParsedContent[]{openAi, cfOutput, cfResult}) {
+            if (content == null) continue;
+            if (textContent == null) textContent = content.text;
+            if (thoughtContent == null) thoughtContent = content.thought;
         }
 
         // 检查 finish_reason 是否为 length（表示输出被截断）
-        String finishReason = extractFinishReason(responseJson);
-        boolean isTruncated = "length".equals(finishReason);
-        if (isTruncated && textContent == null) {
+        boolean isTruncated = "length".equals(decoded.finishReason);
+        if (isTruncated) {
             // 当 finish_reason 为 length 且 content 为 null 时，返回空内容但标记为截断
-            return new AIResponse("", thoughtContent, promptTokens, completionTokens, true);
-        } else if (isTruncated && textContent != null) {
-            // 当 finish_reason 为 length 但有内容时，标记为截断
-            return new AIResponse(textContent, thoughtContent, promptTokens, completionTokens, true);
+            decoded.response = new AIResponse(textContent != null ? textContent : "", thoughtContent,
+                    decoded.promptTokens, decoded.completionTokens, true);
+        } else if (textContent != null) {
+            decoded.response = new AIResponse(textContent, thoughtContent, decoded.promptTokens, decoded.completionTokens);
         }
+        return decoded;
+    }
 
-        if (textContent != null) {
-            return new AIResponse(textContent, thoughtContent, promptTokens, completionTokens);
+    /**
+     * 读取 usage 对象
+     */
+    private Usage readUsage(JsonReader reader) throws IOException {
+        Usage usage = new Usage();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("prompt_tokens".equals(name)) {
+                usage.promptTokens = nextLong(reader);
+            } else if ("completion_tokens".equals(name)) {
+                usage.completionTokens = nextLong(reader);
+            } else if ("total_tokens".equals(name)) {
+                usage.totalTokens = nextLong(reader);
+            } else {
+                reader.skipValue();
+            }
         }
-        return null;
+        reader.endObject();
+        return usage;
     }
 
     /**
-     * 提取 finish_reason 字段
+     * 读取 OpenAI 兼容格式的 choices 数组，只解析第一项，并记录 finish_reason
      */
-    private String extractFinishReason(JsonObject responseJson) {
-        // 尝试 OpenAI 格式
-        if (responseJson.has("choices") && responseJson.get("choices").isJsonArray()) {
-            JsonArray choices = responseJson.getAsJsonArray("choices");
-            if (choices.size() > 0) {
-                JsonObject choice = choices.get(0).getAsJsonObject();
-                if (choice.has("finish_reason") && !choice.get("finish_reason").isJsonNull()) {
-                    return choice.get("finish_reason").getAsString();
+    private ParsedContent readChoices(JsonReader reader, Decoded decoded) throws IOException {
+        ParsedContent content = null;
+        reader.beginArray();
+        boolean first = true;
+        while (reader.hasNext()) {
+            if (!first || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                first = false;
+                reader.skipValue();
+                continue;
+            }
+            first = false;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("message".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    content = readMessage(reader);
+                } else if ("finish_reason".equals(name)) {
+                    decoded.finishReason = nextString(reader);
+                } else {
+                    reader.skipValue();
                 }
             }
+            reader.endObject();
         }
-        return null;
+        reader.endArray();
+        return content;
     }
 
     /**
-     * 解析 OpenAI 兼容格式 (choices 数组)
+     * 读取 choices[0].message
      */
-    private ParsedContent parseOpenAiFormat(JsonObject responseJson) {
-        if (!responseJson.has("choices") || !responseJson.get("choices").isJsonArray()) {
-            return null;
-        }
-
-        JsonArray choices = responseJson.getAsJsonArray("choices");
-        if (choices.size() == 0) {
-            return null;
-        }
-
-        JsonObject choice = choices.get(0).getAsJsonObject();
-        if (!choice.has("message")) {
-            return null;
-        }
-
-        JsonObject message = choice.getAsJsonObject("message");
+    private ParsedContent readMessage(JsonReader reader) throws IOException {
         ParsedContent content = new ParsedContent();
-
-        if (message.has("content") && !message.get("content").isJsonNull()) {
-            content.text = message.get("content").getAsString();
-        }
-
-        // 处理 reasoning_content 字段（OpenAI 格式）
-        if (message.has("reasoning_content") && !message.get("reasoning_content").isJsonNull()) {
-            content.thought = message.get("reasoning_content").getAsString();
+        String reasoningContent = null;
+        String reasoning = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("content".equals(name)) {
+                content.text = nextString(reader);
+            } else if ("reasoning_content".equals(name)) {
+                // reasoning_content 字段（OpenAI 格式）
+                reasoningContent = nextString(reader);
+            } else if ("reasoning".equals(name)) {
+                // reasoning 字段（Kimi K2.5 等模型格式）
+                reasoning = nextString(reader);
+            } else {
+                reader.skipValue();
+            }
         }
+        reader.endObject();
 
-        // 处理 reasoning 字段（Kimi K2.5 等模型格式）
-        if (message.has("reasoning") && !message.get("reasoning").isJsonNull()) {
-            String reasoning = message.get("reasoning").getAsString();
+        content.thought = reasoningContent;
+        if (reasoning != null) {
             // 如果 content 为空，将 reasoning 作为 content（包含思考过程和工具调用）
             if (content.text == null || content.text.isEmpty()) {
                 content.text = reasoning;
@@ -137,56 +218,98 @@ public class ResponseParser {
                 content.thought = reasoning;
             }
         }
-
         return content;
     }
 
     /**
-     * 解析 Cloudflare 原生 output 格式
+     * 读取 Cloudflare 原生 output 数组，按出现顺序处理 message 与 reasoning 项
      */
-    private ParsedContent parseCloudFlareOutputFormat(JsonObject responseJson) {
-        if (!responseJson.has("output") || !responseJson.get("output").isJsonArray()) {
-            return null;
-        }
-
-        JsonArray outputArray = responseJson.getAsJsonArray("output");
+    private ParsedContent readOutput(JsonReader reader) throws IOException {
         ParsedContent content = new ParsedContent();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            OutputItem item = readOutputItem(reader);
+            if ("message".equals(item.type)) {
+                applyMessageItem(item, content);
+            } else if ("reasoning".equals(item.type)) {
+                applyReasoningItem(item, content);
+            }
+        }
+        reader.endArray();
+        return content;
+    }
 
-        for (int i = 0; i < outputArray.size(); i++) {
-            JsonObject item = outputArray.get(i).getAsJsonObject();
-            String itemType = item.has("type") ? item.get("type").getAsString() : "";
-
-            if ("message".equals(itemType)) {
-                parseMessageItem(item, content);
-            } else if ("reasoning".equals(itemType)) {
-                parseReasoningItem(item, content);
+    /**
+     * 读取单个 output 项；type 可能出现在 content 之后，因此只暂存其中的文本片段
+     */
+    private OutputItem readOutputItem(JsonReader reader) throws IOException {
+        OutputItem item = new OutputItem();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            JsonToken token = reader.peek();
+            if ("type".equals(name)) {
+                item.type = nextString(reader);
+            } else if ("content".equals(name) && token == JsonToken.BEGIN_ARRAY) {
+                item.content = readTextParts(reader);
+            } else if ("summary".equals(name) && token == JsonToken.BEGIN_ARRAY) {
+                item.summary = joinTexts(readTextParts(reader), null);
+            } else if ("summary".equals(name)) {
+                item.summary = nextString(reader);
+            } else {
+                reader.skipValue();
             }
         }
+        reader.endObject();
+        return item;
+    }
 
-        return content;
+    /**
+     * 读取由 {type, text} 对象组成的数组
+     */
+    private List<TextPart> readTextParts(JsonReader reader) throws IOException {
+        List<TextPart> parts = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            TextPart part = new TextPart();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("type".equals(name)) {
+                    part.type = nextString(reader);
+                } else if ("text".equals(name)) {
+                    part.text = nextString(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            parts.add(part);
+        }
+        reader.endArray();
+        return parts;
     }
 
     /**
      * 解析 message 类型的 output 项
      */
-    private void parseMessageItem(JsonObject item, ParsedContent content) {
-        if (!item.has("content") || !item.get("content").isJsonArray()) {
+    private void applyMessageItem(OutputItem item, ParsedContent content) {
+        if (item.content == null) {
             return;
         }
-
-        JsonArray contents = item.getAsJsonArray("content");
-        for (int j = 0; j < contents.size(); j++) {
-            JsonObject contentObj = contents.get(j).getAsJsonObject();
-            String type = contentObj.has("type") ? contentObj.get("type").getAsString() : "";
-
-            if ("output_text".equals(type) && content.text == null) {
-                if (!contentObj.get("text").isJsonNull()) {
-                    content.text = contentObj.get("text").getAsString();
-                }
-            } else if (("thought".equals(type) || "reasoning".equals(type)) && content.thought == null) {
-                if (!contentObj.get("text").isJsonNull()) {
-                    content.thought = contentObj.get("text").getAsString();
-                }
+        for (TextPart part : item.content) {
+            if ("output_text".equals(part.type) && content.text == null) {
+                content.text = part.text;
+            } else if (("thought".equals(part.type) || "reasoning".equals(part.type)) && content.thought == null) {
+                content.thought = part.text;
             }
         }
     }
@@ -194,85 +317,209 @@ public class ResponseParser {
     /**
      * 解析 reasoning 类型的 output 项
      */
-    private void parseReasoningItem(JsonObject item, ParsedContent content) {
+    private void applyReasoningItem(OutputItem item, ParsedContent content) {
         if (content.thought != null) {
             return; // 已经有思考内容了，跳过
         }
 
-        // 尝试从 summary 字段解析
-        if (item.has("summary")) {
-            content.thought = parseSummaryField(item.get("summary"), item);
+        // 优先使用 summary 字段，没有内容时使用 content 中的 reasoning_text
+        content.thought = item.summary;
+        if (content.thought == null && item.content != null) {
+            content.thought = joinTexts(item.content, "reasoning_text");
         }
+    }
 
-        // 如果 summary 没有内容，尝试从 content 字段解析
-        if (content.thought == null && item.has("content") && item.get("content").isJsonArray()) {
-            content.thought = parseReasoningContent(item.getAsJsonArray("content"));
+    /**
+     * 用换行拼接文本片段，跳过 text 为空的项
+     *
+     * @param type 只拼接该类型的片段，null 表示不限类型
+     */
+    private String joinTexts(List<TextPart> parts, String type) {
+        StringBuilder sb = new StringBuilder();
+        for (TextPart part : parts) {
+            if (part.text != null && (type == null || type.equals(part.type))) {
+                if (sb.length() > 0) sb.append("\n");
+                sb.append(part.text);
+            }
         }
+        return sb.length() > 0 ? sb.toString() : null;
     }
 
     /**
-     * 解析 summary 字段（可能是数组或字符串）
+     * 读取 Cloudflare 原生 result 对象
+     *
+     * @param usage 用于带回 result.usage
      */
-    private String parseSummaryField(JsonElement summaryElement, JsonObject item) {
-        if (summaryElement.isJsonArray()) {
-            JsonArray summaryArray = summaryElement.getAsJsonArray();
-            StringBuilder sb = new StringBuilder();
-            for (int j = 0; j < summaryArray.size(); j++) {
-                JsonObject summaryObj = summaryArray.get(j).getAsJsonObject();
-                if (summaryObj.has("text") && !summaryObj.get("text").isJsonNull()) {
-                    if (sb.length() > 0) sb.append("\n");
-                    sb.append(summaryObj.get("text").getAsString());
-                }
+    private ParsedContent readResult(JsonReader reader, Usage[] usage) throws IOException {
+        String response = null;
+        String text = null;
+        String reasoning = null;
+        String thought = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("response".equals(name)) {
+                response = nextString(reader);
+            } else if ("text".equals(name)) {
+                text = nextString(reader);
+            } else if ("reasoning".equals(name)) {
+                reasoning = nextString(reader);
+            } else if ("thought".equals(name)) {
+                thought = nextString(reader);
+            } else if ("usage".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                usage[0] = readUsage(reader);
+            } else {
+                reader.skipValue();
             }
-            return sb.length() > 0 ? sb.toString() : null;
-        } else if (summaryElement.isJsonPrimitive()) {
-            return summaryElement.getAsString();
         }
-        return null;
+        reader.endObject();
+
+        ParsedContent content = new ParsedContent();
+        content.text = response != null ? response : text;
+        content.thought = reasoning != null ? reasoning : thought;
+        return content;
+    }
+
+    /**
+     * 读取字符串值；null 或对象、数组等非标量值返回 null
+     */
+    private static String nextString(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case STRING:
+            case NUMBER:
+                return reader.nextString();
+            case BOOLEAN:
+                return String.valueOf(reader.nextBoolean());
+            case NULL:
+                reader.nextNull();
+                return null;
+            default:
+                reader.skipValue();
+                return null;
+        }
     }
 
     /**
-     * 解析 reasoning content 数组
+     * 读取整数值；无法解析时返回 0
      */
-    private String parseReasoningContent(JsonArray contents) {
-        StringBuilder sb = new StringBuilder();
-        for (int j = 0; j < contents.size(); j++) {
-            JsonObject contentObj = contents.get(j).getAsJsonObject();
-            String type = contentObj.has("type") ? contentObj.get("type").getAsString() : "";
-            if ("reasoning_text".equals(type) && contentObj.has("text") && !contentObj.get("text").isJsonNull()) {
-                if (sb.length() > 0) sb.append("\n");
-                sb.append(contentObj.get("text").getAsString());
+    private static long nextLong(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NUMBER || reader.peek() == JsonToken.STRING) {
+            try {
+                return reader.nextLong();
+            } catch (NumberFormatException e) {
+                return 0;
             }
         }
-        return sb.length() > 0 ? sb.toString() : null;
+        reader.skipValue();
+        return 0;
     }
 
     /**
-     * 解析 Cloudflare 原生 result 格式
+     * 一次解码的结果
      */
-    private ParsedContent parseCloudFlareResultFormat(JsonObject responseJson) {
-        if (!responseJson.has("result")) {
-            return null;
+    public static final class Decoded {
+        private AIResponse response;
+        private String finishReason;
+        private boolean hasUsage;
+        private long promptTokens;
+        private long completionTokens;
+        private long totalTokens;
+        private String raw;
+
+        /**
+         * @return 解析出的 AIResponse，没有正文且未被截断时返回 null
+         */
+        public AIResponse getResponse() {
+            return response;
         }
 
-        JsonObject result = responseJson.getAsJsonObject("result");
-        ParsedContent content = new ParsedContent();
+        public String getFinishReason() {
+            return finishReason;
+        }
 
-        // 解析文本内容
-        if (result.has("response") && !result.get("response").isJsonNull()) {
-            content.text = result.get("response").getAsString();
-        } else if (result.has("text") && !result.get("text").isJsonNull()) {
-            content.text = result.get("text").getAsString();
+        public boolean hasUsage() {
+            return hasUsage;
         }
 
-        // 解析思考内容
-        if (result.has("reasoning") && !result.get("reasoning").isJsonNull()) {
-            content.thought = result.get("reasoning").getAsString();
-        } else if (result.has("thought") && !result.get("thought").isJsonNull()) {
-            content.thought = result.get("thought").getAsString();
+        public long getPromptTokens() {
+            return promptTokens;
         }
 
-        return content;
+        public long getCompletionTokens() {
+            return completionTokens;
+        }
+
+        public long getTotalTokens() {
+            return totalTokens;
+        }
+
+        /**
+         * @return 保留的原始响应体（可能只有开头部分），未要求保留时返回 null
+         */
+        public String getRaw() {
+            return raw;
+        }
+    }
+
+    /**
+     * 边读边保留开头若干字符的 Reader
+     */
+    private static final class CapturingReader extends FilterReader {
+        private final StringBuilder captured = new StringBuilder();
+        private final int limit;
+
+        CapturingReader(Reader in, int limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c != -1 && captured.length() < limit) {
+                captured.append((char) c);
+            }
+            return c;
+        }
+
+        @Override
+        public int read(char[] buf, int off, int len) throws IOException {
+            int n = super.read(buf, off, len);
+            if (n > 0 && captured.length() < limit) {
+                captured.append(buf, off, Math.min(n, limit - captured.length()));
+            }
+            return n;
+        }
+
+        String captured() {
+            return captured.toString();
+        }
+    }
+
+    /**
+     * Token 用量
+     */
+    private static class Usage {
+        long promptTokens;
+        long completionTokens;
+        long totalTokens;
+    }
+
+    /**
+     * output 项中暂存的内容
+     */
+    private static class OutputItem {
+        String type;
+        List<TextPart> content;
+        String summary;
+    }
+
+    /**
+     * {type, text} 文本片段
+     */
+    private static class TextPart {
+        String type;
+        String text;
     }
 
     /**
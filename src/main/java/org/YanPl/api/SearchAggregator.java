@@ -0,0 +1,465 @@
+package org.YanPl.api;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.YanPl.FancyHelper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 搜索聚合器：并发查询 Wiki、Metaso 与 Tavily，每个后端有独立截止时间，
+ * 首个有效结果到达后只再等待一个短暂的宽限期，慢后端不会拖住其他后端。
+ * 各后端的条目按链接去重、按相关度排序，并在固定字数预算内合并为一个结果块。
+ */
+public class SearchAggregator {
+    /**
+     * 首个有效结果到达后，继续等待其他后端的时间
+     */
+    static final long GRACE_MILLIS = 1500;
+    /**
+     * 合并结果的字数预算
+     */
+    static final int RESPONSE_BUDGET_CHARS = 3000;
+    private static final int MAX_SUMMARY_CHARS = 1500;
+    private static final int MAX_SNIPPET_CHARS = 300;
+    private static final int MAX_HITS = 8;
+    static final String WIKI_API_URL = "https://zh.minecraft.wiki/api.php";
+    private static final String WIKI_PAGE_URL = "https://zh.minecraft.wiki/w/";
+
+    private final FancyHelper plugin;
+    private final List<Backend> backends;
+    private final ExecutorService executor;
+
+    /**
+     * 单条搜索结果
+     */
+    static final class Hit {
+        final String source;
+        final String title;
+        final String url;
+        final String snippet;
+        final double score;
+
+        Hit(String source, String title, String url, String snippet, double score) {
+            this.source = source;
+            this.title = title == null ? "" : title;
+            this.url = url == null ? "" : url;
+            this.snippet = snippet == null ? "" : snippet;
+            this.score = score;
+        }
+    }
+
+    /**
+     * 单个后端的返回：可选的摘要答案与若干条目
+     */
+    static final class BackendResult {
+        final String summary;
+        final List<Hit> hits;
+
+        BackendResult(String summary, List<Hit> hits) {
+            this.summary = summary == null ? "" : summary.trim();
+            this.hits = hits;
+        }
+
+        boolean isEmpty() {
+            return summary.isEmpty() && hits.isEmpty();
+        }
+    }
+
+    /**
+     * 搜索后端
+     */
+    interface Backend {
+        String getName();
+
+        boolean isAvailable();
+
+        /**
+         * 是否为全网搜索后端（查询带 widely 时只使用全网后端）
+         */
+        boolean isGeneral();
+
+        /**
+         * 单次查询的截止时间
+         */
+        long getDeadlineMillis();
+
+        /**
+         * 超过该时间仍未返回时发起一次对冲请求，取先返回者；0 表示不对冲
+         */
+        long getHedgeAfterMillis();
+
+        BackendResult search(String query) throws Exception;
+    }
+
+    public SearchAggregator(FancyHelper plugin) {
+        this(plugin, null);
+    }
+
+    SearchAggregator(FancyHelper plugin, List<Backend> backends) {
+        this.plugin = plugin;
+        // search() 本身在 I/O 任务中运行，各后端的请求交给子请求执行器并发执行，避免占满 I/O 线程池后互相等待
+        this.executor = plugin.getIoExecutor().getFanOutExecutor();
+        this.backends = backends != null ? backends : createDefaultBackends();
+    }
+
+    private List<Backend> createDefaultBackends() {
+        List<Backend> list = new ArrayList<>();
+        // Wiki 为免费接口，允许对冲；付费接口不对冲以免重复计费
+        list.add(new SimpleBackend("Wiki", false, 10000, 2500, () -> true, this::searchWiki));
+        list.add(new SimpleBackend("Metaso", true, 60000, 0,
+                () -> plugin.getMetasoAPI() != null && plugin.getMetasoAPI().isAvailable(),
+                query -> plugin.getMetasoAPI().searchForAggregation(query)));
+        list.add(new SimpleBackend("Tavily", true, 30000, 0,
+                () -> plugin.getTavilyAPI() != null && plugin.getTavilyAPI().isAvailable(),
+                query -> plugin.getTavilyAPI().searchForAggregation(query)));
+        return list;
+    }
+
+    /**
+     * 执行聚合搜索
+     * @param rawQuery 原始查询，包含 widely 时跳过 Wiki 直接全网搜索
+     * @return 合并后的结果文本
+     */
+    public String search(String rawQuery) {
+        boolean widely = rawQuery.toLowerCase(Locale.ROOT).contains("widely");
+        String query = widely ? rawQuery.replaceAll("(?i)widely", "").trim() : rawQuery.trim();
+
+        List<Backend> active = new ArrayList<>();
+        for (Backend backend : backends) {
+            if ((!widely || backend.isGeneral()) && backend.isAvailable()) {
+                active.add(backend);
+            }
+        }
+        if (active.isEmpty()) {
+            return "搜索服务不可用，请在配置文件中启用 Metaso API 或 Tavily API。";
+        }
+
+        BlockingQueue<Map.Entry<Backend, Object>> completed = new LinkedBlockingQueue<>();
+        Map<Backend, Queue<Future<?>>> tasks = new LinkedHashMap<>();
+        AtomicBoolean finished = new AtomicBoolean();
+        long maxDeadline = 0;
+        for (Backend backend : active) {
+            maxDeadline = Math.max(maxDeadline, backend.getDeadlineMillis());
+            Queue<Future<?>> backendTasks = new ConcurrentLinkedQueue<>();
+            tasks.put(backend, backendTasks);
+            launch(backend, query, backendTasks, finished).whenComplete((result, error) ->
+                    completed.add(Map.entry(backend, error != null ? unwrap(error)
+                            : result != null ? result : new BackendResult(null, List.of()))));
+        }
+
+        Map<Backend, BackendResult> results = new LinkedHashMap<>();
+        Map<Backend, String> failures = new LinkedHashMap<>();
+        List<Backend> empty = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        long deadline = now + maxDeadline;
+        boolean haveGood = false;
+        int received = 0;
+        try {
+            while (received < active.size()) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) break;
+                Map.Entry<Backend, Object> entry = completed.poll(wait, TimeUnit.MILLISECONDS);
+                if (entry == null) break;
+                received++;
+                // 该后端已有结果（或已超时），取消对冲中落败或仍在等待的请求
+                cancel(tasks.get(entry.getKey()));
+                if (entry.getValue() instanceof BackendResult) {
+                    BackendResult result = (BackendResult) entry.getValue();
+                    if (result.isEmpty()) {
+                        empty.add(entry.getKey());
+                        continue;
+                    }
+                    results.put(entry.getKey(), result);
+                    if (!haveGood) {
+                        // 首个有效结果胜出，其余后端只再等待宽限期
+                        haveGood = true;
+                        deadline = Math.min(deadline, System.currentTimeMillis() + GRACE_MILLIS);
+                    }
+                } else {
+                    failures.put(entry.getKey(), describeFailure((Throwable) entry.getValue()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // 结果已确定，取消仍未返回的后端请求，不再占用线程
+            finished.set(true);
+            for (Queue<Future<?>> backendTasks : tasks.values()) {
+                cancel(backendTasks);
+            }
+        }
+
+        List<String> pending = new ArrayList<>();
+        for (Backend backend : active) {
+            if (!results.containsKey(backend) && !failures.containsKey(backend) && !empty.contains(backend)) {
+                pending.add(backend.getName());
+            }
+        }
+        if (plugin.getConfigManager().isDebug()) {
+            plugin.getLogger().info("[Search] 查询 \"" + query + "\" 耗时 " + (System.currentTimeMillis() - now)
+                    + "ms，有效: " + results.size() + "，失败: " + failures.size() + "，未响应: " + pending.size());
+        }
+
+        return merge(query, results, failures, pending);
+    }
+
+    /**
+     * 发起一个后端的查询，超过对冲时间仍未返回时再发起一次，取先成功者
+     *
+     * @param tasks 该后端已提交的请求，供结果确定后取消
+     * @param finished 本次搜索是否已结束，结束后不再发起对冲请求
+     */
+    private CompletableFuture<BackendResult> launch(Backend backend, String query, Queue<Future<?>> tasks, AtomicBoolean finished) {
+        CompletableFuture<BackendResult> result = new CompletableFuture<>();
+        try {
+            tasks.add(executor.submit(() -> {
+                try {
+                    result.complete(backend.search(query));
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        if (backend.getHedgeAfterMillis() > 0) {
+            Executor hedgeExecutor = task -> {
+                try {
+                    Future<?> future = executor.submit(task);
+                    tasks.add(future);
+                    if (finished.get()) {
+                        future.cancel(true);
+                    }
+                } catch (RejectedExecutionException ignored) {
+                    // 子请求线程已满或插件正在关闭，放弃对冲
+                }
+            };
+            CompletableFuture.runAsync(() -> {
+                if (result.isDone() || finished.get()) return;
+                // 对冲请求：只有成功结果才参与竞争，失败时仍以首个请求为准
+                try {
+                    result.complete(backend.search(query));
+                } catch (Exception ignored) {
+                }
+            }, CompletableFuture.delayedExecutor(backend.getHedgeAfterMillis(), TimeUnit.MILLISECONDS, hedgeExecutor));
+        }
+        return result.orTimeout(backend.getDeadlineMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static void cancel(Queue<Future<?>> tasks) {
+        for (Future<?> future : tasks) {
+            future.cancel(true);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static String describeFailure(Throwable error) {
+        if (error instanceof TimeoutException) return "超时";
+        return error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+    }
+
+    /**
+     * 合并各后端结果：摘要取最先到达的一个，条目按链接（无链接时按标题）去重后按相关度排序，整体受字数预算限制
+     */
+    static String merge(String query, Map<Backend, BackendResult> results, Map<Backend, String> failures, List<String> pending) {
+        if (results.isEmpty()) {
+            StringBuilder sb = new StringBuilder("未找到相关搜索结果。");
+            appendStatus(sb, failures, pending);
+            return sb.toString();
+        }
+
+        StringBuilder sb = new StringBuilder("【搜索结果】(").append(query).append(")\n");
+        for (Map.Entry<Backend, BackendResult> entry : results.entrySet()) {
+            String summary = entry.getValue().summary;
+            if (!summary.isEmpty()) {
+                sb.append("\n【摘要】(来源: ").append(entry.getKey().getName()).append(")\n")
+                        .append(truncate(summary, MAX_SUMMARY_CHARS)).append("\n");
+                break;
+            }
+        }
+
+        Map<String, Hit> unique = new LinkedHashMap<>();
+        for (BackendResult result : results.values()) {
+            for (Hit hit : result.hits) {
+                String key = dedupeKey(hit);
+                Hit existing = unique.get(key);
+                if (existing == null || hit.score > existing.score) {
+                    unique.put(key, hit);
+                }
+            }
+        }
+        List<Hit> ranked = new ArrayList<>(unique.values());
+        ranked.sort((a, b) -> Double.compare(b.score, a.score));
+
+        int index = 1;
+        for (Hit hit : ranked) {
+            if (index > MAX_HITS || sb.length() >= RESPONSE_BUDGET_CHARS) break;
+            StringBuilder item = new StringBuilder("\n").append(index).append(". ").append(hit.title)
+                    .append(" [").append(hit.source).append("]");
+            if (!hit.url.isEmpty()) item.append("\n   链接: ").append(hit.url);
+            if (!hit.snippet.isEmpty()) item.append("\n   内容: ").append(truncate(hit.snippet, MAX_SNIPPET_CHARS));
+            item.append("\n");
+            if (sb.length() + item.length() > RESPONSE_BUDGET_CHARS && index > 1) break;
+            sb.append(item);
+            index++;
+        }
+
+        appendStatus(sb, failures, pending);
+        return sb.toString();
+    }
+
+    private static void appendStatus(StringBuilder sb, Map<Backend, String> failures, List<String> pending) {
+        List<String> notes = new ArrayList<>();
+        failures.forEach((backend, reason) -> notes.add(backend.getName() + " 失败: " + reason));
+        for (String name : pending) {
+            notes.add(name + " 未及时响应");
+        }
+        if (!notes.isEmpty()) {
+            sb.append("\n（").append(String.join("；", notes)).append("）");
+        }
+    }
+
+    private static String dedupeKey(Hit hit) {
+        if (!hit.url.isEmpty()) {
+            String url = hit.url.toLowerCase(Locale.ROOT).replaceFirst("^https?://(www\\.)?", "");
+            int hash = url.indexOf('#');
+            if (hash != -1) url = url.substring(0, hash);
+            while (url.endsWith("/")) url = url.substring(0, url.length() - 1);
+            return url;
+        }
+        return "title:" + hit.title.toLowerCase(Locale.ROOT).trim();
+    }
+
+    private static String truncate(String text, int max) {
+        return text.length() > max ? text.substring(0, max) + "..." : text;
+    }
+
+    /**
+     * 按位置计算相关度：排在前面的条目得分更高，source 权重区分后端
+     */
+    static double positionScore(int position, double sourceWeight) {
+        return sourceWeight / (1.0 + position * 0.25);
+    }
+
+    /**
+     * 调用 Minecraft Wiki 公开 API 搜索
+     */
+    private BackendResult searchWiki(String query) throws IOException, InterruptedException {
+        String url = WIKI_API_URL + "?action=query&list=search&srsearch="
+                + URLEncoder.encode(query, StandardCharsets.UTF_8) + "&format=json&utf8=1";
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+        HttpResponse<String> response = plugin.getCircuitBreakers().send(plugin.getHttpClients().get(url), request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP " + response.statusCode());
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        JsonObject json = JsonParser.parseString(response.body()).getAsJsonObject();
+        if (json.has("query") && json.get("query").isJsonObject()) {
+            JsonObject queryObj = json.getAsJsonObject("query");
+            if (queryObj.has("search") && queryObj.get("search").isJsonArray()) {
+                JsonArray searchResults = queryObj.getAsJsonArray("search");
+                for (int i = 0; i < Math.min(3, searchResults.size()); i++) {
+                    JsonObject item = searchResults.get(i).getAsJsonObject();
+                    String title = item.has("title") ? item.get("title").getAsString() : "";
+                    String snippet = item.has("snippet") ? item.get("snippet").getAsString().replaceAll("<[^>]*>", "") : "";
+                    String pageUrl = WIKI_PAGE_URL + URLEncoder.encode(title.replace(' ', '_'), StandardCharsets.UTF_8);
+                    hits.add(new Hit("Wiki", title, pageUrl, snippet, positionScore(i, 1.0)));
+                }
+            }
+        }
+        return new BackendResult(null, hits);
+    }
+
+    /**
+     * 由函数组合而成的后端
+     */
+    static final class SimpleBackend implements Backend {
+        private final String name;
+        private final boolean general;
+        private final long deadlineMillis;
+        private final long hedgeAfterMillis;
+        private final BooleanSupplier available;
+        private final SearchFunction function;
+
+        SimpleBackend(String name, boolean general, long deadlineMillis, long hedgeAfterMillis,
+                      BooleanSupplier available, SearchFunction function) {
+            this.name = name;
+            this.general = general;
+            this.deadlineMillis = deadlineMillis;
+            this.hedgeAfterMillis = hedgeAfterMillis;
+            this.available = available;
+            this.function = function;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return available.getAsBoolean();
+        }
+
+        @Override
+        public boolean isGeneral() {
+            return general;
+        }
+
+        @Override
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+
+        @Override
+        public long getHedgeAfterMillis() {
+            return hedgeAfterMillis;
+        }
+
+        @Override
+        public BackendResult search(String query) throws Exception {
+            return function.search(query);
+        }
+    }
+
+    @FunctionalInterface
+    interface SearchFunction {
+        BackendResult search(String query) throws Exception;
+    }
+}
@@ -7,11 +7,13 @@ import com.google.gson.JsonParser;
 import org.YanPl.FancyHelper;
 import org.YanPl.manager.ConfigManager;
 
+import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Tavily API 封装类
@@ -23,7 +25,6 @@ public class TavilyAPI {
     
     private final FancyHelper plugin;
     private final ConfigManager configManager;
-    private final HttpClient httpClient;
     private final Gson gson;
     
     // Tavily Search API 官方端点
@@ -33,16 +34,13 @@ public class TavilyAPI {
         this.plugin = plugin;
         this.configManager = plugin.getConfigManager();
         this.gson = new Gson();
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(15))
-                .build();
     }
     
     /**
      * 获取 Tavily API URL（优先使用代理地址）
      * @return API URL
      */
-    private String getApiUrl() {
+    String getApiUrl() {
         String proxyUrl = configManager.getTavilyProxyUrl();
         if (proxyUrl != null && !proxyUrl.isEmpty()) {
             // 确保代理 URL 以 /search 结尾
@@ -85,38 +83,8 @@ public class TavilyAPI {
             return "Tavily API 密钥未配置。请在 config.yml 中设置 tavily.api_key";
         }
         
-        String apiUrl = getApiUrl();
-        
         try {
-            // 构建请求体
-            JsonObject requestBody = new JsonObject();
-            requestBody.addProperty("api_key", apiKey);
-            requestBody.addProperty("query", query);
-            requestBody.addProperty("max_results", Math.min(maxResults, 10)); // Tavily 最多返回 10 条
-            requestBody.addProperty("include_raw_content", configManager.isTavilyIncludeRawContent());
-            // 使用 basic 搜索深度，平衡速度和质量
-            requestBody.addProperty("search_depth", "basic");
-            // 包含答案，提供更智能的摘要
-            requestBody.addProperty("include_answer", true);
-            
-            if (configManager.isDebug()) {
-                plugin.getLogger().info("[Tavily] 发送搜索请求: " + query);
-                plugin.getLogger().info("[Tavily] API URL: " + apiUrl);
-            }
-            
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(apiUrl))
-                    .header("Content-Type", "application/json")
-                    .header("User-Agent", "FancyHelper/" + plugin.getDescription().getVersion())
-                    .timeout(Duration.ofSeconds(30))
-                    .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(requestBody)))
-                    .build();
-            
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            
-            if (configManager.isDebug()) {
-                plugin.getLogger().info("[Tavily] 响应状态码: " + response.statusCode());
-            }
+            HttpResponse<String> response = sendSearchRequest(query, maxResults, apiKey);
             
             if (response.statusCode() == 200) {
                 return parseSearchResponse(response.body(), query);
@@ -135,6 +103,81 @@ public class TavilyAPI {
         }
     }
     
+    /**
+     * 检查 Tavily 是否已启用并正确配置
+     * @return 是否可用
+     */
+    public boolean isAvailable() {
+        String apiKey = configManager.getTavilyApiKey();
+        return configManager.isTavilyEnabled() && apiKey != null && !apiKey.isEmpty();
+    }
+    
+    /**
+     * 发送搜索请求
+     */
+    private HttpResponse<String> sendSearchRequest(String query, int maxResults, String apiKey) throws IOException, InterruptedException {
+        String apiUrl = getApiUrl();
+        
+        // 构建请求体
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("api_key", apiKey);
+        requestBody.addProperty("query", query);
+        requestBody.addProperty("max_results", Math.min(maxResults, 10)); // Tavily 最多返回 10 条
+        requestBody.addProperty("include_raw_content", configManager.isTavilyIncludeRawContent());
+        // 使用 basic 搜索深度，平衡速度和质量
+        requestBody.addProperty("search_depth", "basic");
+        // 包含答案，提供更智能的摘要
+        requestBody.addProperty("include_answer", true);
+        
+        if (configManager.isDebug()) {
+            plugin.getLogger().info("[Tavily] 发送搜索请求: " + query);
+            plugin.getLogger().info("[Tavily] API URL: " + apiUrl);
+        }
+        
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(apiUrl))
+                .header("Content-Type", "application/json")
+                .header("User-Agent", "FancyHelper/" + plugin.getDescription().getVersion())
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(requestBody)))
+                .build();
+        
+        HttpResponse<String> response = plugin.getCircuitBreakers().send(plugin.getHttpClients().get(apiUrl), request, HttpResponse.BodyHandlers.ofString());
+        
+        if (configManager.isDebug()) {
+            plugin.getLogger().info("[Tavily] 响应状态码: " + response.statusCode());
+        }
+        return response;
+    }
+    
+    /**
+     * 供搜索聚合器使用：返回结构化结果，失败时抛出异常
+     * 
+     * @param query 搜索查询
+     * @return AI 摘要答案作为摘要，搜索结果作为条目（使用 Tavily 返回的相关度分数）
+     */
+    SearchAggregator.BackendResult searchForAggregation(String query) throws IOException, InterruptedException {
+        HttpResponse<String> response = sendSearchRequest(query, configManager.getTavilyMaxResults(), configManager.getTavilyApiKey());
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP " + response.statusCode() + ": " + extractErrorMessage(response.body()));
+        }
+        
+        JsonObject json = JsonParser.parseString(response.body()).getAsJsonObject();
+        String answer = getStringOrDefault(json, "answer", null);
+        List<SearchAggregator.Hit> hits = new ArrayList<>();
+        if (json.has("results") && json.get("results").isJsonArray()) {
+            JsonArray results = json.getAsJsonArray("results");
+            for (int i = 0; i < results.size(); i++) {
+                JsonObject item = results.get(i).getAsJsonObject();
+                double score = item.has("score") && !item.get("score").isJsonNull()
+                        ? item.get("score").getAsDouble() : SearchAggregator.positionScore(i, 0.8);
+                hits.add(new SearchAggregator.Hit("Tavily", getStringOrDefault(item, "title", "无标题"),
+                        getStringOrDefault(item, "url", ""), getStringOrDefault(item, "content", ""), score));
+            }
+        }
+        return new SearchAggregator.BackendResult(answer, hits);
+    }
+    
     /**
      * 解析 Tavily 搜索响应
      * 
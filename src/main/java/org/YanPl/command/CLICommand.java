@@ -5,9 +5,14 @@ import net.md_5.bungee.api.chat.HoverEvent;
 import net.md_5.bungee.api.chat.TextComponent;
 import net.md_5.bungee.api.chat.hover.content.Text;
 import org.YanPl.FancyHelper;
+import org.YanPl.api.AnswerCache;
+import org.YanPl.api.CircuitBreakerRegistry;
+import org.YanPl.api.ModelTierRouter;
 import org.YanPl.manager.InstructionManager;
 import org.YanPl.model.DialogueSession;
 import org.YanPl.util.ColorUtil;
+import org.YanPl.util.MetricsRegistry;
+import org.YanPl.util.TickProfiler;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
@@ -21,6 +26,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -36,6 +42,12 @@ public class CLICommand implements CommandExecutor, TabCompleter {
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "command.execute")) {
+            return dispatchCommand(sender, args);
+        }
+    }
+
+    private boolean dispatchCommand(CommandSender sender, String[] args) {
         if (args.length == 0) {
             if (!(sender instanceof Player)) {
                 sender.sendMessage(ChatColor.RED + "该命令仅限玩家使用。");
@@ -62,6 +74,20 @@ public class CLICommand implements CommandExecutor, TabCompleter {
             case "status":
                 handleStatus(sender);
                 break;
+            case "metrics":
+                if (!sender.hasPermission("fancyhelper.reload")) {
+                    sender.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §f你没有权限查看运行指标。"));
+                    return true;
+                }
+                handleMetrics(sender);
+                break;
+            case "profile":
+                if (!sender.hasPermission("fancyhelper.reload")) {
+                    sender.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §f你没有权限查看主线程耗时。"));
+                    return true;
+                }
+                handleProfile(sender, args);
+                break;
             case "update":
             case "checkupdate":
                 if (!(sender.isOp() || sender.hasPermission("fancyhelper.reload"))) {
@@ -147,6 +173,8 @@ public class CLICommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(" §7- §b/cli reload §f: 重新加载配置与工作区");
         sender.sendMessage(" §7- §b/cli reload deeply §f: 深度重载（完全重启插件）");
         sender.sendMessage(" §7- §b/cli status §f: 查看插件运行状态");
+        sender.sendMessage(" §7- §b/cli metrics §f: 查看运行指标（耗时、Token 用量、缓存命中率等）");
+        sender.sendMessage(" §7- §b/cli profile [reset] §f: 查看插件在主线程上的耗时分布");
         sender.sendMessage(" §7- §b/cli checkupdate §f: 检查更新");
         sender.sendMessage(" §7- §b/cli upgrade §f: 下载并安装更新");
         sender.sendMessage(" §7- §b/cli notice §f: 查看系统公告");
@@ -289,12 +317,14 @@ public class CLICommand implements CommandExecutor, TabCompleter {
             plugin.getConfigManager().loadConfig();
             plugin.getConfigManager().loadPlayerData();
             plugin.getWorkspaceIndexer().indexAll();
+            plugin.getConfigKeyIndex().start();
             plugin.getEulaManager().reload();
             sender.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §f配置、玩家数据、工作区与 EULA 已重新加载。"));
         } else if (args.length == 2) {
             String target = args[1].toLowerCase();
             if (target.equals("workspace")) {
                 plugin.getWorkspaceIndexer().indexAll();
+                plugin.getConfigKeyIndex().start();
                 sender.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §f工作区索引已重新加载。"));
             } else if (target.equals("config")) {
                 plugin.getConfigManager().loadConfig();
@@ -365,9 +395,116 @@ public class CLICommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(ChatColor.WHITE + "已索引预设: " + ChatColor.YELLOW + plugin.getWorkspaceIndexer().getIndexedPresets().size());
         sender.sendMessage(ChatColor.WHITE + "CLI 模式玩家: " + ChatColor.YELLOW + plugin.getCliManager().getActivePlayersCount());
         sender.sendMessage(ChatColor.WHITE + "插件版本: " + ChatColor.YELLOW + plugin.getDescription().getVersion());
+        ModelTierRouter tiers = plugin.getModelTierRouter();
+        if (tiers.statsOf(ModelTierRouter.Tier.FAST).getRequests() > 0) {
+            sender.sendMessage(ChatColor.WHITE + "模型分层:");
+            for (ModelTierRouter.Tier tier : ModelTierRouter.Tier.values()) {
+                ModelTierRouter.TierStats stats = tiers.statsOf(tier);
+                sender.sendMessage(ChatColor.GRAY + " - " + ChatColor.WHITE + tier.getDisplayName() + ": " + ChatColor.YELLOW + stats.getRequests()
+                        + ChatColor.GRAY + " 次，平均 " + stats.getAverageLatency() + "ms，Token 输入 " + stats.getPromptTokens()
+                        + " / 输出 " + stats.getCompletionTokens()
+                        + (tier == ModelTierRouter.Tier.FAST && stats.getEscalations() > 0 ? "，升级到主模型 " + stats.getEscalations() + " 次" : ""));
+            }
+        }
+        AnswerCache answerCache = plugin.getAnswerCache();
+        if (plugin.getConfigManager().isAnswerCacheEnabled() && answerCache != null) {
+            long lookups = answerCache.getHits() + answerCache.getMisses();
+            sender.sendMessage(ChatColor.WHITE + "问答缓存: " + ChatColor.YELLOW + answerCache.getHits() + ChatColor.GRAY + " / " + lookups
+                    + " 次命中" + (lookups > 0 ? "（" + answerCache.getHits() * 100 / lookups + "%）" : "") + "，内存中 " + answerCache.size() + " 条");
+        }
+        List<CircuitBreakerRegistry.CircuitBreaker> breakers = plugin.getCircuitBreakers().getBreakers();
+        if (!breakers.isEmpty()) {
+            sender.sendMessage(ChatColor.WHITE + "外部服务:");
+            long now = System.currentTimeMillis();
+            for (CircuitBreakerRegistry.CircuitBreaker breaker : breakers) {
+                sender.sendMessage(ChatColor.GRAY + " - " + ChatColor.WHITE + breaker.getName() + " " + formatBreakerState(breaker, now));
+            }
+        }
         sender.sendMessage(ChatColor.AQUA + "=======================");
     }
 
+    private void handleMetrics(CommandSender sender) {
+        MetricsRegistry metrics = plugin.getMetrics();
+        if (!metrics.isEnabled()) {
+            sender.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §f运行指标未启用，请在 config.yml 中设置 metrics.enabled: true 后重载。"));
+            return;
+        }
+        sender.sendMessage(ChatColor.AQUA + "=== FancyHelper 运行指标 ===");
+        for (MetricsRegistry.Family family : metrics.getFamilies().values()) {
+            if (family.getType() == MetricsRegistry.Type.SUMMARY) {
+                for (Map.Entry<String, MetricsRegistry.Histogram> entry : family.histograms().entrySet()) {
+                    MetricsRegistry.Histogram histogram = entry.getValue();
+                    sender.sendMessage(ChatColor.GRAY + " - " + ChatColor.WHITE + formatSeries(family.getName(), entry.getKey()) + ": "
+                            + ChatColor.YELLOW + histogram.getCount() + ChatColor.GRAY + " 次，p50 " + formatMicros(histogram.quantile(0.5))
+                            + "，p99 " + formatMicros(histogram.quantile(0.99)) + "，最大 " + formatMicros(histogram.getMax()));
+                }
+            } else {
+                for (Map.Entry<String, Long> entry : family.values().entrySet()) {
+                    sender.sendMessage(ChatColor.GRAY + " - " + ChatColor.WHITE + formatSeries(family.getName(), entry.getKey()) + ": "
+                            + ChatColor.YELLOW + entry.getValue());
+                }
+            }
+        }
+        String address = metrics.getServerAddress();
+        if (address != null) {
+            sender.sendMessage(ChatColor.GRAY + "Prometheus 抓取地址: http://" + address + "/metrics");
+        }
+        sender.sendMessage(ChatColor.AQUA + "=======================");
+    }
+
+    private void handleProfile(CommandSender sender, String[] args) {
+        TickProfiler profiler = plugin.getTickProfiler();
+        if (profiler == null || !profiler.isEnabled()) {
+            sender.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §f主线程耗时分析未启用，请在 config.yml 中设置 profiler.enabled: true 后重载。"));
+            return;
+        }
+        if (args.length > 1 && args[1].equalsIgnoreCase("reset")) {
+            profiler.reset();
+            sender.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §f已清空主线程耗时统计。"));
+            return;
+        }
+        long ticks = profiler.getWindowTicks();
+        MetricsRegistry.Histogram perTick = profiler.getTickHistogram();
+        sender.sendMessage(ChatColor.AQUA + "=== FancyHelper 主线程耗时（最近 " + ticks / 20 + " 秒）===");
+        sender.sendMessage(ChatColor.GRAY + "每 tick 合计: 平均 " + ChatColor.YELLOW + formatMicros(perTick.getCount() > 0 ? perTick.getSum() / perTick.getCount() : 0)
+                + ChatColor.GRAY + "，p99 " + formatMicros(perTick.quantile(0.99)) + "，最大 " + formatMicros(perTick.getMax()));
+        List<TickProfiler.Summary> summaries = profiler.getSummaries();
+        if (summaries.isEmpty()) {
+            sender.sendMessage(ChatColor.GRAY + "窗口内没有记录到操作。");
+        }
+        for (TickProfiler.Summary summary : summaries.subList(0, Math.min(15, summaries.size()))) {
+            MetricsRegistry.Histogram histogram = summary.getHistogram();
+            sender.sendMessage(ChatColor.GRAY + " - " + ChatColor.WHITE + summary.getName() + ": "
+                    + ChatColor.YELLOW + formatMicros(summary.getNanosPerTick() / 1000) + "/tick" + ChatColor.GRAY + "，"
+                    + histogram.getCount() + " 次，p50 " + formatMicros(histogram.quantile(0.5))
+                    + "，p99 " + formatMicros(histogram.quantile(0.99)) + "，最大 " + formatMicros(histogram.getMax()));
+        }
+        sender.sendMessage(ChatColor.AQUA + "=======================");
+    }
+
+    private String formatSeries(String name, String labels) {
+        String shortName = name.startsWith("fancyhelper_") ? name.substring("fancyhelper_".length()) : name;
+        return labels.isEmpty() ? shortName : shortName + "{" + labels + "}";
+    }
+
+    private String formatMicros(long micros) {
+        return micros >= 1000 ? micros / 1000 + "ms" : micros + "µs";
+    }
+
+    private String formatBreakerState(CircuitBreakerRegistry.CircuitBreaker breaker, long now) {
+        switch (breaker.getState()) {
+            case OPEN:
+                return ChatColor.RED + "已熔断" + ChatColor.GRAY + "（" + breaker.getRetryInSeconds(now) + " 秒后探测，原因: "
+                        + breaker.getLastError() + "，已拦截 " + breaker.getTotalRejected() + " 次请求）";
+            case HALF_OPEN:
+                return ChatColor.YELLOW + "探测恢复中";
+            default:
+                return breaker.getConsecutiveFailures() > 0
+                        ? ChatColor.GREEN + "正常" + ChatColor.GRAY + "（连续失败 " + breaker.getConsecutiveFailures() + " 次）"
+                        : ChatColor.GREEN + "正常";
+        }
+    }
+
     private void handleSettings(Player player) {
         player.sendMessage(ColorUtil.translateCustomColors("&8&m----------------------------------------"));
         player.sendMessage(ColorUtil.translateCustomColors("       &zFancyHelper &8| &7Settings"));
@@ -758,7 +895,7 @@ public class CLICommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §f正在下载并安装 ProtocolLib..."));
 
         // 异步执行下载操作
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getIoExecutor().execute(() -> {
             try {
                 // 下载 URL
                 String downloadUrl = "https://fancy.baicaizhale.top/download/libs%2FProtocolLib.jar";
@@ -785,19 +922,19 @@ public class CLICommand implements CommandExecutor, TabCompleter {
                     }
 
                     // 下载完成，提示用户
-                    Bukkit.getScheduler().runTask(plugin, () -> {
+                    TickProfiler.runTask(plugin, "command.lib_install_result", () -> {
                         sender.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §aProtocolLib 下载完成！"));
                         sender.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §f请重启服务器以加载 ProtocolLib。"));
                     });
                 } else {
                     // 下载失败
-                    Bukkit.getScheduler().runTask(plugin, () -> {
+                    TickProfiler.runTask(plugin, "command.lib_install_result", () -> {
                         sender.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §c下载失败，HTTP 响应码: " + responseCode));
                     });
                 }
             } catch (Exception e) {
                 // 处理异常
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "command.lib_install_result", () -> {
                     sender.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §c安装失败: " + e.getMessage()));
                 });
                 e.printStackTrace();
@@ -807,9 +944,15 @@ public class CLICommand implements CommandExecutor, TabCompleter {
 
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "command.tab_complete")) {
+            return completeCommand(sender, args);
+        }
+    }
+
+    private List<String> completeCommand(CommandSender sender, String[] args) {
         if (args.length == 1) {
             List<String> subCommands = new ArrayList<>(Arrays.asList(
-                "reload", "status", "yolo", "normal", "smart", "checkupdate", "upgrade",
+                "reload", "status", "metrics", "profile", "yolo", "normal", "smart", "checkupdate", "upgrade",
                 "read", "set", "settings", "tools", "display", "toggle",
                 "notice", "retry", "todo", "memory", "mem", "confirm",
                 "cancel", "agree", "thought", "select", "exempt_anti_loop",
@@ -822,6 +965,10 @@ public class CLICommand implements CommandExecutor, TabCompleter {
             return Arrays.asList("workspace", "config", "eula", "deeply").stream()
                     .filter(s -> s.startsWith(args[1].toLowerCase()))
                     .collect(Collectors.toList());
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("profile")) {
+            return Arrays.asList("reset").stream()
+                    .filter(s -> s.startsWith(args[1].toLowerCase()))
+                    .collect(Collectors.toList());
         } else if (args.length == 2 && args[0].equalsIgnoreCase("toggle")) {
             return Arrays.asList("ls", "read", "edit").stream()
                     .filter(s -> s.startsWith(args[1].toLowerCase()))
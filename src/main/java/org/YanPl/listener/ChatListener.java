@@ -1,7 +1,7 @@
 package org.YanPl.listener;
 
 import org.YanPl.FancyHelper;
-import org.bukkit.Bukkit;
+import org.YanPl.util.TickProfiler;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -32,71 +32,77 @@ public class ChatListener implements Listener {
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerQuit(PlayerQuitEvent event) {
-        plugin.getCliManager().exitCLI(event.getPlayer());
+        try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "listener.quit")) {
+            plugin.getCliManager().exitCLI(event.getPlayer());
+        }
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerJoin(PlayerJoinEvent event) {
-        Player player = event.getPlayer();
+        try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "listener.join")) {
+            Player player = event.getPlayer();
         
-        // 检查玩家是否有预加载的会话，如果有则静默进入CLI模式
-        if (plugin.getCliManager().hasPreloadedSession(player.getUniqueId())) {
-            if (plugin.getConfigManager().isDebug()) {
-                plugin.getLogger().info("[ChatListener] 玩家 " + player.getName() + " 有预加载的会话，静默进入CLI模式");
+            // 检查玩家是否有预加载的会话，如果有则静默进入CLI模式
+            if (plugin.getCliManager().hasPreloadedSession(player.getUniqueId())) {
+                if (plugin.getConfigManager().isDebug()) {
+                    plugin.getLogger().info("[ChatListener] 玩家 " + player.getName() + " 有预加载的会话，静默进入CLI模式");
+                }
+                // 延迟1秒后自动进入CLI模式，确保玩家完全加载
+                TickProfiler.runTaskLater(plugin, "listener.join_resume", () -> {
+                    if (!plugin.isEnabled() || !player.isOnline()) return;
+                    plugin.getCliManager().enterCLI(player);
+                }, 20L); // 1秒 = 20 ticks
             }
-            // 延迟1秒后自动进入CLI模式，确保玩家完全加载
-            Bukkit.getScheduler().runTaskLater(plugin, () -> {
-                if (!plugin.isEnabled() || !player.isOnline()) return;
-                plugin.getCliManager().enterCLI(player);
-            }, 20L); // 1秒 = 20 ticks
-        }
-        
-        // 检查配置是否启用公告显示
-        if (!plugin.getConfigManager().isNoticeShowOnJoin()) {
-            return;
-        }
         
-        // 进服 8s 后发送公告
-        if (!plugin.isEnabled()) return;
-        Bukkit.getScheduler().runTaskLater(plugin, () -> {
-            if (!plugin.isEnabled() || !player.isOnline()) return;
-
-            // 检查玩家是否已读当前公告
-            if (plugin.getNoticeManager().hasRead(player)) {
+            // 检查配置是否启用公告显示
+            if (!plugin.getConfigManager().isNoticeShowOnJoin()) {
                 return;
             }
+        
+            // 进服 8s 后发送公告
+            if (!plugin.isEnabled()) return;
+            TickProfiler.runTaskLater(plugin, "listener.join_notice", () -> {
+                if (!plugin.isEnabled() || !player.isOnline()) return;
 
-            org.YanPl.manager.NoticeManager.NoticeData cachedNotice = plugin.getNoticeManager().getCurrentNotice();
-            if (cachedNotice != null) {
-                plugin.getNoticeManager().showNoticeToPlayer(player, cachedNotice);
-            } else {
-                plugin.getNoticeManager().fetchNoticeAsync().thenAccept(noticeData -> {
-                    if (noticeData != null && player.isOnline()) {
-                        plugin.getNoticeManager().showNoticeToPlayer(player, noticeData);
-                    }
-                });
-            }
-        }, 8 * 20L); // 8s = 8 * 20 ticks
+                // 检查玩家是否已读当前公告
+                if (plugin.getNoticeManager().hasRead(player)) {
+                    return;
+                }
+
+                org.YanPl.manager.NoticeManager.NoticeData cachedNotice = plugin.getNoticeManager().getCurrentNotice();
+                if (cachedNotice != null) {
+                    plugin.getNoticeManager().showNoticeToPlayer(player, cachedNotice);
+                } else {
+                    plugin.getNoticeManager().fetchNoticeAsync().thenAccept(noticeData -> {
+                        if (noticeData != null && player.isOnline()) {
+                            plugin.getNoticeManager().showNoticeToPlayer(player, noticeData);
+                        }
+                    });
+                }
+            }, 8 * 20L); // 8s = 8 * 20 ticks
+        }
     }
 
     @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
     public void onPlayerChat(AsyncPlayerChatEvent event) {
         if (paperChatEventExists) return;
-        
-        String message = event.getMessage();
-        Player player = event.getPlayer();
-        if (!plugin.getCliManager().handleChat(player, message)) {
-            if (plugin.getCliManager().isInCLI(player)) {
-                if (message.startsWith("！")) {
-                    event.setMessage(message.substring(1));
-                } else if (message.startsWith("!")) {
-                    event.setMessage(message.substring(1));
+
+        try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "listener.chat")) {
+            String message = event.getMessage();
+            Player player = event.getPlayer();
+            if (!plugin.getCliManager().handleChat(player, message)) {
+                if (plugin.getCliManager().isInCLI(player)) {
+                    if (message.startsWith("！")) {
+                        event.setMessage(message.substring(1));
+                    } else if (message.startsWith("!")) {
+                        event.setMessage(message.substring(1));
+                    }
                 }
+                return;
             }
-            return;
+            event.getRecipients().clear();
+            event.setCancelled(true);
         }
-        event.getRecipients().clear();
-        event.setCancelled(true);
     }
 
     /**
@@ -115,7 +121,7 @@ public class ChatListener implements Listener {
                 EventPriority.LOWEST,
                 (listener, event) -> {
                     if (!asyncChatEventClass.isInstance(event)) return;
-                    try {
+                    try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "listener.chat")) {
                         Method getPlayerMethod = event.getClass().getMethod("getPlayer");
                         Method messageMethod = event.getClass().getMethod("message");
                         Player player = (Player) getPlayerMethod.invoke(event);
@@ -6,9 +6,13 @@ import net.md_5.bungee.api.chat.TextComponent;
 import net.md_5.bungee.api.chat.hover.content.Text;
 import org.YanPl.FancyHelper;
 import org.YanPl.api.CloudFlareAI;
+import org.YanPl.api.ModelTierRouter;
 import org.YanPl.model.AIResponse;
 import org.YanPl.model.DialogueSession;
 import org.YanPl.util.ColorUtil;
+import org.YanPl.util.IoExecutor;
+import org.YanPl.util.MetricsRegistry;
+import org.YanPl.util.TickProfiler;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
@@ -53,6 +57,16 @@ public class CLIManager {
     private final Map<UUID, String> pendingCommands = new ConcurrentHashMap<>();
     private final Map<UUID, String> interruptedToolCalls = new ConcurrentHashMap<>();
     private final Map<UUID, RetryInfo> retryInfoMap = new ConcurrentHashMap<>();
+    private final Map<UUID, ToolTiming> toolTimings = new ConcurrentHashMap<>();
+    private final StatusRenderer statusRenderer;
+
+    private static final int MAX_PARALLEL_TOOLS = 5; // 单次回复最多并行执行的只读工具数量
+    private static final String EXECUTING_TOOL_TEXT = ChatColor.GRAY + "....";
+    private static final String WAITING_CONFIRM_TEXT = ChatColor.YELLOW + "正在征求您的许可...";
+    private static final String WAITING_CHOICE_TEXT = ChatColor.AQUA + "正在征求您的意见...";
+    private static final String COMPLETED_TEXT = ChatColor.GREEN + "- ✓ -";
+    private static final String CANCELLED_TEXT = ChatColor.RED + "- ✕ -";
+    private static final String ERROR_TEXT = ChatColor.RED + "- ERROR -";
 
     /**
      * 重试信息类
@@ -71,6 +85,19 @@ public class CLIManager {
         }
     }
 
+    /**
+     * 正在执行的工具及开始时间（仅在启用指标时记录）
+     */
+    private static class ToolTiming {
+        final String tool;
+        final long startNanos;
+
+        ToolTiming(String tool, long startNanos) {
+            this.tool = tool;
+            this.startNanos = startNanos;
+        }
+    }
+
     /**
      * 待处理的SMART操作信息
      */
@@ -99,6 +126,7 @@ public class CLIManager {
         this.ai = new CloudFlareAI(plugin);
         this.promptManager = new PromptManager(plugin);
         this.toolExecutor = new ToolExecutor(plugin, this);
+        this.statusRenderer = new StatusRenderer(plugin);
         this.agreedPlayersFile = new File(plugin.getDataFolder(), "agreed_players.txt");
         this.yoloAgreedPlayersFile = new File(plugin.getDataFolder(), "yolo_agreed_players.txt");
         this.yoloModePlayersFile = new File(plugin.getDataFolder(), "yolo_mode_players.txt");
@@ -261,19 +289,24 @@ public class CLIManager {
         new BukkitRunnable() {
             @Override
             public void run() {
-                long now = System.currentTimeMillis();
-                long timeoutMs = plugin.getConfigManager().getTimeoutMinutes() * 60 * 1000L;
+                try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "cli.timeout_check")) {
+                    long now = System.currentTimeMillis();
+                    long timeoutMs = plugin.getConfigManager().getTimeoutMinutes() * 60 * 1000L;
                 
-                for (UUID uuid : new ArrayList<>(activeCLIPayers)) {
-                    DialogueSession session = sessions.get(uuid);
-                    if (session != null && (now - session.getLastActivityTime()) > timeoutMs) {
-                        Player player = Bukkit.getPlayer(uuid);
-                        if (player != null) {
-                            player.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §f由于长时间未活动，已自动退出 FancyHelper。"));
-                            exitCLI(player);
-                        } else {
-                            activeCLIPayers.remove(uuid);
-                            sessions.remove(uuid);
+                    for (UUID uuid : new ArrayList<>(activeCLIPayers)) {
+                        DialogueSession session = sessions.get(uuid);
+                        if (session != null && (now - session.getLastActivityTime()) > timeoutMs) {
+                            Player player = Bukkit.getPlayer(uuid);
+                            if (player != null) {
+                                player.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §f由于长时间未活动，已自动退出 FancyHelper。"));
+                                exitCLI(player);
+                            } else {
+                                activeCLIPayers.remove(uuid);
+                                sessions.remove(uuid);
+                                statusRenderer.forget(uuid);
+                                plugin.getPresetIndex().forget(uuid);
+                                toolExecutor.forget(uuid);
+                            }
                         }
                     }
                 }
@@ -447,86 +480,71 @@ public class CLIManager {
         new BukkitRunnable() {
             @Override
             public void run() {
-                if (!plugin.isEnabled()) {
-                    this.cancel();
-                    return;
-                }
-                long now = System.currentTimeMillis();
+                try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "cli.status_render")) {
+                    if (!plugin.isEnabled()) {
+                        this.cancel();
+                        return;
+                    }
+                    statusRenderer.advance();
+                    long now = System.currentTimeMillis();
                 
-                for (UUID uuid : activeCLIPayers) {
-                    Player player = Bukkit.getPlayer(uuid);
-                    if (player == null || !player.isOnline()) continue;
-
-                    GenerationStatus status = generationStates.getOrDefault(uuid, GenerationStatus.IDLE);
-                    if (status == GenerationStatus.IDLE) continue;
-
-                    String message = "";
-                    switch (status) {
-                        case THINKING:
-                            Long startTime = generationStartTimes.get(uuid);
-                            if (startTime == null) {
-                                // 如果开始时间为空，可能是竞态条件导致的（状态已变更但计时器还未检测到）
-                                // 跳过显示，避免重新设置时间导致计时继续
-                                continue;
-                            }
-                            long elapsed = (now - startTime) / 1000;
-                            message = ChatColor.GRAY + "- 思考中 " + elapsed + "s -";
-                            sendStatusMessage(player, message);
-                            break;
-                        case EXECUTING_TOOL:
-                            message = ChatColor.GRAY + "....";
-                            sendStatusMessage(player, message);
-                            break;
-                        case WAITING_CONFIRM:
-                            message = ChatColor.YELLOW + "正在征求您的许可...";
-                            sendStatusMessage(player, message);
-                            break;
-                        case WAITING_CHOICE:
-                            message = ChatColor.AQUA + "正在征求您的意见...";
-                            sendStatusMessage(player, message);
-                            break;
-                        case COMPLETED:
-                            message = ChatColor.GREEN + "- ✓ -";
-                            sendStatusMessage(player, message);
-                            // 清除显示，2秒后清除 (40 ticks)
-                            if (plugin.isEnabled()) {
-                                Bukkit.getScheduler().runTaskLater(plugin, () -> {
-                                    clearStatusMessage(player);
-                                }, 40L);
-                            }
-                            generationStates.put(uuid, GenerationStatus.IDLE);
-                            generationStartTimes.remove(uuid);
-                            break;
-                        case CANCELLED:
-                            message = ChatColor.RED + "- ✕ -";
-                            sendStatusMessage(player, message);
-                            // 清除显示，2秒后清除 (40 ticks)
-                            if (plugin.isEnabled()) {
-                                Bukkit.getScheduler().runTaskLater(plugin, () -> {
-                                    clearStatusMessage(player);
-                                }, 40L);
-                            }
-                            generationStates.put(uuid, GenerationStatus.IDLE);
-                            generationStartTimes.remove(uuid);
-                            break;
-                        case ERROR:
-                            message = ChatColor.RED + "- ERROR -";
-                            sendStatusMessage(player, message);
-                            // 清除显示，2秒后清除 (40 ticks)
-                            if (plugin.isEnabled()) {
-                                Bukkit.getScheduler().runTaskLater(plugin, () -> {
-                                    clearStatusMessage(player);
-                                }, 40L);
-                            }
-                            generationStates.put(uuid, GenerationStatus.IDLE);
-                            generationStartTimes.remove(uuid);
-                            break;
-                        default:
-                            break;
+                    for (UUID uuid : activeCLIPayers) {
+                        Player player = Bukkit.getPlayer(uuid);
+                        if (player == null || !player.isOnline()) continue;
+
+                        GenerationStatus status = generationStates.getOrDefault(uuid, GenerationStatus.IDLE);
+                        if (status == GenerationStatus.IDLE) {
+                            statusRenderer.idle(uuid);
+                            continue;
+                        }
+
+                        switch (status) {
+                            case THINKING:
+                                Long startTime = generationStartTimes.get(uuid);
+                                if (startTime == null) {
+                                    // 如果开始时间为空，可能是竞态条件导致的（状态已变更但计时器还未检测到）
+                                    // 跳过显示，避免重新设置时间导致计时继续
+                                    continue;
+                                }
+                                long elapsed = (now - startTime) / 1000;
+                                sendStatusMessage(player, ChatColor.GRAY + "- 思考中 " + elapsed + "s -");
+                                break;
+                            case EXECUTING_TOOL:
+                                sendStatusMessage(player, EXECUTING_TOOL_TEXT);
+                                break;
+                            case WAITING_CONFIRM:
+                                sendStatusMessage(player, WAITING_CONFIRM_TEXT);
+                                break;
+                            case WAITING_CHOICE:
+                                sendStatusMessage(player, WAITING_CHOICE_TEXT);
+                                break;
+                            case COMPLETED:
+                                finishStatus(player, COMPLETED_TEXT);
+                                break;
+                            case CANCELLED:
+                                finishStatus(player, CANCELLED_TEXT);
+                                break;
+                            case ERROR:
+                                finishStatus(player, ERROR_TEXT);
+                                break;
+                            default:
+                                break;
+                        }
                     }
                 }
             }
-        }.runTaskTimer(plugin, 5L, 5L); // 提高更新频率到 0.25s，让计时更平滑
+        }.runTaskTimer(plugin, StatusRenderer.TICKS_PER_SLOT, StatusRenderer.TICKS_PER_SLOT);
+    }
+
+    /**
+     * 显示最终状态，2秒后 (40 ticks) 由时间轮统一清除，并将玩家置为空闲
+     */
+    private void finishStatus(Player player, String message) {
+        UUID uuid = player.getUniqueId();
+        sendStatusMessage(player, message);
+        statusRenderer.scheduleClear(uuid, 40L);
+        generationStates.put(uuid, GenerationStatus.IDLE);
+        generationStartTimes.remove(uuid);
     }
 
     /**
@@ -545,28 +563,17 @@ public class CLIManager {
     }
 
     /**
-     * 向玩家发送状态消息（根据玩家配置选择 Actionbar 或 Subtitle）
+     * 向玩家发送状态消息（根据玩家配置选择 Actionbar 或 Subtitle），内容未变化时不重复发送
      */
     private void sendStatusMessage(Player player, String message) {
-        String position = plugin.getConfigManager().getPlayerDisplayPosition(player);
-        if ("subtitle".equalsIgnoreCase(position)) {
-            // 为了保证 subtitle 显示，发送空内容的 title
-            player.sendTitle("", message, 0, 20, 0);
-        } else {
-            player.spigot().sendMessage(net.md_5.bungee.api.ChatMessageType.ACTION_BAR, new TextComponent(message));
-        }
+        statusRenderer.render(player, message);
     }
 
     /**
-     * 清除玩家的状态消息显示
+     * 立即清除玩家的状态消息显示
      */
     private void clearStatusMessage(Player player) {
-        String position = plugin.getConfigManager().getPlayerDisplayPosition(player);
-        if ("subtitle".equalsIgnoreCase(position)) {
-            player.sendTitle("", "", 0, 0, 0);
-        } else {
-            player.spigot().sendMessage(net.md_5.bungee.api.ChatMessageType.ACTION_BAR, new TextComponent(""));
-        }
+        statusRenderer.clear(player);
     }
 
     /**
@@ -596,46 +603,48 @@ public class CLIManager {
      * @param session 对话会话
      */
     public void saveSessionHistory(UUID uuid, DialogueSession session) {
-        try {
-            // 创建历史记录目录
-            Path historyDir = plugin.getDataFolder().toPath().resolve("temp").resolve("history");
-            Files.createDirectories(historyDir);
+        try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "cli.save_session")) {
+            try {
+                // 创建历史记录目录
+                Path historyDir = plugin.getDataFolder().toPath().resolve("temp").resolve("history");
+                Files.createDirectories(historyDir);
             
-            // 创建保存文件
-            Path historyFile = historyDir.resolve(uuid.toString() + ".json");
+                // 创建保存文件
+                Path historyFile = historyDir.resolve(uuid.toString() + ".json");
             
-            // 构建会话数据
-            Map<String, Object> sessionData = new HashMap<>();
-            sessionData.put("timestamp", System.currentTimeMillis());
-            sessionData.put("mode", session.getMode().name());
+                // 构建会话数据
+                Map<String, Object> sessionData = new HashMap<>();
+                sessionData.put("timestamp", System.currentTimeMillis());
+                sessionData.put("mode", session.getMode().name());
             
-            // 保存对话历史
-            List<Map<String, Object>> messages = new ArrayList<>();
-            for (DialogueSession.Message message : session.getHistory()) {
-                Map<String, Object> msgData = new HashMap<>();
-                msgData.put("role", message.getRole());
-                msgData.put("content", message.getContent());
-                if (message.getThought() != null) {
-                    msgData.put("thought", message.getThought());
+                // 保存对话历史
+                List<Map<String, Object>> messages = new ArrayList<>();
+                for (DialogueSession.Message message : session.getHistory()) {
+                    Map<String, Object> msgData = new HashMap<>();
+                    msgData.put("role", message.getRole());
+                    msgData.put("content", message.getContent());
+                    if (message.getThought() != null) {
+                        msgData.put("thought", message.getThought());
+                    }
+                    messages.add(msgData);
                 }
-                messages.add(msgData);
-            }
-            sessionData.put("messages", messages);
+                sessionData.put("messages", messages);
             
-            // 保存工具调用历史
-            sessionData.put("toolCalls", session.getToolCallHistory());
+                // 保存工具调用历史
+                sessionData.put("toolCalls", session.getToolCallHistory());
             
-            // 序列化为JSON并保存
-            Gson gson = new Gson();
-            String json = gson.toJson(sessionData);
-            Files.write(historyFile, json.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+                // 序列化为JSON并保存
+                Gson gson = new Gson();
+                String json = gson.toJson(sessionData);
+                Files.write(historyFile, json.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
             
-            if (plugin.getConfigManager().isDebug()) {
-                plugin.getLogger().info("[CLI] 已保存会话历史: " + historyFile.getFileName());
+                if (plugin.getConfigManager().isDebug()) {
+                    plugin.getLogger().info("[CLI] 已保存会话历史: " + historyFile.getFileName());
+                }
+            } catch (Exception e) {
+                plugin.getLogger().warning("[CLI] 保存会话历史失败: " + e.getMessage());
+                plugin.getCloudErrorReport().report(e);
             }
-        } catch (Exception e) {
-            plugin.getLogger().warning("[CLI] 保存会话历史失败: " + e.getMessage());
-            plugin.getCloudErrorReport().report(e);
         }
     }
 
@@ -809,6 +818,8 @@ public class CLIManager {
         pendingCommands.clear();
         generationStates.clear();
         generationStartTimes.clear();
+        toolTimings.clear();
+        statusRenderer.reset();
         
         // 关闭AI客户端（这会处理OkHttp的cleanup）
         if (ai != null) {
@@ -875,6 +886,7 @@ public class CLIManager {
                 String logFileName = timestamp + ".log";
                 Path logFilePath = logDir.resolve(logFileName);
                 session.setLogFilePath(logFilePath.toString());
+                session.setLogWriter(plugin.getSessionLogWriter());
                 // 根据调试模式设置详细日志级别
                 session.setVerboseLogging(plugin.getConfigManager().isDebug());
                 if (plugin.getConfigManager().isDebug()) {
@@ -917,7 +929,7 @@ public class CLIManager {
 
         // 进入 CLI 后 0.3s 延迟展示 (约 6 ticks)
         if (!plugin.isEnabled()) return;
-        Bukkit.getScheduler().runTaskLater(plugin, () -> {
+        TickProfiler.runTaskLater(plugin, "cli.greeting", () -> {
             try {
                 // 检查玩家是否仍在线且在 CLI 模式中
                 if (!plugin.isEnabled() || !activeCLIPayers.contains(uuid) || !player.isOnline()) return;
@@ -991,6 +1003,7 @@ public class CLIManager {
 
         // 清空重试信息
         retryInfoMap.remove(uuid);
+        toolTimings.remove(uuid);
 
         recordThinkingTime(uuid);
         sendExitMessage(player);
@@ -1008,6 +1021,9 @@ public class CLIManager {
         isGenerating.remove(uuid);
         generationStates.remove(uuid);
         generationStartTimes.remove(uuid);
+        statusRenderer.forget(uuid);
+        plugin.getPresetIndex().forget(uuid);
+        toolExecutor.forget(uuid);
     }
 
     public void switchMode(Player player, DialogueSession.Mode targetMode) {
@@ -1140,7 +1156,8 @@ public class CLIManager {
             if (!"CHOOSING".equals(cmd)) {
                 pendingCommands.remove(uuid);
                 generationStates.put(uuid, GenerationStatus.EXECUTING_TOOL);
-                if (cmd.startsWith("LS:") || cmd.startsWith("READ:") || cmd.startsWith("DIFF:") || cmd.startsWith("EDIT:")) {
+                if (cmd.startsWith("LS:") || cmd.startsWith("READ:") || cmd.startsWith("DIFF:") || cmd.startsWith("EDIT:")
+                        || cmd.startsWith("UNDO:")) {
                     String[] parts = cmd.split(":", 2);
                     String type = parts[0].toLowerCase();
                     String args = parts[1];
@@ -1182,7 +1199,7 @@ public class CLIManager {
         return switch (type.toLowerCase()) {
             case "ls" -> "ls";
             case "read" -> "read";
-            case "edit", "diff" -> "edit";
+            case "edit", "diff", "undo" -> "edit";
             default -> type;
         };
     }
@@ -1370,7 +1387,13 @@ public class CLIManager {
                         isGenerating.put(uuid, true);
                         generationStates.put(uuid, GenerationStatus.EXECUTING_TOOL);
                         generationStartTimes.put(uuid, System.currentTimeMillis());
-                        executeTool(player, interruptedCall);
+                        List<String> interruptedBatch = new ArrayList<>();
+                        extractToolCalls(interruptedCall, interruptedBatch);
+                        if (interruptedBatch.size() > 1 && collectParallelBatch(player, interruptedBatch).size() == interruptedBatch.size()) {
+                            executeToolBatch(player, interruptedBatch);
+                        } else {
+                            executeTool(player, interruptedCall);
+                        }
                     }
                 }
                 return true;
@@ -1443,11 +1466,11 @@ public class CLIManager {
 
         // 使用异步任务重试
         if (!plugin.isEnabled()) return;
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getIoExecutor().execute(() -> {
             // 设置重试回调，向玩家显示重试提示
             ai.setRetryCallback((statusCode, retryMessage) -> {
                 if (!plugin.isEnabled()) return;
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "cli.retry_notice", () -> {
                     if (player.isOnline()) {
                         TextComponent retryMsg;
                         if (statusCode == 429) {
@@ -1468,15 +1491,15 @@ public class CLIManager {
                     retryInfo.session.addMessage("user", retryInfo.lastMessage);
                 }
 
-                AIResponse response = ai.chat(retryInfo.session, retryInfo.systemPrompt);
+                AIResponse response = ai.chat(retryInfo.session, retryInfo.systemPrompt, ModelTierRouter.Tier.MAIN);
                 if (!plugin.isEnabled()) return;
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "cli.ai_response", () -> {
                     handleAIResponse(player, response);
                 });
             } catch (IOException e) {
                 plugin.getCloudErrorReport().report(e);
                 if (!plugin.isEnabled()) return;
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "cli.ai_error", () -> {
                     // 再次失败，重新移除最后一条消息并保存重试信息
                     if (retryInfo.lastMessage != null) {
                         retryInfo.session.removeLastMessage();
@@ -1508,12 +1531,12 @@ public class CLIManager {
                     recordThinkingTime(uuid);
                     generationStates.put(uuid, GenerationStatus.ERROR);
                     generationStartTimes.remove(uuid);
-                    player.spigot().sendMessage(net.md_5.bungee.api.ChatMessageType.ACTION_BAR, new TextComponent(""));
+                    clearStatusMessage(player);
                 });
             } catch (Throwable t) {
                 plugin.getCloudErrorReport().report(t);
                 if (!plugin.isEnabled()) return;
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "cli.ai_error", () -> {
                     // 再次失败，重新移除最后一条消息并保存重试信息
                     if (retryInfo.lastMessage != null) {
                         retryInfo.session.removeLastMessage();
@@ -1536,12 +1559,45 @@ public class CLIManager {
                     recordThinkingTime(uuid);
                     generationStates.put(uuid, GenerationStatus.ERROR);
                     generationStartTimes.remove(uuid);
-                    player.spigot().sendMessage(net.md_5.bungee.api.ChatMessageType.ACTION_BAR, new TextComponent(""));
+                    clearStatusMessage(player);
                 });
             } finally {
                 // 清除重试回调
                 ai.clearRetryCallback();
             }
+        }, () -> handleAICallRejected(player, retryInfo, retryInfo.lastMessage != null));
+    }
+
+    /**
+     * AI 请求因 I/O 任务队列已满未能提交时调用：结束生成状态并提供重试，避免会话一直停在思考中
+     * @param retryInfo 重试信息，为 null 时不提供重试
+     * @param removeLastMessage 是否移除本次请求加入会话的消息（重试时会重新加入）
+     */
+    private void handleAICallRejected(Player player, RetryInfo retryInfo, boolean removeLastMessage) {
+        if (!plugin.isEnabled()) return;
+        TickProfiler.runTask(plugin, "cli.ai_error", () -> {
+            UUID uuid = player.getUniqueId();
+            player.sendMessage(ChatColor.RED + "⨀ " + IoExecutor.QUEUE_FULL_MESSAGE);
+            if (retryInfo != null) {
+                if (removeLastMessage) {
+                    retryInfo.session.removeLastMessage();
+                }
+                retryInfoMap.put(uuid, retryInfo);
+
+                TextComponent retryBtn = new TextComponent(ChatColor.WHITE + "(");
+                retryBtn.addExtra(new TextComponent(ChatColor.GREEN + "🔄"));
+                retryBtn.setClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/cli retry"));
+                String hoverText = "§b§l=======\n§b§l|  重试  |\n§b§l=======";
+                retryBtn.setHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, new Text(ChatColor.translateAlternateColorCodes('&', hoverText))));
+                retryBtn.addExtra(new TextComponent(ChatColor.WHITE + ")"));
+                player.spigot().sendMessage(retryBtn);
+            }
+
+            isGenerating.put(uuid, false);
+            recordThinkingTime(uuid);
+            generationStates.put(uuid, GenerationStatus.ERROR);
+            generationStartTimes.remove(uuid);
+            clearStatusMessage(player);
         });
     }
 
@@ -1651,23 +1707,24 @@ public class CLIManager {
         player.sendMessage(ChatColor.AQUA + "正在使用AI压缩上下文，当前历史记录: " + historySize + " 条消息...");
 
         // 使用AI智能压缩（强制模式）
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getIoExecutor().execute(() -> {
             try {
                 compressContextWithAI(player, session, true);
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "cli.compress_result", () -> {
                     player.sendMessage(ChatColor.GREEN + "✓ AI智能压缩完成！新的历史记录大小: " + session.getHistory().size() + " 条消息");
                 });
             } catch (Exception e) {
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "cli.compress_result", () -> {
                     player.sendMessage(ChatColor.RED + "✗ AI压缩失败: " + e.getMessage());
                 });
             }
-        });
+        }, () -> player.sendMessage(ChatColor.RED + "✗ AI压缩失败: " + IoExecutor.QUEUE_FULL_MESSAGE));
     }
 
     private void processAIMessage(Player player, String message) {
         UUID uuid = player.getUniqueId();
         interruptedToolCalls.remove(uuid);
+        toolTimings.remove(uuid);
         DialogueSession session = sessions.get(uuid);
         if (session == null) return;
 
@@ -1694,11 +1751,11 @@ public class CLIManager {
         }
 
         if (!plugin.isEnabled()) return;
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getIoExecutor().execute(() -> {
             // 设置重试回调，向玩家显示重试提示
             ai.setRetryCallback((statusCode, retryMessage) -> {
                 if (!plugin.isEnabled()) return;
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "cli.retry_notice", () -> {
                     if (player.isOnline()) {
                         TextComponent retryMsg;
                         if (statusCode == 429) {
@@ -1714,13 +1771,13 @@ public class CLIManager {
             });
             
             try {
-                AIResponse response = ai.chat(session, promptManager.getBaseSystemPrompt(player));
+                AIResponse response = ai.chat(session, promptManager.getBaseSystemPrompt(player), classifyTier(player, session));
                 if (!plugin.isEnabled()) return;
-                Bukkit.getScheduler().runTask(plugin, () -> handleAIResponse(player, response));
+                TickProfiler.runTask(plugin, "cli.ai_response", () -> handleAIResponse(player, response));
             } catch (IOException e) {
                 plugin.getCloudErrorReport().report(e);
                 if (!plugin.isEnabled()) return;
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "cli.ai_error", () -> {
                     // 保存重试信息
                     retryInfoMap.put(uuid, new RetryInfo(session, promptManager.getBaseSystemPrompt(player), message, true));
 
@@ -1750,14 +1807,14 @@ public class CLIManager {
                     generationStates.put(uuid, GenerationStatus.ERROR);
                     generationStartTimes.remove(uuid);
                     // 立即清除动作栏
-                    player.spigot().sendMessage(net.md_5.bungee.api.ChatMessageType.ACTION_BAR, new TextComponent(""));
+                    clearStatusMessage(player);
                     // 移除导致失败的消息，防止污染后续对话
                     session.removeLastMessage();
                 });
             } catch (Throwable t) {
                 plugin.getCloudErrorReport().report(t);
                 if (!plugin.isEnabled()) return;
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "cli.ai_error", () -> {
                     // 保存重试信息
                     retryInfoMap.put(uuid, new RetryInfo(session, promptManager.getBaseSystemPrompt(player), message, true));
 
@@ -1779,7 +1836,7 @@ public class CLIManager {
                     generationStates.put(uuid, GenerationStatus.ERROR);
                     generationStartTimes.remove(uuid);
                     // 立即清除动作栏
-                    player.spigot().sendMessage(net.md_5.bungee.api.ChatMessageType.ACTION_BAR, new TextComponent(""));
+                    clearStatusMessage(player);
                     // 移除导致失败的消息，防止污染后续对话
                     session.removeLastMessage();
                 });
@@ -1787,7 +1844,7 @@ public class CLIManager {
                 // 清除重试回调
                 ai.clearRetryCallback();
             }
-        });
+        }, () -> handleAICallRejected(player, new RetryInfo(session, promptManager.getBaseSystemPrompt(player), message, true), true));
     }
 
     private void handleAIResponse(Player player, AIResponse aiResponse) {
@@ -1874,101 +1931,11 @@ public class CLIManager {
             session.addThoughtTokens(thoughtTokens);
         }
         
-        // 增强的工具调用提取逻辑：寻找第一个处于行首的工具调用
+        // 增强的工具调用提取逻辑：按出现顺序提取所有工具调用，正文为第一个工具调用之前的内容
         // 这样可以避免 AI 在回复末尾多加一个 #over 导致前面的主要工具（如 #edit）被忽略
-        String content = cleanResponse;
-        String toolCall = "";
-
-        // 定义已知工具列表
-        List<String> knownTools = Arrays.asList("#end", "#exit", "#run", "#getpreset", "#ask", "#search", "#list", "#read", "#edit", "#todo", "#remember", "#forget", "#edit_memory", "#webread");
-
-        int currentPos = 0;
-        boolean foundTool = false;
-        while (currentPos < cleanResponse.length()) {
-            int hashIndex = cleanResponse.indexOf("#", currentPos);
-            if (hashIndex == -1) break;
-
-            // 检查是否为有效的工具调用起始位置
-            // 为了增加鲁棒性，不再强制要求必须在行首，但要求前面不能是字母或数字（防止误触发，如 CSS#id）
-            boolean isValidStart = true;
-            if (hashIndex > 0) {
-                char prev = cleanResponse.charAt(hashIndex - 1);
-                if (Character.isLetterOrDigit(prev)) {
-                    isValidStart = false;
-                }
-            }
-
-            if (isValidStart) {
-                String potentialToolPart = cleanResponse.substring(hashIndex).trim();
-                for (String tool : knownTools) {
-                    if (potentialToolPart.toLowerCase().startsWith(tool)) {
-                        // 提取完整的工具调用，直到遇到换行符或下一个工具
-                        String remainingAfterTool = potentialToolPart.substring(tool.length()).trim();
-
-                        // 如果有冒号或空格，提取参数部分
-                        if (remainingAfterTool.startsWith(":") || remainingAfterTool.startsWith(" ")) {
-                            int splitIndex = remainingAfterTool.startsWith(":") ? 1 : 0;
-                            remainingAfterTool = remainingAfterTool.substring(splitIndex).trim();
-
-                            // 对于 JSON 参数（如 #todo: [...]），需要找到匹配的闭合括号
-                            if (remainingAfterTool.startsWith("[")) {
-                                int bracketDepth = 0;
-                                int endIndex = -1;
-                                for (int i = 0; i < remainingAfterTool.length(); i++) {
-                                    char c = remainingAfterTool.charAt(i);
-                                    if (c == '[') bracketDepth++;
-                                    else if (c == ']') bracketDepth--;
-
-                                    if (bracketDepth == 0) {
-                                        endIndex = i + 1;
-                                        break;
-                                    }
-                                }
-                                if (endIndex != -1) {
-                                    toolCall = tool + ":" + remainingAfterTool.substring(0, endIndex);
-                                } else {
-                                    // 没有找到闭合括号，提取到行尾
-                                    int lineEnd = remainingAfterTool.indexOf('\n');
-                                    if (lineEnd != -1) {
-                                        toolCall = tool + ":" + remainingAfterTool.substring(0, lineEnd);
-                                    } else {
-                                        toolCall = potentialToolPart;
-                                    }
-                                }
-                            } else {
-                                // 对于普通参数，提取到行尾或遇到下一个工具
-                                int lineEnd = remainingAfterTool.indexOf('\n');
-                                int nextToolPos = -1;
-                                for (String nextTool : knownTools) {
-                                    int pos = remainingAfterTool.toLowerCase().indexOf(nextTool);
-                                    if (pos != -1 && (nextToolPos == -1 || pos < nextToolPos)) {
-                                        nextToolPos = pos;
-                                    }
-                                }
-
-                                int paramEnd = lineEnd;
-                                if (nextToolPos != -1 && (paramEnd == -1 || nextToolPos < paramEnd)) {
-                                    paramEnd = nextToolPos;
-                                }
-
-                                if (paramEnd != -1) {
-                                    toolCall = tool + ":" + remainingAfterTool.substring(0, paramEnd).trim();
-                                } else {
-                                    toolCall = potentialToolPart;
-                                }
-                            }
-                        } else {
-                            toolCall = tool;
-                        }
-                        content = cleanResponse.substring(0, hashIndex).trim();
-                        foundTool = true;
-                        break;
-                    }
-                }
-            }
-            if (foundTool) break;
-            currentPos = hashIndex + 1;
-        }
+        List<String> toolCalls = new ArrayList<>();
+        int firstToolIndex = extractToolCalls(cleanResponse, toolCalls);
+        String content = firstToolIndex == -1 ? cleanResponse : cleanResponse.substring(0, firstToolIndex).trim();
 
         // 展示 Fancy 内容
         if (!content.isEmpty()) {
@@ -1978,9 +1945,12 @@ public class CLIManager {
             displayFancyContent(player, "", finalThought);
         }
 
-        // 处理工具调用
-        if (!toolCall.isEmpty()) {
-            executeTool(player, toolCall);
+        // 处理工具调用：开头连续的只读工具并行执行，其余情况只执行第一个工具
+        List<String> batch = collectParallelBatch(player, toolCalls);
+        if (batch.size() > 1) {
+            executeToolBatch(player, batch);
+        } else if (!toolCalls.isEmpty()) {
+            executeTool(player, toolCalls.get(0));
         } else {
             // 检查响应是否被截断
             if (aiResponse.isTruncated()) {
@@ -1996,6 +1966,130 @@ public class CLIManager {
         }
     }
 
+    /**
+     * 按出现顺序提取回复中的所有工具调用
+     * @param text 已去除思考内容的回复
+     * @param toolCalls 输出：提取到的工具调用
+     * @return 第一个工具调用在回复中的位置，没有工具调用时返回 -1
+     */
+    static int extractToolCalls(String text, List<String> toolCalls) {
+        // 定义已知工具列表
+        List<String> knownTools = Arrays.asList("#end", "#exit", "#run", "#getpreset", "#ask", "#search", "#list", "#read", "#edit", "#undo", "#grep", "#find", "#config", "#todo", "#remember", "#forget", "#edit_memory", "#webread");
+
+        int firstToolIndex = -1;
+        int currentPos = 0;
+        while (currentPos < text.length()) {
+            int hashIndex = text.indexOf("#", currentPos);
+            if (hashIndex == -1) break;
+            currentPos = hashIndex + 1;
+
+            // 检查是否为有效的工具调用起始位置
+            // 为了增加鲁棒性，不再强制要求必须在行首，但要求前面不能是字母或数字（防止误触发，如 CSS#id）
+            if (hashIndex > 0 && Character.isLetterOrDigit(text.charAt(hashIndex - 1))) {
+                continue;
+            }
+
+            String potentialToolPart = text.substring(hashIndex).trim();
+            for (String tool : knownTools) {
+                if (!potentialToolPart.toLowerCase().startsWith(tool)) continue;
+
+                String toolCall;
+                int end;
+                // 提取完整的工具调用，直到遇到换行符或下一个工具
+                int argStart = skipWhitespace(text, hashIndex + tool.length());
+
+                // 如果有冒号，提取参数部分
+                if (argStart < text.length() && text.charAt(argStart) == ':') {
+                    argStart = skipWhitespace(text, argStart + 1);
+                    String remainingAfterTool = text.substring(argStart).trim();
+
+                    // 对于 JSON 参数（如 #todo: [...]），需要找到匹配的闭合括号
+                    if (remainingAfterTool.startsWith("[")) {
+                        int bracketDepth = 0;
+                        int endIndex = -1;
+                        for (int i = 0; i < remainingAfterTool.length(); i++) {
+                            char c = remainingAfterTool.charAt(i);
+                            if (c == '[') bracketDepth++;
+                            else if (c == ']') bracketDepth--;
+
+                            if (bracketDepth == 0) {
+                                endIndex = i + 1;
+                                break;
+                            }
+                        }
+                        if (endIndex != -1) {
+                            toolCall = tool + ":" + remainingAfterTool.substring(0, endIndex);
+                            end = argStart + endIndex;
+                        } else {
+                            // 没有找到闭合括号，提取到行尾
+                            int lineEnd = remainingAfterTool.indexOf('\n');
+                            if (lineEnd != -1) {
+                                toolCall = tool + ":" + remainingAfterTool.substring(0, lineEnd);
+                                end = argStart + lineEnd;
+                            } else {
+                                toolCall = potentialToolPart;
+                                end = text.length();
+                            }
+                        }
+                    } else {
+                        // 对于普通参数，提取到行尾或遇到下一个工具
+                        int lineEnd = remainingAfterTool.indexOf('\n');
+                        int nextToolPos = -1;
+                        for (String nextTool : knownTools) {
+                            int pos = remainingAfterTool.toLowerCase().indexOf(nextTool);
+                            if (pos != -1 && (nextToolPos == -1 || pos < nextToolPos)) {
+                                nextToolPos = pos;
+                            }
+                        }
+
+                        int paramEnd = lineEnd;
+                        if (nextToolPos != -1 && (paramEnd == -1 || nextToolPos < paramEnd)) {
+                            paramEnd = nextToolPos;
+                        }
+
+                        if (paramEnd != -1) {
+                            toolCall = tool + ":" + remainingAfterTool.substring(0, paramEnd).trim();
+                            end = argStart + paramEnd;
+                        } else {
+                            toolCall = potentialToolPart;
+                            end = text.length();
+                        }
+                    }
+                } else {
+                    toolCall = tool;
+                    end = hashIndex + tool.length();
+                }
+
+                if (firstToolIndex == -1) {
+                    firstToolIndex = hashIndex;
+                }
+                toolCalls.add(toolCall);
+                currentPos = Math.max(end, hashIndex + 1);
+                break;
+            }
+        }
+        return firstToolIndex;
+    }
+
+    private static int skipWhitespace(String text, int index) {
+        while (index < text.length() && Character.isWhitespace(text.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * 取出回复开头连续的、可并行执行的只读工具调用
+     */
+    private List<String> collectParallelBatch(Player player, List<String> toolCalls) {
+        List<String> batch = new ArrayList<>();
+        for (String toolCall : toolCalls) {
+            if (batch.size() >= MAX_PARALLEL_TOOLS || !toolExecutor.canRunInBatch(player, toolCall)) break;
+            batch.add(toolCall);
+        }
+        return batch;
+    }
+
     /**
      * 继续生成被截断的响应
      */
@@ -2012,11 +2106,11 @@ public class CLIManager {
         
         // 异步调用 AI 继续生成
         if (!plugin.isEnabled()) return;
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getIoExecutor().execute(() -> {
             // 设置重试回调，向玩家显示重试提示
             ai.setRetryCallback((statusCode, retryMessage) -> {
                 if (!plugin.isEnabled()) return;
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "cli.retry_notice", () -> {
                     if (player.isOnline()) {
                         TextComponent retryMsg;
                         if (statusCode == 429) {
@@ -2032,15 +2126,15 @@ public class CLIManager {
             });
             
             try {
-                AIResponse response = ai.chat(session, promptManager.getBaseSystemPrompt(player));
+                AIResponse response = ai.chat(session, promptManager.getBaseSystemPrompt(player), ModelTierRouter.Tier.MAIN);
                 if (!plugin.isEnabled()) return;
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "cli.ai_response", () -> {
                     handleAIResponse(player, response);
                 });
             } catch (IOException e) {
                 plugin.getCloudErrorReport().report(e);
                 if (!plugin.isEnabled()) return;
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "cli.ai_error", () -> {
                     String errorMsg = e.getMessage();
                     // 只显示友好的提示消息（FancyHelper > 开头的）
                     if (errorMsg != null && errorMsg.startsWith("§zFancyHelper§b§r §7> §f")) {
@@ -2059,7 +2153,7 @@ public class CLIManager {
                 // 清除重试回调
                 ai.clearRetryCallback();
             }
-        });
+        }, () -> handleAICallRejected(player, null, false));
     }
 
     private void checkTokenWarning(Player player, DialogueSession session) {
@@ -2076,28 +2170,57 @@ public class CLIManager {
      * 计算当前会话的预计总 Token 数（包括 System Prompt 和历史记录）
      */
     private int calculateTotalEstimatedTokens(Player player, DialogueSession session) {
-        String modelName = plugin.getConfigManager().getCloudflareModel();
+        try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "cli.estimate_tokens")) {
+            String modelName = plugin.getConfigManager().getCloudflareModel();
 
-        // 1. 计算 System Prompt Token
-        String systemPrompt = promptManager.getBaseSystemPrompt(player);
-        // System Prompt 是一条完整的消息: <|im_start|>system\n{content}<|im_end|>\n
-        int systemPromptTokens = DialogueSession.calculateTokens(systemPrompt, modelName);
-        systemPromptTokens += DialogueSession.calculateTokens("system", modelName);
-        systemPromptTokens += 3; // per-message overhead
+            // 1. 计算 System Prompt Token
+            String systemPrompt = promptManager.getBaseSystemPrompt(player);
+            // System Prompt 是一条完整的消息: <|im_start|>system\n{content}<|im_end|>\n
+            int systemPromptTokens = DialogueSession.calculateTokens(systemPrompt, modelName);
+            systemPromptTokens += DialogueSession.calculateTokens("system", modelName);
+            systemPromptTokens += 3; // per-message overhead
 
-        // 2. 获取历史记录 Token
-        int historyTokens = session.getEstimatedTokens(modelName);
+            // 2. 获取历史记录 Token
+            int historyTokens = session.getEstimatedTokens(modelName);
         
-        // 3. 回复引导 (Reply Primer): <|im_start|>assistant\n
-        int replyPrimerTokens = 3;
+            // 3. 回复引导 (Reply Primer): <|im_start|>assistant\n
+            int replyPrimerTokens = 3;
 
-        return systemPromptTokens + historyTokens + replyPrimerTokens;
+            return systemPromptTokens + historyTokens + replyPrimerTokens;
+        }
     }
 
     private void executeTool(Player player, String toolCall) {
+        try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "cli.execute_tool")) {
+            UUID uuid = player.getUniqueId();
+            DialogueSession session = sessions.get(uuid);
+            if (session == null) return;
+
+            if (!passAntiLoopCheck(player, session, toolCall)) return;
+
+            // 如果该工具之前被中断过且现在继续执行，清除记录
+            interruptedToolCalls.remove(uuid);
+            startToolTiming(uuid, toolCall);
+
+            // 委托给 ToolExecutor 执行
+            boolean toolSuccess = toolExecutor.executeTool(player, toolCall, session);
+
+            if (session != null) {
+                if (toolSuccess) {
+                    session.incrementToolSuccess();
+                } else {
+                    session.incrementToolFailure();
+                }
+            }
+        }
+    }
+
+    /**
+     * 防死循环检测：连续相似调用或工具链过长时自动打断
+     * @return 是否允许继续执行该工具调用
+     */
+    private boolean passAntiLoopCheck(Player player, DialogueSession session, String toolCall) {
         UUID uuid = player.getUniqueId();
-        DialogueSession session = sessions.get(uuid);
-        if (session == null) return;
 
         // --- 防死循环检测逻辑 ---
         if (session.isAntiLoopExempted()) {
@@ -2147,8 +2270,8 @@ public class CLIManager {
                     isGenerating.put(uuid, false);
                     generationStates.put(uuid, GenerationStatus.CANCELLED);
                     generationStartTimes.remove(uuid);
-                    player.spigot().sendMessage(net.md_5.bungee.api.ChatMessageType.ACTION_BAR, new TextComponent(""));
-                    return;
+                    clearStatusMessage(player);
+                    return false;
                 }
             }
 
@@ -2179,27 +2302,59 @@ public class CLIManager {
                 isGenerating.put(uuid, false);
                 generationStates.put(uuid, GenerationStatus.COMPLETED);
                 generationStartTimes.remove(uuid);
-                player.spigot().sendMessage(net.md_5.bungee.api.ChatMessageType.ACTION_BAR, new TextComponent(""));
-                return;
+                clearStatusMessage(player);
+                return false;
             }
             
             // 记录本次工具调用
             session.addToolCall(toolCall);
         }
         // --- 检测逻辑结束 ---
+        return true;
+    }
 
-        // 如果该工具之前被中断过且现在继续执行，清除记录
-        interruptedToolCalls.remove(uuid);
+    /**
+     * 并行执行一组只读工具，结果合并为一次反馈
+     */
+    private void executeToolBatch(Player player, List<String> toolCalls) {
+        try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "cli.execute_tool_batch")) {
+            UUID uuid = player.getUniqueId();
+            DialogueSession session = sessions.get(uuid);
+            if (session == null) return;
+
+            // 同一批次内的相似调用是有意为之，整批作为一次调用参与防死循环检测
+            if (!passAntiLoopCheck(player, session, String.join("\n", toolCalls))) return;
+            interruptedToolCalls.remove(uuid);
+            startToolTiming(uuid, "#batch");
+
+            // 按每个工具的实际结果计数
+            toolExecutor.executeReadOnlyBatch(player, toolCalls, session).thenAccept(outcomes -> {
+                for (boolean success : outcomes) {
+                    if (success) {
+                        session.incrementToolSuccess();
+                    } else {
+                        session.incrementToolFailure();
+                    }
+                }
+            });
+        }
+    }
 
-        // 委托给 ToolExecutor 执行
-        boolean toolSuccess = toolExecutor.executeTool(player, toolCall, session);
+    /**
+     * 按本轮输入与待办状态选择模型层级
+     */
+    private ModelTierRouter.Tier classifyTier(Player player, DialogueSession session) {
+        return plugin.getModelTierRouter().classify(session, plugin.getTodoManager().getTodos(player.getUniqueId()));
+    }
 
-        if (session != null) {
-            if (toolSuccess) {
-                session.incrementToolSuccess();
-            } else {
-                session.incrementToolFailure();
-            }
+    /**
+     * 记录工具开始执行的时间，在结果反馈给 AI 时计入工具耗时
+     */
+    private void startToolTiming(UUID uuid, String toolCall) {
+        MetricsRegistry metrics = plugin.getMetrics();
+        if (metrics != null && metrics.isEnabled()) {
+            String tool = toolCall.trim().split("[:\\s]", 2)[0].toLowerCase(Locale.ROOT);
+            toolTimings.put(uuid, new ToolTiming(tool.startsWith("#") ? tool.substring(1) : tool, System.nanoTime()));
         }
     }
 
@@ -2208,6 +2363,11 @@ public class CLIManager {
         DialogueSession session = sessions.get(uuid);
         if (session == null) return;
 
+        ToolTiming timing = toolTimings.remove(uuid);
+        if (timing != null) {
+            plugin.getMetrics().observeNanos(MetricsRegistry.TOOL_SECONDS, System.nanoTime() - timing.startNanos, "tool", timing.tool);
+        }
+
         session.addMessage("user", feedback);
         
         // 记录反馈后的 Token 估算
@@ -2227,13 +2387,13 @@ public class CLIManager {
 
         // 异步调用 AI，不显示 "Thought..." 提示，因为这是后台自动反馈
         if (!plugin.isEnabled()) return;
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getIoExecutor().execute(() -> {
             final String systemPrompt = promptManager.getBaseSystemPrompt(player); // 在 try 块外部定义
             
             // 设置重试回调，向玩家显示重试提示
             ai.setRetryCallback((statusCode, retryMessage) -> {
                 if (!plugin.isEnabled()) return;
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "cli.retry_notice", () -> {
                     if (player.isOnline()) {
                         TextComponent retryMsg;
                         if (statusCode == 429) {
@@ -2249,15 +2409,15 @@ public class CLIManager {
             });
             
             try {
-                    AIResponse response = ai.chat(session, systemPrompt);
+                    AIResponse response = ai.chat(session, systemPrompt, classifyTier(player, session));
 
                 if (!plugin.isEnabled()) return;
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "cli.ai_response", () -> {
                     handleAIResponse(player, response);
                 });
             } catch (IOException e) {
                 if (!plugin.isEnabled()) return;
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "cli.ai_error", () -> {
                     // 保存重试信息
                     retryInfoMap.put(uuid, new RetryInfo(session, systemPrompt, feedback, false));
 
@@ -2287,14 +2447,14 @@ public class CLIManager {
                     generationStates.put(uuid, GenerationStatus.ERROR);
                     generationStartTimes.remove(uuid);
                     // 立即清除动作栏
-                    player.spigot().sendMessage(net.md_5.bungee.api.ChatMessageType.ACTION_BAR, new TextComponent(""));
+                    clearStatusMessage(player);
                     // 移除导致失败的消息，防止污染后续对话
                     session.removeLastMessage();
                 });
             } catch (Throwable t) {
                 plugin.getCloudErrorReport().report(t);
                 if (!plugin.isEnabled()) return;
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "cli.ai_error", () -> {
                     // 保存重试信息
                     retryInfoMap.put(uuid, new RetryInfo(session, systemPrompt, feedback, false));
 
@@ -2316,7 +2476,7 @@ public class CLIManager {
                     generationStates.put(uuid, GenerationStatus.ERROR);
                     generationStartTimes.remove(uuid);
                     // 立即清除动作栏
-                    player.spigot().sendMessage(net.md_5.bungee.api.ChatMessageType.ACTION_BAR, new TextComponent(""));
+                    clearStatusMessage(player);
                     // 移除导致失败的消息，防止污染后续对话
                     session.removeLastMessage();
                 });
@@ -2324,7 +2484,7 @@ public class CLIManager {
                 // 清除重试回调
                 ai.clearRetryCallback();
             }
-        });
+        }, () -> handleAICallRejected(player, new RetryInfo(session, promptManager.getBaseSystemPrompt(player), feedback, false), false));
     }
 
     /**
@@ -2333,7 +2493,7 @@ public class CLIManager {
      * @param s2 字符串2
      * @return 相似度 (0.0 - 1.0)
      */
-    private double calculateSimilarity(String s1, String s2) {
+    static double calculateSimilarity(String s1, String s2) {
         if (s1 == null || s2 == null) return 0.0;
         if (s1.equals(s2)) return 1.0;
         if (s1.isEmpty() || s2.isEmpty()) return 0.0;
@@ -2357,87 +2517,89 @@ public class CLIManager {
     }
 
     private void displayFancyContent(Player player, String content, String currentThought) {
-        // 获取当前 session
-        DialogueSession session = sessions.get(player.getUniqueId());
+        try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "cli.display_content")) {
+            // 获取当前 session
+            DialogueSession session = sessions.get(player.getUniqueId());
         
-        // 如果本次回复包含思考过程，或者历史最后一条消息有思考过程，显示按钮
-        if (session != null) {
-            String thoughtToShow = currentThought;
-            long thoughtMessageId = -1;
-            long thoughtThinkingTimeMs = session.getLastThinkingTimeMs();
-
-            List<DialogueSession.Message> history = session.getHistory();
-            if (thoughtToShow == null && !history.isEmpty()) {
-                // 如果当前没有提取到思考过程，尝试查找历史最后一条 assistant 消息
-                for (int i = history.size() - 1; i >= 0; i--) {
-                    if ("assistant".equalsIgnoreCase(history.get(i).getRole())) {
-                        if (history.get(i).hasThought()) {
-                            thoughtToShow = history.get(i).getThought();
-                            thoughtMessageId = history.get(i).getId();
-                            thoughtThinkingTimeMs = history.get(i).getThinkingTimeMs();
+            // 如果本次回复包含思考过程，或者历史最后一条消息有思考过程，显示按钮
+            if (session != null) {
+                String thoughtToShow = currentThought;
+                long thoughtMessageId = -1;
+                long thoughtThinkingTimeMs = session.getLastThinkingTimeMs();
+
+                List<DialogueSession.Message> history = session.getHistory();
+                if (thoughtToShow == null && !history.isEmpty()) {
+                    // 如果当前没有提取到思考过程，尝试查找历史最后一条 assistant 消息
+                    for (int i = history.size() - 1; i >= 0; i--) {
+                        if ("assistant".equalsIgnoreCase(history.get(i).getRole())) {
+                            if (history.get(i).hasThought()) {
+                                thoughtToShow = history.get(i).getThought();
+                                thoughtMessageId = history.get(i).getId();
+                                thoughtThinkingTimeMs = history.get(i).getThinkingTimeMs();
+                            }
+                            break;
                         }
-                        break;
+                    }
+                } else if (thoughtToShow != null) {
+                    // 如果当前提取到了思考过程，它已经被 addMessage 加入了历史
+                    if (!history.isEmpty()) {
+                        DialogueSession.Message last = history.get(history.size() - 1);
+                        thoughtMessageId = last.getId();
+                        thoughtThinkingTimeMs = last.getThinkingTimeMs();
                     }
                 }
-            } else if (thoughtToShow != null) {
-                // 如果当前提取到了思考过程，它已经被 addMessage 加入了历史
-                if (!history.isEmpty()) {
-                    DialogueSession.Message last = history.get(history.size() - 1);
-                    thoughtMessageId = last.getId();
-                    thoughtThinkingTimeMs = last.getThinkingTimeMs();
-                }
-            }
             
-            if (thoughtToShow != null) {
-                TextComponent thoughtBtn = new TextComponent(ChatColor.GRAY + " ※ Thought");
-                // 传递 messageId 以便稳定地回放对应 Thought（避免历史裁剪导致索引漂移）
-                String cmd = "/cli thought" + (thoughtMessageId != -1 ? " t:" + thoughtMessageId : "");
-                thoughtBtn.setClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, cmd));
-                thoughtBtn.setHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, new Text(ChatColor.GRAY + "点击查看本次思考过程")));
+                if (thoughtToShow != null) {
+                    TextComponent thoughtBtn = new TextComponent(ChatColor.GRAY + " ※ Thought");
+                    // 传递 messageId 以便稳定地回放对应 Thought（避免历史裁剪导致索引漂移）
+                    String cmd = "/cli thought" + (thoughtMessageId != -1 ? " t:" + thoughtMessageId : "");
+                    thoughtBtn.setClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, cmd));
+                    thoughtBtn.setHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, new Text(ChatColor.GRAY + "点击查看本次思考过程")));
                 
-                // 在 Thought 按钮右侧显示本次思考的时间
-                double lastSec = thoughtThinkingTimeMs / 1000.0;
-                TextComponent timeTag = new TextComponent(ChatColor.DARK_GRAY + " (" + String.format("%.1f", lastSec) + "s)");
-                thoughtBtn.addExtra(timeTag);
+                    // 在 Thought 按钮右侧显示本次思考的时间
+                    double lastSec = thoughtThinkingTimeMs / 1000.0;
+                    TextComponent timeTag = new TextComponent(ChatColor.DARK_GRAY + " (" + String.format("%.1f", lastSec) + "s)");
+                    thoughtBtn.addExtra(timeTag);
                 
-                player.spigot().sendMessage(thoughtBtn);
+                    player.spigot().sendMessage(thoughtBtn);
+                }
             }
-        }
 
-        // 处理正文内容
-        if (content != null && !content.trim().isEmpty()) {
-            // 先处理自定义颜色代码 §x 和 §z
-            content = ColorUtil.translateCustomColors(content);
+            // 处理正文内容
+            if (content != null && !content.trim().isEmpty()) {
+                // 先处理自定义颜色代码 §x 和 §z
+                content = ColorUtil.translateCustomColors(content);
             
-            // 处理代码块 ```...```
-            String[] codeParts = content.split("```");
-            TextComponent finalMessage = new TextComponent(ChatColor.WHITE + "◆ ");
+                // 处理代码块 ```...```
+                String[] codeParts = content.split("```");
+                TextComponent finalMessage = new TextComponent(ChatColor.WHITE + "◆ ");
             
-            for (int i = 0; i < codeParts.length; i++) {
-                if (i % 2 == 1) {
-                    // 代码块部分，亮蓝色显示
-                    finalMessage.addExtra(ChatColor.DARK_AQUA + codeParts[i]);
-                } else {
-                    // 普通文本部分，进一步处理 **...** 高亮
-                    String text = codeParts[i];
-                    String[] highlightParts = text.split("\\*\\*");
+                for (int i = 0; i < codeParts.length; i++) {
+                    if (i % 2 == 1) {
+                        // 代码块部分，亮蓝色显示
+                        finalMessage.addExtra(ChatColor.DARK_AQUA + codeParts[i]);
+                    } else {
+                        // 普通文本部分，进一步处理 **...** 高亮
+                        String text = codeParts[i];
+                        String[] highlightParts = text.split("\\*\\*");
                     
-                    for (int j = 0; j < highlightParts.length; j++) {
-                        if (j % 2 == 1) {
-                            // 高亮部分，使用自定义亮蓝色 #30AEE5
-                            // 移除内部颜色代码以确保高亮颜色生效
-                            String cleanText = ChatColor.stripColor(highlightParts[j]);
-                            TextComponent highlightComp = new TextComponent(cleanText);
-                            highlightComp.setColor(net.md_5.bungee.api.ChatColor.of(ColorUtil.getColorZ()));
-                            finalMessage.addExtra(highlightComp);
-                        } else {
-                            // 普通部分，白色显示
-                            finalMessage.addExtra(ChatColor.WHITE + highlightParts[j]);
+                        for (int j = 0; j < highlightParts.length; j++) {
+                            if (j % 2 == 1) {
+                                // 高亮部分，使用自定义亮蓝色 #30AEE5
+                                // 移除内部颜色代码以确保高亮颜色生效
+                                String cleanText = ChatColor.stripColor(highlightParts[j]);
+                                TextComponent highlightComp = new TextComponent(cleanText);
+                                highlightComp.setColor(net.md_5.bungee.api.ChatColor.of(ColorUtil.getColorZ()));
+                                finalMessage.addExtra(highlightComp);
+                            } else {
+                                // 普通部分，白色显示
+                                finalMessage.addExtra(ChatColor.WHITE + highlightParts[j]);
+                            }
                         }
                     }
                 }
+                player.spigot().sendMessage(finalMessage);
             }
-            player.spigot().sendMessage(finalMessage);
         }
     }
 
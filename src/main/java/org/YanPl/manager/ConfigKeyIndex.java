@@ -0,0 +1,589 @@
+package org.YanPl.manager;
+
+import org.YanPl.FancyHelper;
+import org.bukkit.Bukkit;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.Mark;
+import org.yaml.snakeyaml.nodes.MappingNode;
+import org.yaml.snakeyaml.nodes.Node;
+import org.yaml.snakeyaml.nodes.NodeTuple;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.SequenceNode;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 插件配置键索引：解析 plugins/&lt;插件&gt;/ 下的 YAML 文件，把每个完整键路径映射到所在文件、行号范围与当前值。
+ * 查询时直接命中哈希表，AI 无需先 #list 再 #read 整个配置文件；文件变动时只重新解析该文件。
+ */
+public class ConfigKeyIndex {
+    private static final long MAX_FILE_SIZE = 1024 * 1024;
+    private static final int MAX_FILES_PER_PLUGIN = 64;
+    private static final int MAX_DEPTH = 3;
+    private static final int MAX_NESTING = 32;
+    private static final int MAX_RESULTS = 30;
+    private static final int MAX_VALUE_DISPLAY = 120;
+
+    /**
+     * 存放玩家数据等大量小文件的目录，不属于插件配置
+     */
+    private static final Set<String> EXCLUDED_DIRS = new HashSet<>(Arrays.asList(
+            "userdata", "playerdata", "players", "data", "cache", "logs", "backups", "backup", "libs", "lib"));
+
+    private final FancyHelper plugin;
+    private final Path pluginsDir;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * 同一时间只进行一次全量重建
+     */
+    private final Object rebuildLock = new Object();
+
+    /**
+     * 当前生效的索引，由 lock 保护；全量重建时在锁外构建新表，完成后整体替换
+     */
+    private Tables tables = new Tables();
+    /**
+     * 全量重建期间发生变动的路径，新表替换后重新应用；不在重建时为 null（由 lock 保护）
+     */
+    private List<Path> changedDuringRebuild;
+    private FileEventHub.Subscription subscription;
+
+    /**
+     * 单个配置键
+     */
+    public static class KeyEntry {
+        final String file;
+        final String keyPath;
+        final int startLine;
+        final int endLine;
+        final String value;
+
+        KeyEntry(String file, String keyPath, int startLine, int endLine, String value) {
+            this.file = file;
+            this.keyPath = keyPath;
+            this.startLine = startLine;
+            this.endLine = endLine;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            String range = startLine == endLine ? String.valueOf(startLine) : startLine + "-" + endLine;
+            return "plugins/" + file + ":" + range + " " + keyPath + (value == null ? " (section)" : " = " + value);
+        }
+    }
+
+    /**
+     * 单个文件的解析结果
+     */
+    private static class FileKeys {
+        final String plugin;
+        final List<KeyEntry> entries;
+        final List<String> topLevelKeys;
+        final boolean parseError;
+
+        FileKeys(String plugin, List<KeyEntry> entries, List<String> topLevelKeys, boolean parseError) {
+            this.plugin = plugin;
+            this.entries = entries;
+            this.topLevelKeys = topLevelKeys;
+            this.parseError = parseError;
+        }
+    }
+
+    /**
+     * 索引的查找表；本身不做同步，生效的实例由 lock 保护
+     */
+    private static class Tables {
+        /**
+         * 小写的 "插件名.键路径" -> 条目
+         */
+        final Map<String, List<KeyEntry>> byFullKey = new HashMap<>();
+        /**
+         * 小写的键路径（不含插件名）-> 条目
+         */
+        final Map<String, List<KeyEntry>> byKeyPath = new HashMap<>();
+        /**
+         * 小写的最后一级键名 -> 条目
+         */
+        final Map<String, List<KeyEntry>> byLeaf = new HashMap<>();
+        /**
+         * 相对 plugins 目录的文件路径 -> 该文件的所有条目
+         */
+        final Map<String, FileKeys> files = new HashMap<>();
+        /**
+         * 小写的插件名 -> 该插件的文件（按路径排序），供 "#config: 插件名" 直接命中
+         */
+        final Map<String, Map<String, FileKeys>> byPlugin = new HashMap<>();
+
+        /**
+         * 替换文件的条目；keys 为 null 表示文件已不可读，只移除旧条目
+         */
+        void put(String file, FileKeys keys) {
+            remove(file);
+            if (keys == null) return;
+            files.put(file, keys);
+            String pluginKey = keys.plugin.toLowerCase(Locale.ROOT);
+            byPlugin.computeIfAbsent(pluginKey, k -> new TreeMap<>()).put(file, keys);
+            for (KeyEntry entry : keys.entries) {
+                String keyPath = entry.keyPath.toLowerCase(Locale.ROOT);
+                int dot = keyPath.lastIndexOf('.');
+                byFullKey.computeIfAbsent(pluginKey + "." + keyPath, k -> new ArrayList<>(1)).add(entry);
+                byKeyPath.computeIfAbsent(keyPath, k -> new ArrayList<>(1)).add(entry);
+                byLeaf.computeIfAbsent(keyPath.substring(dot + 1), k -> new ArrayList<>(1)).add(entry);
+            }
+        }
+
+        void remove(String file) {
+            FileKeys old = files.remove(file);
+            if (old == null) return;
+            String pluginKey = old.plugin.toLowerCase(Locale.ROOT);
+            Map<String, FileKeys> pluginFiles = byPlugin.get(pluginKey);
+            if (pluginFiles != null) {
+                pluginFiles.remove(file);
+                if (pluginFiles.isEmpty()) {
+                    byPlugin.remove(pluginKey);
+                }
+            }
+            for (KeyEntry entry : old.entries) {
+                String keyPath = entry.keyPath.toLowerCase(Locale.ROOT);
+                int dot = keyPath.lastIndexOf('.');
+                removeEntry(byFullKey, pluginKey + "." + keyPath, entry);
+                removeEntry(byKeyPath, keyPath, entry);
+                removeEntry(byLeaf, keyPath.substring(dot + 1), entry);
+            }
+        }
+
+        int countFiles(String pluginName) {
+            int count = 0;
+            for (FileKeys keys : files.values()) {
+                if (keys.plugin.equals(pluginName)) count++;
+            }
+            return count;
+        }
+    }
+
+    public ConfigKeyIndex(FancyHelper plugin) {
+        this(plugin, Bukkit.getWorldContainer().toPath().resolve("plugins"));
+    }
+
+    ConfigKeyIndex(FancyHelper plugin, Path pluginsDir) {
+        this.plugin = plugin;
+        this.pluginsDir = pluginsDir.toAbsolutePath().normalize();
+    }
+
+    /**
+     * 在后台构建索引，并通过文件事件中心订阅插件目录的变动进行增量更新；重复调用时先取消旧的订阅
+     */
+    public void start() {
+        shutdown();
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, this::rebuild);
+        subscription = plugin.getFileEventHub().subscribeRecursive(pluginsDir, ConfigKeyIndex::isIncludedDirectory, 500L,
+                event -> onPathChanged(event.getKind() == FileEventHub.Kind.OVERFLOW ? pluginsDir : event.getPath()));
+    }
+
+    /**
+     * 取消插件目录的文件事件订阅
+     */
+    public void shutdown() {
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+        }
+    }
+
+    /**
+     * 重新扫描所有插件目录（阻塞直到完成）；扫描期间查询仍使用旧索引，完成后一次性替换
+     */
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            long start = System.currentTimeMillis();
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Tables fresh = new Tables();
+            if (Files.isDirectory(pluginsDir)) {
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(pluginsDir, Files::isDirectory)) {
+                    for (Path pluginDir : stream) {
+                        scanDirectory(pluginDir, 0).forEach(fresh::put);
+                    }
+                } catch (IOException e) {
+                    plugin.getLogger().warning("扫描插件配置目录时出错: " + e.getMessage());
+                }
+            }
+
+            List<Path> changed;
+            lock.writeLock().lock();
+            try {
+                tables = fresh;
+                changed = changedDuringRebuild;
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            // 扫描期间变动的文件可能已按旧内容读入新表，重新应用一次
+            for (Path path : changed) {
+                onPathChanged(path);
+            }
+
+            if (plugin.getConfigManager().isDebug()) {
+                lock.readLock().lock();
+                try {
+                    int keys = tables.files.values().stream().mapToInt(f -> f.entries.size()).sum();
+                    plugin.getLogger().info("[ConfigIndex] 已索引 " + tables.files.size() + " 个配置文件，" + keys
+                            + " 个键，耗时 " + (System.currentTimeMillis() - start) + "ms");
+                } finally {
+                    lock.readLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * 按广度优先解析目录下的 YAML 文件，较浅的文件（通常是主配置）优先；path 可以是插件目录或其子目录。
+     * 只读取磁盘，不修改索引
+     *
+     * @param existingFiles 该插件已索引的文件数，计入每个插件的文件上限
+     * @return 文件路径 -> 解析结果（null 表示文件不可读），按扫描顺序排列
+     */
+    private Map<String, FileKeys> scanDirectory(Path dir, int existingFiles) {
+        Map<String, FileKeys> parsed = new LinkedHashMap<>();
+        Path relative = pluginsDir.relativize(dir.toAbsolutePath().normalize());
+        if (relative.toString().isEmpty()) return parsed;
+
+        int budget = MAX_FILES_PER_PLUGIN - existingFiles;
+        Deque<Path> queue = new ArrayDeque<>();
+        queue.add(dir);
+        while (!queue.isEmpty() && budget > 0) {
+            Path current = queue.poll();
+            // 插件目录本身深度为 0
+            int depth = pluginsDir.relativize(current).getNameCount() - 1;
+            List<Path> children = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(current)) {
+                stream.forEach(children::add);
+            } catch (IOException e) {
+                continue;
+            }
+            Collections.sort(children);
+            for (Path child : children) {
+                if (Files.isDirectory(child)) {
+                    if (depth < MAX_DEPTH && isIncludedDirectory(child)) {
+                        queue.add(child);
+                    }
+                } else if (isYaml(child) && budget > 0) {
+                    String key = toKey(pluginsDir.relativize(child.toAbsolutePath().normalize()));
+                    parsed.put(key, parseFile(child, key, relative.getName(0).toString()));
+                    budget--;
+                }
+            }
+        }
+        return parsed;
+    }
+
+    private static boolean isIncludedDirectory(Path dir) {
+        return !EXCLUDED_DIRS.contains(dir.getFileName().toString().toLowerCase(Locale.ROOT));
+    }
+
+    private static boolean isYaml(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".yml") || name.endsWith(".yaml");
+    }
+
+    /**
+     * 处理文件变动：文件被删除则移除条目，目录变动则重新扫描该目录，YAML 文件变动则重新解析
+     */
+    void onPathChanged(Path path) {
+        Path normalized = path.toAbsolutePath().normalize();
+        if (normalized.equals(pluginsDir) || pluginsDir.startsWith(normalized)) {
+            rebuild();
+            return;
+        }
+        if (!normalized.startsWith(pluginsDir)) return;
+
+        Path relative = pluginsDir.relativize(normalized);
+        for (int i = 1; i < relative.getNameCount(); i++) {
+            boolean isFile = i == relative.getNameCount() - 1 && isYaml(normalized);
+            if (!isFile && !isIncludedDirectory(relative.getName(i))) return;
+        }
+        if (relative.getNameCount() - 2 > MAX_DEPTH) return;
+
+        lock.writeLock().lock();
+        try {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(normalized);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (Files.isDirectory(normalized)) {
+            String pluginName = relative.getName(0).toString();
+            int existing;
+            lock.readLock().lock();
+            try {
+                existing = tables.countFiles(pluginName);
+            } finally {
+                lock.readLock().unlock();
+            }
+            Map<String, FileKeys> parsed = scanDirectory(normalized, existing);
+            lock.writeLock().lock();
+            try {
+                parsed.forEach(tables::put);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } else if (isYaml(normalized) && relative.getNameCount() >= 2) {
+            if (Files.isRegularFile(normalized)) {
+                indexFile(normalized);
+            } else {
+                removeFile(toKey(relative));
+            }
+        } else if (!Files.exists(normalized)) {
+            // 目录被删除时移除其下所有文件
+            String prefix = toKey(relative) + "/";
+            lock.writeLock().lock();
+            try {
+                for (String file : new ArrayList<>(tables.files.keySet())) {
+                    if (file.startsWith(prefix)) {
+                        tables.remove(file);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * 解析单个 YAML 文件并替换其在索引中的条目
+     */
+    void indexFile(Path file) {
+        Path relative = pluginsDir.relativize(file.toAbsolutePath().normalize());
+        if (relative.getNameCount() < 2) return;
+        String key = toKey(relative);
+        FileKeys keys = parseFile(file, key, relative.getName(0).toString());
+
+        lock.writeLock().lock();
+        try {
+            tables.put(key, keys);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 在锁外解析 YAML 文件
+     *
+     * @return 解析结果；文件不可读时返回 null
+     */
+    private FileKeys parseFile(Path file, String key, String pluginName) {
+        List<KeyEntry> entries = new ArrayList<>();
+        List<String> topLevelKeys = new ArrayList<>();
+        boolean parseError = false;
+        try {
+            if (Files.size(file) <= MAX_FILE_SIZE) {
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    Node root = new Yaml().compose(reader);
+                    if (root instanceof MappingNode) {
+                        for (NodeTuple tuple : ((MappingNode) root).getValue()) {
+                            if (tuple.getKeyNode() instanceof ScalarNode) {
+                                topLevelKeys.add(((ScalarNode) tuple.getKeyNode()).getValue());
+                            }
+                        }
+                        collect(key, "", (MappingNode) root, entries, 0);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        } catch (RuntimeException e) {
+            // YAML 语法错误等，保留文件记录以便在摘要中提示
+            parseError = true;
+            entries.clear();
+        }
+        return new FileKeys(pluginName, entries, topLevelKeys, parseError);
+    }
+
+    private void collect(String file, String prefix, MappingNode mapping, List<KeyEntry> out, int depth) {
+        if (depth > MAX_NESTING) return;
+        for (NodeTuple tuple : mapping.getValue()) {
+            if (!(tuple.getKeyNode() instanceof ScalarNode)) continue;
+            String keyPath = prefix + ((ScalarNode) tuple.getKeyNode()).getValue();
+            Node valueNode = tuple.getValueNode();
+            int startLine = tuple.getKeyNode().getStartMark().getLine() + 1;
+            int endLine = Math.max(startLine, endLine(valueNode, 0));
+            out.add(new KeyEntry(file, keyPath, startLine, endLine, describe(valueNode)));
+            if (valueNode instanceof MappingNode) {
+                collect(file, keyPath + ".", (MappingNode) valueNode, out, depth + 1);
+            }
+        }
+    }
+
+    /**
+     * 计算节点结束的行号（从 1 开始）；集合节点取最后一个子节点的结束行，避免把下一个键所在行算进来
+     */
+    private static int endLine(Node node, int depth) {
+        if (depth < MAX_NESTING) {
+            if (node instanceof MappingNode) {
+                List<NodeTuple> tuples = ((MappingNode) node).getValue();
+                if (!tuples.isEmpty()) return endLine(tuples.get(tuples.size() - 1).getValueNode(), depth + 1);
+            } else if (node instanceof SequenceNode) {
+                List<Node> items = ((SequenceNode) node).getValue();
+                if (!items.isEmpty()) return endLine(items.get(items.size() - 1), depth + 1);
+            }
+        }
+        Mark end = node.getEndMark();
+        return end.getColumn() == 0 ? end.getLine() : end.getLine() + 1;
+    }
+
+    /**
+     * 生成值的简短描述；映射节点（配置节）返回 null
+     */
+    private static String describe(Node node) {
+        String value;
+        if (node instanceof ScalarNode) {
+            value = ((ScalarNode) node).getValue().replace("\n", "\\n");
+        } else if (node instanceof SequenceNode) {
+            List<String> items = new ArrayList<>();
+            for (Node item : ((SequenceNode) node).getValue()) {
+                items.add(item instanceof ScalarNode ? ((ScalarNode) item).getValue() : "{...}");
+            }
+            value = items.toString();
+        } else {
+            return null;
+        }
+        return value.length() > MAX_VALUE_DISPLAY ? value.substring(0, MAX_VALUE_DISPLAY) + "..." : value;
+    }
+
+    private void removeFile(String key) {
+        lock.writeLock().lock();
+        try {
+            tables.remove(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void removeEntry(Map<String, List<KeyEntry>> map, String key, KeyEntry entry) {
+        List<KeyEntry> list = map.get(key);
+        if (list == null) return;
+        list.remove(entry);
+        if (list.isEmpty()) map.remove(key);
+    }
+
+    private static String toKey(Path relative) {
+        return relative.toString().replace('\\', '/');
+    }
+
+    /**
+     * #config 工具入口：
+     * 参数为空时返回插件 -> 配置文件摘要；参数为插件名时返回该插件的配置文件与顶层键；
+     * 否则按 "插件名.键路径"、"键路径"、"最后一级键名" 的顺序查找
+     */
+    public String query(String args) {
+        String query = args == null ? "" : args.trim();
+        if (query.isEmpty()) {
+            return getSummary();
+        }
+
+        String lower = query.toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            String pluginSummary = getPluginSummary(lower);
+            if (pluginSummary != null) {
+                return pluginSummary;
+            }
+
+            List<KeyEntry> hits = tables.byFullKey.get(lower);
+            if (hits == null) hits = tables.byKeyPath.get(lower);
+            if (hits == null) hits = tables.byLeaf.get(lower);
+            if (hits == null || hits.isEmpty()) {
+                return "未找到配置键 \"" + query + "\"。可使用 \"#config: 插件名\" 查看该插件的顶层键，或使用 #grep 搜索。";
+            }
+
+            StringBuilder sb = new StringBuilder("找到 " + hits.size() + " 个配置键");
+            if (hits.size() > MAX_RESULTS) {
+                sb.append("（仅显示前 ").append(MAX_RESULTS).append(" 个）");
+            }
+            sb.append("，格式 文件:行号 键 = 当前值，可直接用于 #read / #edit:\n");
+            for (int i = 0; i < Math.min(hits.size(), MAX_RESULTS); i++) {
+                sb.append(hits.get(i)).append('\n');
+            }
+            return sb.toString();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 生成插件 -> 配置文件（键数量）的紧凑摘要
+     */
+    public String getSummary() {
+        Map<String, List<String>> byPlugin = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<String, FileKeys> entry : tables.files.entrySet()) {
+                FileKeys keys = entry.getValue();
+                String file = entry.getKey().substring(keys.plugin.length() + 1);
+                byPlugin.computeIfAbsent(keys.plugin, k -> new ArrayList<>())
+                        .add(file + (keys.parseError ? "(解析失败)" : "(" + keys.entries.size() + ")"));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (byPlugin.isEmpty()) {
+            return "暂无已索引的插件配置文件";
+        }
+
+        StringBuilder sb = new StringBuilder("插件配置文件（括号内为键数量），路径均位于 plugins/<插件>/ 下:\n");
+        for (Map.Entry<String, List<String>> entry : byPlugin.entrySet()) {
+            Collections.sort(entry.getValue());
+            sb.append(entry.getKey()).append(": ").append(String.join(", ", entry.getValue())).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 调用方需持有读锁；pluginName 为小写，不是插件名时返回 null
+     */
+    private String getPluginSummary(String pluginName) {
+        Map<String, FileKeys> pluginFiles = tables.byPlugin.get(pluginName);
+        if (pluginFiles == null) return null;
+
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, FileKeys> entry : pluginFiles.entrySet()) {
+            FileKeys keys = entry.getValue();
+            sb.append("plugins/").append(entry.getKey());
+            if (keys.parseError) {
+                sb.append(" (YAML 解析失败)\n");
+                continue;
+            }
+            Set<String> top = new LinkedHashSet<>(keys.topLevelKeys);
+            sb.append(" (").append(keys.entries.size()).append(" 个键) 顶层键: ").append(String.join(", ", top)).append('\n');
+        }
+        return sb.toString();
+    }
+}
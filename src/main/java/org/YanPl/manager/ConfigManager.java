@@ -2,6 +2,7 @@ package org.YanPl.manager;
 
 import org.YanPl.FancyHelper;
 import org.YanPl.util.ResourceUtil;
+import org.YanPl.util.TickProfiler;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 
@@ -46,10 +47,12 @@ public class ConfigManager {
      * 保存玩家数据配置文件
      */
     public void savePlayerData() {
-        try {
-            playerData.save(playerDataFile);
-        } catch (IOException e) {
-            plugin.getLogger().warning("无法保存玩家数据: " + e.getMessage());
+        try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "config.save_player_data")) {
+            try {
+                playerData.save(playerDataFile);
+            } catch (IOException e) {
+                plugin.getLogger().warning("无法保存玩家数据: " + e.getMessage());
+            }
         }
     }
 
@@ -158,6 +161,17 @@ public class ConfigManager {
         plugin.reloadConfig();
         this.config = plugin.getConfig();
 
+        // 配置变动可能改变回答（模型、补充提示词等），清空问答缓存
+        if (plugin.getAnswerCache() != null) {
+            plugin.getAnswerCache().invalidateAll("配置重载");
+        }
+        if (plugin.getMetrics() != null) {
+            plugin.getMetrics().reload();
+        }
+        if (plugin.getTickProfiler() != null) {
+            plugin.getTickProfiler().reload();
+        }
+
         // 清理 config.yml 中可能存在的旧玩家数据（迁移到 playerdata.yml 后）
         if (config.contains("player_tools")) {
             config.set("player_tools", null);
@@ -250,6 +264,78 @@ public class ConfigManager {
         return config.getString("openai.model", "gpt-4o");
     }
 
+    /**
+     * 获取多服务商路由列表（每项包含 type、api_url、api_key、model 等字段）
+     * @return 服务商列表，未配置时为空
+     */
+    public List<Map<?, ?>> getRoutingProviders() {
+        return config.getMapList("routing.providers");
+    }
+
+    /**
+     * 获取是否启用对冲请求
+     * @return 是否启用
+     */
+    public boolean isRoutingHedgeEnabled() {
+        return config.getBoolean("routing.hedge", true);
+    }
+
+    /**
+     * 获取固定的对冲延迟（毫秒）
+     * @return 对冲延迟，0 表示使用服务商的 p95 延迟
+     */
+    public long getRoutingHedgeDelayMillis() {
+        return config.getLong("routing.hedge_delay_ms", 0L);
+    }
+
+    /**
+     * 获取自适应对冲延迟的下限（毫秒）
+     * @return 对冲延迟下限
+     */
+    public long getRoutingHedgeMinDelayMillis() {
+        return Math.max(100L, config.getLong("routing.hedge_min_delay_ms", 2000L));
+    }
+
+    /**
+     * 是否启用模型分层（简单轮次交给副模型）
+     * @return 是否启用
+     */
+    public boolean isRoutingTiersEnabled() {
+        return config.getBoolean("routing.tiers.enabled", false);
+    }
+
+    /**
+     * 是否启用问答缓存（第一轮、无副作用的回答按规范化后的问题精确匹配复用）
+     * @return 是否启用
+     */
+    public boolean isAnswerCacheEnabled() {
+        return config.getBoolean("routing.answer_cache.enabled", false);
+    }
+
+    /**
+     * 获取问答缓存的有效期（分钟）
+     * @return 有效期，至少 1 分钟
+     */
+    public int getAnswerCacheTtlMinutes() {
+        return Math.max(1, config.getInt("routing.answer_cache.ttl_minutes", 60));
+    }
+
+    /**
+     * 获取内存中保留的问答缓存条数
+     * @return 条数上限
+     */
+    public int getAnswerCacheMaxEntries() {
+        return Math.max(1, config.getInt("routing.answer_cache.max_entries", 200));
+    }
+
+    /**
+     * 获取磁盘中保留的问答缓存条数
+     * @return 条数上限
+     */
+    public int getAnswerCacheDiskMaxEntries() {
+        return Math.max(0, config.getInt("routing.answer_cache.disk_max_entries", 1000));
+    }
+
     public int getTimeoutMinutes() {
         return config.getInt("settings.timeout_minutes", 10);
     }
@@ -270,6 +356,86 @@ public class ConfigManager {
         return config.getBoolean("settings.auto_report", true);
     }
 
+    /**
+     * 获取相同错误的去重窗口
+     * @return 分钟，窗口内同一错误只上报一次
+     */
+    public int getErrorReportDedupMinutes() {
+        return Math.max(1, config.getInt("error_report.dedup_minutes", 60));
+    }
+
+    /**
+     * 获取错误合并上报的等待时间
+     * @return 秒，期间的错误合并为一个报告包
+     */
+    public int getErrorReportBatchSeconds() {
+        return Math.max(1, config.getInt("error_report.batch_seconds", 30));
+    }
+
+    /**
+     * 获取每小时最多上传的报告包数量
+     * @return 上传次数
+     */
+    public int getErrorReportMaxUploadsPerHour() {
+        return Math.max(1, config.getInt("error_report.max_uploads_per_hour", 6));
+    }
+
+    /**
+     * 获取错误报告暂存目录的容量上限
+     * @return KB，超出时删除最早的报告包
+     */
+    public int getErrorReportSpoolMaxKb() {
+        return Math.max(64, config.getInt("error_report.spool_max_kb", 2048));
+    }
+
+    /**
+     * 是否记录运行指标
+     * @return 是否启用
+     */
+    public boolean isMetricsEnabled() {
+        return config.getBoolean("metrics.enabled", false);
+    }
+
+    /**
+     * 获取指标 HTTP 监听地址
+     * @return 监听地址，默认仅本机可访问
+     */
+    public String getMetricsHttpHost() {
+        return config.getString("metrics.http.host", "127.0.0.1");
+    }
+
+    /**
+     * 获取指标 HTTP 监听端口
+     * @return 端口，0 表示不监听
+     */
+    public int getMetricsHttpPort() {
+        return config.getInt("metrics.http.port", 0);
+    }
+
+    /**
+     * 是否统计插件在主线程上的耗时
+     * @return 是否启用
+     */
+    public boolean isProfilerEnabled() {
+        return config.getBoolean("profiler.enabled", true);
+    }
+
+    /**
+     * 获取单次主线程操作的耗时预算
+     * @return 毫秒，超过时输出警告，0 表示不警告
+     */
+    public double getProfilerWarnMillis() {
+        return config.getDouble("profiler.warn_millis", 5.0);
+    }
+
+    /**
+     * 获取主线程耗时统计的滚动窗口长度
+     * @return 秒
+     */
+    public int getProfilerWindowSeconds() {
+        return Math.max(6, config.getInt("profiler.window_seconds", 60));
+    }
+
     public boolean isCheckUpdate() {
         return config.getBoolean("settings.check_update", true);
     }
@@ -394,6 +560,87 @@ public class ConfigManager {
         return config.getBoolean("metaso.concise_snippet", true);
     }
 
+    /**
+     * 获取共享 HTTP 线程池的最大线程数
+     * @return 最大线程数
+     */
+    public int getNetworkMaxThreads() {
+        return Math.max(1, config.getInt("network.max_threads", 8));
+    }
+
+    /**
+     * 获取阻塞 I/O 执行器模式
+     * @return auto（Java 21+ 使用虚拟线程）、virtual 或 platform
+     */
+    public String getIoExecutorMode() {
+        return config.getString("network.io_executor", "auto");
+    }
+
+    /**
+     * 获取平台线程模式下 I/O 线程池的最大线程数
+     * @return 最大线程数
+     */
+    public int getIoMaxThreads() {
+        return Math.max(1, config.getInt("network.io_max_threads", 32));
+    }
+
+    /**
+     * 获取 HTTP 代理地址
+     * @return 代理地址（host:port，为空则直连）
+     */
+    public String getNetworkProxy() {
+        return config.getString("network.proxy", "");
+    }
+
+    /**
+     * 获取需要走代理的域名列表
+     * @return 域名列表（为空则所有请求都走代理）
+     */
+    public List<String> getNetworkProxyHosts() {
+        return config.getStringList("network.proxy_hosts");
+    }
+
+    /**
+     * 是否为外部服务启用熔断器
+     * @return 是否启用
+     */
+    public boolean isCircuitBreakerEnabled() {
+        return config.getBoolean("network.circuit_breaker.enabled", true);
+    }
+
+    /**
+     * 获取熔断器打开前允许的连续失败次数
+     * @return 失败次数阈值
+     */
+    public int getCircuitBreakerFailureThreshold() {
+        return Math.max(1, config.getInt("network.circuit_breaker.failure_threshold", 5));
+    }
+
+    /**
+     * 获取熔断器首次打开的冷却时间（秒），试探失败后逐次加倍
+     * @return 冷却时间
+     */
+    public int getCircuitBreakerOpenSeconds() {
+        return Math.max(1, config.getInt("network.circuit_breaker.open_seconds", 30));
+    }
+
+    /**
+     * 是否在启动时预热 AI 与搜索服务的连接
+     * @return 是否启用
+     */
+    public boolean isWarmupEnabled() {
+        return config.getBoolean("network.warmup.enabled", true);
+    }
+
+    /**
+     * 获取连接预热的刷新间隔（秒），为 0 时只在启动时预热一次
+     * @return 刷新间隔
+     */
+    public int getWarmupRefreshSeconds() {
+        int seconds = config.getInt("network.warmup.refresh_seconds", 120);
+        return seconds <= 0 ? 0 : Math.max(30, seconds);
+    }
+
     /**
      * 获取公告刷新间隔（分钟）
      * @return 刷新间隔
@@ -490,10 +737,12 @@ public class ConfigManager {
     }
 
     public void save() {
-        try {
-            config.save(new File(plugin.getDataFolder(), "config.yml"));
-        } catch (IOException e) {
-            plugin.getLogger().warning("无法保存配置: " + e.getMessage());
+        try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "config.save")) {
+            try {
+                config.save(new File(plugin.getDataFolder(), "config.yml"));
+            } catch (IOException e) {
+                plugin.getLogger().warning("无法保存配置: " + e.getMessage());
+            }
         }
     }
 }
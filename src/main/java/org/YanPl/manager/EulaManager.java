@@ -1,7 +1,6 @@
 package org.YanPl.manager;
 
 import org.YanPl.FancyHelper;
-import org.bukkit.Bukkit;
 
 import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
@@ -10,7 +9,7 @@ import org.bukkit.inventory.meta.BookMeta;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.*;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -26,9 +25,7 @@ public class EulaManager {
     private final List<String> licenseContent;
     private final AtomicBoolean isEulaValid = new AtomicBoolean(true);
     private final AtomicBoolean isLicenseValid = new AtomicBoolean(true);
-    private WatchService watchService;
-    private Thread watchThread;
-    private volatile boolean running = true;
+    private FileEventHub.Subscription subscription;
 
     /**
      * 初始化 EULA 管理器。
@@ -163,50 +160,18 @@ public class EulaManager {
     }
 
     /**
-     * 使用 Java WatchService 开始实时监控文件变动。
+     * 通过文件事件中心实时监控 README 目录，文件被修改或删除时立即还原。
      */
     private void startRealtimeMonitoring() {
-        try {
-            this.watchService = FileSystems.getDefault().newWatchService();
-            Path path = eulaFile.getParentFile().toPath();
-            path.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_CREATE);
-
-            watchThread = new Thread(() -> {
-                while (running) {
-                    WatchKey key;
-                    try {
-                        key = watchService.take();
-                    } catch (InterruptedException | ClosedWatchServiceException e) {
-                        break;
-                    }
-
-                    for (WatchEvent<?> event : key.pollEvents()) {
-                        WatchEvent.Kind<?> kind = event.kind();
-                        if (kind == StandardWatchEventKinds.OVERFLOW) continue;
-
-                        Path eventPath = (Path) event.context();
-                        String fileName = eventPath.getFileName().toString();
-                        if (fileName.equals(eulaFile.getName()) || fileName.equals(licenseFile.getName())) {
-                            // 文件变动，立即还原
-                            // 稍微延迟一下以防某些编辑器锁定文件
-                            try { Thread.sleep(100); } catch (InterruptedException ignored) {}
-                            ensureFiles();
-                        }
-                    }
-
-                    if (!key.reset()) {
-                        break;
-                    }
-                }
-            }, "FancyHelper-EULA-Monitor");
-            watchThread.setDaemon(true);
-            watchThread.start();
-            plugin.getLogger().info("EULA 实时监控已启动。");
-        } catch (IOException e) {
-            plugin.getLogger().severe("无法启动 EULA 实时监控: " + e.getMessage());
-            // 回退到每分钟检查一次的模式
-            Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::ensureEulaFile, 1200L, 1200L);
-        }
+        // 稍微延迟一下以防某些编辑器锁定文件
+        subscription = plugin.getFileEventHub().subscribe(eulaFile.getParentFile().toPath(), 100L, event -> {
+            String fileName = event.getPath().getFileName().toString();
+            if (event.getKind() == FileEventHub.Kind.OVERFLOW
+                    || fileName.equals(eulaFile.getName()) || fileName.equals(licenseFile.getName())) {
+                ensureFiles();
+            }
+        });
+        plugin.getLogger().info("EULA 实时监控已启动。");
     }
 
     /**
@@ -337,14 +302,8 @@ public class EulaManager {
      * 停止监控并释放资源。
      */
     public void shutdown() {
-        running = false;
-        if (watchService != null) {
-            try {
-                watchService.close();
-            } catch (IOException ignored) {}
-        }
-        if (watchThread != null) {
-            watchThread.interrupt();
+        if (subscription != null) {
+            subscription.cancel();
         }
     }
 }
@@ -0,0 +1,271 @@
+package org.YanPl.manager;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.util.LineIndex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * 流式文件编辑引擎：借助行偏移索引定位修改窗口，未改动的部分通过 FileChannel.transferTo
+ * 原样复制到同目录下的临时文件，再原子替换原文件。
+ * 只有被修改的几行会被解码，换行符风格、BOM 与窗口外的字节保持不变；每次修改为发起的玩家保留一条紧凑的撤销记录。
+ */
+public class FileEditEngine {
+    private static final int MAX_UNDO_RECORDS = 20;
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final FancyHelper plugin;
+    /**
+     * 按玩家分开的撤销记录，每位玩家最多保留 {@link #MAX_UNDO_RECORDS} 条，玩家只能撤销自己的修改
+     */
+    private final Map<UUID, Deque<EditRecord>> undoLogs = new ConcurrentHashMap<>();
+
+    /**
+     * 撤销记录：只保存被替换窗口的原始字节，而不是整个文件
+     */
+    private static class EditRecord {
+        final Path path;
+        final long offset;
+        final byte[] originalBytes;
+        final int replacementLength;
+        final long replacementCrc;
+        final long resultSize;
+
+        EditRecord(Path path, long offset, byte[] originalBytes, int replacementLength, long replacementCrc, long resultSize) {
+            this.path = path;
+            this.offset = offset;
+            this.originalBytes = originalBytes;
+            this.replacementLength = replacementLength;
+            this.replacementCrc = replacementCrc;
+            this.resultSize = resultSize;
+        }
+    }
+
+    public FileEditEngine(FancyHelper plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * 在 [startLine, searchEndLine] 范围内查找起始行，使其后连续各行依次包含 patternLines 中的内容。
+     * 直接在 UTF-8 字节上做包含匹配，不为每行创建字符串。
+     * @return 所有匹配的起始行号（从 1 开始）
+     */
+    public List<Integer> findMatches(Path path, LineIndex index, int startLine, int searchEndLine, String[] patternLines) throws IOException {
+        int k = patternLines.length;
+        byte[][] patterns = new byte[k][];
+        for (int j = 0; j < k; j++) {
+            patterns[j] = patternLines[j].getBytes(StandardCharsets.UTF_8);
+        }
+
+        List<Integer> matches = new ArrayList<>();
+        int lastLine = Math.min(index.getLineCount(), searchEndLine + k - 1);
+        if (lastLine < startLine) return matches;
+
+        // partial[j] 表示以当前行结尾的连续行已匹配 patterns[0..j]
+        boolean[] partial = new boolean[k];
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            index.forEachLine(channel, startLine, lastLine - startLine + 1, (lineNumber, bytes, length, crlf) -> {
+                for (int j = k - 1; j >= 0; j--) {
+                    partial[j] = (j == 0 || partial[j - 1]) && contains(bytes, length, patterns[j]);
+                }
+                int matchStart = lineNumber - k + 1;
+                if (partial[k - 1] && matchStart >= startLine && matchStart <= searchEndLine) {
+                    matches.add(matchStart);
+                }
+                return true;
+            });
+        }
+        return matches;
+    }
+
+    /**
+     * 将从 startLine 开始的 lineCount 行替换为 newLines，保留原有换行符风格与文件末尾换行
+     * @param owner 发起修改的玩家，撤销记录归属于该玩家
+     */
+    public void replaceLines(UUID owner, Path path, LineIndex index, int startLine, int lineCount, List<String> newLines) throws IOException {
+        Path target = path.toRealPath();
+        long start;
+        long end;
+        byte[] originalBytes;
+        String lineSeparator;
+        try (FileChannel in = FileChannel.open(target, StandardOpenOption.READ)) {
+            start = index.lineStart(in, startLine);
+            end = index.lineStart(in, startLine + lineCount);
+            if (startLine == 1 && hasBom(in)) {
+                start = UTF8_BOM.length;
+            }
+            originalBytes = read(in, start, end - start);
+            lineSeparator = detectLineSeparator(in, start, originalBytes);
+        }
+
+        boolean terminated = originalBytes.length > 0 && originalBytes[originalBytes.length - 1] == '\n';
+        String replacement = String.join(lineSeparator, newLines) + (terminated ? lineSeparator : "");
+        byte[] replacementBytes = replacement.getBytes(StandardCharsets.UTF_8);
+
+        splice(target, start, end, replacementBytes);
+
+        EditRecord record = new EditRecord(target, start, originalBytes, replacementBytes.length,
+                crc(replacementBytes), Files.size(target));
+        Deque<EditRecord> undoLog = undoLogs.computeIfAbsent(owner, key -> new ArrayDeque<>());
+        synchronized (undoLog) {
+            undoLog.addFirst(record);
+            while (undoLog.size() > MAX_UNDO_RECORDS) {
+                undoLog.removeLast();
+            }
+        }
+    }
+
+    /**
+     * 撤销该玩家对指定文件的最近一次修改（#undo 工具）；若被修改的区域在此之后又有变动则拒绝撤销
+     * @return 是否成功撤销
+     */
+    public boolean undoLast(UUID owner, Path path) throws IOException {
+        Path target = path.toRealPath();
+        Deque<EditRecord> undoLog = undoLogs.get(owner);
+        if (undoLog == null) return false;
+        EditRecord record = null;
+        synchronized (undoLog) {
+            Iterator<EditRecord> it = undoLog.iterator();
+            while (it.hasNext()) {
+                EditRecord candidate = it.next();
+                if (candidate.path.equals(target)) {
+                    record = candidate;
+                    it.remove();
+                    break;
+                }
+            }
+        }
+        if (record == null) return false;
+        try (FileChannel in = FileChannel.open(target, StandardOpenOption.READ)) {
+            if (in.size() != record.resultSize
+                    || crc(read(in, record.offset, record.replacementLength)) != record.replacementCrc) {
+                return false;
+            }
+        }
+        splice(target, record.offset, record.offset + record.replacementLength, record.originalBytes);
+        return true;
+    }
+
+    /**
+     * 清除玩家的撤销记录（会话结束时调用）
+     */
+    public void forget(UUID owner) {
+        undoLogs.remove(owner);
+    }
+
+    /**
+     * 将 [start, end) 区间替换为 replacement：写入同目录临时文件后原子移动覆盖原文件
+     */
+    private void splice(Path target, long start, long end, byte[] replacement) throws IOException {
+        Path dir = target.getParent();
+        Path temp = Files.createTempFile(dir, "." + target.getFileName(), ".fhtmp");
+        try {
+            try (FileChannel in = FileChannel.open(target, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long size = in.size();
+                transfer(in, 0L, start, out);
+                ByteBuffer buffer = ByteBuffer.wrap(replacement);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                transfer(in, end, size - end, out);
+                out.force(true);
+            }
+            try {
+                Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+            } catch (UnsupportedOperationException | IOException ignored) {
+                // 非 POSIX 文件系统（如 Windows）无需处理权限
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        plugin.getLineIndexCache().invalidate(target);
+    }
+
+    private static void transfer(FileChannel in, long position, long count, FileChannel out) throws IOException {
+        while (count > 0) {
+            long transferred = in.transferTo(position, count, out);
+            if (transferred <= 0) {
+                throw new IOException("复制文件内容时意外到达文件末尾");
+            }
+            position += transferred;
+            count -= transferred;
+        }
+    }
+
+    private static byte[] read(FileChannel in, long position, long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, position + buffer.position()) <= 0) break;
+        }
+        return buffer.array();
+    }
+
+    private static long crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+
+    private static boolean hasBom(FileChannel in) throws IOException {
+        byte[] head = read(in, 0L, Math.min(UTF8_BOM.length, in.size()));
+        if (head.length < UTF8_BOM.length) return false;
+        for (int i = 0; i < UTF8_BOM.length; i++) {
+            if (head[i] != UTF8_BOM[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 优先使用被替换窗口内的换行符风格，窗口内没有换行时参考前一行，默认 "\n"
+     */
+    private static String detectLineSeparator(FileChannel in, long start, byte[] window) throws IOException {
+        for (int i = 0; i < window.length; i++) {
+            if (window[i] == '\n') {
+                return i > 0 && window[i - 1] == '\r' ? "\r\n" : "\n";
+            }
+        }
+        if (start >= 2) {
+            byte[] previous = read(in, start - 2, 2);
+            if (previous[0] == '\r' && previous[1] == '\n') {
+                return "\r\n";
+            }
+        }
+        return "\n";
+    }
+
+    private static boolean contains(byte[] haystack, int length, byte[] needle) {
+        if (needle.length == 0) return true;
+        int last = length - needle.length;
+        outer:
+        for (int i = 0; i <= last; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) continue outer;
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,372 @@
+package org.YanPl.manager;
+
+import org.YanPl.FancyHelper;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * 文件事件中心：全插件共用一个 WatchService 与一个监听线程，替代各管理器各自的监听线程与轮询。
+ * 订阅者按目录订阅（可递归），每个目录只注册一次；同一路径在防抖窗口内的多次事件合并为一次。
+ * 防抖在调度线程上计时，回调按订阅各自串行地在回调线程池上执行，耗时的订阅者（如索引重建）不会推迟其他订阅者。
+ */
+public class FileEventHub {
+    private final FancyHelper plugin;
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService listeners;
+    private WatchService watchService;
+    private Thread watchThread;
+    private volatile boolean running = true;
+
+    /**
+     * 事件类型
+     */
+    public enum Kind {
+        CREATE,
+        MODIFY,
+        DELETE,
+        /**
+         * 事件队列溢出，订阅目录下的任何文件都可能已变化，事件路径为订阅的根目录
+         */
+        OVERFLOW
+    }
+
+    /**
+     * 文件事件
+     */
+    public static final class FileEvent {
+        private final Path path;
+        private final Kind kind;
+
+        FileEvent(Path path, Kind kind) {
+            this.path = path;
+            this.kind = kind;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+    }
+
+    /**
+     * 事件回调，在事件中心的回调线程上执行，同一订阅的回调按顺序依次执行；需要访问 Bukkit API 的订阅者应自行切回主线程
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onFileEvent(FileEvent event);
+    }
+
+    /**
+     * 一个订阅
+     */
+    public final class Subscription {
+        private final Path root;
+        private final boolean recursive;
+        private final Predicate<Path> directoryFilter;
+        private final long debounceMillis;
+        private final Listener listener;
+        private final Map<Path, ScheduledFuture<?>> pending = new ConcurrentHashMap<>();
+        /**
+         * 防抖结束、等待回调的事件；同一时间最多一个回调线程在处理
+         */
+        private final Queue<FileEvent> ready = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean delivering = new AtomicBoolean();
+
+        private Subscription(Path root, boolean recursive, Predicate<Path> directoryFilter, long debounceMillis, Listener listener) {
+            this.root = root;
+            this.recursive = recursive;
+            this.directoryFilter = directoryFilter;
+            this.debounceMillis = debounceMillis;
+            this.listener = listener;
+        }
+
+        /**
+         * 取消订阅（已注册的目录仍保留，由其他订阅共用）
+         */
+        public void cancel() {
+            subscriptions.remove(this);
+            pending.values().forEach(future -> future.cancel(false));
+            pending.clear();
+            ready.clear();
+        }
+
+        /**
+         * 事件路径是否属于本订阅：非递归订阅只接收根目录下的直接子项，递归订阅要求途经的每一级子目录都通过过滤
+         */
+        boolean matches(Path path) {
+            Path parent = path.getParent();
+            if (parent == null || !parent.startsWith(root)) return false;
+            if (!recursive) return parent.equals(root);
+            for (Path dir = parent; !dir.equals(root); dir = dir.getParent()) {
+                if (!directoryFilter.test(dir)) return false;
+            }
+            return true;
+        }
+
+        boolean acceptsDirectory(Path dir) {
+            return recursive && matches(dir) && directoryFilter.test(dir);
+        }
+
+        void offer(Path path, Kind kind) {
+            if (!running) return;
+            FileEvent event = new FileEvent(path, kind);
+            if (debounceMillis <= 0 || kind == Kind.OVERFLOW) {
+                enqueue(event);
+                return;
+            }
+            // 防抖：窗口内的后续事件取消之前的调度，只投递最后一次
+            pending.compute(path, (p, previous) -> {
+                if (previous != null) previous.cancel(false);
+                return scheduler.schedule(() -> {
+                    pending.remove(p);
+                    enqueue(event);
+                }, debounceMillis, TimeUnit.MILLISECONDS);
+            });
+        }
+
+        private void enqueue(FileEvent event) {
+            ready.add(event);
+            drain();
+        }
+
+        /**
+         * 没有回调线程在处理本订阅时，提交一个任务依次投递排队的事件
+         */
+        private void drain() {
+            if (!running || !delivering.compareAndSet(false, true)) return;
+            try {
+                listeners.execute(this::deliverReady);
+            } catch (RejectedExecutionException e) {
+                // 事件中心已关闭
+                delivering.set(false);
+            }
+        }
+
+        private void deliverReady() {
+            try {
+                FileEvent event;
+                while ((event = ready.poll()) != null) {
+                    deliver(event);
+                }
+            } finally {
+                delivering.set(false);
+            }
+            // 释放标记前可能有新事件入队
+            if (!ready.isEmpty()) {
+                drain();
+            }
+        }
+
+        private void deliver(FileEvent event) {
+            if (!running || !subscriptions.contains(this)) return;
+            try {
+                listener.onFileEvent(event);
+            } catch (Exception e) {
+                plugin.getLogger().warning("处理文件事件时出错 (" + event.getPath() + "): " + e.getMessage());
+                plugin.getCloudErrorReport().report(e);
+            }
+        }
+    }
+
+    public FileEventHub(FancyHelper plugin) {
+        this.plugin = plugin;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "FancyHelper-FileEvents");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger listenerThreads = new AtomicInteger();
+        this.listeners = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "FancyHelper-FileListener-" + listenerThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            watchThread = new Thread(this::watchLoop, "FancyHelper-FileWatcher");
+            watchThread.setDaemon(true);
+            watchThread.start();
+        } catch (IOException e) {
+            plugin.getLogger().warning("无法启动文件监听: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 订阅目录下直接子项的变动
+     * @param debounceMillis 防抖时间，同一路径在此时间内的多次事件只投递最后一次；0 表示不防抖
+     */
+    public Subscription subscribe(Path dir, long debounceMillis, Listener listener) {
+        Path root = dir.toAbsolutePath().normalize();
+        Subscription subscription = new Subscription(root, false, d -> true, debounceMillis, listener);
+        subscriptions.add(subscription);
+        register(root);
+        return subscription;
+    }
+
+    /**
+     * 递归订阅目录树的变动；directoryFilter 返回 false 的子目录及其下的内容不会被监听。
+     * 之后新建的子目录会被自动注册，其中已有的文件以 CREATE 事件补发。
+     * 只有根目录在调用线程上注册，已有子目录在回调线程池上遍历注册，不阻塞主线程
+     */
+    public Subscription subscribeRecursive(Path dir, Predicate<Path> directoryFilter, long debounceMillis, Listener listener) {
+        Path root = dir.toAbsolutePath().normalize();
+        Subscription subscription = new Subscription(root, true, directoryFilter, debounceMillis, listener);
+        subscriptions.add(subscription);
+        // 根目录先注册，遍历期间新建的子目录由根目录的 CREATE 事件补上
+        register(root);
+        try {
+            listeners.execute(() -> registerTree(root, subscription, false));
+        } catch (RejectedExecutionException ignored) {
+            // 事件中心已关闭
+        }
+        return subscription;
+    }
+
+    private void register(Path dir) {
+        if (watchService == null || !Files.isDirectory(dir)) return;
+        try {
+            WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            watchedDirs.put(key, dir);
+        } catch (IOException | ClosedWatchServiceException ignored) {
+            // 目录可能已被删除或监听服务已关闭
+        }
+    }
+
+    /**
+     * 注册目录树；emitFiles 为 true 时为其中的文件补发 CREATE 事件（用于新建目录，防止注册前写入的文件被遗漏）
+     */
+    private void registerTree(Path start, Subscription subscription, boolean emitFiles) {
+        if (!Files.isDirectory(start)) return;
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!running || !subscriptions.contains(subscription)) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    if (!dir.equals(subscription.root) && !subscription.directoryFilter.test(dir)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    register(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (emitFiles && attrs.isRegularFile()) {
+                        subscription.offer(file, Kind.CREATE);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            plugin.getLogger().warning("注册目录监听失败 (" + start + "): " + e.getMessage());
+        }
+    }
+
+    private void watchLoop() {
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            }
+            Path dir = watchedDirs.get(key);
+            if (dir != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        for (Subscription subscription : subscriptions) {
+                            if (dir.startsWith(subscription.root) && (subscription.recursive || dir.equals(subscription.root))) {
+                                subscription.offer(subscription.root, Kind.OVERFLOW);
+                            }
+                        }
+                        continue;
+                    }
+                    dispatch(dir.resolve((Path) event.context()), toKind(event.kind()));
+                }
+            }
+            if (!key.reset()) {
+                // 目录已被删除
+                watchedDirs.remove(key);
+            }
+        }
+    }
+
+    private void dispatch(Path path, Kind kind) {
+        boolean createdDir = kind == Kind.CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS);
+        for (Subscription subscription : subscriptions) {
+            if (!subscription.matches(path)) continue;
+            subscription.offer(path, kind);
+            if (createdDir && subscription.acceptsDirectory(path)) {
+                registerTree(path, subscription, true);
+            }
+        }
+    }
+
+    private static Kind toKind(WatchEvent.Kind<?> kind) {
+        if (kind == StandardWatchEventKinds.ENTRY_CREATE) return Kind.CREATE;
+        if (kind == StandardWatchEventKinds.ENTRY_DELETE) return Kind.DELETE;
+        return Kind.MODIFY;
+    }
+
+    /**
+     * 当前注册的目录数量
+     */
+    public int getWatchedDirectoryCount() {
+        return watchedDirs.size();
+    }
+
+    public void shutdown() {
+        running = false;
+        subscriptions.clear();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {}
+        }
+        if (watchThread != null) {
+            watchThread.interrupt();
+        }
+        scheduler.shutdownNow();
+        listeners.shutdownNow();
+    }
+}
@@ -1,85 +1,46 @@
 package org.YanPl.manager;
 
 import org.YanPl.FancyHelper;
-import org.bukkit.Bukkit;
+import org.YanPl.util.TickProfiler;
 
 import java.io.IOException;
-import java.nio.file.*;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
- * 文件监听管理器：负责监控插件目录下的配置文件变动并自动重载。
+ * 文件监听管理器：通过文件事件中心监控插件目录下的配置文件变动并自动重载。
  */
 public class FileWatcherManager {
     private final FancyHelper plugin;
-    private WatchService watchService;
-    private Thread watchThread;
-    private final AtomicBoolean running = new AtomicBoolean(true);
-    private final Map<String, Long> lastProcessed = new HashMap<>();
-    private static final long DEBOUNCE_TIME = 3000; // 3秒防抖间隔
+    private final FileEventHub.Subscription subscription;
+    private static final long DEBOUNCE_TIME = 500; // 编辑器保存时往往连续触发多次事件，合并为一次重载
 
     public FileWatcherManager(FancyHelper plugin) {
         this.plugin = plugin;
-        startMonitoring();
-    }
+        Path path = plugin.getDataFolder().toPath();
 
-    private void startMonitoring() {
+        // 确保目录存在
         try {
-            this.watchService = FileSystems.getDefault().newWatchService();
-            Path path = plugin.getDataFolder().toPath();
-            
-            // 确保目录存在
-            if (!Files.exists(path)) {
-                Files.createDirectories(path);
-            }
-
-            path.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY);
-
-            watchThread = new Thread(() -> {
-                while (running.get()) {
-                    WatchKey key;
-                    try {
-                        key = watchService.take();
-                    } catch (InterruptedException | ClosedWatchServiceException e) {
-                        break;
-                    }
-
-                    for (WatchEvent<?> event : key.pollEvents()) {
-                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) continue;
-
-                        Path eventPath = (Path) event.context();
-                        String fileName = eventPath.getFileName().toString();
-
-                        // 稍微延迟一下以防文件被占用
-                        try { Thread.sleep(500); } catch (InterruptedException ignored) {}
-
-                        handleFileChange(fileName);
-                    }
-
-                    if (!key.reset()) {
-                        break;
-                    }
-                }
-            }, "FancyHelper-FileWatcher");
-            watchThread.setDaemon(true);
-            watchThread.start();
-            plugin.getLogger().info("配置文件实时监控已启动。");
+            Files.createDirectories(path);
         } catch (IOException e) {
-            plugin.getLogger().warning("无法启动文件监控: " + e.getMessage());
+            plugin.getLogger().warning("无法创建插件目录: " + e.getMessage());
         }
+
+        this.subscription = plugin.getFileEventHub().subscribe(path, DEBOUNCE_TIME, this::handleFileChange);
+        plugin.getLogger().info("配置文件实时监控已启动。");
     }
 
-    private void handleFileChange(String fileName) {
-        long now = System.currentTimeMillis();
-        if (now - lastProcessed.getOrDefault(fileName, 0L) < DEBOUNCE_TIME) {
-            return;
+    private void handleFileChange(FileEventHub.FileEvent event) {
+        if (event.getKind() == FileEventHub.Kind.DELETE || event.getKind() == FileEventHub.Kind.OVERFLOW) return;
+
+        // 文件内容已变化，丢弃对应的行索引
+        if (plugin.getLineIndexCache() != null) {
+            plugin.getLineIndexCache().invalidate(event.getPath());
         }
-        lastProcessed.put(fileName, now);
 
+        String fileName = event.getPath().getFileName().toString();
         if (!plugin.isEnabled()) return;
-        Bukkit.getScheduler().runTask(plugin, () -> {
+        TickProfiler.runTask(plugin, "watcher.reload", () -> {
             if (!plugin.isEnabled()) return;
             switch (fileName) {
                 case "config.yml":
@@ -107,14 +68,6 @@ public class FileWatcherManager {
     }
 
     public void shutdown() {
-        running.set(false);
-        if (watchService != null) {
-            try {
-                watchService.close();
-            } catch (IOException ignored) {}
-        }
-        if (watchThread != null) {
-            watchThread.interrupt();
-        }
+        subscription.cancel();
     }
 }
@@ -3,6 +3,7 @@ package org.YanPl.manager;
 import org.YanPl.FancyHelper;
 import org.YanPl.model.DialogueSession;
 import org.YanPl.util.ColorUtil;
+import org.YanPl.util.TickProfiler;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
@@ -192,81 +193,83 @@ public class GuiManager implements Listener {
 
     @EventHandler
     public void onInventoryClick(InventoryClickEvent event) {
-        String title = event.getView().getTitle();
-        if (!title.equals(SETTINGS_TITLE) && !title.equals(MODE_SELECTION_TITLE)) {
-            return;
-        }
+        try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "listener.gui_click")) {
+            String title = event.getView().getTitle();
+            if (!title.equals(SETTINGS_TITLE) && !title.equals(MODE_SELECTION_TITLE)) {
+                return;
+            }
 
-        event.setCancelled(true);
+            event.setCancelled(true);
         
-        if (!(event.getWhoClicked() instanceof Player)) return;
-        Player player = (Player) event.getWhoClicked();
-        ItemStack clickedItem = event.getCurrentItem();
+            if (!(event.getWhoClicked() instanceof Player)) return;
+            Player player = (Player) event.getWhoClicked();
+            ItemStack clickedItem = event.getCurrentItem();
 
-        if (clickedItem == null || clickedItem.getType() == Material.AIR) return;
+            if (clickedItem == null || clickedItem.getType() == Material.AIR) return;
 
-        int slot = event.getSlot();
+            int slot = event.getSlot();
 
-        // 模式切换
-        if (slot == 10) {
-            UUID uuid = player.getUniqueId();
-            DialogueSession session = plugin.getCliManager().getSession(uuid);
-            DialogueSession.Mode currentMode = (session != null) ? session.getMode() : DialogueSession.Mode.NORMAL;
+            // 模式切换
+            if (slot == 10) {
+                UUID uuid = player.getUniqueId();
+                DialogueSession session = plugin.getCliManager().getSession(uuid);
+                DialogueSession.Mode currentMode = (session != null) ? session.getMode() : DialogueSession.Mode.NORMAL;
             
-            if (currentMode == DialogueSession.Mode.NORMAL) {
-                plugin.getCliManager().switchMode(player, DialogueSession.Mode.SMART);
-            } else if (currentMode == DialogueSession.Mode.SMART) {
-                plugin.getCliManager().switchMode(player, DialogueSession.Mode.YOLO);
-            } else {
-                plugin.getCliManager().switchMode(player, DialogueSession.Mode.NORMAL);
+                if (currentMode == DialogueSession.Mode.NORMAL) {
+                    plugin.getCliManager().switchMode(player, DialogueSession.Mode.SMART);
+                } else if (currentMode == DialogueSession.Mode.SMART) {
+                    plugin.getCliManager().switchMode(player, DialogueSession.Mode.YOLO);
+                } else {
+                    plugin.getCliManager().switchMode(player, DialogueSession.Mode.NORMAL);
+                }
+                // 刷新图标
+                updateModeItem(event.getClickedInventory(), player);
+                player.playSound(player.getLocation(), "ui.button.click", 1, 1);
             }
-            // 刷新图标
-            updateModeItem(event.getClickedInventory(), player);
-            player.playSound(player.getLocation(), "ui.button.click", 1, 1);
-        }
-        // 记忆管理
-        else if (slot == 12) {
-            player.closeInventory();
-            player.performCommand("cli memory");
-            player.playSound(player.getLocation(), "ui.button.click", 1, 1);
-        }
-        // 工具权限
-        else if (slot == 14) {
-            player.closeInventory();
-            player.performCommand("cli tools");
-            player.playSound(player.getLocation(), "ui.button.click", 1, 1);
-        }
-        // 显示位置切换
-        else if (slot == 16) {
-            player.performCommand("cli display");
-            // 刷新图标
-            updateDisplayPosItem(event.getClickedInventory(), player);
-            player.playSound(player.getLocation(), "ui.button.click", 1, 1);
-        }
-        // 关闭
-        else if (slot == 26) {
-            player.closeInventory();
-            player.playSound(player.getLocation(), "ui.button.click", 1, 1);
-        }
-        
-        // 模式选择菜单处理
-        if (event.getView().getTitle().equals(MODE_SELECTION_TITLE)) {
-            if (slot == 2) {
-                // Normal 模式
-                plugin.getCliManager().switchMode(player, DialogueSession.Mode.NORMAL);
+            // 记忆管理
+            else if (slot == 12) {
                 player.closeInventory();
+                player.performCommand("cli memory");
                 player.playSound(player.getLocation(), "ui.button.click", 1, 1);
-            } else if (slot == 4) {
-                // SMART 模式
-                plugin.getCliManager().switchMode(player, DialogueSession.Mode.SMART);
+            }
+            // 工具权限
+            else if (slot == 14) {
                 player.closeInventory();
+                player.performCommand("cli tools");
+                player.playSound(player.getLocation(), "ui.button.click", 1, 1);
+            }
+            // 显示位置切换
+            else if (slot == 16) {
+                player.performCommand("cli display");
+                // 刷新图标
+                updateDisplayPosItem(event.getClickedInventory(), player);
                 player.playSound(player.getLocation(), "ui.button.click", 1, 1);
-            } else if (slot == 6) {
-                // YOLO 模式
-                plugin.getCliManager().switchMode(player, DialogueSession.Mode.YOLO);
+            }
+            // 关闭
+            else if (slot == 26) {
                 player.closeInventory();
                 player.playSound(player.getLocation(), "ui.button.click", 1, 1);
             }
+        
+            // 模式选择菜单处理
+            if (event.getView().getTitle().equals(MODE_SELECTION_TITLE)) {
+                if (slot == 2) {
+                    // Normal 模式
+                    plugin.getCliManager().switchMode(player, DialogueSession.Mode.NORMAL);
+                    player.closeInventory();
+                    player.playSound(player.getLocation(), "ui.button.click", 1, 1);
+                } else if (slot == 4) {
+                    // SMART 模式
+                    plugin.getCliManager().switchMode(player, DialogueSession.Mode.SMART);
+                    player.closeInventory();
+                    player.playSound(player.getLocation(), "ui.button.click", 1, 1);
+                } else if (slot == 6) {
+                    // YOLO 模式
+                    plugin.getCliManager().switchMode(player, DialogueSession.Mode.YOLO);
+                    player.closeInventory();
+                    player.playSound(player.getLocation(), "ui.button.click", 1, 1);
+                }
+            }
         }
     }
 }
@@ -52,6 +52,22 @@ public class InstructionManager {
         if (!instructionDir.exists()) {
             instructionDir.mkdirs();
         }
+
+        // 记忆文件被手动修改或删除时丢弃对应缓存，下次读取时从磁盘加载
+        if (plugin.getFileEventHub() != null) {
+            plugin.getFileEventHub().subscribe(instructionDir.toPath(), 200L, event -> {
+                String fileName = event.getPath().getFileName().toString();
+                if (event.getKind() == FileEventHub.Kind.OVERFLOW) {
+                    cache.clear();
+                } else if (fileName.endsWith(".json")) {
+                    try {
+                        cache.remove(UUID.fromString(fileName.substring(0, fileName.length() - 5)));
+                    } catch (IllegalArgumentException ignored) {
+                        // 非玩家记忆文件
+                    }
+                }
+            });
+        }
     }
 
     public String addInstruction(Player player, String content, String category) {
@@ -173,8 +189,15 @@ public class InstructionManager {
             return null;
         }
         
+        return formatPrompt(getPlayerName(uuid), instructions);
+    }
+
+    /**
+     * 将玩家的记忆格式化为系统提示词片段
+     */
+    static String formatPrompt(String playerName, List<PlayerInstruction> instructions) {
         StringBuilder sb = new StringBuilder();
-        sb.append("以下是玩家 ").append(getPlayerName(uuid)).append(" 的偏好和记忆，请在对话中参考这些信息。\n");
+        sb.append("以下是玩家 ").append(playerName).append(" 的偏好和记忆，请在对话中参考这些信息。\n");
         sb.append("注意：如果记忆之间存在冲突，以列表中靠后的（较新的）记忆为准。\n");
         for (PlayerInstruction inst : instructions) {
             sb.append("- [").append(inst.getCategory()).append("] ").append(inst.getContent()).append("\n");
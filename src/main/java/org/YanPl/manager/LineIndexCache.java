@@ -0,0 +1,86 @@
+package org.YanPl.manager;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.util.LineIndex;
+import org.YanPl.util.MetricsRegistry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 行偏移索引缓存：按路径缓存 {@link LineIndex}，以文件大小与修改时间校验有效性，
+ * 供 #read / #edit 等文件工具按行号直接定位，避免每次从头扫描文件。
+ */
+public class LineIndexCache {
+    private static final int MAX_ENTRIES = 64;
+
+    private final FancyHelper plugin;
+    private final Map<Path, LineIndex> entries = new LinkedHashMap<Path, LineIndex>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, LineIndex> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    public LineIndexCache(FancyHelper plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * 获取文件的行索引；缓存缺失或文件已变化时重建（仅追加的文件会增量扩展）
+     */
+    public LineIndex get(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        BasicFileAttributes attrs = Files.readAttributes(key, BasicFileAttributes.class);
+        long size = attrs.size();
+        long lastModified = attrs.lastModifiedTime().toMillis();
+
+        LineIndex cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        boolean hit = cached != null && cached.matches(size, lastModified);
+        MetricsRegistry metrics = plugin.getMetrics();
+        if (metrics != null) {
+            metrics.increment(MetricsRegistry.CACHE_REQUESTS, "cache", "line_index", "result", hit ? "hit" : "miss");
+        }
+        if (hit) {
+            return cached;
+        }
+
+        long start = System.currentTimeMillis();
+        LineIndex index = cached != null
+                ? cached.extend(key, size, lastModified)
+                : LineIndex.build(key, size, lastModified);
+        synchronized (entries) {
+            entries.put(key, index);
+        }
+        if (plugin.getConfigManager().isDebug()) {
+            plugin.getLogger().info("[LineIndex] 已索引 " + key.getFileName() + "：" + index.getLineCount()
+                    + " 行，耗时 " + (System.currentTimeMillis() - start) + "ms");
+        }
+        return index;
+    }
+
+    /**
+     * 使某个文件的索引失效（由文件监听器在文件变动时调用）
+     */
+    public void invalidate(Path path) {
+        synchronized (entries) {
+            entries.remove(path.toAbsolutePath().normalize());
+        }
+    }
+
+    /**
+     * 清空所有缓存
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+}
@@ -16,7 +16,6 @@ import org.bukkit.scheduler.BukkitTask;
 
 import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
@@ -30,15 +29,11 @@ import java.util.concurrent.CompletableFuture;
 public class NoticeManager {
     private static final String NOTICE_URL = "https://fcnotice.baicaizhale.top/v2/notice.json";
     private final FancyHelper plugin;
-    private final HttpClient httpClient;
     private BukkitTask fetchTask;
     private NoticeData currentNotice;
 
     public NoticeManager(FancyHelper plugin) {
         this.plugin = plugin;
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
         startPeriodicFetch();
     }
 
@@ -130,7 +125,7 @@ public class NoticeManager {
      */
     public CompletableFuture<NoticeData> fetchNoticeAsync() {
         CompletableFuture<NoticeData> future = new CompletableFuture<>();
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getIoExecutor().execute(() -> {
             try {
                 NoticeData data = fetchNotice();
                 if (data != null) {
@@ -158,7 +153,7 @@ public class NoticeManager {
                     .GET()
                     .build();
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = plugin.getCircuitBreakers().send(plugin.getHttpClients().get(NOTICE_URL), request, HttpResponse.BodyHandlers.ofString());
 
             if (response.statusCode() != 200) {
                 throw new IOException("获取公告失败: HTTP " + response.statusCode());
@@ -269,6 +264,6 @@ public class NoticeManager {
     }
 
     public void shutdown() {
-        // HttpClient 无需显式关闭
+        // HTTP 客户端由 HttpClientRegistry 统一管理
     }
 }
\ No newline at end of file
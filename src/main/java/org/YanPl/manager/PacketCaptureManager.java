@@ -61,29 +61,8 @@ public class PacketCaptureManager {
                     if (captureBuffers.containsKey(uuid)) {
                         String message = extractMessage(event.getPacket());
                         if (message != null && !message.isEmpty()) {
-                            // 过滤掉插件自身的提示消息，避免循环反馈或干扰 AI
                             String stripped = ChatColor.stripColor(message).trim();
-                            if (stripped.isEmpty() || 
-                                stripped.startsWith("⇒") || 
-                                stripped.startsWith("◇") || 
-                                stripped.startsWith("◆") || 
-                                stripped.contains("FancyHelper") ||
-                                stripped.equals("....") ||
-                                stripped.equals("...") ||
-                                stripped.equals("- ✓ -") ||
-                                stripped.equals("- ✕ -") ||
-                                stripped.equals("- ERROR -") ||
-                                stripped.equals("正在征求您的许可...") ||
-                                stripped.equals("正在征求您的意见...") ||
-                                stripped.matches("^- 思考中 \\d+s -$")) {
-                                return;
-                            }
-
-                            // 关键修复：过滤掉明显的玩家聊天消息，防止多玩家环境下上下文混淆
-                            // 匹配标准聊天格式 <PlayerName> Message 或 [World] <PlayerName> Message
-                            if (stripped.matches("^<[^>]+>.*") || 
-                                stripped.matches("^\\[.*\\]\\s*<[^>]+>.*") ||
-                                stripped.matches("^\\* [^ ]+ .*")) { // /me 命令格式
+                            if (isFiltered(stripped)) {
                                 return;
                             }
 
@@ -99,6 +78,38 @@ public class PacketCaptureManager {
         );
     }
 
+    /**
+     * 判断捕获到的消息（已去除颜色代码）是否应被丢弃
+     * 插件自身的提示消息与玩家聊天消息不会反馈给 AI
+     *
+     * @param stripped 去除颜色代码并修剪空白后的消息
+     * @return 应丢弃时返回 true
+     */
+    static boolean isFiltered(String stripped) {
+        // 过滤掉插件自身的提示消息，避免循环反馈或干扰 AI
+        if (stripped.isEmpty() ||
+            stripped.startsWith("⇒") ||
+            stripped.startsWith("◇") ||
+            stripped.startsWith("◆") ||
+            stripped.contains("FancyHelper") ||
+            stripped.equals("....") ||
+            stripped.equals("...") ||
+            stripped.equals("- ✓ -") ||
+            stripped.equals("- ✕ -") ||
+            stripped.equals("- ERROR -") ||
+            stripped.equals("正在征求您的许可...") ||
+            stripped.equals("正在征求您的意见...") ||
+            stripped.matches("^- 思考中 \\d+s -$")) {
+            return true;
+        }
+
+        // 关键修复：过滤掉明显的玩家聊天消息，防止多玩家环境下上下文混淆
+        // 匹配标准聊天格式 <PlayerName> Message 或 [World] <PlayerName> Message
+        return stripped.matches("^<[^>]+>.*") ||
+            stripped.matches("^\\[.*\\]\\s*<[^>]+>.*") ||
+            stripped.matches("^\\* [^ ]+ .*"); // /me 命令格式
+    }
+
     /**
      * 从数据包中提取文本消息
      * 
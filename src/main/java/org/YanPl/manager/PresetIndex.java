@@ -0,0 +1,419 @@
+package org.YanPl.manager;
+
+import org.YanPl.FancyHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预设检索索引：启动时把 preset 目录下的预设按标题/段落切分为片段并建立 BM25 倒排索引。
+ * #getpreset 只返回与当前问题最相关的片段，其余片段可通过 "|more" 继续获取，避免把整份大预设注入上下文。
+ * 分词对中日韩文字使用单字 + 相邻二元组，对英文与数字使用整词。
+ */
+public class PresetIndex {
+    /**
+     * 不超过该长度的预设直接整份返回
+     */
+    private static final int WHOLE_FILE_CHARS = 4000;
+    /**
+     * 单次返回的片段总长度预算
+     */
+    private static final int RESPONSE_BUDGET_CHARS = 2500;
+    private static final int MAX_CHUNK_CHARS = 1200;
+    private static final int MIN_CHUNK_CHARS = 80;
+    private static final int GLOBAL_RESULTS = 3;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final FancyHelper plugin;
+    private final Map<UUID, Continuation> continuations = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyList(), Collections.emptyMap());
+
+    /**
+     * 预设片段
+     */
+    static class Chunk {
+        final String file;
+        final int ordinal;
+        final String title;
+        final String text;
+        final Map<String, Integer> termFrequencies = new HashMap<>();
+        int length;
+
+        Chunk(String file, int ordinal, String title, String text) {
+            this.file = file;
+            this.ordinal = ordinal;
+            this.title = title;
+            this.text = text;
+            for (String token : tokenize(title + "\n" + text)) {
+                termFrequencies.merge(token, 1, Integer::sum);
+                length++;
+            }
+        }
+    }
+
+    /**
+     * 不可变的索引快照，重建时整体替换
+     */
+    private static class Snapshot {
+        final List<Chunk> chunks;
+        final Map<String, List<Chunk>> byFile = new HashMap<>();
+        final Map<String, String> contents;
+        final Map<String, Integer> documentFrequencies = new HashMap<>();
+        final double averageLength;
+
+        Snapshot(List<Chunk> chunks, Map<String, String> contents) {
+            this.chunks = chunks;
+            this.contents = contents;
+            long totalLength = 0;
+            for (Chunk chunk : chunks) {
+                byFile.computeIfAbsent(chunk.file, k -> new ArrayList<>()).add(chunk);
+                totalLength += chunk.length;
+                for (String term : chunk.termFrequencies.keySet()) {
+                    documentFrequencies.merge(term, 1, Integer::sum);
+                }
+            }
+            this.averageLength = chunks.isEmpty() ? 1.0 : Math.max(1.0, (double) totalLength / chunks.size());
+        }
+    }
+
+    /**
+     * 玩家尚未获取的片段（按相关度排序）
+     */
+    private static class Continuation {
+        final String file;
+        final List<Chunk> remaining;
+
+        Continuation(String file, List<Chunk> remaining) {
+            this.file = file;
+            this.remaining = remaining;
+        }
+    }
+
+    public PresetIndex(FancyHelper plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * 通过文件事件中心订阅预设目录，有变化时重建
+     */
+    public void start() {
+        plugin.getFileEventHub().subscribe(getPresetDir().toPath(), 500L, event -> rebuild());
+    }
+
+    private File getPresetDir() {
+        return new File(plugin.getDataFolder(), "preset");
+    }
+
+    /**
+     * 重新读取所有预设并建立索引
+     */
+    public void rebuild() {
+        File[] files = getPresetDir().listFiles();
+        List<Chunk> chunks = new ArrayList<>();
+        Map<String, String> contents = new LinkedHashMap<>();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.isFile() || !file.getName().endsWith(".txt")) continue;
+                try {
+                    String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+                    contents.put(file.getName(), content);
+                    chunks.addAll(split(file.getName(), content));
+                } catch (IOException e) {
+                    plugin.getLogger().warning("读取预设 " + file.getName() + " 失败: " + e.getMessage());
+                }
+            }
+        }
+        snapshot = new Snapshot(chunks, contents);
+        continuations.clear();
+        if (plugin.getConfigManager().isDebug()) {
+            plugin.getLogger().info("[Preset] 已索引 " + contents.size() + " 个预设，共 " + chunks.size() + " 个片段。");
+        }
+    }
+
+    /**
+     * 按标题行（【...】、# 标题、=== 标题 ===）与分隔线切分片段；过长的片段在空行或行边界处再切分，过短的片段并入下一个
+     */
+    static List<Chunk> split(String file, String content) {
+        List<String[]> sections = new ArrayList<>();
+        String title = "";
+        StringBuilder current = new StringBuilder();
+        for (String line : content.replace("\r\n", "\n").split("\n", -1)) {
+            String trimmed = line.trim();
+            boolean separator = trimmed.length() >= 5 && trimmed.chars().allMatch(c -> c == '=' || c == '-');
+            boolean heading = (trimmed.startsWith("【") && trimmed.contains("】"))
+                    || trimmed.startsWith("#")
+                    || (trimmed.startsWith("===") && trimmed.endsWith("===") && !separator);
+            if (separator || heading) {
+                if (current.toString().trim().length() > 0) {
+                    sections.add(new String[]{title, current.toString().trim()});
+                    current.setLength(0);
+                    title = "";
+                }
+                if (heading) {
+                    title = trimmed;
+                    current.append(line).append('\n');
+                }
+                continue;
+            }
+            if (current.length() > 0 || !trimmed.isEmpty()) {
+                current.append(line).append('\n');
+            }
+            if (current.length() >= MAX_CHUNK_CHARS && trimmed.isEmpty()) {
+                sections.add(new String[]{title, current.toString().trim()});
+                current.setLength(0);
+            }
+        }
+        if (current.toString().trim().length() > 0) {
+            sections.add(new String[]{title, current.toString().trim()});
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        StringBuilder pending = new StringBuilder();
+        String pendingTitle = "";
+        for (String[] section : sections) {
+            for (String piece : hardWrap(section[1])) {
+                if (pending.length() == 0) {
+                    pendingTitle = section[0];
+                } else {
+                    pending.append('\n');
+                }
+                pending.append(piece);
+                if (pending.length() >= MIN_CHUNK_CHARS) {
+                    chunks.add(new Chunk(file, chunks.size(), pendingTitle, pending.toString()));
+                    pending.setLength(0);
+                }
+            }
+        }
+        if (pending.length() > 0) {
+            if (!chunks.isEmpty() && chunks.get(chunks.size() - 1).text.length() + pending.length() <= MAX_CHUNK_CHARS) {
+                Chunk last = chunks.remove(chunks.size() - 1);
+                chunks.add(new Chunk(file, last.ordinal, last.title, last.text + "\n" + pending));
+            } else {
+                chunks.add(new Chunk(file, chunks.size(), pendingTitle, pending.toString()));
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * 段落中没有空行时，按行边界强制切分超长文本
+     */
+    private static List<String> hardWrap(String text) {
+        if (text.length() <= MAX_CHUNK_CHARS) return Collections.singletonList(text);
+        List<String> pieces = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        for (String line : text.split("\n")) {
+            if (sb.length() > 0 && sb.length() + line.length() > MAX_CHUNK_CHARS) {
+                pieces.add(sb.toString());
+                sb.setLength(0);
+            }
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(line);
+        }
+        if (sb.length() > 0) pieces.add(sb.toString());
+        return pieces;
+    }
+
+    /**
+     * 分词：ASCII 字母数字组成的整词（长度至少 2，或包含数字），中日韩文字输出单字与相邻二元组
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        StringBuilder word = new StringBuilder();
+        int previousCjk = -1;
+        for (int i = 0; i < lower.length(); ) {
+            int cp = lower.codePointAt(i);
+            i += Character.charCount(cp);
+            if (cp < 128 && Character.isLetterOrDigit(cp)) {
+                word.appendCodePoint(cp);
+                previousCjk = -1;
+                continue;
+            }
+            flushWord(word, tokens);
+            if (isCjk(cp)) {
+                String unigram = new String(Character.toChars(cp));
+                tokens.add(unigram);
+                if (previousCjk >= 0) {
+                    tokens.add(new String(Character.toChars(previousCjk)) + unigram);
+                }
+                previousCjk = cp;
+            } else {
+                previousCjk = -1;
+            }
+        }
+        flushWord(word, tokens);
+        return tokens;
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.length() == 0) return;
+        boolean hasDigit = word.chars().anyMatch(Character::isDigit);
+        if (word.length() >= 2 || hasDigit) {
+            tokens.add(word.toString());
+        }
+        word.setLength(0);
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    /**
+     * 计算查询与片段的 BM25 得分
+     */
+    private static double score(Snapshot index, Chunk chunk, List<String> queryTerms) {
+        double score = 0;
+        int n = index.chunks.size();
+        for (String term : queryTerms) {
+            Integer tf = chunk.termFrequencies.get(term);
+            if (tf == null) continue;
+            int df = index.documentFrequencies.getOrDefault(term, 0);
+            double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+            score += idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * chunk.length / index.averageLength));
+        }
+        return score;
+    }
+
+    /**
+     * #getpreset 工具入口
+     * @param playerId 玩家，用于保存 "more" 的续读位置
+     * @param args 格式：文件名、文件名|关键词、文件名|more 或 more
+     * @param fallbackQuery 未提供关键词时使用的查询（通常为玩家最近一次的提问）
+     */
+    public String get(UUID playerId, String args, String fallbackQuery) {
+        String[] parts = (args == null ? "" : args.trim()).split("\\|", 2);
+        String fileArg = parts[0].trim();
+        String query = parts.length > 1 ? parts[1].trim() : "";
+        Snapshot index = snapshot;
+
+        if (fileArg.equalsIgnoreCase("more") || query.equalsIgnoreCase("more")) {
+            Continuation continuation = continuations.get(playerId);
+            if (continuation == null || (!fileArg.equalsIgnoreCase("more") && !continuation.file.equalsIgnoreCase(resolveFileName(index, fileArg)))) {
+                return "没有可继续读取的预设内容，请先调用 #getpreset: <文件名>";
+            }
+            return render(playerId, index, continuation.file, continuation.remaining, false);
+        }
+
+        String file = resolveFileName(index, fileArg);
+        if (file == null) {
+            return searchAll(index, query.isEmpty() ? fileArg : query, fileArg);
+        }
+
+        String content = index.contents.get(file);
+        if (content.length() <= WHOLE_FILE_CHARS) {
+            continuations.remove(playerId);
+            return content;
+        }
+
+        List<Chunk> fileChunks = index.byFile.getOrDefault(file, Collections.emptyList());
+        List<String> queryTerms = tokenize(query.isEmpty() ? (fallbackQuery == null ? "" : fallbackQuery) : query);
+        List<Chunk> ranked = rank(index, fileChunks, queryTerms);
+        // 首个片段通常是插件检查与使用前提，首次读取时总是带上
+        if (!fileChunks.isEmpty()) {
+            ranked.remove(fileChunks.get(0));
+            ranked.add(0, fileChunks.get(0));
+        }
+        return render(playerId, index, file, ranked, true);
+    }
+
+    /**
+     * 按 BM25 得分降序排列，得分为 0 的片段按原文顺序排在后面
+     */
+    private static List<Chunk> rank(Snapshot index, List<Chunk> chunks, List<String> queryTerms) {
+        Map<Chunk, Double> scores = new HashMap<>();
+        for (Chunk chunk : chunks) {
+            scores.put(chunk, score(index, chunk, queryTerms));
+        }
+        List<Chunk> ranked = new ArrayList<>(chunks);
+        ranked.sort(Comparator.comparingDouble((Chunk c) -> -scores.get(c)).thenComparingInt(c -> c.ordinal));
+        return ranked;
+    }
+
+    private String render(UUID playerId, Snapshot index, String file, List<Chunk> ranked, boolean firstRead) {
+        List<Chunk> selected = new ArrayList<>();
+        int used = 0;
+        for (Chunk chunk : ranked) {
+            if (!selected.isEmpty() && used + chunk.text.length() > RESPONSE_BUDGET_CHARS) break;
+            selected.add(chunk);
+            used += chunk.text.length();
+        }
+        List<Chunk> remaining = new ArrayList<>(ranked.subList(selected.size(), ranked.size()));
+        if (remaining.isEmpty()) {
+            continuations.remove(playerId);
+        } else {
+            continuations.put(playerId, new Continuation(file, remaining));
+        }
+
+        int total = index.byFile.getOrDefault(file, Collections.emptyList()).size();
+        selected.sort(Comparator.comparingInt(c -> c.ordinal));
+        StringBuilder sb = new StringBuilder();
+        sb.append("预设 ").append(file).append(firstRead ? " 中与问题最相关的片段" : " 的后续片段").append(":\n");
+        for (Chunk chunk : selected) {
+            sb.append("\n[片段 ").append(chunk.ordinal + 1).append('/').append(total).append("]\n");
+            sb.append(chunk.text).append('\n');
+        }
+        if (!remaining.isEmpty()) {
+            sb.append("\n（还有 ").append(remaining.size()).append(" 个片段未显示，如需继续请调用 #getpreset: ")
+                    .append(file).append("|more）");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 文件不存在时，在所有预设中检索与参数最相关的片段
+     */
+    private String searchAll(Snapshot index, String query, String fileArg) {
+        List<String> queryTerms = tokenize(query);
+        List<Chunk> ranked = rank(index, index.chunks, queryTerms);
+        StringBuilder sb = new StringBuilder();
+        int count = 0;
+        for (Chunk chunk : ranked) {
+            if (count >= GLOBAL_RESULTS || score(index, chunk, queryTerms) <= 0) break;
+            sb.append("\n[").append(chunk.file).append(" 片段 ").append(chunk.ordinal + 1).append("]\n").append(chunk.text).append('\n');
+            count++;
+        }
+        if (count == 0) {
+            return "文件不存在";
+        }
+        return "未找到预设文件 " + fileArg + "，以下是所有预设中最相关的片段（可用 #getpreset: <文件名> 读取完整预设）:\n" + sb;
+    }
+
+    /**
+     * 匹配预设文件名：精确匹配、补全 .txt 后缀、忽略大小写
+     */
+    private static String resolveFileName(Snapshot index, String name) {
+        if (name.isEmpty()) return null;
+        if (index.contents.containsKey(name)) return name;
+        for (String file : index.contents.keySet()) {
+            if (file.equalsIgnoreCase(name) || file.equalsIgnoreCase(name + ".txt")) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 玩家退出 CLI 时清理续读状态
+     */
+    public void forget(UUID playerId) {
+        continuations.remove(playerId);
+    }
+}
@@ -53,7 +53,7 @@ public class PromptManager {
 
         // ==================== Core Constraints / 核心约束 ====================
         // 【核心约束】这是系统最重要的约束，违反将导致解析失败，请务必严格遵守：
-        // 1. 【单工具调用】每次回复只能包含一个工具调用
+        // 1. 【工具调用数量】只读工具可在同一回复中调用多个（并行执行、结果一次返回），其余工具每次回复只能调用一个
         // 2. 【单命令执行】#run 工具一次只能执行一条命令，禁止使用 && 或 ; 连接多个命令
         // 3. 【工具位置】工具调用必须另起一行，不得在正文或注释中调用
         // 4. 【格式规范】工具名和冒号之间不要有空格，命令参数不要带斜杠 /
@@ -61,8 +61,10 @@ public class PromptManager {
         // 6. 【禁止猜测命令】没有预设且没有搜索结果时，禁止执行命令，必须先搜索
         sb.append("[Core Constraints] (Violations cause parsing failures — follow strictly)\n\n");
 
-        sb.append("1. [Single Tool Call] Each response may contain ONLY ONE tool call.\n");
-        sb.append("   - For multiple operations: complete the first call, wait for result, then proceed.\n\n");
+        sb.append("1. [Tool Calls] Read-only tools (#read, #list, #grep, #find, #config, #search, #getpreset, #webread) may be combined:\n");
+        sb.append("   put up to 5 of them on separate lines; they run in parallel and all results return in one message.\n");
+        sb.append("   - Any other tool (#run, #edit, #todo, #ask, #remember, #end, ...) must be the ONLY tool call in its response.\n");
+        sb.append("   - For dependent operations: complete the first call, wait for result, then proceed.\n\n");
 
         sb.append("2. [Single Command] #run executes ONE command per call. Chaining with && or ; is prohibited.\n\n");
 
@@ -77,6 +79,7 @@ public class PromptManager {
         // 正确示例 / 错误示例（精简为最典型的两个，避免负面示例过多干扰模型）
         sb.append("Example:\n");
         sb.append("  Correct: #run: give @p apple\n");
+        sb.append("  Correct: #getpreset: coreprotect.txt\\n#grep: rollback|plugins/  (read-only tools together)\n");
         sb.append("  Wrong:   #run: give @p apple && say hello  (chained commands)\n");
         sb.append("  Wrong:   #todo: [...]\\n#run: say hello     (multiple tools in one response)\n\n");
 
@@ -115,7 +118,8 @@ public class PromptManager {
         // #webread: 读取网页内容
         sb.append("[Query]\n");
         sb.append("  #search: <args>      - Internet search (Wiki priority). Add 'widely' to force general web search.\n");
-        sb.append("  #getpreset: <file>   - Read preset file. Always check Available Presets list first.\n");
+        sb.append("  #getpreset: <file>[|keywords]  - Read preset. Always check Available Presets list first.\n");
+        sb.append("    Large presets return only the most relevant sections; call #getpreset: <file>|more to continue.\n");
         sb.append("  #ask: <json>         - Present choices to player. ONE question per call.\n");
         sb.append("    Fields: question (required), header (max 12 chars), options[] (2-4, each: label + description), otherLabel (optional free-input).\n");
         sb.append("    Example: #ask: {\"question\":\"Which database?\",\"options\":[{\"label\":\"MySQL\",\"description\":\"Relational\"},{\"label\":\"MongoDB\",\"description\":\"NoSQL\"}]}\n");
@@ -134,13 +138,22 @@ public class PromptManager {
         // #list: 列出目录内容
         // #read: 读取文件内容，返回带行号的内容，供 #edit 定位使用
         // #edit: 修改文件内容，必须先 #read 获取行号，自动保留缩进和注释
+        // #undo: 撤销本会话中 #edit 对文件的最近一次修改
+        // #grep: 在服务器文本文件中搜索内容，返回 path:line
+        // #find: 按文件名或路径片段查找文件
+        // #config: 按键路径直接定位插件配置项
         sb.append("[File Tools] (Results not visible to players)\n");
         if (plugin.getConfigManager().isPlayerToolEnabled(player, "ls")) {
             sb.append("  #list: <path>    - List directory. Example: #list: plugins/FancyHelper\n");
+            sb.append("  #find: <name>    - Find files by name/path fragment. Example: #find: essentials/config\n");
         }
         if (plugin.getConfigManager().isPlayerToolEnabled(player, "read")) {
             sb.append("  #read: <path> [start-end]  - Read file with line numbers. Example: #read: config.yml 1-50\n");
             sb.append("    Line numbers in output are used to target #edit precisely.\n");
+            sb.append("  #grep: <text>[|path-prefix]  - Search text in server config files, returns path:line. Example: #grep: spawn-protection|server.properties\n");
+            sb.append("    Prefer #grep/#find over repeated #list when you don't know where a setting lives.\n");
+            sb.append("  #config: [plugin | plugin.key.path | key]  - Look up plugin YAML keys: file, line range, current value.\n");
+            sb.append("    Empty = plugin→config file summary; plugin name = its files and top-level keys. Example: #config: essentials.teleport-cooldown\n");
         }
         if (plugin.getConfigManager().isPlayerToolEnabled(player, "edit")) {
             sb.append("  #edit: <path>|<range>|<original>|<replacement>  - Edit file by matching original text.\n");
@@ -149,6 +162,7 @@ public class PromptManager {
             sb.append("    Formats: path|10-10|old|new  OR  path|auto|old|new\n");
             sb.append("    Example: #edit: config.yml|10-10|enabled: true|enabled: false\n");
             sb.append("    Constraint: #edit must be the last part of response. No #end after it.\n");
+            sb.append("  #undo: <path>  - Revert your most recent #edit on this file in this session; refused if that region changed since.\n");
         }
         // 禁止用 #read 访问预设文件，必须用 #getpreset
         sb.append("  Note: Use #getpreset for preset files, NOT #read.\n\n");
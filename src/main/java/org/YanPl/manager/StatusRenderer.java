@@ -0,0 +1,166 @@
+package org.YanPl.manager;
+
+import net.md_5.bungee.api.ChatMessageType;
+import net.md_5.bungee.api.chat.TextComponent;
+import org.YanPl.FancyHelper;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 状态栏渲染器：记录每个玩家上一次发送的状态文本，仅在内容变化或客户端即将淡出时才重新发送，
+ * 并使用单个时间轮统一处理延迟清除，替代每次状态切换都创建一个 runTaskLater。
+ * 所有方法都应在主线程调用。
+ */
+public class StatusRenderer {
+    /**
+     * 时间轮每格对应的 tick 数，需与驱动任务的执行周期一致
+     */
+    public static final long TICKS_PER_SLOT = 5L;
+    private static final int WHEEL_SLOTS = 32;
+
+    /**
+     * Actionbar 在客户端约 60 tick 后开始淡出，提前在 40 tick 时刷新即可保持常亮
+     */
+    static final long ACTIONBAR_REFRESH_TICKS = 40L;
+    /**
+     * Subtitle 以 stay=20 发送，需在其消失前刷新
+     */
+    static final long SUBTITLE_REFRESH_TICKS = 15L;
+    private static final int SUBTITLE_STAY_TICKS = 20;
+
+    private final FancyHelper plugin;
+    private final Map<UUID, Shown> shown = new HashMap<>();
+    private final List<Set<UUID>> wheel = new ArrayList<>(WHEEL_SLOTS);
+    private int cursor = 0;
+    private long currentTick = 0L;
+
+    /**
+     * 玩家当前屏幕上的状态记录
+     */
+    private static class Shown {
+        final Player player;
+        final String text;
+        final boolean subtitle;
+        final long sentAt;
+        long clearAt = -1L;
+
+        Shown(Player player, String text, boolean subtitle, long sentAt) {
+            this.player = player;
+            this.text = text;
+            this.subtitle = subtitle;
+            this.sentAt = sentAt;
+        }
+    }
+
+    public StatusRenderer(FancyHelper plugin) {
+        this.plugin = plugin;
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            wheel.add(new HashSet<>());
+        }
+    }
+
+    /**
+     * 显示状态文本；若与上次发送的内容一致且尚未到刷新时间则不发送
+     * @return 是否实际发送了数据包
+     */
+    public boolean render(Player player, String text) {
+        UUID uuid = player.getUniqueId();
+        boolean subtitle = "subtitle".equalsIgnoreCase(plugin.getConfigManager().getPlayerDisplayPosition(player));
+        Shown last = shown.get(uuid);
+        if (last != null && last.clearAt < 0 && last.subtitle == subtitle && last.text.equals(text)
+                && currentTick - last.sentAt < (subtitle ? SUBTITLE_REFRESH_TICKS : ACTIONBAR_REFRESH_TICKS)) {
+            return false;
+        }
+        send(player, text, subtitle);
+        shown.put(uuid, new Shown(player, text, subtitle, currentTick));
+        return true;
+    }
+
+    /**
+     * 在指定 tick 后清除玩家的状态显示；期间若有新的状态渲染则自动取消
+     */
+    public void scheduleClear(UUID uuid, long delayTicks) {
+        Shown last = shown.get(uuid);
+        if (last == null) return;
+        long slots = Math.max(1L, Math.min(WHEEL_SLOTS - 1, (delayTicks + TICKS_PER_SLOT - 1) / TICKS_PER_SLOT));
+        last.clearAt = currentTick + slots * TICKS_PER_SLOT;
+        wheel.get((int) ((cursor + slots) % WHEEL_SLOTS)).add(uuid);
+    }
+
+    /**
+     * 时间轮前进一格，处理到期的清除请求
+     */
+    public void advance() {
+        currentTick += TICKS_PER_SLOT;
+        cursor = (cursor + 1) % WHEEL_SLOTS;
+        Set<UUID> due = wheel.get(cursor);
+        if (due.isEmpty()) return;
+
+        for (UUID uuid : due) {
+            Shown last = shown.get(uuid);
+            if (last == null || last.clearAt < 0 || last.clearAt > currentTick) continue;
+            shown.remove(uuid);
+            if (last.player.isOnline()) {
+                send(last.player, "", last.subtitle);
+            }
+        }
+        due.clear();
+    }
+
+    /**
+     * 立即清除玩家的状态显示，并取消已安排的清除
+     */
+    public void clear(Player player) {
+        Shown last = shown.remove(player.getUniqueId());
+        boolean subtitle = last != null ? last.subtitle
+                : "subtitle".equalsIgnoreCase(plugin.getConfigManager().getPlayerDisplayPosition(player));
+        send(player, "", subtitle);
+    }
+
+    /**
+     * 玩家进入空闲状态：不再刷新，让客户端自然淡出（已安排的清除保持不变）
+     */
+    public void idle(UUID uuid) {
+        Shown last = shown.get(uuid);
+        if (last != null && last.clearAt < 0) {
+            shown.remove(uuid);
+        }
+    }
+
+    /**
+     * 丢弃玩家的渲染记录（退出 CLI 或下线时调用）
+     */
+    public void forget(UUID uuid) {
+        shown.remove(uuid);
+    }
+
+    /**
+     * 清空所有记录与时间轮
+     */
+    public void reset() {
+        shown.clear();
+        for (Set<UUID> slot : wheel) {
+            slot.clear();
+        }
+    }
+
+    private void send(Player player, String text, boolean subtitle) {
+        if (subtitle) {
+            // 为了保证 subtitle 显示，发送空内容的 title
+            if (text.isEmpty()) {
+                player.sendTitle("", "", 0, 0, 0);
+            } else {
+                player.sendTitle("", text, 0, SUBTITLE_STAY_TICKS, 0);
+            }
+        } else {
+            player.spigot().sendMessage(ChatMessageType.ACTION_BAR, new TextComponent(text));
+        }
+    }
+}
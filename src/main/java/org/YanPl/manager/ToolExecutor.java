@@ -7,19 +7,28 @@ import net.md_5.bungee.api.chat.HoverEvent;
 import net.md_5.bungee.api.chat.TextComponent;
 import net.md_5.bungee.api.chat.hover.content.Text;
 import org.YanPl.FancyHelper;
+import org.YanPl.api.HttpClientRegistry;
 import org.YanPl.model.DialogueSession;
 import org.YanPl.util.ColorUtil;
+import org.YanPl.util.IoExecutor;
+import org.YanPl.util.LineIndex;
+import org.YanPl.util.MetricsRegistry;
+import org.YanPl.util.TickProfiler;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 工具执行器，负责处理 AI 发起的各类工具调用
@@ -29,11 +38,19 @@ public class ToolExecutor {
     private final FancyHelper plugin;
     private final CLIManager cliManager;
     private final RiskAssessmentManager riskAssessmentManager;
+    private final FileEditEngine editEngine;
+
+    /**
+     * 可在同一回复中并行执行的只读工具
+     */
+    private static final Set<String> PARALLEL_SAFE_TOOLS = Set.of(
+            "#read", "#list", "#grep", "#find", "#config", "#search", "#getpreset", "#webread");
 
     public ToolExecutor(FancyHelper plugin, CLIManager cliManager) {
         this.plugin = plugin;
         this.cliManager = cliManager;
         this.riskAssessmentManager = new RiskAssessmentManager(plugin);
+        this.editEngine = new FileEditEngine(plugin);
     }
 
     /**
@@ -93,8 +110,20 @@ public class ToolExecutor {
             case "#edit":
                 handleFileTool(player, "edit", args, session);
                 break;
+            case "#undo":
+                handleFileTool(player, "undo", args, session);
+                break;
+            case "#grep":
+                handleFileTool(player, "grep", args, session);
+                break;
+            case "#find":
+                handleFileTool(player, "find", args, session);
+                break;
+            case "#config":
+                handleFileTool(player, "config", args, session);
+                break;
             case "#getpreset":
-                handleGetTool(player, args);
+                handleGetTool(player, args, session);
                 break;
             
             // 交互工具
@@ -142,6 +171,146 @@ public class ToolExecutor {
         return success;
     }
 
+    /**
+     * 判断工具调用能否与其他只读工具并行执行：
+     * 只读工具无副作用、不需要玩家确认；文件工具还要求已通过首次验证且未被冻结，否则交给单工具流程处理验证
+     */
+    public boolean canRunInBatch(Player player, String toolCall) {
+        String lowerToolName = parseToolCall(toolCall).toolName.toLowerCase();
+        if (!PARALLEL_SAFE_TOOLS.contains(lowerToolName)) {
+            return false;
+        }
+        String type = getFileToolType(lowerToolName);
+        if (type == null) {
+            return true;
+        }
+        return plugin.getVerificationManager().getPlayerFreezeRemaining(player) <= 0
+                && plugin.getConfigManager().isPlayerToolEnabled(player, mapTypeToToolName(type));
+    }
+
+    /**
+     * 在工作线程上并行执行多个只读工具，全部完成后按调用顺序合并结果，一次性反馈给 AI
+     * @param player 玩家
+     * @param toolCalls 已通过 {@link #canRunInBatch} 检查的工具调用
+     * @param session 对话会话
+     * @return 按调用顺序的各工具是否成功，在主线程上、反馈给 AI 之前完成；插件关闭时不会完成
+     */
+    public CompletableFuture<List<Boolean>> executeReadOnlyBatch(Player player, List<String> toolCalls, DialogueSession session) {
+        // 历史记录只在主线程读取
+        String question = getLatestPlayerQuestion(session);
+
+        player.sendMessage(ChatColor.GRAY + "〇 正在并行执行 " + toolCalls.size() + " 个只读工具...");
+        for (String toolCall : toolCalls) {
+            ToolParseResult parseResult = parseToolCall(toolCall);
+            player.sendMessage(ChatColor.GRAY + ">> " + ChatColor.WHITE + parseResult.toolName
+                    + (parseResult.args.isEmpty() ? "" : " " + parseResult.args));
+            if (session != null) {
+                session.appendLog("TOOL_EXECUTION", "Executing tool (parallel): " + toolCall);
+            }
+        }
+        if (session != null) {
+            session.setLastError(null);
+        }
+        cliManager.setGenerating(player.getUniqueId(), false, CLIManager.GenerationStatus.EXECUTING_TOOL);
+
+        CompletableFuture<List<Boolean>> outcomes = new CompletableFuture<>();
+        if (!plugin.isEnabled()) return outcomes;
+
+        String[] results = new String[toolCalls.size()];
+        AtomicInteger remaining = new AtomicInteger(toolCalls.size());
+        // 最后一个完成（或被拒绝）的工具汇总全部结果
+        Runnable complete = () -> {
+            if (remaining.decrementAndGet() > 0 || !plugin.isEnabled()) return;
+
+            StringBuilder feedback = new StringBuilder("#batch_result: 共 ").append(results.length).append(" 个工具的结果（按调用顺序）");
+            Boolean[] succeeded = new Boolean[results.length];
+            for (int j = 0; j < results.length; j++) {
+                feedback.append("\n\n[").append(j + 1).append("] ").append(toolCalls.get(j)).append("\n").append(results[j]);
+                succeeded[j] = !isErrorResult(results[j]);
+            }
+            TickProfiler.runTask(plugin, "tool.batch_feedback", () -> {
+                outcomes.complete(Arrays.asList(succeeded));
+                player.sendMessage(ChatColor.GRAY + "⇒ 反馈已发送至 Fancy");
+                cliManager.feedbackToAI(player, feedback.toString());
+            });
+        };
+        for (int i = 0; i < toolCalls.size(); i++) {
+            final int index = i;
+            plugin.getIoExecutor().execute(() -> {
+                results[index] = computeReadOnlyResult(player, toolCalls.get(index), question);
+                complete.run();
+            }, () -> {
+                results[index] = "#error: " + IoExecutor.QUEUE_FULL_MESSAGE;
+                complete.run();
+            });
+        }
+        return outcomes;
+    }
+
+    /**
+     * 判断 {@link #computeReadOnlyResult} 的反馈是否表示工具执行失败
+     */
+    static boolean isErrorResult(String result) {
+        if (result.startsWith("#error:")) return true;
+        int separator = result.indexOf("_result: ");
+        if (separator < 0) return false;
+        String body = result.substring(separator + "_result: ".length());
+        return body.startsWith("错误") || body.startsWith("error");
+    }
+
+    /**
+     * 在工作线程上同步执行单个只读工具并返回反馈文本（格式与单独调用时一致）
+     */
+    String computeReadOnlyResult(Player player, String toolCall, String question) {
+        ToolParseResult parseResult = parseToolCall(toolCall);
+        String lowerToolName = parseResult.toolName.toLowerCase();
+        String args = parseResult.args;
+        String fileType = getFileToolType(lowerToolName);
+        String resultName = fileType != null ? fileType : ("#getpreset".equals(lowerToolName) ? "get" : lowerToolName.substring(1));
+
+        try {
+            if (fileType != null) {
+                if ("read".equals(fileType)) {
+                    String presetName = getPresetFileName(args);
+                    if (presetName != null) {
+                        return "#read_result: 错误 - 预设文件请使用 #getpreset: " + presetName;
+                    }
+                }
+                return "#" + resultName + "_result: " + executeFileOperationInternal(player.getUniqueId(), Bukkit.getWorldContainer(), fileType, args);
+            }
+            switch (lowerToolName) {
+                case "#getpreset":
+                    return "#get_result: " + plugin.getPresetIndex().get(player.getUniqueId(), args, question);
+                case "#search":
+                    return "#search_result: " + performSearch(args);
+                case "#webread":
+                    if (args.trim().isEmpty()) {
+                        return "#webread_result: error - 需要提供URL参数，例如 #webread: https://example.com";
+                    }
+                    return "#webread_result: " + fetchWebPage(cleanWebReadUrl(args));
+                default:
+                    return "#error: 工具 " + parseResult.toolName + " 不能并行执行";
+            }
+        } catch (Exception e) {
+            plugin.getCloudErrorReport().report(e);
+            return "#" + resultName + "_result: 错误 - " + e.getMessage();
+        }
+    }
+
+    /**
+     * 将文件类工具名映射为内部文件操作类型，非文件工具返回 null
+     */
+    private static String getFileToolType(String lowerToolName) {
+        return switch (lowerToolName) {
+            case "#list" -> "ls";
+            case "#read" -> "read";
+            case "#grep" -> "grep";
+            case "#find" -> "find";
+            case "#config" -> "config";
+            default -> null;
+        };
+    }
+
     /**
      * 工具调用解析结果
      */
@@ -207,12 +376,16 @@ public class ToolExecutor {
                 player.sendMessage(ChatColor.GRAY + "原始内容: " + ChatColor.WHITE + parts[2]);
                 player.sendMessage(ChatColor.GRAY + "修改为: " + ChatColor.WHITE + parts[3]);
             }
+        } else if (lowerToolName.equals("#undo")) {
+            player.sendMessage(ChatColor.GRAY + "〇 正在撤销修改: " + ChatColor.WHITE + args.trim());
         } else if (lowerToolName.equals("#exit")) {
             player.sendMessage(ChatColor.GRAY + "〇 Exiting...");
         } else if (!lowerToolName.equals("#search") && !lowerToolName.equals("#run") && 
             !lowerToolName.equals("#end") && !lowerToolName.equals("#list") && 
             !lowerToolName.equals("#read") && !lowerToolName.equals("#todo") &&
-            !lowerToolName.equals("#getpreset") && !lowerToolName.equals("#webread")) {
+            !lowerToolName.equals("#getpreset") && !lowerToolName.equals("#webread") &&
+            !lowerToolName.equals("#grep") && !lowerToolName.equals("#find") &&
+            !lowerToolName.equals("#config")) {
             // 对 #webread 隐藏此显示，因为 #webread 会在 executeWebReader 中显示更详细的信息
             player.sendMessage(ChatColor.GRAY + "〇 " + toolName);
         }
@@ -240,11 +413,11 @@ public class ToolExecutor {
             player.sendMessage(ChatColor.GRAY + "⁕ 正在评估操作风险...");
             cliManager.setGenerating(uuid, false, CLIManager.GenerationStatus.THINKING);
             
-            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            plugin.getIoExecutor().execute(() -> {
                 RiskAssessmentManager.RiskAssessment assessment = 
                     riskAssessmentManager.assessRisk("run", cleanCommand);
                 
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "tool.smart_risk", () -> {
                     int threshold = plugin.getConfigManager().getSmartRiskThreshold();
                     if (assessment.level >= threshold) {
                         cliManager.sendSmartRiskConfirm(player, "run", cleanCommand, assessment);
@@ -254,6 +427,15 @@ public class ToolExecutor {
                         executeCommand(player, cleanCommand);
                     }
                 });
+            }, () -> {
+                // 无法评估风险时按普通模式要求玩家确认
+                if (!plugin.isEnabled()) return;
+                TickProfiler.runTask(plugin, "tool.smart_risk", () -> {
+                    player.sendMessage(ChatColor.YELLOW + "⨀ " + IoExecutor.QUEUE_FULL_MESSAGE + "，请手动确认该命令");
+                    cliManager.setPendingCommand(uuid, cleanCommand);
+                    cliManager.setGenerating(uuid, false, CLIManager.GenerationStatus.WAITING_CONFIRM);
+                    sendConfirmButtons(player, cleanCommand);
+                });
             });
             return true;
         }
@@ -316,36 +498,34 @@ public class ToolExecutor {
     }
 
     /**
-     * 处理文件工具 (#ls, #read, #edit)
+     * 处理文件工具 (#ls, #read, #edit, #undo, #grep, #find, #config)
      */
     private void handleFileTool(Player player, String type, String args, DialogueSession session) {
         UUID uuid = player.getUniqueId();
 
         if ("read".equals(type)) {
-            String pathArg = args == null ? "" : args.trim();
-            String[] parts = pathArg.split("\\s+");
-            String path = parts.length > 0 ? parts[0] : "";
-            try {
-                String cleaned = path.startsWith("/") || path.startsWith("\\") ? path.substring(1) : path;
-                java.io.File worldRoot = org.bukkit.Bukkit.getWorldContainer();
-                java.io.File target = new java.io.File(worldRoot, cleaned).getCanonicalFile();
-                java.io.File presetDir = new java.io.File(plugin.getDataFolder(), "preset").getCanonicalFile();
-                if (target.getPath().startsWith(presetDir.getPath() + java.io.File.separator) || target.equals(presetDir)) {
-                    String name = target.getName();
-                    player.sendMessage(org.bukkit.ChatColor.YELLOW + "提示: 预设文件请使用 #getpreset: " + name);
-                    cliManager.feedbackToAI(player, "#read_result: 错误 - 预设文件请使用 #getpreset: " + name);
-                    return;
-                }
-            } catch (Exception ignored) {}
+            String presetName = getPresetFileName(args);
+            if (presetName != null) {
+                player.sendMessage(org.bukkit.ChatColor.YELLOW + "提示: 预设文件请使用 #getpreset: " + presetName);
+                cliManager.feedbackToAI(player, "#read_result: 错误 - 预设文件请使用 #getpreset: " + presetName);
+                return;
+            }
         }
 
-        // #ls 和 #read 不需要确认，直接执行
-        if ("ls".equals(type) || "read".equals(type)) {
+        // #ls、#read、#grep、#find 和 #config 不需要确认，直接执行
+        if ("ls".equals(type) || "read".equals(type) || "grep".equals(type) || "find".equals(type)
+                || "config".equals(type)) {
             // 显示工具调用信息
-            String displayType = type.equals("ls") ? "ListDir" : "ReadFile";
+            String displayType = switch (type) {
+                case "ls" -> "ListDir";
+                case "grep" -> "Grep";
+                case "find" -> "FindFile";
+                case "config" -> "ConfigKey";
+                default -> "ReadFile";
+            };
             String pathArg = args == null ? "" : args.trim();
             String[] parts = pathArg.split("\\s+");
-            String displayPath = parts.length > 0 ? parts[0] : "";
+            String displayPath = "grep".equals(type) || "find".equals(type) || "config".equals(type) ? pathArg : (parts.length > 0 ? parts[0] : "");
             player.sendMessage(ChatColor.GRAY + ">> " + ChatColor.WHITE + displayType + " " + displayPath);
 
             // 检查是否被冻结
@@ -372,7 +552,7 @@ public class ToolExecutor {
             return;
         }
 
-        // #edit 需要确认（YOLO模式除外，SMART模式也不特殊处理，与NORMAL一致）
+        // #edit 与 #undo 需要确认（YOLO模式除外，SMART模式也不特殊处理，与NORMAL一致）
         if (session != null && session.getMode() == DialogueSession.Mode.YOLO) {
             String pendingStr = type.toUpperCase() + ":" + args;
             cliManager.setPendingCommand(uuid, pendingStr);
@@ -388,6 +568,25 @@ public class ToolExecutor {
         sendConfirmButtons(player, "");
     }
 
+    /**
+     * 若 #read 的目标位于预设目录内，返回预设文件名，否则返回 null
+     */
+    private String getPresetFileName(String args) {
+        String pathArg = args == null ? "" : args.trim();
+        String[] parts = pathArg.split("\\s+");
+        String path = parts.length > 0 ? parts[0] : "";
+        try {
+            String cleaned = path.startsWith("/") || path.startsWith("\\") ? path.substring(1) : path;
+            java.io.File worldRoot = org.bukkit.Bukkit.getWorldContainer();
+            java.io.File target = new java.io.File(worldRoot, cleaned).getCanonicalFile();
+            java.io.File presetDir = new java.io.File(plugin.getDataFolder(), "preset").getCanonicalFile();
+            if (target.getPath().startsWith(presetDir.getPath() + java.io.File.separator) || target.equals(presetDir)) {
+                return target.getName();
+            }
+        } catch (Exception ignored) {}
+        return null;
+    }
+
     /**
      * 发送确认按钮
      */
@@ -412,20 +611,27 @@ public class ToolExecutor {
         player.spigot().sendMessage(message);
     }
 
+    /**
+     * 清除玩家在本会话中的撤销记录
+     */
+    public void forget(UUID uuid) {
+        editEngine.forget(uuid);
+    }
+
     /**
      * 执行文件操作
      */
     public void executeFileOperation(Player player, String type, String args) {
         if (!plugin.isEnabled()) return;
         
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getIoExecutor().execute(() -> {
             try {
                 File root = Bukkit.getWorldContainer();
-                String result = executeFileOperationInternal(root, type, args);
+                String result = executeFileOperationInternal(player.getUniqueId(), root, type, args);
 
                 final String finalResult = result;
                 if (!plugin.isEnabled()) return;
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "tool.file_result", () -> {
                     player.sendMessage(ChatColor.GRAY + "⇒ 反馈已发送至 Fancy");
                     displayFileOperationResult(player, type, finalResult);
                     cliManager.feedbackToAI(player, "#" + type + "_result: " + finalResult);
@@ -433,17 +639,36 @@ public class ToolExecutor {
             } catch (Exception e) {
                 plugin.getCloudErrorReport().report(e);
                 if (!plugin.isEnabled()) return;
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "tool.file_result", () -> {
                     cliManager.feedbackToAI(player, "#" + type + "_result: 错误 - " + e.getMessage());
                 });
             }
+        }, () -> feedbackRejected(player, type));
+    }
+
+    /**
+     * 工具的 I/O 任务未被执行时，在下一 tick 向 AI 反馈错误结果，避免会话一直等待
+     */
+    private void feedbackRejected(Player player, String resultName) {
+        if (!plugin.isEnabled()) return;
+        TickProfiler.runTask(plugin, "tool.io_rejected", () -> {
+            player.sendMessage(ChatColor.RED + "⨀ " + IoExecutor.QUEUE_FULL_MESSAGE);
+            cliManager.feedbackToAI(player, "#" + resultName + "_result: 错误 - " + IoExecutor.QUEUE_FULL_MESSAGE);
         });
     }
 
     /**
      * 执行文件操作的内部逻辑
      */
-    private String executeFileOperationInternal(File root, String type, String args) throws IOException {
+    private String executeFileOperationInternal(UUID owner, File root, String type, String args) throws IOException {
+        if (type.equals("grep")) {
+            return plugin.getWorkspaceSearchIndex().grep(args);
+        } else if (type.equals("find")) {
+            return plugin.getWorkspaceSearchIndex().find(args);
+        } else if (type.equals("config")) {
+            return plugin.getConfigKeyIndex().query(args);
+        }
+
         String pathArg = args.trim();
         if (pathArg.startsWith("/") || pathArg.startsWith("\\")) {
             pathArg = pathArg.substring(1);
@@ -454,7 +679,9 @@ public class ToolExecutor {
         } else if (type.equals("read")) {
             return executeReadOperation(root, pathArg);
         } else if (type.equals("edit")) {
-            return executeDiffOperation(root, pathArg);
+            return executeDiffOperation(owner, root, pathArg);
+        } else if (type.equals("undo")) {
+            return executeUndoOperation(owner, root, pathArg);
         }
 
         return "错误: 未知操作类型";
@@ -535,33 +762,31 @@ public class ToolExecutor {
         if (file.isDirectory()) {
             return "错误: 这是一个目录，请使用 #ls";
         }
-        if (file.length() > 1024 * 1024) {
-            return "错误: 文件过大 (" + (file.length() / 1024) + "KB)，无法读取。";
+
+        // 通过行偏移索引直接定位起始行，大文件（如 latest.log）也无需从头扫描
+        int maxLines = 2000;
+        LineIndex index = plugin.getLineIndexCache().get(file.toPath());
+        int firstLine = Math.max(1, startLine);
+        int lastLine = endLine == -1 ? index.getLineCount() : Math.min(endLine, index.getLineCount());
+        if (firstLine > lastLine) {
+            return "";
+        }
+        int wanted = lastLine - firstLine + 1;
+
+        List<String> lines;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            lines = index.readLines(channel, firstLine, Math.min(wanted, maxLines));
         }
 
         StringBuilder content = new StringBuilder();
-        try (java.io.BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
-            String line;
-            int currentLine = 1;
-            int maxLines = 2000;
-            int readCount = 0;
-            
-            while ((line = reader.readLine()) != null) {
-                boolean inRange = true;
-                if (currentLine < startLine) inRange = false;
-                if (endLine != -1 && currentLine > endLine) inRange = false;
-
-                if (inRange) {
-                    if (readCount >= maxLines) {
-                        content.append("\n... (内容过长，已截断显示 " + maxLines + " 行) ...");
-                        break;
-                    }
-                    // 添加行号前缀，格式：行号: 内容
-                    content.append(currentLine).append(": ").append(line).append("\n");
-                    readCount++;
-                }
-                currentLine++;
-            }
+        int currentLine = firstLine;
+        for (String line : lines) {
+            // 添加行号前缀，格式：行号: 内容
+            content.append(currentLine).append(": ").append(line).append("\n");
+            currentLine++;
+        }
+        if (wanted > maxLines && lines.size() == maxLines) {
+            content.append("\n... (内容过长，已截断显示 " + maxLines + " 行) ...");
         }
         return content.toString();
     }
@@ -571,7 +796,7 @@ public class ToolExecutor {
      * 在给定行号范围内查找旧内容，如果找到多个匹配则拒绝操作
      * 支持自动搜索模式：range 可以是 "auto" 或省略（使用 "auto"）
      */
-    private String executeDiffOperation(File root, String pathArg) throws IOException {
+    private String executeDiffOperation(UUID owner, File root, String pathArg) throws IOException {
         String[] editParts = pathArg.split("\\|", 4);
         
         // 支持3种格式：
@@ -642,20 +867,26 @@ public class ToolExecutor {
             return "错误: 文件不存在";
         }
 
-        // 读取文件内容
-        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        if (file.isDirectory()) {
+            return "错误: 这是一个目录，无法编辑";
+        }
+
+        // 通过行索引定位，只解码匹配窗口内的行，不将整个文件读入内存
+        Path filePath = file.toPath();
+        LineIndex index = plugin.getLineIndexCache().get(filePath);
+        int totalLines = index.getLineCount();
         
         // 自动搜索模式下，搜索整个文件
         if (autoSearch) {
             startLine = 1;
-            endLine = lines.size();
+            endLine = totalLines;
         } else {
             // 验证行号范围
-            if (startLine < 1 || startLine > lines.size()) {
-                return "错误: 起始行号无效 (文件总行数: " + lines.size() + ")";
+            if (startLine < 1 || startLine > totalLines) {
+                return "错误: 起始行号无效 (文件总行数: " + totalLines + ")";
             }
-            if (endLine > lines.size()) {
-                endLine = lines.size();
+            if (endLine > totalLines) {
+                endLine = totalLines;
             }
             if (startLine > endLine) {
                 return "错误: 起始行号不能大于结束行号";
@@ -671,33 +902,14 @@ public class ToolExecutor {
             originalLines[j] = removeLineNumberPrefix(originalLines[j]);
         }
         
-        // 在给定行号范围内查找所有匹配位置
-        List<Integer> matchPositions = new java.util.ArrayList<>();
-        
         // 计算搜索范围：从 startLine 到 endLine - originalLineCount + 1
         int searchEndLine = endLine - originalLineCount + 1;
         if (searchEndLine < startLine) {
             searchEndLine = startLine;
         }
         
-        for (int i = startLine - 1; i <= searchEndLine - 1 && i < lines.size(); i++) {
-            boolean match = true;
-            for (int j = 0; j < originalLineCount; j++) {
-                int fileLineIndex = i + j;
-                if (fileLineIndex >= lines.size()) {
-                    match = false;
-                    break;
-                }
-                // 使用包含匹配：文件行包含 AI 提供的内容即可
-                if (!lines.get(fileLineIndex).contains(originalLines[j])) {
-                    match = false;
-                    break;
-                }
-            }
-            if (match) {
-                matchPositions.add(i); // 记录匹配的起始行索引（0-based）
-            }
-        }
+        // 在给定行号范围内查找所有匹配位置（1-based 起始行号）
+        List<Integer> matchPositions = editEngine.findMatches(filePath, index, startLine, searchEndLine, originalLines);
         
         // 根据匹配结果处理
         if (matchPositions.isEmpty()) {
@@ -708,16 +920,13 @@ public class ToolExecutor {
                        "提示：请提供更简短的关键内容（如 'enabled: true' 而不是整行）";
             } else {
                 // 构建实际内容用于显示
-                StringBuilder rangeContent = new StringBuilder();
-                for (int i = startLine - 1; i < endLine; i++) {
-                    rangeContent.append(lines.get(i));
-                    if (i < endLine - 1) {
-                        rangeContent.append("\n");
-                    }
+                List<String> rangeLines;
+                try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+                    rangeLines = index.readLines(channel, startLine, endLine - startLine + 1);
                 }
                 return "错误: 在给定行号范围 " + rangeStr + " 内未找到包含指定内容的行\n" +
                        "查找内容: " + original + "\n" +
-                       "行号范围内的实际内容:\n" + rangeContent.toString() + "\n" +
+                       "行号范围内的实际内容:\n" + String.join("\n", rangeLines) + "\n" +
                        "提示：请提供更简短的关键内容（如 'enabled: true' 而不是整行）";
             }
         } else if (matchPositions.size() > 1) {
@@ -732,7 +941,7 @@ public class ToolExecutor {
             sb.append("匹配位置: ");
             for (int i = 0; i < matchPositions.size(); i++) {
                 if (i > 0) sb.append(", ");
-                int matchStartLine = matchPositions.get(i) + 1; // 转换为 1-based
+                int matchStartLine = matchPositions.get(i);
                 int matchEndLine = matchStartLine + originalLineCount - 1;
                 if (matchStartLine == matchEndLine) {
                     sb.append("第 ").append(matchStartLine).append(" 行");
@@ -740,27 +949,27 @@ public class ToolExecutor {
                     sb.append("第 ").append(matchStartLine).append("-").append(matchEndLine).append(" 行");
                 }
             }
-            sb.append("\n请使用更具体的行号范围（如 ").append(matchPositions.get(0) + 1).append("-")
-              .append(matchPositions.get(0) + originalLineCount).append("）来唯一确定要替换的位置。");
+            sb.append("\n请使用更具体的行号范围（如 ").append(matchPositions.get(0)).append("-")
+              .append(matchPositions.get(0) + originalLineCount - 1).append("）来唯一确定要替换的位置。");
             return sb.toString();
         }
         
         // 只有一个匹配，执行替换
-        int matchStartIndex = matchPositions.get(0);
-        int matchEndIndex = matchStartIndex + originalLineCount;
-        
-        // 替换内容
-        List<String> newLines = new java.util.ArrayList<>();
-        
-        // 复制匹配位置之前的行
-        for (int i = 0; i < matchStartIndex; i++) {
-            newLines.add(lines.get(i));
+        int matchStartLine = matchPositions.get(0);
+        List<String> matchedLines;
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            matchedLines = index.readLines(channel, matchStartLine, originalLineCount);
+        }
+        if (matchStartLine == 1 && !matchedLines.isEmpty() && matchedLines.get(0).startsWith("\uFEFF")) {
+            // BOM 由编辑引擎原样保留，这里不参与替换
+            matchedLines.set(0, matchedLines.get(0).substring(1));
         }
         
         // 插入修改后的内容（保留缩进和注释）
+        List<String> newLines = new java.util.ArrayList<>();
         String[] replacementLines = replacement.split("\n");
         for (int j = 0; j < originalLineCount; j++) {
-            String originalLine = lines.get(matchStartIndex + j);
+            String originalLine = matchedLines.get(j);
             String newLine;
             
             if (j < replacementLines.length) {
@@ -768,11 +977,6 @@ public class ToolExecutor {
                 String indent = extractIndent(originalLine);
                 String comment = extractComment(originalLine);
                 
-                int textEndPos = originalLine.indexOf('#');
-                if (textEndPos == -1) {
-                    textEndPos = originalLine.length();
-                }
-                
                 // 构建新行：缩进 + 新内容 + 注释
                 newLine = indent + replacementLines[j];
                 if (!comment.isEmpty()) {
@@ -790,17 +994,12 @@ public class ToolExecutor {
             newLines.add(replacementLines[j]);
         }
         
-        // 复制匹配位置之后的行
-        for (int i = matchEndIndex; i < lines.size(); i++) {
-            newLines.add(lines.get(i));
-        }
-        
-        // 写入文件
-        Files.write(file.toPath(), newLines, StandardCharsets.UTF_8);
+        // 写入临时文件后原子替换，窗口外的内容按字节原样复制
+        editEngine.replaceLines(owner, filePath, index, matchStartLine, originalLineCount, newLines);
         
         // 返回修改前后的对比
-        int actualStartLine = matchStartIndex + 1;
-        int actualEndLine = matchEndIndex;
+        int actualStartLine = matchStartLine;
+        int actualEndLine = matchStartLine + originalLineCount - 1;
         StringBuilder result = new StringBuilder();
         result.append("成功修改文件: ").append(path).append("\n");
         result.append("行号范围: ").append(actualStartLine).append("-").append(actualEndLine).append("\n");
@@ -810,6 +1009,26 @@ public class ToolExecutor {
         return result.toString();
     }
 
+    /**
+     * 执行 undo 操作：撤销该玩家通过 #edit 对该文件的最近一次修改
+     */
+    private String executeUndoOperation(UUID owner, File root, String path) throws IOException {
+        if (path.isEmpty()) {
+            return "错误: #undo 需要提供文件路径，格式：#undo: path";
+        }
+        File file = new File(root, path);
+        if (!isWithinRoot(root, file)) {
+            return "错误: 路径超出服务器目录限制";
+        }
+        if (!file.isFile()) {
+            return "错误: 文件不存在";
+        }
+        if (!editEngine.undoLast(owner, file.toPath())) {
+            return "错误: 没有可撤销的修改，或被修改的区域之后又有变动";
+        }
+        return "已撤销对文件 " + path + " 的最近一次修改";
+    }
+
     /**
      * 检查路径是否在根目录内
      */
@@ -838,6 +1057,10 @@ public class ToolExecutor {
             player.sendMessage(ChatColor.GRAY + "〇 已获取目录列表。");
         } else if (type.equals("read")) {
             player.sendMessage(ChatColor.GRAY + "〇 已读取文件内容 (" + (result.length() / 1024.0) + "KB)。");
+        } else if (type.equals("grep") || type.equals("find") || type.equals("config")) {
+            player.sendMessage(ChatColor.GRAY + "〇 " + result.split("\n", 2)[0]);
+        } else if (type.equals("undo")) {
+            player.sendMessage(ChatColor.GRAY + "〇 已撤销最近一次修改。");
         } else if (type.equals("edit")) {
             player.sendMessage(ChatColor.GRAY + "〇 已成功修改文件。");
             if (result.contains("修改前:\n") && result.contains("修改后:\n")) {
@@ -865,13 +1088,14 @@ public class ToolExecutor {
      * 执行服务器命令
      */
     public void executeCommand(Player player, String command) {
+        long captureStart = System.nanoTime();
         if (plugin.getPacketCaptureManager() != null) {
             plugin.getPacketCaptureManager().startCapture(player);
         }
 
         if (!plugin.isEnabled()) return;
         
-        Bukkit.getScheduler().runTask(plugin, () -> {
+        TickProfiler.runTask(plugin, "tool.run_dispatch", () -> {
             StringBuilder output = new StringBuilder();
             String cmdName = command.split(" ")[0].toLowerCase();
             if (cmdName.startsWith("/")) cmdName = cmdName.substring(1);
@@ -891,7 +1115,7 @@ public class ToolExecutor {
             if (!plugin.isEnabled()) return;
             
             // 延迟 1 秒 (20 ticks) 检查反馈
-            Bukkit.getScheduler().runTaskLater(plugin, () -> {
+            TickProfiler.runTaskLater(plugin, "tool.run_capture", () -> {
                 String currentPacketOutput = "";
                 String currentProxyOutput = output.toString();
                 boolean hasOutput = false;
@@ -918,6 +1142,7 @@ public class ToolExecutor {
                         }
                     }
                     String finalResult = buildCommandResult(command, finalPacketOutput, currentProxyOutput, finalSuccess);
+                    recordCaptureWait(captureStart, "first_check");
                     player.sendMessage(ChatColor.GRAY + "⇒ 反馈已发送至 Fancy");
                     cliManager.feedbackToAI(player, "#run_result: " + finalResult);
                     return;
@@ -926,13 +1151,14 @@ public class ToolExecutor {
                 // 如果没有输出，延长等待 5 秒 (100 ticks)
                 player.sendMessage(ChatColor.GRAY + "⇒ 暂无反馈，延长等待 5秒...");
                 
-                Bukkit.getScheduler().runTaskLater(plugin, () -> {
+                TickProfiler.runTaskLater(plugin, "tool.run_capture", () -> {
                     String delayedPacketOutput = "";
                     if (plugin.getPacketCaptureManager() != null) {
                         delayedPacketOutput = plugin.getPacketCaptureManager().stopCapture(player);
                     }
                     
                     String finalResult = buildCommandResult(command, delayedPacketOutput, output.toString(), finalSuccess);
+                    recordCaptureWait(captureStart, "extended");
                     player.sendMessage(ChatColor.GRAY + "⇒ 反馈已发送至 Fancy");
                     cliManager.feedbackToAI(player, "#run_result: " + finalResult);
                 }, 100L);
@@ -941,6 +1167,17 @@ public class ToolExecutor {
         });
     }
 
+    /**
+     * 记录命令从下发到输出捕获结束的等待时间
+     * @param outcome first_check 表示首次检查即有反馈，extended 表示延长等待后才结束
+     */
+    private void recordCaptureWait(long captureStart, String outcome) {
+        MetricsRegistry metrics = plugin.getMetrics();
+        if (metrics != null) {
+            metrics.observeNanos(MetricsRegistry.CAPTURE_WAIT_SECONDS, System.nanoTime() - captureStart, "outcome", outcome);
+        }
+    }
+
     /**
      * 构建命令执行结果
      */
@@ -1145,24 +1382,31 @@ public class ToolExecutor {
     /**
      * 处理 #getpreset 工具
      */
-    private void handleGetTool(Player player, String fileName) {
-        // 显示正在读取预设的信息
-        player.sendMessage(ChatColor.GRAY + "〇 正在读取预设...");
-        cliManager.setGenerating(player.getUniqueId(), false, CLIManager.GenerationStatus.EXECUTING_TOOL);
-        
-        File presetFile = new File(plugin.getDataFolder(), "preset/" + fileName);
-        if (!presetFile.exists()) {
-            cliManager.feedbackToAI(player, "#get_result: 文件不存在");
-            return;
+    private void handleGetTool(Player player, String args, DialogueSession session) {
+        try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "tool.get")) {
+            // 显示正在读取预设的信息
+            player.sendMessage(ChatColor.GRAY + "〇 正在读取预设...");
+            cliManager.setGenerating(player.getUniqueId(), false, CLIManager.GenerationStatus.EXECUTING_TOOL);
+
+            // 预设已在内存中建立片段索引，只返回与玩家最近提问相关的片段
+            String result = plugin.getPresetIndex().get(player.getUniqueId(), args, getLatestPlayerQuestion(session));
+            cliManager.feedbackToAI(player, "#get_result: " + result);
         }
+    }
 
-        try {
-            List<String> lines = Files.readAllLines(presetFile.toPath());
-            String content = String.join("\n", lines);
-            cliManager.feedbackToAI(player, "#get_result: " + content);
-        } catch (IOException e) {
-            cliManager.feedbackToAI(player, "#get_result: 读取文件失败 - " + e.getMessage());
+    /**
+     * 获取玩家最近一次的提问（跳过以 # 开头的工具结果反馈）
+     */
+    private String getLatestPlayerQuestion(DialogueSession session) {
+        if (session == null) return "";
+        List<DialogueSession.Message> history = session.getHistory();
+        for (int i = history.size() - 1; i >= 0; i--) {
+            DialogueSession.Message message = history.get(i);
+            if ("user".equals(message.getRole()) && !message.getContent().startsWith("#")) {
+                return message.getContent();
+            }
         }
+        return "";
     }
 
     /**
@@ -1288,122 +1532,20 @@ public class ToolExecutor {
 
         if (!plugin.isEnabled()) return;
         
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            String result;
-            if (query.toLowerCase().contains("widely")) {
-                result = performWideSearch(query);
-            } else {
-                result = performWikiSearch(query, player);
-            }
-
-            final String finalResult = result;
+        plugin.getIoExecutor().execute(() -> {
+            final String finalResult = performSearch(query);
             if (!plugin.isEnabled()) return;
-            Bukkit.getScheduler().runTask(plugin, () -> {
+            TickProfiler.runTask(plugin, "tool.search_result", () -> {
                 cliManager.feedbackToAI(player, "#search_result: " + finalResult);
             });
-        });
-    }
-
-    /**
-     * 执行全网搜索
-     */
-    private String performWideSearch(String query) {
-        String q = query.replace("widely", "").trim();
-        if (plugin.getMetasoAPI().isAvailable()) {
-            return plugin.getMetasoAPI().search(q);
-        } else if (plugin.getConfigManager().isTavilyEnabled()) {
-            return plugin.getTavilyAPI().search(q);
-        }
-        return "搜索服务不可用，请在配置文件中启用 Metaso API 或 Tavily API。";
-    }
-
-    /**
-     * 执行 Wiki 搜索
-     */
-    private String performWikiSearch(String query, Player player) {
-        String result = fetchWikiResult(query);
-        if (result.equals("未找到相关 Wiki 条目。")) {
-            // 在主线程发送消息
-            if (plugin.isEnabled()) {
-                Bukkit.getScheduler().runTask(plugin, () -> {
-                    player.sendMessage(ChatColor.GRAY + "〇 Wiki 无结果，正在尝试全网搜索...");
-                });
-            }
-            if (plugin.getMetasoAPI().isAvailable()) {
-                return plugin.getMetasoAPI().search(query);
-            } else if (plugin.getConfigManager().isTavilyEnabled()) {
-                return plugin.getTavilyAPI().search(query);
-            }
-            return "搜索服务不可用，请在配置文件中启用 Metaso API 或 Tavily API。";
-        }
-        return result;
-    }
-
-    /**
-     * 调用 Minecraft Wiki 公开 API 搜索
-     */
-    private String fetchWikiResult(String query) {
-        try {
-            String url = "https://zh.minecraft.wiki/api.php?action=query&list=search&srsearch=" +
-                         java.net.URLEncoder.encode(query, "UTF-8") + "&format=json&utf8=1";
-
-            java.net.http.HttpClient httpClient = java.net.http.HttpClient.newBuilder()
-                    .connectTimeout(java.time.Duration.ofSeconds(10))
-                    .build();
-
-            java.net.http.HttpRequest request = java.net.http.HttpRequest.newBuilder()
-                    .uri(java.net.URI.create(url))
-                    .timeout(java.time.Duration.ofSeconds(10))
-                    .GET()
-                    .build();
-
-            java.net.http.HttpResponse<String> response = httpClient.send(request, java.net.http.HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                com.google.gson.JsonObject json = com.google.gson.JsonParser.parseString(response.body()).getAsJsonObject();
-                
-                if (!json.has("query") || json.get("query").isJsonNull()) {
-                    return "未找到相关 Wiki 条目。";
-                }
-                
-                com.google.gson.JsonObject queryObj = json.getAsJsonObject("query");
-                if (!queryObj.has("search") || queryObj.get("search").isJsonNull()) {
-                    return "未找到相关 Wiki 条目。";
-                }
-                
-                com.google.gson.JsonArray searchResults = queryObj.getAsJsonArray("search");
-
-                if (searchResults.size() > 0) {
-                    StringBuilder sb = new StringBuilder("Minecraft Wiki 搜索结果：\n");
-                    for (int i = 0; i < Math.min(3, searchResults.size()); i++) {
-                        com.google.gson.JsonObject item = searchResults.get(i).getAsJsonObject();
-                        
-                        String title = getStringField(item, "title");
-                        String snippet = getStringField(item, "snippet").replaceAll("<[^>]*>", "");
-                        
-                        sb.append("- ").append(title).append(": ").append(snippet).append("\n");
-                    }
-                    return sb.toString();
-                }
-            }
-        } catch (Exception e) {
-            return "Wiki 搜索出错: " + e.getMessage();
-        }
-        return "未找到相关 Wiki 条目。";
+        }, () -> feedbackRejected(player, "search"));
     }
 
-
-
     /**
-     * 从 JSON 对象中获取字符串字段
+     * 执行搜索：并发查询 Wiki、Metaso 与 Tavily 并合并结果；包含 widely 关键词时跳过 Wiki
      */
-    private String getStringField(com.google.gson.JsonObject item, String... fieldNames) {
-        for (String field : fieldNames) {
-            if (item.has(field) && !item.get(field).isJsonNull()) {
-                return item.get(field).getAsString();
-            }
-        }
-        return "";
+    private String performSearch(String query) {
+        return plugin.getSearchAggregator().search(query);
     }
 
     /**
@@ -1549,7 +1691,14 @@ public class ToolExecutor {
             return;
         }
 
-        // 清理URL，去除可能的Markdown格式和其他无关字符
+        // 直接执行网页阅读，不需要验证
+        executeWebReader(player, cleanWebReadUrl(args));
+    }
+
+    /**
+     * 清理URL，去除可能的Markdown格式和其他无关字符
+     */
+    private String cleanWebReadUrl(String args) {
         String url = args.trim();
         
         // 去除反引号
@@ -1563,10 +1712,7 @@ public class ToolExecutor {
         url = url.replaceAll("^['\"](.*)['\"]$", "$1");
         
         // 再次修剪空格
-        url = url.trim();
-
-        // 直接执行网页阅读，不需要验证
-        executeWebReader(player, url);
+        return url.trim();
     }
 
     /**
@@ -1576,24 +1722,24 @@ public class ToolExecutor {
         // 显示工具调用信息
         player.sendMessage(ChatColor.GRAY + ">> " + ChatColor.WHITE + "WebRead " + url);
         
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getIoExecutor().execute(() -> {
             try {
                 String result = fetchWebPage(url);
                 final String finalResult = result;
                 if (!plugin.isEnabled()) return;
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "tool.webread_result", () -> {
                     cliManager.feedbackToAI(player, "#webread_result: " + finalResult);
                 });
             } catch (Exception e) {
                 plugin.getCloudErrorReport().report(e);
                 if (!plugin.isEnabled()) return;
-                Bukkit.getScheduler().runTask(plugin, () -> {
+                TickProfiler.runTask(plugin, "tool.webread_result", () -> {
                     String errorMessage = "#webread_result: 错误 - " + e.getMessage();
                     cliManager.feedbackToAI(player, errorMessage);
                     player.sendMessage(ChatColor.RED + "读取网页失败: " + e.getMessage());
                 });
             }
-        });
+        }, () -> feedbackRejected(player, "webread"));
     }
 
     /**
@@ -1605,11 +1751,8 @@ public class ToolExecutor {
             throw new IllegalArgumentException("URL必须以http://或https://开头");
         }
 
-        // 创建HTTP客户端
-        java.net.http.HttpClient httpClient = java.net.http.HttpClient.newBuilder()
-                .connectTimeout(java.time.Duration.ofSeconds(30))
-                .followRedirects(java.net.http.HttpClient.Redirect.NORMAL)
-                .build();
+        // 获取共享的HTTP客户端（跟随重定向）
+        java.net.http.HttpClient httpClient = plugin.getHttpClients().get(HttpClientRegistry.Profile.BROWSER, url);
 
         // 构造真实用户的请求头，按照真实浏览器的顺序和内容
         java.net.http.HttpRequest request = java.net.http.HttpRequest.newBuilder()
@@ -1737,14 +1880,15 @@ public class ToolExecutor {
 
     /**
      * 将内部类型映射到配置中的工具名称
-     * @param type 内部类型（ls, read, edit, diff）
+     * @param type 内部类型（ls, read, edit, diff, undo, grep, find, config）
      * @return 配置中的工具名称（ls, read, edit）
      */
     private String mapTypeToToolName(String type) {
         return switch (type.toLowerCase()) {
             case "ls" -> "ls";
-            case "read" -> "read";
-            case "edit", "diff" -> "edit";
+            case "read", "grep", "config" -> "read";
+            case "edit", "diff", "undo" -> "edit";
+            case "find" -> "ls";
             default -> type;
         };
     }
@@ -6,6 +6,7 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import org.YanPl.FancyHelper;
 import org.YanPl.util.ColorUtil;
+import org.YanPl.util.TickProfiler;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
@@ -57,10 +58,8 @@ public class UpdateManager implements Listener {
             return;
         }
 
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            HttpClient client = HttpClient.newBuilder()
-                    .connectTimeout(Duration.ofSeconds(10))
-                    .build();
+        plugin.getIoExecutor().execute(() -> {
+            HttpClient client = plugin.getHttpClients().get(repoUrl);
 
             try {
                 HttpRequest request = HttpRequest.newBuilder()
@@ -70,7 +69,7 @@ public class UpdateManager implements Listener {
                         .GET()
                         .build();
 
-                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> response = plugin.getCircuitBreakers().send(client, request, HttpResponse.BodyHandlers.ofString());
 
                 if (response.statusCode() == 200) {
                     String jsonResponse = response.body();
@@ -240,9 +239,7 @@ public class UpdateManager implements Listener {
                 plugin.getLogger().info("下载URL: " + finalUrl);
             }
 
-            HttpClient client = HttpClient.newBuilder()
-                    .connectTimeout(Duration.ofSeconds(30))
-                    .build();
+            HttpClient client = plugin.getHttpClients().get(finalUrl);
 
             try {
                 HttpRequest request = HttpRequest.newBuilder()
@@ -252,7 +249,7 @@ public class UpdateManager implements Listener {
                         .GET()
                         .build();
 
-                HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                HttpResponse<InputStream> response = plugin.getCircuitBreakers().send(client, request, HttpResponse.BodyHandlers.ofInputStream());
 
                 if (response.statusCode() != 200) {
                     plugin.getLogger().severe("下载失败: " + response.statusCode());
@@ -334,7 +331,7 @@ public class UpdateManager implements Listener {
                     plugin.getLogger().info("准备执行自动重载...");
                 }
                     if (!plugin.isEnabled()) return;
-                    Bukkit.getScheduler().runTask(plugin, () -> {
+                    TickProfiler.runTask(plugin, "update.auto_reload", () -> {
                         // 强制使用控制台执行深度重载，避免权限或上下文问题
                         Bukkit.dispatchCommand(Bukkit.getConsoleSender(), "fancy reload deeply");
                     });
@@ -357,7 +354,7 @@ public class UpdateManager implements Listener {
         if (alreadyAsync) {
             downloadTask.run();
         } else {
-            Bukkit.getScheduler().runTaskAsynchronously(plugin, downloadTask);
+            plugin.getIoExecutor().execute(downloadTask);
         }
     }
 
@@ -447,29 +444,31 @@ public class UpdateManager implements Listener {
 
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
-        if (!plugin.getConfigManager().isOpUpdateNotify()) {
-            return;
-        }
-        Player player = event.getPlayer();
-        if (hasUpdate && player.isOp()) {
-            Bukkit.getScheduler().runTaskLater(plugin, () -> {
-                player.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §f检测到新版本: §a" + latestVersion));
-                // 显示 Release Overview
-                if (releaseOverview != null && !releaseOverview.isEmpty()) {
-                    player.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §f更新内容:"));
-                    // 使用正则表达式分割，支持 \n 和 \r\n
-                    for (String line : releaseOverview.split("\\r?\\n")) {
-                        // 移除每行开头和结尾的空白字符
-                        String trimmedLine = line.trim();
-                        if (!trimmedLine.isEmpty()) {
-                            // 移除 Markdown 列表符号 * - 等
-                            trimmedLine = trimmedLine.replaceFirst("^[*\\-\\d.]+\\s+", "");
-                            player.sendMessage(" §b§l- §r" + trimmedLine);
+        try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "listener.update_notify")) {
+            if (!plugin.getConfigManager().isOpUpdateNotify()) {
+                return;
+            }
+            Player player = event.getPlayer();
+            if (hasUpdate && player.isOp()) {
+                TickProfiler.runTaskLater(plugin, "update.join_notice", () -> {
+                    player.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §f检测到新版本: §a" + latestVersion));
+                    // 显示 Release Overview
+                    if (releaseOverview != null && !releaseOverview.isEmpty()) {
+                        player.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §f更新内容:"));
+                        // 使用正则表达式分割，支持 \n 和 \r\n
+                        for (String line : releaseOverview.split("\\r?\\n")) {
+                            // 移除每行开头和结尾的空白字符
+                            String trimmedLine = line.trim();
+                            if (!trimmedLine.isEmpty()) {
+                                // 移除 Markdown 列表符号 * - 等
+                                trimmedLine = trimmedLine.replaceFirst("^[*\\-\\d.]+\\s+", "");
+                                player.sendMessage(" §b§l- §r" + trimmedLine);
+                            }
                         }
                     }
-                }
-                player.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §f使用 §e/fancy upgrade §f自动下载并更新。"));
-            }, 40L); // 延迟 2 秒提示
+                    player.sendMessage(ColorUtil.translateCustomColors("§zFancyHelper§b§r §7> §f使用 §e/fancy upgrade §f自动下载并更新。"));
+                }, 40L); // 延迟 2 秒提示
+            }
         }
     }
 }
\ No newline at end of file
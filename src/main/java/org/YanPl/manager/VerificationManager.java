@@ -2,7 +2,7 @@ package org.YanPl.manager;
 
 import org.YanPl.FancyHelper;
 import org.YanPl.util.ColorUtil;
-import org.bukkit.Bukkit;
+import org.YanPl.util.TickProfiler;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 
@@ -80,7 +80,7 @@ public class VerificationManager {
 
         // 10分钟后清理
         if (!plugin.isEnabled()) return;
-        Bukkit.getScheduler().runTaskLater(plugin, () -> {
+        TickProfiler.runTaskLater(plugin, "verify.cleanup", () -> {
             if (!plugin.isEnabled()) return;
             if (activeSessions.containsKey(uuid) && activeSessions.get(uuid) == session) {
                 activeSessions.remove(uuid);
@@ -2,24 +2,104 @@ package org.YanPl.manager;
 
 import org.YanPl.FancyHelper;
 import org.YanPl.util.ResourceUtil;
+import org.YanPl.util.TickProfiler;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
+import org.bukkit.command.PluginIdentifiableCommand;
 import org.bukkit.command.SimpleCommandMap;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+import org.bukkit.event.server.ServerLoadEvent;
+import org.bukkit.plugin.Plugin;
 
 import java.io.File;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
 
-public class WorkspaceIndexer {
+public class WorkspaceIndexer implements Listener {
     /**
      * 工作区索引器：用于索引服务器上可用的命令以及插件内的预设文件列表。
+     * 命令索引以不可变快照发布，插件启用/禁用时只增量更新该插件的命令，读取方无需加锁。
      */
     private final FancyHelper plugin;
-    private List<String> indexedCommands = new ArrayList<>();
-    private List<String> indexedPresets = new ArrayList<>();
+    private final AtomicReference<CommandSnapshot> commandSnapshot = new AtomicReference<>(CommandSnapshot.EMPTY);
+    private volatile List<String> indexedPresets = Collections.emptyList();
+    private Map<String, Command> knownCommands;
+
+    /**
+     * 单个命令的元数据
+     */
+    public static final class CommandInfo {
+        private final String name;
+        private final String plugin;
+        private final List<String> aliases;
+        private final String permission;
+        private final String usage;
+        private final String description;
+
+        CommandInfo(String name, String plugin, List<String> aliases, String permission, String usage, String description) {
+            this.name = name;
+            this.plugin = plugin;
+            this.aliases = aliases;
+            this.permission = permission;
+            this.usage = usage;
+            this.description = description;
+        }
+
+        static CommandInfo of(Command command, String plugin) {
+            return new CommandInfo(command.getName(), plugin, List.copyOf(command.getAliases()),
+                    command.getPermission(), command.getUsage(), command.getDescription());
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getPlugin() {
+            return plugin;
+        }
+
+        public List<String> getAliases() {
+            return aliases;
+        }
+
+        public String getPermission() {
+            return permission;
+        }
+
+        public String getUsage() {
+            return usage;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    /**
+     * 命令索引快照：标签 -> 元数据（别名也作为独立标签），以及排序后的标签列表
+     */
+    private static final class CommandSnapshot {
+        static final CommandSnapshot EMPTY = new CommandSnapshot(new TreeMap<>());
+
+        final Map<String, CommandInfo> byLabel;
+        final List<String> labels;
+
+        CommandSnapshot(TreeMap<String, CommandInfo> byLabel) {
+            this.byLabel = Collections.unmodifiableMap(byLabel);
+            this.labels = List.copyOf(byLabel.keySet());
+        }
+    }
 
     public WorkspaceIndexer(FancyHelper plugin) {
         this.plugin = plugin;
@@ -31,24 +111,23 @@ public class WorkspaceIndexer {
         indexPresets();
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * 全量索引命令，仅在启动、服务器加载完成与手动重载时调用
+     */
     public void indexCommands() {
-        indexedCommands.clear();
         try {
-            Field commandMapField = Bukkit.getServer().getClass().getDeclaredField("commandMap");
-            commandMapField.setAccessible(true);
-            SimpleCommandMap commandMap = (SimpleCommandMap) commandMapField.get(Bukkit.getServer());
-            
-            Field knownCommandsField = SimpleCommandMap.class.getDeclaredField("knownCommands");
-            knownCommandsField.setAccessible(true);
-            Map<String, Command> knownCommands = (Map<String, Command>) knownCommandsField.get(commandMap);
-            
-            indexedCommands.addAll(knownCommands.keySet().stream()
-                    .filter(name -> !name.contains(":")) 
-                    .collect(Collectors.toList()));
-            
+            Map<String, Command> commands = getKnownCommands();
+            Map<Command, String> prefixes = collectPrefixes(commands);
+            TreeMap<String, CommandInfo> byLabel = new TreeMap<>();
+            for (Map.Entry<String, Command> entry : commands.entrySet()) {
+                String label = entry.getKey();
+                if (label.contains(":")) continue;
+                byLabel.put(label, CommandInfo.of(entry.getValue(), resolveOwner(entry.getValue(), prefixes)));
+            }
+            commandSnapshot.set(new CommandSnapshot(byLabel));
+
             if (plugin.getConfigManager().isDebug()) {
-                plugin.getLogger().info("已索引 " + indexedCommands.size() + " 个命令。");
+                plugin.getLogger().info("已索引 " + byLabel.size() + " 个命令。");
             }
         } catch (Exception e) {
             plugin.getLogger().warning("索引命令时出错: " + e.getMessage());
@@ -56,30 +135,143 @@ public class WorkspaceIndexer {
         }
     }
 
+    /**
+     * 增量更新：丢弃该插件旧的命令条目，再从命令表中取回它当前注册的命令
+     */
+    void updatePluginCommands(String pluginName, boolean enabled) {
+        Map<String, Command> commands = enabled ? knownCommands : null;
+        // 尚未完成首次全量索引时无需增量更新
+        if (enabled && commands == null) return;
+        Map<Command, String> prefixes = commands != null ? collectPrefixes(commands) : Collections.emptyMap();
+
+        commandSnapshot.updateAndGet(current -> {
+            TreeMap<String, CommandInfo> byLabel = new TreeMap<>(current.byLabel);
+            byLabel.values().removeIf(info -> pluginName.equalsIgnoreCase(info.getPlugin()));
+            if (commands != null) {
+                for (Map.Entry<String, Command> entry : commands.entrySet()) {
+                    String label = entry.getKey();
+                    if (label.contains(":")) continue;
+                    String owner = resolveOwner(entry.getValue(), prefixes);
+                    if (pluginName.equalsIgnoreCase(owner)) {
+                        byLabel.put(label, CommandInfo.of(entry.getValue(), owner));
+                    }
+                }
+            }
+            return new CommandSnapshot(byLabel);
+        });
+
+        if (plugin.getConfigManager().isDebug()) {
+            plugin.getLogger().info("插件 " + pluginName + (enabled ? " 已启用" : " 已禁用") + "，命令索引已更新，当前共 " + getIndexedCommands().size() + " 个命令。");
+        }
+    }
+
+    /**
+     * 收集 "前缀:标签" 条目中命令对象到前缀的映射
+     */
+    private static Map<Command, String> collectPrefixes(Map<String, Command> commands) {
+        Map<Command, String> prefixes = new IdentityHashMap<>();
+        for (Map.Entry<String, Command> entry : commands.entrySet()) {
+            int colon = entry.getKey().indexOf(':');
+            if (colon > 0) {
+                prefixes.putIfAbsent(entry.getValue(), entry.getKey().substring(0, colon));
+            }
+        }
+        return prefixes;
+    }
+
+    /**
+     * 推断命令所属插件：优先使用 PluginIdentifiableCommand，否则使用命令注册时的前缀
+     */
+    private static String resolveOwner(Command command, Map<Command, String> prefixes) {
+        if (command instanceof PluginIdentifiableCommand) {
+            Plugin owner = ((PluginIdentifiableCommand) command).getPlugin();
+            if (owner != null) return owner.getName();
+        }
+        return prefixes.getOrDefault(command, "minecraft");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Command> getKnownCommands() throws ReflectiveOperationException {
+        if (knownCommands == null) {
+            // 命令表对象在服务器生命周期内不变，只需反射一次
+            Field commandMapField = Bukkit.getServer().getClass().getDeclaredField("commandMap");
+            commandMapField.setAccessible(true);
+            SimpleCommandMap commandMap = (SimpleCommandMap) commandMapField.get(Bukkit.getServer());
+
+            Field knownCommandsField = SimpleCommandMap.class.getDeclaredField("knownCommands");
+            knownCommandsField.setAccessible(true);
+            knownCommands = (Map<String, Command>) knownCommandsField.get(commandMap);
+        }
+        return knownCommands;
+    }
+
+    /**
+     * 仅供测试注入命令表
+     */
+    void setKnownCommands(Map<String, Command> knownCommands) {
+        this.knownCommands = knownCommands;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginEnable(PluginEnableEvent event) {
+        try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "listener.plugin_enable")) {
+            updatePluginCommands(event.getPlugin().getName(), true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(PluginDisableEvent event) {
+        try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "listener.plugin_disable")) {
+            updatePluginCommands(event.getPlugin().getName(), false);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onServerLoad(ServerLoadEvent event) {
+        // 启动或 /reload 完成后所有插件的命令均已注册，做一次全量校准
+        try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "listener.server_load")) {
+            indexCommands();
+        }
+    }
+
     public void indexPresets() {
-        indexedPresets.clear();
         File presetDir = new File(plugin.getDataFolder(), "preset");
         if (!presetDir.exists()) {
             presetDir.mkdirs();
         }
-        
+
         ResourceUtil.releaseResources(plugin, "preset/", false, ".txt");
-        
+
+        List<String> presets = new ArrayList<>();
         File[] files = presetDir.listFiles();
         if (files != null) {
             for (File file : files) {
                 if (file.isFile() && file.getName().endsWith(".txt")) {
-                    indexedPresets.add(file.getName());
+                    presets.add(file.getName());
                 }
             }
         }
+        indexedPresets = List.copyOf(presets);
         if (plugin.getConfigManager().isDebug()) {
-            plugin.getLogger().info("已索引 " + indexedPresets.size() + " 个预设文件。");
+            plugin.getLogger().info("已索引 " + presets.size() + " 个预设文件。");
+        }
+
+        // 预设释放完成后重建片段检索索引
+        if (plugin.getPresetIndex() != null) {
+            plugin.getPresetIndex().rebuild();
         }
     }
 
     public List<String> getIndexedCommands() {
-        return indexedCommands;
+        return commandSnapshot.get().labels;
+    }
+
+    /**
+     * 获取命令元数据，标签可为命令名或别名
+     * @return 未索引时返回 null
+     */
+    public CommandInfo getCommandInfo(String label) {
+        return commandSnapshot.get().byLabel.get(label.toLowerCase(Locale.ROOT));
     }
 
     public List<String> getIndexedPresets() {
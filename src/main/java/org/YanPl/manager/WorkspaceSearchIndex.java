@@ -0,0 +1,607 @@
+package org.YanPl.manager;
+
+import org.YanPl.FancyHelper;
+import org.bukkit.Bukkit;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 工作区内容索引：为服务器目录下的文本配置文件建立文件名与字节三元组（trigram）倒排索引，
+ * 支撑 #grep / #find 工具一次性返回 path:line 结果，省去多轮 #list / #read。
+ * 首次构建使用 ForkJoinPool 并行遍历目录并在锁外提取三元组，之后由文件事件中心增量维护；文件数、单文件大小与倒排总量均有上限。
+ */
+public class WorkspaceSearchIndex {
+    private static final int MAX_FILES = 20000;
+    private static final long MAX_FILE_SIZE = 256 * 1024;
+    private static final long MAX_POSTINGS = 4_000_000L;
+    private static final int MAX_HITS = 50;
+    private static final int MAX_HITS_PER_FILE = 10;
+    private static final int MAX_FIND_RESULTS = 100;
+    private static final int MAX_LINE_DISPLAY = 200;
+
+    private static final Set<String> TEXT_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "yml", "yaml", "json", "properties", "txt", "conf", "cfg", "toml", "ini",
+            "md", "sk", "js", "xml", "lang", "csv", "hocon", "mcmeta"));
+    private static final Set<String> EXCLUDED_DIRS = new HashSet<>(Arrays.asList(
+            "logs", "crash-reports", "cache", "libraries", "versions", "bundler", ".git",
+            ".paper-remapped", "debug", "node_modules", "lib", "libs", "backups", "backup"));
+
+    private final FancyHelper plugin;
+    private final Path root;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean(false);
+    private volatile State state = new State();
+    /**
+     * 重建期间收到的文件变动（内容已在锁外读取），在替换前按顺序应用到新索引；不在重建时为 null。由 lock 保护
+     */
+    private List<Consumer<State>> changedDuringRebuild;
+    private FileEventHub.Subscription subscription;
+
+    /**
+     * 已索引的文件
+     */
+    private static class FileEntry {
+        final String path;
+        final boolean contentIndexed;
+        /**
+         * 该文件在倒排列表中的条目数，删除时从计数中扣除
+         */
+        final int postingCount;
+
+        FileEntry(String path, boolean contentIndexed, int postingCount) {
+            this.path = path;
+            this.contentIndexed = contentIndexed;
+            this.postingCount = postingCount;
+        }
+    }
+
+    /**
+     * 在锁外读取并提取三元组的单个文件；trigrams 为 null 表示只索引文件名
+     */
+    private static class IndexedFile {
+        final String path;
+        final int[] trigrams;
+
+        IndexedFile(String path, int[] trigrams) {
+            this.path = path;
+            this.trigrams = trigrams;
+        }
+    }
+
+    /**
+     * 一次并行遍历的结果与计数；文件数与三元组总量只用于提前停止读取，最终上限在合并时保证
+     */
+    private static class Walk {
+        final Queue<IndexedFile> files = new ConcurrentLinkedQueue<>();
+        final AtomicInteger fileCount = new AtomicInteger();
+        final AtomicLong trigramCount = new AtomicLong();
+    }
+
+    /**
+     * 倒排列表：递增的文件 ID
+     */
+    private static class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    /**
+     * 索引数据；删除与修改以墓碑方式处理（旧 ID 置空），死亡条目或其倒排条目过多时整体重建
+     */
+    private static class State {
+        final List<FileEntry> entries = new ArrayList<>();
+        final Map<String, Integer> pathToId = new HashMap<>();
+        final Map<Integer, Postings> postings = new HashMap<>();
+        /**
+         * 存活文件的倒排条目数，用于 {@link #MAX_POSTINGS} 上限
+         */
+        long postingCount;
+        /**
+         * 墓碑文件仍占用的倒排条目数，重建后清零
+         */
+        long deadPostingCount;
+        int liveCount;
+        int deadCount;
+    }
+
+    public WorkspaceSearchIndex(FancyHelper plugin) {
+        this(plugin, Bukkit.getWorldContainer().toPath());
+    }
+
+    WorkspaceSearchIndex(FancyHelper plugin, Path root) {
+        this.plugin = plugin;
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    /**
+     * 在后台构建索引并启动目录监听
+     */
+    public void start() {
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, this::rebuild);
+        subscription = plugin.getFileEventHub().subscribeRecursive(root, this::isIncludedDirectory, 200L, event -> {
+            if (event.getKind() == FileEventHub.Kind.OVERFLOW) {
+                // 事件丢失，无法得知具体变化，整体重建
+                scheduleRebuild();
+            } else {
+                handleChange(event.getPath(), event.getKind());
+            }
+        });
+    }
+
+    /**
+     * 在后台重建索引，不阻塞文件事件回调；已有重建在等待或进行中时忽略
+     */
+    private void scheduleRebuild() {
+        if (rebuilding.get() || !rebuildScheduled.compareAndSet(false, true)) return;
+        try {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+                rebuildScheduled.set(false);
+                rebuild();
+            });
+        } catch (RuntimeException e) {
+            // 插件正在禁用
+            rebuildScheduled.set(false);
+        }
+    }
+
+    /**
+     * 使用 ForkJoinPool 并行遍历并完整重建索引（阻塞直到完成）：各文件在锁外读取，
+     * 结果合并进尚未发布的新索引后在写锁内整体替换；遍历期间的文件变动在替换前重新应用到新索引
+     */
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) return;
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Walk walk = new Walk();
+        ForkJoinPool pool = new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+        try {
+            pool.invoke(new DirectoryTask(root, walk));
+            State fresh = new State();
+            for (IndexedFile file : walk.files) {
+                addFile(fresh, file);
+            }
+            lock.writeLock().lock();
+            try {
+                // 遍历可能已按变动前的内容读入这些文件
+                for (Consumer<State> change : changedDuringRebuild) {
+                    change.accept(fresh);
+                }
+                state = fresh;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (plugin.getConfigManager().isDebug()) {
+                plugin.getLogger().info("[Index] 已索引 " + fresh.liveCount + " 个文件，倒排条目 " + fresh.postingCount
+                        + "，耗时 " + (System.currentTimeMillis() - start) + "ms");
+            }
+        } catch (Exception e) {
+            plugin.getLogger().warning("构建工作区索引时出错: " + e.getMessage());
+            plugin.getCloudErrorReport().report(e);
+        } finally {
+            pool.shutdown();
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * 并行遍历目录的任务：子目录分叉执行，文件在当前任务中提取三元组
+     */
+    private class DirectoryTask extends RecursiveAction {
+        private final Path dir;
+        private final Walk walk;
+
+        DirectoryTask(Path dir, Walk walk) {
+            this.dir = dir;
+            this.walk = walk;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryTask> subTasks = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path child : stream) {
+                    if (!running.get()) return;
+                    BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        continue;
+                    }
+                    if (attrs.isDirectory()) {
+                        if (isIncludedDirectory(child)) {
+                            subTasks.add(new DirectoryTask(child, walk));
+                        }
+                    } else if (attrs.isRegularFile() && isIncludedFile(child)
+                            && walk.fileCount.incrementAndGet() <= MAX_FILES) {
+                        IndexedFile file = readFile(child, attrs.size(), walk.trigramCount.get() < MAX_POSTINGS);
+                        if (file.trigrams != null) {
+                            walk.trigramCount.addAndGet(file.trigrams.length);
+                        }
+                        walk.files.add(file);
+                    }
+                }
+            } catch (IOException ignored) {
+                // 无法读取的目录直接跳过
+            }
+            invokeAll(subTasks);
+        }
+    }
+
+    private boolean isIncludedDirectory(Path dir) {
+        String name = dir.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (EXCLUDED_DIRS.contains(name)) return false;
+        // 世界存档目录（含 level.dat）只有二进制区块数据
+        return !Files.exists(dir.resolve("level.dat"));
+    }
+
+    private boolean isIncludedFile(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot < 0) return false;
+        return TEXT_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * 读取文件并计算三元组（不持有锁）；超出大小上限或读取失败的文件只索引文件名
+     */
+    private IndexedFile readFile(Path file, long size, boolean readContent) {
+        int[] trigrams = null;
+        if (readContent && size <= MAX_FILE_SIZE) {
+            try {
+                trigrams = extractTrigrams(Files.readAllBytes(file));
+            } catch (IOException ignored) {
+                // 读取失败时退化为仅索引文件名
+            }
+        }
+        return new IndexedFile(relativize(file), trigrams);
+    }
+
+    /**
+     * 将文件加入索引，替换同路径的旧条目；调用方需持有写锁，或 target 尚未发布
+     */
+    private void addFile(State target, IndexedFile file) {
+        removePath(target, file.path);
+        if (target.liveCount >= MAX_FILES) return;
+        int[] trigrams = file.trigrams;
+        boolean contentIndexed = trigrams != null && target.postingCount + trigrams.length <= MAX_POSTINGS;
+        int id = target.entries.size();
+        target.entries.add(new FileEntry(file.path, contentIndexed, contentIndexed ? trigrams.length : 0));
+        target.pathToId.put(file.path, id);
+        target.liveCount++;
+        if (contentIndexed) {
+            for (int trigram : trigrams) {
+                target.postings.computeIfAbsent(trigram, k -> new Postings()).add(id);
+            }
+            target.postingCount += trigrams.length;
+        }
+    }
+
+    /**
+     * 调用方需持有写锁
+     */
+    private void removePath(State target, String relative) {
+        Integer oldId = target.pathToId.remove(relative);
+        if (oldId != null) {
+            FileEntry old = target.entries.set(oldId, null);
+            target.postingCount -= old.postingCount;
+            target.deadPostingCount += old.postingCount;
+            target.liveCount--;
+            target.deadCount++;
+        }
+    }
+
+    /**
+     * 移除文件，或目录被删除时移除其下所有文件；调用方需持有写锁
+     */
+    private void removeTree(State target, String relative) {
+        removePath(target, relative);
+        String dirPrefix = relative + "/";
+        for (String known : new ArrayList<>(target.pathToId.keySet())) {
+            if (known.startsWith(dirPrefix)) {
+                removePath(target, known);
+            }
+        }
+    }
+
+    /**
+     * 在写锁内应用一次文件变动；重建进行中时同时记录，替换前再应用到新索引
+     */
+    private void applyChange(Consumer<State> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(state);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 提取去重后的三元组：每个三元组由 3 个（ASCII 转小写后的）字节组成；含 NUL 字节的视为二进制文件
+     */
+    static int[] extractTrigrams(byte[] content) {
+        if (content.length < 3) return new int[0];
+        int[] keys = new int[content.length - 2];
+        int count = 0;
+        int b0 = lower(content[0]);
+        int b1 = lower(content[1]);
+        for (int i = 2; i < content.length; i++) {
+            if (content[i] == 0) return null;
+            int b2 = lower(content[i]);
+            keys[count++] = (b0 << 16) | (b1 << 8) | b2;
+            b0 = b1;
+            b1 = b2;
+        }
+        Arrays.sort(keys, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || keys[unique - 1] != keys[i]) {
+                keys[unique++] = keys[i];
+            }
+        }
+        return Arrays.copyOf(keys, unique);
+    }
+
+    private static int lower(byte b) {
+        int v = b & 0xFF;
+        return v >= 'A' && v <= 'Z' ? v + 32 : v;
+    }
+
+    /**
+     * #grep：在已索引文件中查找包含 query 的行（忽略 ASCII 大小写）
+     * @param args 格式：关键字 或 关键字|路径前缀
+     */
+    public String grep(String args) {
+        String[] parts = args.split("\\|", 2);
+        String query = parts[0].trim();
+        String prefix = parts.length > 1 ? normalizePrefix(parts[1]) : "";
+        if (query.isEmpty()) {
+            return "错误: #grep 需要提供搜索内容，格式：#grep: 关键字 或 #grep: 关键字|路径前缀";
+        }
+
+        byte[] needle = query.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < needle.length; i++) {
+            needle[i] = (byte) lower(needle[i]);
+        }
+
+        List<String> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            State current = state;
+            BitSet matched = null;
+            if (needle.length >= 3) {
+                int[] trigrams = extractTrigrams(needle);
+                if (trigrams != null) {
+                    for (int trigram : trigrams) {
+                        Postings list = current.postings.get(trigram);
+                        BitSet ids = new BitSet(current.entries.size());
+                        if (list != null) {
+                            for (int i = 0; i < list.size; i++) {
+                                ids.set(list.ids[i]);
+                            }
+                        }
+                        if (matched == null) {
+                            matched = ids;
+                        } else {
+                            matched.and(ids);
+                        }
+                        if (matched.isEmpty()) break;
+                    }
+                }
+            }
+            for (int id = 0; id < current.entries.size(); id++) {
+                FileEntry entry = current.entries.get(id);
+                if (entry == null || !entry.path.startsWith(prefix)) continue;
+                // 未建立内容索引的文件无法预筛选，只能直接扫描
+                if (matched == null || matched.get(id) || !entry.contentIndexed) {
+                    candidates.add(entry.path);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        candidates.sort(String::compareTo);
+
+        StringBuilder sb = new StringBuilder();
+        int hits = 0;
+        boolean truncated = false;
+        for (String path : candidates) {
+            if (hits >= MAX_HITS) {
+                truncated = true;
+                break;
+            }
+            hits += scanFile(path, needle, sb, MAX_HITS - hits);
+        }
+
+        if (hits == 0) {
+            return "未找到包含 \"" + query + "\" 的内容" + (prefix.isEmpty() ? "" : "（路径前缀: " + prefix + "）");
+        }
+        String header = "找到 " + hits + " 处匹配" + (truncated ? "（结果过多，仅显示前 " + MAX_HITS + " 处，请缩小范围）" : "")
+                + "，格式 path:line: 内容，可直接用于 #read / #edit:\n";
+        return header + sb;
+    }
+
+    private int scanFile(String relative, byte[] needle, StringBuilder out, int limit) {
+        Path file = root.resolve(relative);
+        byte[] content;
+        try {
+            if (Files.size(file) > MAX_FILE_SIZE) return 0;
+            content = Files.readAllBytes(file);
+        } catch (IOException e) {
+            return 0;
+        }
+
+        int hits = 0;
+        int lineNumber = 1;
+        int lineStart = 0;
+        int maxHits = Math.min(limit, MAX_HITS_PER_FILE);
+        for (int i = 0; i <= content.length && hits < maxHits; i++) {
+            if (i < content.length && content[i] != '\n') continue;
+            int lineEnd = i > lineStart && content[i - 1] == '\r' ? i - 1 : i;
+            if (containsIgnoreCase(content, lineStart, lineEnd, needle)) {
+                String line = new String(content, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8).trim();
+                if (line.length() > MAX_LINE_DISPLAY) {
+                    line = line.substring(0, MAX_LINE_DISPLAY) + "...";
+                }
+                out.append(relative).append(':').append(lineNumber).append(": ").append(line).append('\n');
+                hits++;
+            }
+            lineNumber++;
+            lineStart = i + 1;
+        }
+        return hits;
+    }
+
+    private static boolean containsIgnoreCase(byte[] haystack, int from, int to, byte[] needle) {
+        int last = to - needle.length;
+        outer:
+        for (int i = from; i <= last; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (lower(haystack[i + j]) != (needle[j] & 0xFF)) continue outer;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * #find：按文件名或路径片段查找已索引的文件
+     */
+    public String find(String args) {
+        String fragment = args.trim().toLowerCase(Locale.ROOT);
+        if (fragment.isEmpty()) {
+            return "错误: #find 需要提供文件名或路径片段，例如 #find: config.yml";
+        }
+
+        List<String> results = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (FileEntry entry : state.entries) {
+                if (entry != null && entry.path.toLowerCase(Locale.ROOT).contains(fragment)) {
+                    results.add(entry.path);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (results.isEmpty()) {
+            return "未找到路径包含 \"" + args.trim() + "\" 的文件";
+        }
+        results.sort(String::compareTo);
+        StringBuilder sb = new StringBuilder("找到 " + results.size() + " 个文件");
+        if (results.size() > MAX_FIND_RESULTS) {
+            sb.append("（仅显示前 ").append(MAX_FIND_RESULTS).append(" 个）");
+        }
+        sb.append(":\n");
+        for (int i = 0; i < Math.min(results.size(), MAX_FIND_RESULTS); i++) {
+            sb.append(results.get(i)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 已索引的文件数量
+     */
+    public int getIndexedFileCount() {
+        return state.liveCount;
+    }
+
+    /**
+     * 存活文件的倒排条目数
+     */
+    long getPostingCount() {
+        return state.postingCount;
+    }
+
+    /**
+     * 处理单个文件事件；新建目录中的文件由文件事件中心以 CREATE 事件补发，这里无需遍历目录
+     */
+    void handleChange(Path path, FileEventHub.Kind kind) {
+        String relative = relativize(path);
+        if (kind == FileEventHub.Kind.DELETE) {
+            applyChange(target -> removeTree(target, relative));
+        } else if (Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS) && isIncludedFile(path)) {
+            IndexedFile file;
+            try {
+                file = readFile(path, Files.size(path), state.postingCount < MAX_POSTINGS);
+            } catch (IOException ignored) {
+                // 文件可能在事件到达前已被删除
+                return;
+            }
+            applyChange(target -> addFile(target, file));
+        }
+
+        // 墓碑文件过多，或反复修改大文件使失效的倒排条目堆积时整体重建
+        State current = state;
+        if ((current.deadCount > 5000 && current.deadCount > current.liveCount)
+                || current.deadPostingCount > Math.max(current.postingCount, MAX_POSTINGS / 4)) {
+            scheduleRebuild();
+        }
+    }
+
+    private String relativize(Path path) {
+        return root.relativize(path.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+
+    private static String normalizePrefix(String prefix) {
+        String p = prefix.trim().replace('\\', '/');
+        while (p.startsWith("/")) {
+            p = p.substring(1);
+        }
+        return p;
+    }
+
+    public void shutdown() {
+        running.set(false);
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package org.YanPl.model;
 
+import com.google.gson.stream.JsonWriter;
 import com.knuddels.jtokkit.Encodings;
 import com.knuddels.jtokkit.api.Encoding;
 import com.knuddels.jtokkit.api.EncodingRegistry;
 import com.knuddels.jtokkit.api.EncodingType;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -17,6 +19,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 public class DialogueSession {
     /**
@@ -46,6 +49,7 @@ public class DialogueSession {
     private long lastThinkingTimeMs = 0;
     private long nextMessageId = 0;
     private String logFilePath = null;
+    private volatile Executor logWriter = null;
     private String lastError = null;
     private boolean verboseLogging = false;
     private boolean systemPromptLogged = false;
@@ -57,6 +61,11 @@ public class DialogueSession {
         }
     };
 
+    /**
+     * 当前线程是否正在执行会话日志任务（嵌套提交时直接执行，保持写入顺序）
+     */
+    private static final ThreadLocal<Boolean> IN_LOG_TASK = ThreadLocal.withInitial(() -> false);
+
     /**
      * 编码注册表（单例）
      */
@@ -151,96 +160,119 @@ public class DialogueSession {
         this.logFilePath = logFilePath;
     }
 
+    /**
+     * 设置会话日志的写入线程；未设置时日志在调用线程上同步写入
+     *
+     * @param logWriter 按提交顺序执行任务的单线程执行器
+     */
+    public void setLogWriter(Executor logWriter) {
+        this.logWriter = logWriter;
+    }
+
+    /**
+     * 提交一个会话日志任务：在写入线程上按提交顺序执行，任务中再提交的日志直接写入；
+     * 未开启会话日志时直接丢弃
+     *
+     * @param task 格式化并写入日志的任务
+     */
+    public void submitLog(Runnable task) {
+        if (logFilePath == null) return;
+        Executor writer = logWriter;
+        if (writer == null || IN_LOG_TASK.get()) {
+            task.run();
+            return;
+        }
+        writer.execute(() -> {
+            IN_LOG_TASK.set(true);
+            try {
+                task.run();
+            } finally {
+                IN_LOG_TASK.set(false);
+            }
+        });
+    }
+
     /**
      * 追加内容到会话日志文件
      *
      * @param type    日志类型 (如 USER, AI, SYSTEM, TOOL, ERROR)
      * @param content 日志内容
      */
-    public synchronized void appendLog(String type, String content) {
+    public void appendLog(String type, String content) {
         if (logFilePath == null) return;
-        
-        try {
-            String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
+        String time = now();
+        submitLog(() -> {
             StringBuilder sb = new StringBuilder();
             sb.append("[").append(time).append("] [").append(type).append("] ");
             if (content != null && !content.isEmpty()) {
                 sb.append(content);
             }
             sb.append("\n");
-            
-            Files.write(Paths.get(logFilePath), sb.toString().getBytes(StandardCharsets.UTF_8), 
-                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-        } catch (IOException e) {
-            // 忽略日志写入错误，避免影响主流程
-        }
+            writeLog(sb.toString());
+        });
     }
     
     /**
      * 记录系统提示词（每个会话只记录一次）
      * @param systemPrompt 系统提示词内容
      */
-    public synchronized void logSystemPrompt(String systemPrompt) {
-        if (logFilePath == null || systemPromptLogged) return;
-        
-        systemPromptLogged = true;
-        
-        try {
-            String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
-            StringBuilder sb = new StringBuilder();
-            sb.append("[").append(time).append("] [SYSTEM_PROMPT] \n");
-            sb.append(systemPrompt);
-            sb.append("\n");
-            sb.append("─".repeat(80)).append("\n");
-            
-            Files.write(Paths.get(logFilePath), sb.toString().getBytes(StandardCharsets.UTF_8), 
-                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-        } catch (IOException e) {
-            // 忽略日志写入错误
-        }
+    public void logSystemPrompt(String systemPrompt) {
+        if (logFilePath == null) return;
+        String time = now();
+        submitLog(() -> {
+            if (systemPromptLogged) return;
+            systemPromptLogged = true;
+            writeLog(formatBlock(time, "SYSTEM_PROMPT", systemPrompt));
+        });
     }
     
     /**
      * 记录 AI 请求内容
      * @param requestContent 请求内容
      */
-    public synchronized void logAIRequest(String requestContent) {
+    public void logAIRequest(String requestContent) {
         if (logFilePath == null) return;
-        
-        try {
-            String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
-            StringBuilder sb = new StringBuilder();
-            sb.append("[").append(time).append("] [AI_REQUEST] \n");
-            sb.append(requestContent);
-            sb.append("\n");
-            sb.append("─".repeat(80)).append("\n");
-            
-            Files.write(Paths.get(logFilePath), sb.toString().getBytes(StandardCharsets.UTF_8), 
-                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-        } catch (IOException e) {
-            // 忽略日志写入错误
-        }
+        String time = now();
+        submitLog(() -> writeLog(formatBlock(time, "AI_REQUEST", requestContent)));
     }
     
     /**
      * 记录 AI 响应内容
      * @param responseContent 响应内容
      */
-    public synchronized void logAIResponse(String responseContent) {
+    public void logAIResponse(String responseContent) {
         if (logFilePath == null) return;
-        
+        String time = now();
+        submitLog(() -> writeLog(formatBlock(time, "AI_RESPONSE", responseContent)));
+    }
+
+    private static String now() {
+        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
+    }
+
+    /**
+     * 带分隔线的多行日志块
+     */
+    private static String formatBlock(String time, String type, String content) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[").append(time).append("] [").append(type).append("] \n");
+        sb.append(content);
+        sb.append("\n");
+        sb.append("─".repeat(80)).append("\n");
+        return sb.toString();
+    }
+
+    /**
+     * 追加到日志文件
+     */
+    private synchronized void writeLog(String text) {
+        String path = logFilePath;
+        if (path == null) return;
         try {
-            String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
-            StringBuilder sb = new StringBuilder();
-            sb.append("[").append(time).append("] [AI_RESPONSE] \n");
-            sb.append(responseContent);
-            sb.append("\n");
-            sb.append("─".repeat(80)).append("\n");
-            
-            Files.write(Paths.get(logFilePath), sb.toString().getBytes(StandardCharsets.UTF_8), 
+            Files.write(Paths.get(path), text.getBytes(StandardCharsets.UTF_8),
                 StandardOpenOption.CREATE, StandardOpenOption.APPEND);
         } catch (IOException e) {
-            // 忽略日志写入错误
+            // 忽略日志写入错误，避免影响主流程
         }
     }
 
@@ -569,6 +601,14 @@ public class DialogueSession {
         private final String content;
         private final String thought;
         private final long thinkingTimeMs;
+        /**
+         * 创建时校验一次：修整后的角色与内容都非空，且不是 system 消息
+         */
+        private final boolean sendable;
+        /**
+         * 发送给 AI 的 JSON 片段，首次发送时编码后缓存（消息不可变）
+         */
+        private volatile byte[] json;
 
         public Message(String role, String content) {
             this(-1, role, content, null, 0);
@@ -584,6 +624,8 @@ public class DialogueSession {
             this.content = content != null ? content : "";
             this.thought = thought;
             this.thinkingTimeMs = thinkingTimeMs;
+            String trimmedRole = this.role.trim();
+            this.sendable = !trimmedRole.isEmpty() && !this.content.trim().isEmpty() && !"system".equalsIgnoreCase(trimmedRole);
         }
 
         public long getId() {
@@ -609,5 +651,33 @@ public class DialogueSession {
         public boolean hasThought() {
             return thought != null && !thought.isEmpty();
         }
+
+        /**
+         * 是否可以作为历史消息发送给 AI（system 提示词由请求单独发送）
+         */
+        public boolean isSendable() {
+            return sendable;
+        }
+
+        /**
+         * 获取发送给 AI 的 JSON 片段 {"role":...,"content":...}（角色与内容已修整，UTF-8 编码）
+         *
+         * @return 缓存的片段，调用方不得修改
+         */
+        public byte[] toJson() {
+            byte[] cached = json;
+            if (cached == null) {
+                StringWriter out = new StringWriter(content.length() + 32);
+                try (JsonWriter writer = new JsonWriter(out)) {
+                    writer.beginObject().name("role").value(role.trim()).name("content").value(content.trim()).endObject();
+                } catch (IOException e) {
+                    // StringWriter 不会抛出 IOException
+                    throw new IllegalStateException(e);
+                }
+                cached = out.toString().getBytes(StandardCharsets.UTF_8);
+                json = cached;
+            }
+            return cached;
+        }
     }
 }
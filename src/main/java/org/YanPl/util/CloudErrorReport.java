@@ -1,24 +1,108 @@
 package org.YanPl.util;
 
 import org.YanPl.FancyHelper;
+import org.YanPl.api.CircuitBreakerRegistry;
+import org.YanPl.manager.ConfigManager;
 import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 /**
  * 云端错误上报工具类
+ * <p>
+ * 按异常指纹（异常类型 + 前几层堆栈）去重：同一错误在去重窗口内只上报一次，期间的重复次数随下一份报告附带。
+ * 短时间内的不同错误合并为一个压缩报告包，日志与配置每个报告包只收集一次；报告包先写入本地暂存目录再上传，
+ * 上报服务不可达时按指数退避重试，暂存目录有容量上限，插件关闭时未上传的报告留到下次启动再发送。
  */
 public class CloudErrorReport {
+    /**
+     * 指纹中每层异常取的堆栈帧数
+     */
+    static final int FINGERPRINT_FRAMES = 5;
+    /**
+     * 指纹中最多取的 cause 层数
+     */
+    private static final int FINGERPRINT_CAUSES = 3;
+    /**
+     * 单个报告包中最多包含的不同错误数
+     */
+    static final int MAX_PENDING = 20;
+    /**
+     * 记录的已上报指纹上限
+     */
+    private static final int MAX_TRACKED = 256;
+    /**
+     * 单个日志文件写入报告包的上限（取末尾部分）
+     */
+    private static final long MAX_ENTRY_BYTES = 500 * 1024;
+    /**
+     * 终端日志最多读取的字节数与行数
+     */
+    private static final long CONSOLE_TAIL_BYTES = 1024 * 1024;
+    private static final int CONSOLE_TAIL_LINES = 200;
+    /**
+     * 上传失败后的首次重试间隔与退避上限
+     */
+    static final long BASE_BACKOFF_MILLIS = 60 * 1000L;
+    static final long MAX_BACKOFF_MILLIS = 60 * 60 * 1000L;
+    private static final long HOUR_MILLIS = 60 * 60 * 1000L;
+    private static final String BUNDLE_SUFFIX = ".zip";
+    private static final String PART_SUFFIX = ".part";
 
     private final JavaPlugin plugin;
     private final String workerUrl = "https://report-fancy.baicaizhale.top/";
 
+    /**
+     * 等待合并上传的错误，按指纹去重
+     */
+    private final Map<String, PendingError> pending = new LinkedHashMap<>();
+    /**
+     * 已进入报告包的指纹与时间
+     */
+    private final Map<String, Long> lastReported = new HashMap<>();
+    /**
+     * 去重窗口内再次出现的已上报错误次数，随下一个报告包附带
+     */
+    private final Map<String, Integer> repeats = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    private BukkitTask batchTask;
+
+    /**
+     * 暂存目录的限流与退避状态，由 spoolLock 保护；上传本身不持有该锁
+     */
+    private final Object spoolLock = new Object();
+    private final Deque<Long> uploadTimes = new ArrayDeque<>();
+    private int consecutiveFailures;
+    private long nextAttemptAt;
+    /**
+     * 同一时间只有一个线程上传暂存目录；上传期间再次请求时由该线程多跑一轮
+     */
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final AtomicReference<BukkitTask> drainTask = new AtomicReference<>();
+    private final AtomicInteger bundleSeq = new AtomicInteger();
+
     /**
      * 构造函数
      *
@@ -28,6 +112,28 @@ public class CloudErrorReport {
         this.plugin = plugin;
     }
 
+    /**
+     * 一个待上报的错误
+     */
+    static final class PendingError {
+        private final String fingerprint;
+        private final String stackTrace;
+        private final long firstSeen;
+        private long lastSeen;
+        private int count = 1;
+
+        PendingError(String fingerprint, String stackTrace, long now) {
+            this.fingerprint = fingerprint;
+            this.stackTrace = stackTrace;
+            this.firstSeen = now;
+            this.lastSeen = now;
+        }
+
+        int getCount() {
+            return count;
+        }
+    }
+
     /**
      * 手动上报异常
      *
@@ -39,6 +145,15 @@ public class CloudErrorReport {
         // 检查配置是否启用自动上报
         if (plugin instanceof FancyHelper) {
             if (!((FancyHelper) plugin).getConfigManager().isAutoReportEnabled()) {
+                countReport("disabled");
+                return;
+            }
+        }
+
+        // 熔断导致的快速失败说明外部服务故障而非插件缺陷，无需上报
+        for (Throwable t = throwable; t != null; t = t.getCause()) {
+            if (t instanceof CircuitBreakerRegistry.CircuitOpenException) {
+                countReport("skipped");
                 return;
             }
         }
@@ -48,101 +163,556 @@ public class CloudErrorReport {
             return;
         }
 
-        // 异步执行请求
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                // 创建临时目录
-                File tempDir = new File(plugin.getDataFolder(), "temp");
-                if (!tempDir.exists()) {
-                    tempDir.mkdirs();
-                }
+        // 同一批次的错误在等待时间结束后合并为一个报告包
+        if (offer(throwable, System.currentTimeMillis())) {
+            scheduleFlush();
+        }
+    }
 
-                // 收集日志文件
-                List<File> logFiles = collectLogFiles(tempDir, throwable);
+    /**
+     * 启动时清理写入中断的报告包，并上传上次运行未能送达的报告
+     */
+    public void start() {
+        File[] parts = spoolDir().listFiles((dir, name) -> name.endsWith(PART_SUFFIX));
+        if (parts != null) {
+            for (File part : parts) {
+                part.delete();
+            }
+        }
+        if (!listSpool().isEmpty()) {
+            scheduleDrain(getBatchSeconds() * 1000L);
+        }
+    }
 
-                // 上传文件
-                uploadFiles(logFiles);
+    /**
+     * 停止定时任务，尚未上传的错误写入暂存目录，下次启动时再上传（关闭过程中不等待网络）
+     */
+    public void shutdown() {
+        synchronized (this) {
+            if (batchTask != null) {
+                batchTask.cancel();
+                batchTask = null;
+            }
+        }
+        BukkitTask task = drainTask.getAndSet(null);
+        if (task != null) {
+            task.cancel();
+        }
+        spoolPending();
+    }
 
-                // 清理临时文件
-                for (File file : logFiles) {
-                    file.delete();
+    /**
+     * 记录一次错误：已在等待上报或在去重窗口内已上报的错误只累加次数
+     *
+     * @return 是否需要安排新的合并上传
+     */
+    synchronized boolean offer(Throwable throwable, long now) {
+        String fingerprint = fingerprint(throwable);
+        PendingError existing = pending.get(fingerprint);
+        if (existing != null) {
+            existing.count++;
+            existing.lastSeen = now;
+            countReport("deduplicated");
+            return false;
+        }
+        Long reportedAt = lastReported.get(fingerprint);
+        if (reportedAt != null && now - reportedAt < getDedupMinutes() * 60_000L) {
+            if (repeats.containsKey(fingerprint) || repeats.size() < MAX_TRACKED) {
+                repeats.merge(fingerprint, 1, Integer::sum);
+            }
+            countReport("deduplicated");
+            return false;
+        }
+        if (pending.size() >= MAX_PENDING) {
+            countReport("dropped");
+            return false;
+        }
+
+        pending.put(fingerprint, new PendingError(fingerprint, getStackTraceString(throwable), now));
+        lastReported.put(fingerprint, now);
+        if (lastReported.size() > MAX_TRACKED) {
+            pruneReported(now);
+        }
+        if (flushScheduled) {
+            return false;
+        }
+        flushScheduled = true;
+        return true;
+    }
+
+    /**
+     * 清理去重窗口之外的指纹；仍然超出上限时移除最早的记录
+     */
+    private void pruneReported(long now) {
+        long window = getDedupMinutes() * 60_000L;
+        lastReported.values().removeIf(time -> now - time >= window);
+        while (lastReported.size() > MAX_TRACKED) {
+            String oldest = Collections.min(lastReported.entrySet(), Map.Entry.comparingByValue()).getKey();
+            lastReported.remove(oldest);
+        }
+    }
+
+    synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * 计算异常指纹：各层异常的类型与前几层堆栈帧，不含异常消息（消息中常带有玩家名、状态码等变化的内容）
+     *
+     * @param throwable 异常
+     * @return 指纹
+     */
+    static String fingerprint(Throwable throwable) {
+        StringBuilder sb = new StringBuilder();
+        int depth = 0;
+        for (Throwable t = throwable; t != null && depth < FINGERPRINT_CAUSES; t = t.getCause(), depth++) {
+            sb.append(t.getClass().getName()).append('\n');
+            StackTraceElement[] frames = t.getStackTrace();
+            for (int i = 0; i < Math.min(FINGERPRINT_FRAMES, frames.length); i++) {
+                sb.append(frames[i].getClassName()).append('.').append(frames[i].getMethodName())
+                        .append(':').append(frames[i].getLineNumber()).append('\n');
+            }
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(sb.toString().hashCode());
+        }
+    }
+
+    /**
+     * 批次等待结束后在 I/O 执行器上生成报告包并上传（Bukkit 调度器只负责延时）
+     */
+    private void scheduleFlush() {
+        long ticks = Math.max(1L, getBatchSeconds() * 20L);
+        try {
+            BukkitTask task = runLater("error_report.flush", () -> runIo(this::flush, () -> {
+                // I/O 执行器已满：保留等待中的错误，下一次报告或关闭时再写入
+                synchronized (this) {
+                    batchTask = null;
+                    flushScheduled = false;
                 }
+            }), ticks);
+            synchronized (this) {
+                if (flushScheduled) {
+                    batchTask = task;
+                }
+            }
+        } catch (RuntimeException e) {
+            // 插件正在禁用，等待中的错误由 shutdown() 写入暂存目录
+            synchronized (this) {
+                flushScheduled = false;
+            }
+        }
+    }
 
+    /**
+     * 将当前批次写成报告包，然后上传暂存目录中的报告
+     */
+    void flush() {
+        if (spoolPending()) {
+            drainSpool();
+        }
+    }
+
+    /**
+     * 将等待中的错误写成一个报告包放入暂存目录
+     *
+     * @return 是否写入了新的报告包
+     */
+    boolean spoolPending() {
+        List<PendingError> errors;
+        Map<String, Integer> repeated;
+        synchronized (this) {
+            batchTask = null;
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return false;
+            }
+            errors = new ArrayList<>(pending.values());
+            repeated = new LinkedHashMap<>(repeats);
+            pending.clear();
+            repeats.clear();
+        }
+        try {
+            writeBundle(errors, repeated);
+            return true;
+        } catch (Exception e) {
+            countReport("failed");
+            plugin.getLogger().warning("错误报告生成失败: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 按时间顺序上传暂存目录中的报告包：受每小时上传次数限制，失败时按指数退避稍后重试。
+     * 限流与退避状态只在 spoolLock 内短暂读写，网络上传在锁外进行
+     */
+    void drainSpool() {
+        drainRequested.set(true);
+        while (drainRequested.get() && draining.compareAndSet(false, true)) {
+            try {
+                drainRequested.set(false);
+                drainOnce();
+            } finally {
+                draining.set(false);
+            }
+        }
+    }
+
+    private void drainOnce() {
+        for (File bundle : listSpool()) {
+            if (!bundle.exists()) {
+                // 暂存目录超出容量时已被清理
+                continue;
+            }
+            long now = System.currentTimeMillis();
+            long wait;
+            synchronized (spoolLock) {
+                wait = reserveUpload(now);
+            }
+            if (wait > 0) {
+                scheduleDrain(wait);
+                return;
+            }
+
+            int responseCode;
+            try {
+                responseCode = uploadBundle(bundle);
             } catch (Exception e) {
                 plugin.getLogger().warning("错误上报失败: " + e.getMessage());
+                backOff(now);
+                return;
+            }
+            if (responseCode == 200) {
+                synchronized (spoolLock) {
+                    consecutiveFailures = 0;
+                }
+                bundle.delete();
+                countReport("uploaded");
+            } else if (responseCode >= 400 && responseCode < 500 && responseCode != 408 && responseCode != 429) {
+                // 上报服务拒绝该报告包，重试也不会成功
+                bundle.delete();
+                countReport("failed");
+            } else {
+                backOff(now);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 检查退避与每小时上传次数，允许上传时记录本次上传（调用方持有 spoolLock）
+     *
+     * @return 0 表示可以立即上传，否则为需要等待的毫秒数
+     */
+    private long reserveUpload(long now) {
+        if (now < nextAttemptAt) {
+            return nextAttemptAt - now;
+        }
+        while (!uploadTimes.isEmpty() && now - uploadTimes.peekFirst() >= HOUR_MILLIS) {
+            uploadTimes.pollFirst();
+        }
+        if (uploadTimes.size() >= getMaxUploadsPerHour()) {
+            return Math.max(1L, uploadTimes.peekFirst() + HOUR_MILLIS - now);
+        }
+        uploadTimes.addLast(now);
+        return 0;
+    }
+
+    /**
+     * 上传失败：加倍重试间隔
+     */
+    private void backOff(long now) {
+        countReport("failed");
+        long delay;
+        synchronized (spoolLock) {
+            consecutiveFailures++;
+            delay = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(consecutiveFailures - 1, 10));
+            nextAttemptAt = now + delay;
+        }
+        scheduleDrain(delay);
+    }
+
+    long getNextAttemptAt() {
+        synchronized (spoolLock) {
+            return nextAttemptAt;
+        }
+    }
+
+    /**
+     * 安排稍后在 I/O 执行器上上传暂存的报告包（已有等待中的任务时不重复安排）
+     */
+    private void scheduleDrain(long delayMillis) {
+        if (!plugin.isEnabled() || !drainScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        long ticks = Math.max(1L, delayMillis / 50L);
+        try {
+            drainTask.set(runLater("error_report.drain", () -> {
+                drainScheduled.set(false);
+                // I/O 执行器已满时稍后再试，报告包仍留在暂存目录
+                runIo(this::drainSpool, () -> scheduleDrain(getBatchSeconds() * 1000L));
+            }, ticks));
+        } catch (RuntimeException e) {
+            // 插件正在禁用，报告包留到下次启动上传
+            drainScheduled.set(false);
+        }
+    }
+
+    /**
+     * 延时回到主线程执行；宿主是 FancyHelper 时计入 tick 耗时统计
+     */
+    private BukkitTask runLater(String operation, Runnable task, long ticks) {
+        if (plugin instanceof FancyHelper) {
+            return TickProfiler.runTaskLater((FancyHelper) plugin, operation, task, ticks);
+        }
+        return Bukkit.getScheduler().runTaskLater(plugin, task, ticks);
+    }
+
+    /**
+     * 将阻塞的生成与上传工作交给插件的 I/O 执行器；没有执行器时（如测试）直接执行
+     *
+     * @param task       阻塞任务
+     * @param onRejected I/O 执行器拒绝任务时的处理
+     */
+    private void runIo(Runnable task, Runnable onRejected) {
+        IoExecutor io = plugin instanceof FancyHelper ? ((FancyHelper) plugin).getIoExecutor() : null;
+        if (io == null) {
+            task.run();
+            return;
+        }
+        io.supply(() -> {
+            task.run();
+            return null;
+        }).whenComplete((ignored, error) -> {
+            if (error == null) {
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof RejectedExecutionException) {
+                onRejected.run();
+            } else {
+                plugin.getLogger().warning("错误上报任务执行出错: " + cause.getMessage());
             }
         });
     }
 
     /**
-     * 收集日志文件
+     * 按结果统计错误上报次数
+     */
+    private void countReport(String result) {
+        MetricsRegistry metrics = plugin instanceof FancyHelper ? ((FancyHelper) plugin).getMetrics() : null;
+        if (metrics != null) {
+            metrics.increment(MetricsRegistry.ERROR_REPORTS, "result", result);
+        }
+    }
+
+    private ConfigManager config() {
+        return plugin instanceof FancyHelper ? ((FancyHelper) plugin).getConfigManager() : null;
+    }
+
+    private int getDedupMinutes() {
+        ConfigManager config = config();
+        return config != null ? config.getErrorReportDedupMinutes() : 60;
+    }
+
+    private int getBatchSeconds() {
+        ConfigManager config = config();
+        return config != null ? config.getErrorReportBatchSeconds() : 30;
+    }
+
+    private int getMaxUploadsPerHour() {
+        ConfigManager config = config();
+        return config != null ? config.getErrorReportMaxUploadsPerHour() : 6;
+    }
+
+    private long getSpoolMaxBytes() {
+        ConfigManager config = config();
+        return (config != null ? config.getErrorReportSpoolMaxKb() : 2048) * 1024L;
+    }
+
+    File spoolDir() {
+        return new File(plugin.getDataFolder(), "error-reports");
+    }
+
+    /**
+     * 暂存目录中的报告包，按生成顺序排列
+     */
+    List<File> listSpool() {
+        File[] files = spoolDir().listFiles((dir, name) -> name.endsWith(BUNDLE_SUFFIX));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        List<File> bundles = new ArrayList<>(Arrays.asList(files));
+        bundles.sort(Comparator.comparing(File::getName));
+        return bundles;
+    }
+
+    /**
+     * 生成报告包：错误信息、终端日志、CLI 会话日志与配置文件压缩为一个 zip，写完后再放入暂存目录
      *
-     * @param tempDir 临时目录
-     * @param throwable 异常
-     * @return 收集的日志文件列表
+     * @param errors 本批次的错误
+     * @param repeated 去重窗口内再次出现的已上报错误次数
+     * @return 报告包文件
      * @throws IOException IO异常
      */
-    private List<File> collectLogFiles(File tempDir, Throwable throwable) throws IOException {
-        List<File> logFiles = new ArrayList<>();
+    File writeBundle(List<PendingError> errors, Map<String, Integer> repeated) throws IOException {
+        File dir = spoolDir();
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        String name = "report-" + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date()) + "-" + bundleSeq.getAndIncrement();
+        File part = new File(dir, name + PART_SUFFIX);
+        File bundle = new File(dir, name + BUNDLE_SUFFIX);
+
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(part)))) {
+            // 1. 错误信息
+            putEntry(zip, "messages.log", collectErrorMessages(errors, repeated).getBytes(StandardCharsets.UTF_8));
 
-        // 1. 收集最近200条终端消息
-        File consoleLog = new File(tempDir, "console.log");
-        collectConsoleMessages(consoleLog);
-        logFiles.add(consoleLog);
+            // 2. 最近200条终端消息
+            putEntry(zip, "console.log", collectConsoleMessages().getBytes(StandardCharsets.UTF_8));
 
-        // 2. 收集CLI会话日志（根据在线CLI人数智能收集）
-        List<File> cliSessionLogs = collectCLISessionLogs(tempDir);
-        logFiles.addAll(cliSessionLogs);
+            // 3. CLI会话日志（根据在线CLI人数智能收集）
+            collectCLISessionLogs(zip);
+
+            // 4. 配置文件
+            collectConfigFile(zip);
+        } catch (IOException | RuntimeException e) {
+            part.delete();
+            throw e;
+        }
 
-        // 3. 收集错误信息
-        File messagesLog = new File(tempDir, "messages.log");
-        collectErrorMessages(messagesLog, throwable);
-        logFiles.add(messagesLog);
+        try {
+            Files.move(part.toPath(), bundle.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part.toPath(), bundle.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        trimSpool();
+        return bundle;
+    }
 
-        // 4. 收集配置文件
-        File configFile = collectConfigFile(tempDir);
-        if (configFile != null) {
-            logFiles.add(configFile);
+    /**
+     * 暂存目录超过容量上限时删除最早的报告包
+     */
+    private void trimSpool() {
+        List<File> bundles = listSpool();
+        long total = 0;
+        for (File bundle : bundles) {
+            total += bundle.length();
         }
+        long max = getSpoolMaxBytes();
+        for (Iterator<File> it = bundles.iterator(); it.hasNext() && total > max; ) {
+            File oldest = it.next();
+            total -= oldest.length();
+            if (oldest.delete()) {
+                countReport("dropped");
+            }
+        }
+    }
 
-        return logFiles;
+    private static void putEntry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    /**
+     * 收集错误信息：每个错误的出现次数与堆栈，以及去重窗口内再次出现的已上报错误
+     */
+    private String collectErrorMessages(List<PendingError> errors, Map<String, Integer> repeated) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        StringBuilder sb = new StringBuilder();
+        for (PendingError error : errors) {
+            sb.append("[").append(error.fingerprint).append("] 次数: ").append(error.count)
+                    .append(", 首次: ").append(format.format(new Date(error.firstSeen)))
+                    .append(", 最近: ").append(format.format(new Date(error.lastSeen))).append("\n");
+            sb.append(error.stackTrace).append("\n");
+        }
+        if (!repeated.isEmpty()) {
+            sb.append("已上报的错误再次出现:\n");
+            for (Map.Entry<String, Integer> entry : repeated.entrySet()) {
+                sb.append("[").append(entry.getKey()).append("] 次数: ").append(entry.getValue()).append("\n");
+            }
+        }
+        return sb.toString();
     }
 
     /**
      * 收集最近200条终端消息
      *
-     * @param file 目标文件
+     * @return 终端消息
      * @throws IOException IO异常
      */
-    private void collectConsoleMessages(File file) throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8))) {
-            writer.write("最近200条终端消息:\n");
-            
-            // 尝试获取服务器日志文件
-            File serverLog = new File("logs/latest.log");
-            if (serverLog.exists() && serverLog.isFile()) {
-                // 读取日志文件的最后部分
-                try (RandomAccessFile raf = new RandomAccessFile(serverLog, "r")) {
-                    long fileLength = raf.length();
-                    long startPos = Math.max(0, fileLength - 1024 * 1024); // 读取最后1MB
-                    raf.seek(startPos);
-                    
-                    List<String> lines = new ArrayList<>();
-                    String line;
-                    while ((line = raf.readLine()) != null) {
-                        lines.add(line);
-                    }
-                    
-                    // 取最近200条
-                    int startIndex = Math.max(0, lines.size() - 200);
-                    for (int i = startIndex; i < lines.size(); i++) {
-                        writer.write(lines.get(i));
-                        writer.newLine();
+    private String collectConsoleMessages() throws IOException {
+        StringBuilder sb = new StringBuilder("最近200条终端消息:\n");
+        // 尝试获取服务器日志文件
+        File serverLog = new File("logs/latest.log");
+        if (serverLog.exists() && serverLog.isFile()) {
+            sb.append(tailLines(serverLog, CONSOLE_TAIL_LINES, CONSOLE_TAIL_BYTES));
+        } else {
+            sb.append("无法找到服务器日志文件\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 从文件末尾向前按块读取，直到凑够指定行数或达到字节上限
+     *
+     * @param file 文件
+     * @param maxLines 最多行数
+     * @param maxBytes 最多读取的字节数
+     * @return 末尾的若干行
+     * @throws IOException IO异常
+     */
+    static String tailLines(File file, int maxLines, long maxBytes) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long end = raf.length();
+            long limit = Math.max(0, end - maxBytes);
+            long pos = end;
+            int newlines = 0;
+            byte[] block = new byte[8192];
+            while (pos > limit && newlines <= maxLines) {
+                int len = (int) Math.min(block.length, pos - limit);
+                pos -= len;
+                raf.seek(pos);
+                raf.readFully(block, 0, len);
+                for (int i = 0; i < len; i++) {
+                    if (block[i] == '\n') {
+                        newlines++;
                     }
                 }
-            } else {
-                writer.write("无法找到服务器日志文件\n");
             }
+
+            byte[] data = new byte[(int) (end - pos)];
+            raf.seek(pos);
+            raf.readFully(data);
+            String[] lines = new String(data, StandardCharsets.UTF_8).split("\r?\n");
+            // 未从文件开头读取时，第一行可能不完整
+            int start = Math.max(pos > 0 ? 1 : 0, lines.length - maxLines);
+            StringBuilder sb = new StringBuilder();
+            for (int i = start; i < lines.length; i++) {
+                sb.append(lines[i]).append('\n');
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * 读取文件末尾不超过指定字节数的内容
+     */
+    private static byte[] tailBytes(File file, long maxBytes) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long start = Math.max(0, raf.length() - maxBytes);
+            byte[] data = new byte[(int) (raf.length() - start)];
+            raf.seek(start);
+            raf.readFully(data);
+            return data;
         }
     }
 
@@ -150,147 +720,116 @@ public class CloudErrorReport {
      * 收集CLI会话日志（智能收集）
      * 根据当前处于CLI模式的人数，收集对应数量的最新日志文件
      *
-     * @param tempDir 临时目录
-     * @return 收集的日志文件列表
+     * @param zip 报告包
      * @throws IOException IO异常
      */
-    private List<File> collectCLISessionLogs(File tempDir) throws IOException {
-        List<File> collectedLogs = new ArrayList<>();
-
+    private void collectCLISessionLogs(ZipOutputStream zip) throws IOException {
         if (!(plugin instanceof FancyHelper)) {
-            return collectedLogs;
+            return;
         }
 
         FancyHelper fancyHelper = (FancyHelper) plugin;
         org.YanPl.manager.CLIManager cliManager = fancyHelper.getCliManager();
+        if (cliManager == null) {
+            return;
+        }
 
         // 获取当前处于CLI模式的人数
         int cliPlayerCount = cliManager.getActivePlayersCount();
         if (cliPlayerCount <= 0) {
-            return collectedLogs;
+            return;
         }
 
         // 获取logs目录
         File logsDir = new File(plugin.getDataFolder(), "logs");
         if (!logsDir.exists() || !logsDir.isDirectory()) {
-            return collectedLogs;
+            return;
         }
 
         // 获取所有日志文件并按修改时间排序
         File[] logFiles = logsDir.listFiles((dir, name) -> name.endsWith(".log"));
         if (logFiles == null || logFiles.length == 0) {
-            return collectedLogs;
+            return;
         }
 
         // 按最后修改时间降序排序
-        java.util.Arrays.sort(logFiles, (f1, f2) -> Long.compare(f2.lastModified(), f1.lastModified()));
+        Arrays.sort(logFiles, (f1, f2) -> Long.compare(f2.lastModified(), f1.lastModified()));
 
-        // 根据CLI人数收集对应数量的最新日志文件
+        // 根据CLI人数收集对应数量的最新日志文件，过大的日志只保留末尾部分
         int countToCollect = Math.min(cliPlayerCount, logFiles.length);
         for (int i = 0; i < countToCollect; i++) {
             File logFile = logFiles[i];
-            // 创建临时文件，使用原始文件名
-            File tempLogFile = new File(tempDir, logFile.getName());
-
-            // 复制日志内容
-            try (java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.FileReader(logFile, java.nio.charset.StandardCharsets.UTF_8));
-                 java.io.BufferedWriter writer = new java.io.BufferedWriter(new java.io.FileWriter(tempLogFile, java.nio.charset.StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    writer.write(line);
-                    writer.newLine();
-                }
-            }
-
-            collectedLogs.add(tempLogFile);
+            putEntry(zip, logFile.getName(), tailBytes(logFile, MAX_ENTRY_BYTES));
         }
-
-        return collectedLogs;
     }
 
     /**
      * 收集配置文件
      *
-     * @param tempDir 临时目录
-     * @return 配置文件
+     * @param zip 报告包
      * @throws IOException IO异常
      */
-    private File collectConfigFile(File tempDir) throws IOException {
+    private void collectConfigFile(ZipOutputStream zip) throws IOException {
         // 获取插件的配置文件
         File configFile = new File(plugin.getDataFolder(), "config.yml");
         if (configFile.exists() && configFile.isFile()) {
-            // 创建临时配置文件
-            File tempConfig = new File(tempDir, "config.yml");
-            
-            // 复制配置文件内容
-            try (java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.FileReader(configFile, java.nio.charset.StandardCharsets.UTF_8));
-                 java.io.BufferedWriter writer = new java.io.BufferedWriter(new java.io.FileWriter(tempConfig, java.nio.charset.StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    writer.write(line);
-                    writer.newLine();
-                }
-            }
-            
-            return tempConfig;
+            putEntry(zip, "config.yml", tailBytes(configFile, MAX_ENTRY_BYTES));
         }
-        return null;
     }
 
     /**
-     * 收集错误信息
+     * 上传报告包到Cloudflare Worker
      *
-     * @param file 目标文件
-     * @param throwable 异常
+     * @param bundle 报告包
+     * @return 响应码
      * @throws IOException IO异常
      */
-    private void collectErrorMessages(File file, Throwable throwable) throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8))) {
-            writer.write(getStackTraceString(throwable));
+    private int uploadBundle(File bundle) throws IOException {
+        // 上报服务本身故障时同样熔断，避免每次报错都等待连接超时
+        CircuitBreakerRegistry breakers = plugin instanceof FancyHelper ? ((FancyHelper) plugin).getCircuitBreakers() : null;
+        CircuitBreakerRegistry.CircuitBreaker breaker = breakers != null ? breakers.acquire(workerUrl) : null;
+        int responseCode;
+        try {
+            responseCode = postBundle(bundle);
+        } catch (IOException | RuntimeException e) {
+            if (breaker != null) {
+                breakers.record(breaker, -1, e);
+            }
+            throw e;
         }
+        if (breaker != null) {
+            breakers.record(breaker, responseCode, null);
+        }
+        return responseCode;
     }
 
     /**
-     * 上传文件到Cloudflare Worker
+     * 以 multipart 表单提交报告包
      *
-     * @param files 文件列表
+     * @param bundle 报告包
+     * @return 响应码
      * @throws IOException IO异常
      */
-    private void uploadFiles(List<File> files) throws IOException {
+    int postBundle(File bundle) throws IOException {
         String boundary = "----WebKitFormBoundary" + UUID.randomUUID().toString();
+        byte[] head = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"" + bundle.getName() + "\"\r\n"
+                + "Content-Type: application/zip\r\n"
+                + "\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+
         HttpURLConnection conn = (HttpURLConnection) new URL(workerUrl).openConnection();
         conn.setRequestMethod("POST");
         conn.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
         conn.setDoOutput(true);
         conn.setConnectTimeout(10000);
+        conn.setReadTimeout(30000);
+        conn.setFixedLengthStreamingMode(head.length + bundle.length() + tail.length);
 
         try (OutputStream os = conn.getOutputStream()) {
-            for (File file : files) {
-                if (file.length() > 500 * 1024) { // 检查文件大小是否超过500KB
-                    plugin.getLogger().warning("文件 " + file.getName() + " 大小超过500KB，跳过上传");
-                    continue;
-                }
-
-                // 写入文件部分
-                os.write(("--" + boundary + "\r\n").getBytes(StandardCharsets.UTF_8));
-                os.write(("Content-Disposition: form-data; name=\"files\"; filename=\"" + file.getName() + "\"\r\n").getBytes(StandardCharsets.UTF_8));
-                os.write(("Content-Type: text/plain\r\n").getBytes(StandardCharsets.UTF_8));
-                os.write(("\r\n").getBytes(StandardCharsets.UTF_8));
-
-                // 写入文件内容
-                try (FileInputStream fis = new FileInputStream(file)) {
-                    byte[] buffer = new byte[4096];
-                    int bytesRead;
-                    while ((bytesRead = fis.read(buffer)) != -1) {
-                        os.write(buffer, 0, bytesRead);
-                    }
-                }
-
-                os.write("\r\n".getBytes(StandardCharsets.UTF_8));
-            }
-
-            // 写入结束边界
-            os.write(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+            os.write(head);
+            Files.copy(bundle.toPath(), os);
+            os.write(tail);
         }
 
         // 读取响应
@@ -303,6 +842,7 @@ public class CloudErrorReport {
         } else {
             plugin.getLogger().warning("错误上报失败，响应码: " + responseCode);
         }
+        return responseCode;
     }
 
     /**
@@ -1,7 +1,6 @@
 package org.YanPl.util;
 
 import org.YanPl.FancyHelper;
-import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 
@@ -32,7 +31,7 @@ public class ErrorHandler {
         
         // 在主线程执行回调
         if (plugin.isEnabled()) {
-            Bukkit.getScheduler().runTask(plugin, () -> {
+            TickProfiler.runTask(plugin, "error.callback", () -> {
                 if (callback != null) {
                     callback.run();
                 }
@@ -116,7 +115,7 @@ public class ErrorHandler {
      */
     public void runOnMainThread(Runnable task) {
         if (plugin.isEnabled()) {
-            Bukkit.getScheduler().runTask(plugin, task);
+            TickProfiler.runTask(plugin, "error.main_thread", task);
         }
     }
 
@@ -127,7 +126,7 @@ public class ErrorHandler {
      */
     public void runOnMainThreadLater(Runnable task, long delay) {
         if (plugin.isEnabled()) {
-            Bukkit.getScheduler().runTaskLater(plugin, task, delay);
+            TickProfiler.runTaskLater(plugin, "error.main_thread", task, delay);
         }
     }
 }
@@ -0,0 +1,222 @@
+package org.YanPl.util;
+
+import org.YanPl.FancyHelper;
+
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * 阻塞 I/O 执行器：AI 请求、搜索、网页读取、更新下载与错误上报等长时间阻塞的任务统一在此执行，
+ * 不再占用 Bukkit 异步调度器的线程池，避免与其他插件的异步任务争抢。
+ * 运行在 Java 21+ 时通过反射使用虚拟线程（每个任务一个虚拟线程，阻塞等待几乎没有开销），
+ * 否则回退到有界的平台线程池：最多 io_max_threads 个线程，等待队列最多 io_max_threads * 32 个任务，队列满时拒绝并警告。
+ * <p>
+ * 已在 I/O 任务中运行、又需要并发等待多个子请求的调用方（AI 服务商对冲、聚合搜索）必须把子请求提交到
+ * {@link #getFanOutExecutor()}，而不是本执行器：否则在平台线程池下，所有线程都可能阻塞在等待子请求上，
+ * 而子请求排在同一个队列里永远得不到执行。
+ */
+public class IoExecutor implements Executor {
+
+    /**
+     * 执行器模式
+     */
+    public enum Mode {
+        /**
+         * 每个任务一个虚拟线程
+         */
+        VIRTUAL,
+        /**
+         * 有界平台线程池
+         */
+        PLATFORM
+    }
+
+    /**
+     * 当前任务提交后在队列中等待的时间，供指标统计 AI 请求的排队耗时
+     */
+    private static final ThreadLocal<Long> QUEUED_NANOS = new ThreadLocal<>();
+
+    /**
+     * 平台线程池每个线程对应的等待队列长度
+     */
+    static final int QUEUE_PER_THREAD = 32;
+    /**
+     * 平台线程模式下，每个 I/O 线程最多同时并发的子请求数（服务商数、搜索后端数加上对冲请求）
+     */
+    static final int FAN_OUT_PER_THREAD = 4;
+
+    private final FancyHelper plugin;
+    private final ExecutorService delegate;
+    private final ExecutorService fanOut;
+    private final Mode mode;
+
+    public IoExecutor(FancyHelper plugin) {
+        this.plugin = plugin;
+        String configured = plugin.getConfigManager().getIoExecutorMode().toLowerCase(Locale.ROOT);
+        ExecutorService virtual = configured.equals("platform") ? null : createVirtualExecutor();
+        if (virtual != null) {
+            this.delegate = virtual;
+            this.fanOut = virtual;
+            this.mode = Mode.VIRTUAL;
+        } else {
+            if (configured.equals("virtual")) {
+                plugin.getLogger().warning("当前 Java 版本 (" + Runtime.version().feature() + ") 不支持虚拟线程，已回退到平台线程池。");
+            }
+            int maxThreads = plugin.getConfigManager().getIoMaxThreads();
+            this.delegate = createPlatformExecutor(maxThreads);
+            this.fanOut = createFanOutExecutor(maxThreads * FAN_OUT_PER_THREAD);
+            this.mode = Mode.PLATFORM;
+        }
+        if (plugin.getConfigManager().isDebug()) {
+            plugin.getLogger().info("I/O 执行器已启动，模式: " + mode);
+        }
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器，运行在 Java 21 以下时返回 null
+     */
+    static ExecutorService createVirtualExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            builder = ofVirtual.getMethod("name", String.class, long.class).invoke(builder, "FancyHelper-IO-", 0L);
+            ThreadFactory factory = (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 17 上不存在这些方法；Java 19/20 未开启预览特性时会抛出 UnsupportedOperationException
+            return null;
+        }
+    }
+
+    static ExecutorService createPlatformExecutor(int maxThreads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(maxThreads * QUEUE_PER_THREAD), daemonFactory("FancyHelper-IO-"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 子请求执行器：不排队，直接为每个子请求分配线程，空闲线程 60 秒后回收。
+     * 子请求只由 I/O 线程发起，线程数上限按 I/O 线程数乘以单次最多的并发子请求数计算，正常情况下不会触及
+     */
+    static ExecutorService createFanOutExecutor(int maxThreads) {
+        return new ThreadPoolExecutor(0, maxThreads, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                daemonFactory("FancyHelper-FanOut-"));
+    }
+
+    private static ThreadFactory daemonFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 平台线程池的等待队列已满、任务未被执行时反馈给玩家或 AI 的说明
+     */
+    public static final String QUEUE_FULL_MESSAGE = "I/O 任务队列已满，请求未执行，请稍后重试";
+
+    /**
+     * 提交阻塞任务；任务中未捕获的异常会记录到日志。
+     * 队列已满或执行器已关闭时任务被丢弃，需要回调的调用方应使用 {@link #execute(Runnable, Runnable)}
+     */
+    @Override
+    public void execute(Runnable task) {
+        execute(task, null);
+    }
+
+    /**
+     * 提交阻塞任务；任务未被接受（队列已满或执行器已关闭）时在调用线程上执行 onRejected，
+     * 调用方据此向玩家或 AI 反馈错误、释放已占用的资源，而不是一直等待不会到来的回调
+     */
+    public void execute(Runnable task, Runnable onRejected) {
+        long submitted = System.nanoTime();
+        try {
+            delegate.execute(() -> {
+                QUEUED_NANOS.set(System.nanoTime() - submitted);
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    plugin.getLogger().log(Level.WARNING, "I/O 任务执行出错: " + t.getMessage(), t);
+                } finally {
+                    QUEUED_NANOS.remove();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (!delegate.isShutdown()) {
+                plugin.getLogger().warning("I/O 任务队列已满，拒绝任务。可在配置文件中调大 network.io_max_threads。");
+            } else if (plugin.getConfigManager().isDebug()) {
+                plugin.getLogger().info("I/O 执行器已关闭，丢弃任务。");
+            }
+            if (onRejected != null) {
+                onRejected.run();
+            }
+        }
+    }
+
+    /**
+     * 当前线程正在执行的任务在队列中等待的时间（纳秒），不在 I/O 执行器中运行时返回 0
+     */
+    public static long currentQueuedNanos() {
+        Long queued = QUEUED_NANOS.get();
+        return queued != null ? queued : 0L;
+    }
+
+    /**
+     * 提交有返回值的阻塞任务
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, delegate);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * 底层执行器，供 CompletableFuture 等需要 Executor 的场景直接使用
+     */
+    public ExecutorService getExecutorService() {
+        return delegate;
+    }
+
+    /**
+     * 子请求执行器：在 I/O 任务中并发发起、并阻塞等待结果的子请求使用（虚拟线程模式下与底层执行器相同）
+     */
+    public ExecutorService getFanOutExecutor() {
+        return fanOut;
+    }
+
+    /**
+     * 关闭执行器并中断仍在阻塞的任务（HTTP 请求与 sleep 均可被中断）
+     */
+    public void shutdown() {
+        delegate.shutdownNow();
+        fanOut.shutdownNow();
+        try {
+            if (!delegate.awaitTermination(2, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("部分 I/O 任务未能在关闭前结束。");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
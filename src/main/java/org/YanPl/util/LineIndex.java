@@ -0,0 +1,236 @@
+package org.YanPl.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 文件行偏移索引：每隔 {@link #STRIDE} 行记录一次行首的字节偏移，
+ * 读取任意行时只需从最近的检查点向后扫描不超过 STRIDE 行，无需从头遍历文件。
+ * 索引只以 '\n' 作为换行符（兼容 "\r\n"），不可变，可在多个线程间共享。
+ */
+public final class LineIndex {
+    /**
+     * 检查点间隔（行）
+     */
+    public static final int STRIDE = 64;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int HEAD_SIZE = 4096;
+
+    private final long size;
+    private final long lastModified;
+    private final long[] checkpoints;
+    private final int checkpointCount;
+    private final long newlineCount;
+    private final long tailStart;
+    private final long headCrc;
+    private final long tailCrc;
+
+    /**
+     * 逐行访问回调，bytes 中的前 length 个字节为该行内容（不含换行符）
+     */
+    public interface LineVisitor {
+        /**
+         * @return false 表示停止遍历
+         */
+        boolean visit(int lineNumber, byte[] bytes, int length, boolean crlf) throws IOException;
+    }
+
+    private LineIndex(long size, long lastModified, long[] checkpoints, int checkpointCount,
+                      long newlineCount, long tailStart, long headCrc, long tailCrc) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.checkpoints = checkpoints;
+        this.checkpointCount = checkpointCount;
+        this.newlineCount = newlineCount;
+        this.tailStart = tailStart;
+        this.headCrc = headCrc;
+        this.tailCrc = tailCrc;
+    }
+
+    /**
+     * 为文件的前 size 字节建立索引
+     */
+    public static LineIndex build(Path path, long size, long lastModified) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] checkpoints = new long[16];
+            checkpoints[0] = 0L;
+            return scan(channel, 0L, size, lastModified, checkpoints, 1, 0L, 0L, crc(channel, 0L, size));
+        }
+    }
+
+    /**
+     * 文件只在末尾追加内容时（如 latest.log），从上次索引的结尾继续扫描；
+     * 若文件没有变大，或原有内容的头部/尾部已改变（说明中间被修改过），则完整重建
+     */
+    public LineIndex extend(Path path, long newSize, long newLastModified) throws IOException {
+        if (newSize <= size || size < HEAD_SIZE) {
+            return build(path, newSize, newLastModified);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (crc(channel, 0L, size) != headCrc || crc(channel, size - HEAD_SIZE, size) != tailCrc) {
+                return build(path, newSize, newLastModified);
+            }
+            long[] copy = Arrays.copyOf(checkpoints, Math.max(checkpoints.length, checkpointCount + 1));
+            return scan(channel, size, newSize, newLastModified, copy, checkpointCount, newlineCount, tailStart, headCrc);
+        }
+    }
+
+    private static LineIndex scan(FileChannel channel, long from, long size, long lastModified,
+                                  long[] checkpoints, int checkpointCount,
+                                  long newlineCount, long tailStart, long headCrc) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] array = buffer.array();
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            int limit = (int) Math.min(BUFFER_SIZE, size - position);
+            buffer.limit(limit);
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (array[i] != '\n') continue;
+                newlineCount++;
+                tailStart = position + i + 1;
+                if (newlineCount % STRIDE == 0) {
+                    if (checkpointCount == checkpoints.length) {
+                        checkpoints = Arrays.copyOf(checkpoints, checkpoints.length * 2);
+                    }
+                    checkpoints[checkpointCount++] = tailStart;
+                }
+            }
+            position += read;
+        }
+        long tailCrc = crc(channel, Math.max(0L, position - HEAD_SIZE), position);
+        return new LineIndex(position, lastModified, checkpoints, checkpointCount, newlineCount, tailStart, headCrc, tailCrc);
+    }
+
+    /**
+     * 计算 [from, min(from + HEAD_SIZE, to)) 区间内容的 CRC32
+     */
+    private static long crc(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate((int) Math.max(0L, Math.min(HEAD_SIZE, to - from)));
+        while (window.hasRemaining()) {
+            if (channel.read(window, from + window.position()) <= 0) break;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(window.array(), 0, window.position());
+        return crc.getValue();
+    }
+
+    /**
+     * 索引是否仍与文件的当前大小与修改时间一致
+     */
+    public boolean matches(long size, long lastModified) {
+        return this.size == size && this.lastModified == lastModified;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * 文件总行数（与 BufferedReader.readLine 的计数方式一致，末尾换行不计为空行）
+     */
+    public int getLineCount() {
+        long count = newlineCount + (size > tailStart ? 1 : 0);
+        return (int) Math.min(Integer.MAX_VALUE, count);
+    }
+
+    /**
+     * 获取指定行（从 1 开始）行首的字节偏移；行号超过总行数时返回文件长度
+     */
+    public long lineStart(FileChannel channel, int line) throws IOException {
+        if (line <= 1) return 0L;
+        if (line > getLineCount()) return size;
+        int target = line - 1;
+        int checkpoint = Math.min(target / STRIDE, checkpointCount - 1);
+        long position = checkpoints[checkpoint];
+        int toSkip = target - checkpoint * STRIDE;
+        if (toSkip == 0) return position;
+
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] array = buffer.array();
+        while (position < size) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, size - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (array[i] == '\n' && --toSkip == 0) {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * 从 startLine（从 1 开始）起读取最多 maxLines 行，去掉行尾的 "\r"
+     */
+    public List<String> readLines(FileChannel channel, int startLine, int maxLines) throws IOException {
+        List<String> lines = new ArrayList<>(Math.min(Math.max(maxLines, 0), 256));
+        forEachLine(channel, startLine, maxLines, (lineNumber, bytes, length, crlf) -> {
+            lines.add(decode(bytes, length));
+            return true;
+        });
+        return lines;
+    }
+
+    /**
+     * 从 startLine（从 1 开始）起逐行访问最多 maxLines 行的原始字节，不为每行创建字符串
+     */
+    public void forEachLine(FileChannel channel, int startLine, int maxLines, LineVisitor visitor) throws IOException {
+        if (maxLines <= 0) return;
+        int lineNumber = Math.max(1, startLine);
+        int visited = 0;
+        long position = lineStart(channel, lineNumber);
+
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] array = buffer.array();
+        byte[] line = new byte[256];
+        int lineLength = 0;
+        while (position < size) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, size - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                byte b = array[i];
+                if (b == '\n') {
+                    boolean crlf = lineLength > 0 && line[lineLength - 1] == '\r';
+                    if (!visitor.visit(lineNumber++, line, crlf ? lineLength - 1 : lineLength, crlf)
+                            || ++visited >= maxLines) {
+                        return;
+                    }
+                    lineLength = 0;
+                    continue;
+                }
+                if (lineLength == line.length) {
+                    line = Arrays.copyOf(line, line.length * 2);
+                }
+                line[lineLength++] = b;
+            }
+            position += read;
+        }
+        if (lineLength > 0) {
+            boolean crlf = line[lineLength - 1] == '\r';
+            visitor.visit(lineNumber, line, crlf ? lineLength - 1 : lineLength, crlf);
+        }
+    }
+
+    /**
+     * 以 UTF-8 解码一行的字节
+     */
+    public static String decode(byte[] bytes, int length) {
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,424 @@
+package org.YanPl.util;
+
+import com.sun.net.httpserver.HttpServer;
+import org.YanPl.FancyHelper;
+import org.YanPl.api.AnswerCache;
+import org.YanPl.manager.ConfigManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 运行指标注册表：无锁计数器与 HDR 风格（对数分桶、约 6% 相对误差）的延迟直方图，
+ * 以 Prometheus 文本格式通过可选的本地 HTTP 监听与 /fancy metrics 输出。
+ * 未启用时所有记录方法在读取一个 volatile 字段后立即返回。
+ */
+public class MetricsRegistry {
+    public static final String AI_QUEUE_SECONDS = "fancyhelper_ai_queue_seconds";
+    public static final String AI_NETWORK_SECONDS = "fancyhelper_ai_network_seconds";
+    public static final String AI_PARSE_SECONDS = "fancyhelper_ai_parse_seconds";
+    public static final String AI_TOKENS = "fancyhelper_ai_tokens_total";
+    public static final String TOOL_SECONDS = "fancyhelper_tool_duration_seconds";
+    public static final String CAPTURE_WAIT_SECONDS = "fancyhelper_command_capture_wait_seconds";
+    public static final String CACHE_REQUESTS = "fancyhelper_cache_requests_total";
+    public static final String CLI_SESSIONS = "fancyhelper_cli_sessions";
+    public static final String ERROR_REPORTS = "fancyhelper_error_reports_total";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final FancyHelper plugin;
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+    private volatile boolean enabled;
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String serverAddress;
+
+    /**
+     * 指标类型
+     */
+    public enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        SUMMARY("summary");
+
+        private final String prometheusName;
+
+        Type(String prometheusName) {
+            this.prometheusName = prometheusName;
+        }
+    }
+
+    /**
+     * 同名指标的所有序列，按标签区分
+     */
+    public static final class Family {
+        private final String name;
+        private final Type type;
+        private final String help;
+        private final Map<String, Object> series = new ConcurrentHashMap<>();
+
+        Family(String name, Type type, String help) {
+            this.name = name;
+            this.type = type;
+            this.help = help;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * 计数器与仪表的当前值，按标签排序
+         */
+        public Map<String, Long> values() {
+            Map<String, Long> values = new TreeMap<>();
+            for (Map.Entry<String, Object> entry : series.entrySet()) {
+                Object metric = entry.getValue();
+                if (metric instanceof LongAdder) {
+                    values.put(entry.getKey(), ((LongAdder) metric).sum());
+                } else if (metric instanceof LongSupplier) {
+                    values.put(entry.getKey(), ((LongSupplier) metric).getAsLong());
+                }
+            }
+            return values;
+        }
+
+        /**
+         * 直方图序列，按标签排序
+         */
+        public Map<String, Histogram> histograms() {
+            Map<String, Histogram> histograms = new TreeMap<>();
+            for (Map.Entry<String, Object> entry : series.entrySet()) {
+                if (entry.getValue() instanceof Histogram) {
+                    histograms.put(entry.getKey(), (Histogram) entry.getValue());
+                }
+            }
+            return histograms;
+        }
+    }
+
+    /**
+     * HDR 风格的直方图：以微秒记录，每个 2 的幂区间再均分为 16 个子桶，
+     * 记录只做一次数组原子自增，不需要加锁
+     */
+    public static final class Histogram {
+        static final int SUB_BUCKET_BITS = 4;
+        static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        /**
+         * 超过 2^40 微秒（约 12 天）的值计入最后一个桶
+         */
+        static final int MAX_EXPONENT = 40;
+
+        private final AtomicLongArray buckets = new AtomicLongArray((MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        public void record(long micros) {
+            long value = Math.max(0, micros);
+            buckets.incrementAndGet(indexOf(value));
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        static int indexOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+            int sub = (int) ((Math.min(value, (1L << (MAX_EXPONENT + 1)) - 1) >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        /**
+         * 桶的下界（微秒）
+         */
+        static long lowerBoundOf(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            int sub = index % SUB_BUCKETS;
+            return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+        }
+
+        /**
+         * 估算分位数（微秒），取所在桶的中点，不超过记录到的最大值
+         */
+        public long quantile(double q) {
+            long total = count.sum();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(q * total));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    long lower = lowerBoundOf(i);
+                    long width = i < SUB_BUCKETS ? 1 : lowerBoundOf(i + 1) - lower;
+                    return Math.min(lower + width / 2, getMax());
+                }
+            }
+            return getMax();
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getSum() {
+            return sum.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * 将另一个直方图的记录累加进来（用于合并滚动窗口的各个分段）
+         */
+        void merge(Histogram other) {
+            for (int i = 0; i < buckets.length(); i++) {
+                long n = other.buckets.get(i);
+                if (n != 0) {
+                    buckets.addAndGet(i, n);
+                }
+            }
+            count.add(other.count.sum());
+            sum.add(other.sum.sum());
+            max.accumulate(other.max.get());
+        }
+    }
+
+    public MetricsRegistry(FancyHelper plugin) {
+        this.plugin = plugin;
+        define(AI_QUEUE_SECONDS, Type.SUMMARY, "AI 请求在 I/O 执行器中的排队时间");
+        define(AI_NETWORK_SECONDS, Type.SUMMARY, "AI 请求的网络耗时（含连接与等待模型输出）");
+        define(AI_PARSE_SECONDS, Type.SUMMARY, "AI 响应的解析耗时");
+        define(AI_TOKENS, Type.COUNTER, "按服务商统计的 Token 用量");
+        define(TOOL_SECONDS, Type.SUMMARY, "工具从开始执行到结果反馈给 AI 的耗时");
+        define(CAPTURE_WAIT_SECONDS, Type.SUMMARY, "#run 命令等待输出捕获的时间");
+        define(CACHE_REQUESTS, Type.COUNTER, "缓存查询次数");
+        define(CLI_SESSIONS, Type.GAUGE, "当前处于 CLI 模式的玩家数");
+        define(ERROR_REPORTS, Type.COUNTER, "错误上报次数");
+
+        // 已有统计的组件在抓取时读取，不在请求路径上重复计数
+        register(CLI_SESSIONS, () -> plugin.getCliManager() != null ? plugin.getCliManager().getActivePlayersCount() : 0);
+        register(CACHE_REQUESTS, () -> {
+            AnswerCache cache = plugin.getAnswerCache();
+            return cache != null ? cache.getHits() : 0;
+        }, "cache", "answer", "result", "hit");
+        register(CACHE_REQUESTS, () -> {
+            AnswerCache cache = plugin.getAnswerCache();
+            return cache != null ? cache.getMisses() : 0;
+        }, "cache", "answer", "result", "miss");
+    }
+
+    private void define(String name, Type type, String help) {
+        families.put(name, new Family(name, type, help));
+    }
+
+    /**
+     * 注册在抓取时才读取的计数器或仪表
+     */
+    public void register(String name, LongSupplier supplier, String... labels) {
+        families.get(name).series.put(labelsOf(labels), supplier);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void increment(String name, String... labels) {
+        add(name, 1, labels);
+    }
+
+    public void add(String name, long delta, String... labels) {
+        if (!enabled) {
+            return;
+        }
+        ((LongAdder) families.get(name).series.computeIfAbsent(labelsOf(labels), key -> new LongAdder())).add(delta);
+    }
+
+    public void observeNanos(String name, long nanos, String... labels) {
+        if (!enabled) {
+            return;
+        }
+        ((Histogram) families.get(name).series.computeIfAbsent(labelsOf(labels), key -> new Histogram())).record(nanos / 1000);
+    }
+
+    /**
+     * 把 key/value 交替排列的标签渲染为 Prometheus 格式（不含花括号）
+     */
+    static String labelsOf(String... labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"");
+            String value = labels[i + 1] == null ? "" : labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '\\' || c == '"') {
+                    sb.append('\\').append(c);
+                } else if (c == '\n') {
+                    sb.append("\\n");
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 所有指标，按名称排序
+     */
+    public Map<String, Family> getFamilies() {
+        return Collections.unmodifiableMap(new TreeMap<>(families));
+    }
+
+    /**
+     * 以 Prometheus 文本格式（0.0.4）输出所有指标，直方图以 summary 的分位数形式输出（单位秒）
+     */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder();
+        for (Family family : getFamilies().values()) {
+            sb.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            sb.append("# TYPE ").append(family.name).append(' ').append(family.type.prometheusName).append('\n');
+            if (family.type == Type.SUMMARY) {
+                for (Map.Entry<String, Histogram> entry : family.histograms().entrySet()) {
+                    String labels = entry.getKey();
+                    Histogram histogram = entry.getValue();
+                    for (double q : QUANTILES) {
+                        String withQuantile = (labels.isEmpty() ? "" : labels + ",") + "quantile=\"" + q + "\"";
+                        appendSample(sb, family.name, withQuantile, seconds(histogram.quantile(q)));
+                    }
+                    appendSample(sb, family.name + "_sum", labels, seconds(histogram.getSum()));
+                    appendSample(sb, family.name + "_count", labels, String.valueOf(histogram.getCount()));
+                }
+            } else {
+                for (Map.Entry<String, Long> entry : family.values().entrySet()) {
+                    appendSample(sb, family.name, entry.getKey(), String.valueOf(entry.getValue()));
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendSample(StringBuilder sb, String name, String labels, String value) {
+        sb.append(name);
+        if (!labels.isEmpty()) {
+            sb.append('{').append(labels).append('}');
+        }
+        sb.append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long micros) {
+        return String.valueOf(micros / 1_000_000.0);
+    }
+
+    /**
+     * 按配置启用或关闭记录，并在监听地址变化时重启 HTTP 监听（配置重载时调用）
+     */
+    public synchronized void reload() {
+        ConfigManager config = plugin.getConfigManager();
+        enabled = config.isMetricsEnabled();
+        String host = config.getMetricsHttpHost();
+        int port = config.getMetricsHttpPort();
+        String address = enabled && port > 0 ? host + ":" + port : null;
+        if (Objects.equals(address, serverAddress)) {
+            return;
+        }
+        stopServer();
+        if (address != null) {
+            startServer(host, port);
+        }
+    }
+
+    private void startServer(String host, int port) {
+        try {
+            HttpServer httpServer = HttpServer.create(new InetSocketAddress(host, port), 0);
+            httpServer.createContext("/metrics", exchange -> {
+                try {
+                    if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                        exchange.sendResponseHeaders(405, -1);
+                        return;
+                    }
+                    byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                } finally {
+                    exchange.close();
+                }
+            });
+            serverExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "FancyHelper-Metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            httpServer.setExecutor(serverExecutor);
+            httpServer.start();
+            server = httpServer;
+            serverAddress = host + ":" + port;
+            plugin.getLogger().info("指标监听已启动: http://" + serverAddress + "/metrics");
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().warning("无法启动指标监听 " + host + ":" + port + ": " + e.getMessage());
+            if (serverExecutor != null) {
+                serverExecutor.shutdownNow();
+                serverExecutor = null;
+            }
+        }
+    }
+
+    private void stopServer() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (serverExecutor != null) {
+            serverExecutor.shutdownNow();
+            serverExecutor = null;
+        }
+        serverAddress = null;
+    }
+
+    /**
+     * 当前的监听地址，未监听时为 null
+     */
+    public synchronized String getServerAddress() {
+        return serverAddress;
+    }
+
+    public synchronized void shutdown() {
+        enabled = false;
+        stopServer();
+    }
+}
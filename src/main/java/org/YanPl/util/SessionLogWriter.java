@@ -0,0 +1,61 @@
+package org.YanPl.util;
+
+import org.YanPl.FancyHelper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * 会话日志写入线程：AI 交互日志的格式化与日志文件的追加写入都在这一条后台线程上按提交顺序执行，
+ * AI 请求线程与主线程只负责提交任务。插件关闭时会写完队列中剩余的日志。
+ */
+public class SessionLogWriter implements Executor {
+    private final FancyHelper plugin;
+    private final ThreadPoolExecutor delegate;
+
+    public SessionLogWriter(FancyHelper plugin) {
+        this.plugin = plugin;
+        this.delegate = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "FancyHelper-SessionLog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 提交日志任务；写入线程已关闭时在当前线程上直接执行，避免丢失关闭过程中的日志
+     */
+    @Override
+    public void execute(Runnable task) {
+        try {
+            delegate.execute(() -> {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    plugin.getLogger().log(Level.WARNING, "会话日志写入出错: " + t.getMessage(), t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * 写完剩余日志后关闭写入线程
+     */
+    public void shutdown() {
+        delegate.shutdown();
+        try {
+            if (!delegate.awaitTermination(5, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("部分会话日志未能在关闭前写入。");
+                delegate.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
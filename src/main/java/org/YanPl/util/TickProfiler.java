@@ -0,0 +1,313 @@
+package org.YanPl.util;
+
+import org.YanPl.FancyHelper;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 主线程耗时分析：统计插件在服务器主线程上每个 tick 花费的时间，并按操作名称归类。
+ * 调度到主线程的任务与事件监听入口通过 {@link #runTask}、{@link #runTaskLater} 或 {@link #enter} 计时；
+ * 统计保留最近一个滚动窗口（按分段轮换），单次操作超过配置的预算时输出警告。
+ * 嵌套的操作各自记录包含子操作在内的耗时，每 tick 的合计只累加最外层。
+ */
+public class TickProfiler {
+    /**
+     * 滚动窗口的分段数，每次轮换丢弃最旧的一段
+     */
+    static final int SEGMENTS = 6;
+    /**
+     * 同一操作两次超预算警告之间的最小间隔
+     */
+    private static final long WARN_INTERVAL_NANOS = 60_000_000_000L;
+    private static final Section NOOP = new Section(null, null, 0L, false);
+
+    private final FancyHelper plugin;
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<MetricsRegistry.Histogram> tickSegments = new AtomicReferenceArray<>(SEGMENTS);
+    private final long[] segmentTicks = new long[SEGMENTS];
+    private volatile boolean enabled;
+    private volatile long budgetNanos;
+    private volatile long segmentLength;
+    private volatile int segment;
+    private volatile Thread mainThread;
+    private BukkitTask tickTask;
+    // 以下字段只在主线程上读写
+    private int depth;
+    private long tickNanos;
+
+    /**
+     * 单个操作在滚动窗口内的统计
+     */
+    static final class Operation {
+        final String name;
+        final AtomicReferenceArray<MetricsRegistry.Histogram> segments = new AtomicReferenceArray<>(SEGMENTS);
+        final LongAdder[] nanos = new LongAdder[SEGMENTS];
+        volatile long lastWarned;
+
+        Operation(String name) {
+            this.name = name;
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments.set(i, new MetricsRegistry.Histogram());
+                nanos[i] = new LongAdder();
+            }
+        }
+
+        void reset(int index) {
+            segments.set(index, new MetricsRegistry.Histogram());
+            nanos[index].reset();
+        }
+    }
+
+    /**
+     * 一次计时，结束时调用 {@link #close()}（可用于 try-with-resources）
+     */
+    public static final class Section implements AutoCloseable {
+        private final TickProfiler profiler;
+        private final Operation operation;
+        private final long start;
+        private final boolean mainThread;
+
+        Section(TickProfiler profiler, Operation operation, long start, boolean mainThread) {
+            this.profiler = profiler;
+            this.operation = operation;
+            this.start = start;
+            this.mainThread = mainThread;
+        }
+
+        @Override
+        public void close() {
+            if (profiler != null) {
+                profiler.exit(this, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * 某个操作在窗口内的汇总，用于 /fancy profile 展示
+     */
+    public static final class Summary {
+        private final String name;
+        private final MetricsRegistry.Histogram histogram;
+        private final long totalNanos;
+        private final long ticks;
+
+        Summary(String name, MetricsRegistry.Histogram histogram, long totalNanos, long ticks) {
+            this.name = name;
+            this.histogram = histogram;
+            this.totalNanos = totalNanos;
+            this.ticks = ticks;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 单次执行耗时（微秒）
+         */
+        public MetricsRegistry.Histogram getHistogram() {
+            return histogram;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /**
+         * 平均每 tick 花费的纳秒数
+         */
+        public long getNanosPerTick() {
+            return ticks > 0 ? totalNanos / ticks : 0;
+        }
+    }
+
+    public TickProfiler(FancyHelper plugin) {
+        this.plugin = plugin;
+        for (int i = 0; i < SEGMENTS; i++) {
+            tickSegments.set(i, new MetricsRegistry.Histogram());
+        }
+    }
+
+    /**
+     * 在主线程上调用：记录主线程并开始逐 tick 汇总
+     */
+    public void start() {
+        mainThread = Thread.currentThread();
+        reload();
+        if (tickTask != null) {
+            tickTask.cancel();
+        }
+        if (!plugin.isEnabled()) return;
+        tickTask = Bukkit.getScheduler().runTaskTimer(plugin, this::onTick, 1L, 1L);
+    }
+
+    /**
+     * 读取开关、预算与窗口长度（配置重载时调用）
+     */
+    public void reload() {
+        enabled = plugin.getConfigManager().isProfilerEnabled();
+        budgetNanos = (long) (plugin.getConfigManager().getProfilerWarnMillis() * 1_000_000L);
+        segmentLength = Math.max(1L, plugin.getConfigManager().getProfilerWindowSeconds() * 20L / SEGMENTS);
+    }
+
+    public void shutdown() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 开始计时一个操作
+     *
+     * @param operation 操作名称，如 cli.ai_response
+     */
+    public Section enter(String operation) {
+        if (!enabled) {
+            return NOOP;
+        }
+        boolean onMain = Thread.currentThread() == mainThread;
+        if (onMain) {
+            depth++;
+        }
+        return new Section(this, operations.computeIfAbsent(operation, Operation::new), System.nanoTime(), onMain);
+    }
+
+    private void exit(Section section, long elapsed) {
+        int index = segment;
+        section.operation.segments.get(index).record(elapsed / 1000);
+        section.operation.nanos[index].add(elapsed);
+        if (section.mainThread && --depth == 0) {
+            tickNanos += elapsed;
+        }
+        if (section.mainThread && budgetNanos > 0 && elapsed > budgetNanos) {
+            long now = System.nanoTime();
+            if (section.operation.lastWarned == 0 || now - section.operation.lastWarned > WARN_INTERVAL_NANOS) {
+                section.operation.lastWarned = now;
+                plugin.getLogger().warning("[Profiler] " + section.operation.name + " 在主线程上耗时 "
+                        + String.format("%.2f", elapsed / 1_000_000.0) + "ms，超过预算 "
+                        + String.format("%.2f", budgetNanos / 1_000_000.0) + "ms");
+            }
+        }
+    }
+
+    /**
+     * 包装任务，使其执行时计入指定操作
+     */
+    public Runnable wrap(String operation, Runnable task) {
+        return () -> {
+            try (Section ignored = enter(operation)) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * 每 tick 执行一次：记录本 tick 的合计耗时，分段写满后轮换到下一段
+     */
+    void onTick() {
+        depth = 0;
+        int index = segment;
+        tickSegments.get(index).record(tickNanos / 1000);
+        tickNanos = 0;
+        if (++segmentTicks[index] >= segmentLength) {
+            int next = (index + 1) % SEGMENTS;
+            tickSegments.set(next, new MetricsRegistry.Histogram());
+            segmentTicks[next] = 0;
+            for (Operation operation : operations.values()) {
+                operation.reset(next);
+            }
+            segment = next;
+        }
+    }
+
+    /**
+     * 窗口内每 tick 的合计耗时（微秒）
+     */
+    public MetricsRegistry.Histogram getTickHistogram() {
+        MetricsRegistry.Histogram merged = new MetricsRegistry.Histogram();
+        for (int i = 0; i < SEGMENTS; i++) {
+            merged.merge(tickSegments.get(i));
+        }
+        return merged;
+    }
+
+    /**
+     * 窗口内统计到的 tick 数
+     */
+    public long getWindowTicks() {
+        long ticks = 0;
+        for (long t : segmentTicks) {
+            ticks += t;
+        }
+        return ticks;
+    }
+
+    /**
+     * 按窗口内总耗时从高到低排列的各操作汇总
+     */
+    public List<Summary> getSummaries() {
+        long ticks = getWindowTicks();
+        List<Summary> summaries = new ArrayList<>();
+        for (Operation operation : operations.values()) {
+            MetricsRegistry.Histogram merged = new MetricsRegistry.Histogram();
+            long total = 0;
+            for (int i = 0; i < SEGMENTS; i++) {
+                merged.merge(operation.segments.get(i));
+                total += operation.nanos[i].sum();
+            }
+            if (merged.getCount() > 0) {
+                summaries.add(new Summary(operation.name, merged, total, ticks));
+            }
+        }
+        summaries.sort(Comparator.comparingLong(Summary::getTotalNanos).reversed());
+        return summaries;
+    }
+
+    /**
+     * 清空所有统计
+     */
+    public void reset() {
+        operations.clear();
+        for (int i = 0; i < SEGMENTS; i++) {
+            tickSegments.set(i, new MetricsRegistry.Histogram());
+            segmentTicks[i] = 0;
+        }
+    }
+
+    /**
+     * 开始计时；插件尚未创建分析器时（如单元测试）返回空操作
+     */
+    public static Section enter(FancyHelper plugin, String operation) {
+        TickProfiler profiler = plugin.getTickProfiler();
+        return profiler != null ? profiler.enter(operation) : NOOP;
+    }
+
+    /**
+     * 在主线程上执行任务并计入指定操作
+     */
+    public static BukkitTask runTask(FancyHelper plugin, String operation, Runnable task) {
+        TickProfiler profiler = plugin.getTickProfiler();
+        return Bukkit.getScheduler().runTask(plugin, profiler != null ? profiler.wrap(operation, task) : task);
+    }
+
+    /**
+     * 延迟若干 tick 后在主线程上执行任务并计入指定操作
+     */
+    public static BukkitTask runTaskLater(FancyHelper plugin, String operation, Runnable task, long delay) {
+        TickProfiler profiler = plugin.getTickProfiler();
+        return Bukkit.getScheduler().runTaskLater(plugin, profiler != null ? profiler.wrap(operation, task) : task, delay);
+    }
+}
@@ -0,0 +1,175 @@
+package org.YanPl.api;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.manager.ConfigManager;
+import org.YanPl.model.AIResponse;
+import org.YanPl.model.DialogueSession;
+import org.YanPl.util.IoExecutor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("AnswerCache 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class AnswerCacheTest {
+
+    private static final String PROMPT = "[Basic Rules]\n...\n[Environment]\nPlayer: Steve\nAvailable Presets: res.txt\nCurrent Time: 2026-01-01 10:00\n";
+
+    @Mock
+    private FancyHelper plugin;
+
+    @Mock
+    private ConfigManager configManager;
+
+    @Mock
+    private IoExecutor ioExecutor;
+
+    @TempDir
+    File dataFolder;
+
+    private AnswerCache cache;
+
+    @BeforeEach
+    void setUp() {
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("AnswerCacheTest"));
+        when(plugin.getDataFolder()).thenReturn(dataFolder);
+        when(plugin.getIoExecutor()).thenReturn(ioExecutor);
+        // 在调用线程上直接执行，便于断言磁盘状态
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(ioExecutor).execute(any(Runnable.class));
+        when(configManager.isAnswerCacheEnabled()).thenReturn(true);
+        when(configManager.getAnswerCacheTtlMinutes()).thenReturn(60);
+        when(configManager.getAnswerCacheMaxEntries()).thenReturn(2);
+        when(configManager.getAnswerCacheDiskMaxEntries()).thenReturn(10);
+        cache = new AnswerCache(plugin);
+    }
+
+    private static DialogueSession firstTurn(String message) {
+        DialogueSession session = new DialogueSession();
+        session.addMessage("user", message);
+        return session;
+    }
+
+    private static AIResponse answer(String content) {
+        return new AIResponse(content, null, 1000, 50, false);
+    }
+
+    @Test
+    @DisplayName("规范化后相同的问题命中缓存，不同玩家与时间不影响命中")
+    void testHitAcrossPlayers() {
+        AnswerCache.Lookup miss = cache.lookup(firstTurn("怎么  设置领地？"), PROMPT, "deepseek-chat");
+        assertNull(miss.getAnswer());
+        cache.store(miss, answer("使用 /res create 创建领地。 #end"));
+
+        String otherPlayer = PROMPT.replace("Player: Steve", "Player: Alex").replace("10:00", "11:30");
+        AnswerCache.Lookup hit = cache.lookup(firstTurn("怎么设置领地"), otherPlayer, "deepseek-chat");
+
+        assertNotNull(hit.getAnswer());
+        assertEquals("使用 /res create 创建领地。 #end", hit.getAnswer().getContent());
+        assertEquals(0, hit.getAnswer().getPromptTokens());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        // 模型或静态提示词不同则不命中
+        assertNull(cache.lookup(firstTurn("怎么设置领地"), PROMPT, "gpt-4o").getAnswer());
+        assertNull(cache.lookup(firstTurn("怎么设置领地"), PROMPT.replace("res.txt", "ess.txt"), "deepseek-chat").getAnswer());
+    }
+
+    @Test
+    @DisplayName("只缓存第一轮的玩家消息")
+    void testOnlyFirstTurn() {
+        DialogueSession session = firstTurn("服务器版本");
+        session.addMessage("assistant", "#run: version");
+        session.addMessage("user", "#run_result: Paper 1.21");
+
+        assertNull(cache.lookup(session, PROMPT, "m"));
+        assertNull(cache.lookup(firstTurn("#exit"), PROMPT, "m"));
+
+        when(configManager.isAnswerCacheEnabled()).thenReturn(false);
+        assertNull(cache.lookup(firstTurn("服务器版本"), PROMPT, "m"));
+    }
+
+    @Test
+    @DisplayName("包含有副作用工具、被截断或出错的回答不缓存")
+    void testCacheable() {
+        assertTrue(AnswerCache.isCacheable(answer("领地插件的说明如下… #end")));
+        assertTrue(AnswerCache.isCacheable(answer("#getpreset: res.txt")));
+        assertTrue(AnswerCache.isCacheable(answer("#search: residence 插件 权限")));
+        assertFalse(AnswerCache.isCacheable(answer("#run: gamemode creative")));
+        assertFalse(AnswerCache.isCacheable(answer("#edit: config.yml|10-10|a|b")));
+        assertFalse(AnswerCache.isCacheable(answer("#todo: [{\"id\":\"1\",\"task\":\"x\"}]")));
+        assertFalse(AnswerCache.isCacheable(answer("#ask: {\"question\":\"?\"}")));
+        assertFalse(AnswerCache.isCacheable(answer("#remember: style|concise")));
+        assertFalse(AnswerCache.isCacheable(new AIResponse("说明如下", null, 10, 4096, true)));
+        assertFalse(AnswerCache.isCacheable(answer("错误: 请先在配置文件中设置 openai.api_key。")));
+        assertFalse(AnswerCache.isCacheable(answer("  ")));
+
+        AnswerCache.Lookup lookup = cache.lookup(firstTurn("切换创造模式"), PROMPT, "m");
+        cache.store(lookup, answer("#run: gamemode creative"));
+        assertNull(cache.lookup(firstTurn("切换创造模式"), PROMPT, "m").getAnswer());
+    }
+
+    @Test
+    @DisplayName("内存淘汰后仍可从磁盘命中，失效后全部清空")
+    void testDiskTierAndInvalidation() {
+        for (String question : new String[]{"问题一", "问题二", "问题三"}) {
+            cache.store(cache.lookup(firstTurn(question), PROMPT, "m"), answer(question + "的回答 #end"));
+        }
+        assertEquals(2, cache.size());
+        File dir = new File(dataFolder, "cache/answers");
+        assertEquals(3, dir.listFiles().length);
+
+        AnswerCache reloaded = new AnswerCache(plugin);
+        assertEquals("问题一的回答 #end", reloaded.lookup(firstTurn("问题一"), PROMPT, "m").getAnswer().getContent());
+
+        AnswerCache.Lookup pending = cache.lookup(firstTurn("问题四"), PROMPT, "m");
+        cache.invalidateAll("测试");
+        cache.store(pending, answer("问题四的回答 #end"));
+
+        assertEquals(0, cache.size());
+        assertEquals(0, dir.listFiles().length);
+        assertNull(cache.lookup(firstTurn("问题一"), PROMPT, "m").getAnswer());
+        assertNull(cache.lookup(firstTurn("问题四"), PROMPT, "m").getAnswer());
+    }
+
+    @Test
+    @DisplayName("过期的条目不再命中，并从磁盘删除")
+    void testTtl() throws Exception {
+        when(configManager.getAnswerCacheTtlMinutes()).thenReturn(1);
+        String key = AnswerCache.keyOf(AnswerCache.stablePrompt(PROMPT), "m", AnswerCache.normalize("旧问题"));
+        File file = new File(dataFolder, "cache/answers/" + key + ".json");
+        assertTrue(file.getParentFile().mkdirs());
+        Files.write(file.toPath(), ("{\"content\":\"旧回答 #end\",\"created\":" + (System.currentTimeMillis() - 120_000L) + "}")
+                .getBytes(StandardCharsets.UTF_8));
+
+        assertNull(cache.lookup(firstTurn("旧问题"), PROMPT, "m").getAnswer());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    @DisplayName("规范化忽略大小写、全角字符、多余空白与末尾标点")
+    void testNormalize() {
+        assertEquals("how to install essentialsx", AnswerCache.normalize("  How to   install ＥssentialsX?? "));
+        assertEquals("怎么设置领地", AnswerCache.normalize("怎么设置领地？！"));
+        assertEquals(AnswerCache.stablePrompt(PROMPT), AnswerCache.stablePrompt(PROMPT.replace("Steve", "Alex")));
+        assertFalse(AnswerCache.stablePrompt(PROMPT).contains("Current Time"));
+    }
+}
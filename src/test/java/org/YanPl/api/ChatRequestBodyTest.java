@@ -0,0 +1,95 @@
+package org.YanPl.api;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.YanPl.model.DialogueSession;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ChatRequestBody 测试")
+class ChatRequestBodyTest {
+
+    private static JsonObject parse(ChatRequestBody body) {
+        return JsonParser.parseString(body.toString()).getAsJsonObject();
+    }
+
+    @Test
+    @DisplayName("请求体包含模型、参数与 system 提示词开头的消息数组")
+    void testBodyStructure() {
+        ChatRequestBody body = new ChatRequestBody("gpt-4o", "  你是 Minecraft 助手  ", List.of(
+                new DialogueSession.Message("user", "你好"),
+                new DialogueSession.Message("assistant", "有什么可以帮你？")))
+                .option("reasoning_effort", "medium");
+
+        JsonObject json = parse(body);
+        assertEquals("gpt-4o", json.get("model").getAsString());
+        assertEquals(4096, json.get("max_tokens").getAsInt());
+        assertEquals("medium", json.get("reasoning_effort").getAsString());
+
+        JsonArray messages = json.getAsJsonArray("messages");
+        assertEquals(3, messages.size());
+        assertEquals("system", messages.get(0).getAsJsonObject().get("role").getAsString());
+        assertEquals("你是 Minecraft 助手", messages.get(0).getAsJsonObject().get("content").getAsString());
+        assertEquals("assistant", messages.get(2).getAsJsonObject().get("role").getAsString());
+    }
+
+    @Test
+    @DisplayName("跳过空消息与历史中的 system 消息，只剩 system 提示词时补充备用用户消息")
+    void testSkipsUnsendableMessages() {
+        ChatRequestBody body = new ChatRequestBody("m", null, List.of(
+                new DialogueSession.Message("user", "   "),
+                new DialogueSession.Message("system", "旧的系统消息"),
+                new DialogueSession.Message("", "没有角色")));
+
+        JsonArray messages = parse(body).getAsJsonArray("messages");
+        assertEquals(2, messages.size());
+        assertEquals("你是一个得力的助手。", messages.get(0).getAsJsonObject().get("content").getAsString());
+        assertEquals("hello", messages.get(1).getAsJsonObject().get("content").getAsString());
+    }
+
+    @Test
+    @DisplayName("Responses API 使用 input 字段并支持对象参数")
+    void testInputFieldAndObjectOption() {
+        JsonObject reasoning = new JsonObject();
+        reasoning.addProperty("effort", "medium");
+        ChatRequestBody body = new ChatRequestBody("@cf/openai/gpt-oss-120b", "sys",
+                List.of(new DialogueSession.Message("user", "hi")))
+                .messagesField("input")
+                .option("reasoning", reasoning);
+
+        JsonObject json = parse(body);
+        assertFalse(json.has("messages"));
+        assertEquals(2, json.getAsJsonArray("input").size());
+        assertEquals("medium", json.getAsJsonObject("reasoning").get("effort").getAsString());
+    }
+
+    @Test
+    @DisplayName("内容中的特殊字符被正确转义，长度等于 UTF-8 字节数")
+    void testEscapingAndLength() {
+        String content = "引号\" 反斜杠\\ 换行\n 制表\t </script>";
+        ChatRequestBody body = new ChatRequestBody("m", "sys",
+                List.of(new DialogueSession.Message("user", content)));
+
+        JsonArray messages = parse(body).getAsJsonArray("messages");
+        assertEquals(content.trim(), messages.get(1).getAsJsonObject().get("content").getAsString());
+        assertEquals(body.toString().getBytes(StandardCharsets.UTF_8).length, body.getLength());
+    }
+
+    @Test
+    @DisplayName("同一条消息的 JSON 片段只编码一次，后续请求直接复用")
+    void testFragmentCached() {
+        DialogueSession.Message message = new DialogueSession.Message("user", "你好");
+        byte[] first = message.toJson();
+
+        new ChatRequestBody("m", "sys", List.of(message)).toString();
+        new ChatRequestBody("m", "another", List.of(message)).toString();
+
+        assertSame(first, message.toJson());
+    }
+}
@@ -0,0 +1,147 @@
+package org.YanPl.api;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.manager.ConfigManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("CircuitBreakerRegistry 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CircuitBreakerRegistryTest {
+
+    @Mock
+    private FancyHelper plugin;
+
+    @Mock
+    private ConfigManager configManager;
+
+    @Mock
+    private HttpClient client;
+
+    private CircuitBreakerRegistry registry;
+
+    private final HttpRequest request = HttpRequest.newBuilder(URI.create("https://api.example.com/v1/chat")).build();
+
+    @BeforeEach
+    void setUp() {
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("CircuitBreakerRegistryTest"));
+        when(configManager.isDebug()).thenReturn(false);
+        when(configManager.isCircuitBreakerEnabled()).thenReturn(true);
+        when(configManager.getCircuitBreakerFailureThreshold()).thenReturn(3);
+        when(configManager.getCircuitBreakerOpenSeconds()).thenReturn(30);
+        registry = new CircuitBreakerRegistry(plugin);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpResponse<String> response(int status) {
+        HttpResponse<String> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(status);
+        return response;
+    }
+
+    @Test
+    @DisplayName("连续失败达到阈值后熔断，之后的请求立即失败且不再发出")
+    void testOpensAfterThreshold() throws Exception {
+        when(client.send(any(HttpRequest.class), any())).thenThrow(new ConnectException("Connection refused"));
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(ConnectException.class, () -> registry.send(client, request, HttpResponse.BodyHandlers.ofString()));
+        }
+        CircuitBreakerRegistry.CircuitOpenException error = assertThrows(CircuitBreakerRegistry.CircuitOpenException.class,
+                () -> registry.send(client, request, HttpResponse.BodyHandlers.ofString()));
+
+        assertEquals("api.example.com", error.getEndpoint());
+        assertTrue(error.getMessage().contains("暂时不可用"));
+        verify(client, times(3)).send(any(HttpRequest.class), any());
+        CircuitBreakerRegistry.CircuitBreaker breaker = registry.forUrl("https://api.example.com/other");
+        assertEquals(CircuitBreakerRegistry.State.OPEN, breaker.getState());
+        assertEquals(1, breaker.getTotalRejected());
+    }
+
+    @Test
+    @DisplayName("5xx 计为失败，4xx 与 429 说明服务可达，不计为失败")
+    void testStatusClassification() throws Exception {
+        HttpResponse<String> serverError = response(503);
+        HttpResponse<String> tooMany = response(429);
+        when(client.send(any(HttpRequest.class), any())).thenReturn(serverError, serverError, tooMany);
+
+        registry.send(client, request, HttpResponse.BodyHandlers.ofString());
+        registry.send(client, request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(2, registry.forUrl(request.uri().toString()).getConsecutiveFailures());
+
+        registry.send(client, request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(0, registry.forUrl(request.uri().toString()).getConsecutiveFailures());
+        assertEquals(CircuitBreakerRegistry.State.CLOSED, registry.forUrl(request.uri().toString()).getState());
+    }
+
+    @Test
+    @DisplayName("冷却期结束后半开状态只放行一个试探请求，成功后关闭")
+    void testHalfOpenSingleTrial() {
+        CircuitBreakerRegistry.CircuitBreaker breaker = registry.forUrl("https://api.example.com");
+        long now = 1_000_000L;
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure(now, "HTTP 502", 3, 30000);
+        }
+        assertFalse(breaker.tryAcquire(now + 29000));
+        assertEquals(1, breaker.getRetryInSeconds(now + 29000));
+
+        assertTrue(breaker.tryAcquire(now + 30000));
+        assertEquals(CircuitBreakerRegistry.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire(now + 30001));
+
+        breaker.recordSuccess();
+        assertEquals(CircuitBreakerRegistry.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire(now + 30002));
+    }
+
+    @Test
+    @DisplayName("试探失败后重新熔断且冷却期加倍，取消的试探释放名额")
+    void testTrialFailureDoublesCooldown() {
+        CircuitBreakerRegistry.CircuitBreaker breaker = registry.forUrl("https://api.example.com");
+        long now = 1_000_000L;
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure(now, "timeout", 3, 30000);
+        }
+
+        assertTrue(breaker.tryAcquire(now + 30000));
+        breaker.release();
+        assertTrue(breaker.tryAcquire(now + 30000));
+
+        breaker.recordFailure(now + 30000, "timeout", 3, 30000);
+        assertEquals(CircuitBreakerRegistry.State.OPEN, breaker.getState());
+        assertEquals(60, breaker.getRetryInSeconds(now + 30000));
+        assertEquals("timeout", breaker.getLastError());
+    }
+
+    @Test
+    @DisplayName("关闭熔断器后请求照常发出")
+    void testDisabled() throws Exception {
+        when(configManager.isCircuitBreakerEnabled()).thenReturn(false);
+        when(client.send(any(HttpRequest.class), any())).thenThrow(new IOException("down"));
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(IOException.class, () -> registry.send(client, request, HttpResponse.BodyHandlers.ofString()));
+        }
+        verify(client, times(5)).send(any(HttpRequest.class), any());
+    }
+}
@@ -0,0 +1,111 @@
+package org.YanPl.api;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.manager.ConfigManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.net.http.HttpClient;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ConnectionWarmer 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ConnectionWarmerTest {
+
+    @Mock
+    private FancyHelper plugin;
+
+    @Mock
+    private ConfigManager configManager;
+
+    private HttpClientRegistry clients;
+    private CircuitBreakerRegistry breakers;
+    private ConnectionWarmer warmer;
+
+    @BeforeEach
+    void setUp() {
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("ConnectionWarmerTest"));
+        when(configManager.getNetworkMaxThreads()).thenReturn(2);
+        when(configManager.getApiTimeoutSeconds()).thenReturn(120);
+        when(configManager.getNetworkProxy()).thenReturn("");
+        when(configManager.getNetworkProxyHosts()).thenReturn(List.of());
+        when(configManager.isCircuitBreakerEnabled()).thenReturn(true);
+        clients = new HttpClientRegistry(plugin);
+        breakers = new CircuitBreakerRegistry(plugin);
+        when(plugin.getHttpClients()).thenReturn(clients);
+        when(plugin.getCircuitBreakers()).thenReturn(breakers);
+        warmer = new ConnectionWarmer(plugin);
+    }
+
+    @AfterEach
+    void tearDown() {
+        clients.shutdown();
+    }
+
+    @Test
+    @DisplayName("按请求实际使用的客户端分组，同一主机只预连接一次")
+    void testCollectTargets() {
+        List<ProviderRouter.Provider> providers = List.of(
+                new ProviderRouter.Provider(ProviderRouter.Type.OPENAI, "https://api.deepseek.com/chat/completions", "k", "deepseek-chat"),
+                new ProviderRouter.Provider(ProviderRouter.Type.OPENAI, "https://api.deepseek.com/v1", "k", "deepseek-reasoner"),
+                new ProviderRouter.Provider(ProviderRouter.Type.CLOUDFLARE, "", "cf", "@cf/model"));
+
+        Map<HttpClient, Set<String>> targets = warmer.collectTargets(providers);
+
+        HttpClient api = clients.get(HttpClientRegistry.Profile.API, "https://api.deepseek.com");
+        assertEquals(Set.of("https://api.deepseek.com/", "https://api.cloudflare.com/"), targets.get(api));
+        // 未启用 Metaso / Tavily 时只额外预热 Wiki
+        HttpClient wiki = clients.get(SearchAggregator.WIKI_API_URL);
+        assertEquals(Set.of("https://zh.minecraft.wiki/"), targets.get(wiki));
+        assertEquals(2, targets.size());
+    }
+
+    @Test
+    @DisplayName("已熔断的服务不做预热")
+    void testSkipsOpenBreakers() {
+        CircuitBreakerRegistry.CircuitBreaker breaker = breakers.forUrl("https://api.deepseek.com/");
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure(System.currentTimeMillis(), "timeout", 3, 30000);
+        }
+
+        Map<HttpClient, Set<String>> targets = warmer.collectTargets(List.of(
+                new ProviderRouter.Provider(ProviderRouter.Type.OPENAI, "https://api.deepseek.com/v1", "k", "deepseek-chat")));
+
+        assertTrue(targets.values().stream().noneMatch(origins -> origins.contains("https://api.deepseek.com/")));
+    }
+
+    @Test
+    @DisplayName("Account ID 按密钥哈希持久化，数据文件中不出现密钥原文")
+    void testKeyHash() {
+        String hash = CloudFlareAI.keyHash("secret-cf-key");
+
+        assertEquals(16, hash.length());
+        assertTrue(hash.matches("[0-9a-f]+"));
+        assertFalse(hash.contains("secret"));
+        assertEquals(hash, CloudFlareAI.keyHash("secret-cf-key"));
+        assertNotEquals(hash, CloudFlareAI.keyHash("other-cf-key"));
+    }
+
+    @Test
+    @DisplayName("只保留 URL 的协议与主机部分")
+    void testOriginOf() {
+        assertEquals("https://metaso.cn/", ConnectionWarmer.originOf("https://metaso.cn/api/v1/chat/completions"));
+        assertEquals("http://127.0.0.1:8080/", ConnectionWarmer.originOf("http://127.0.0.1:8080/search?q=1"));
+        assertNull(ConnectionWarmer.originOf("not a url"));
+    }
+}
@@ -0,0 +1,99 @@
+package org.YanPl.api;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.manager.ConfigManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.net.http.HttpClient;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("HttpClientRegistry 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class HttpClientRegistryTest {
+
+    @Mock
+    private FancyHelper plugin;
+
+    @Mock
+    private ConfigManager configManager;
+
+    private HttpClientRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("HttpClientRegistryTest"));
+        when(configManager.getNetworkMaxThreads()).thenReturn(4);
+        when(configManager.getApiTimeoutSeconds()).thenReturn(120);
+        when(configManager.getNetworkProxy()).thenReturn("");
+        when(configManager.getNetworkProxyHosts()).thenReturn(List.of());
+        registry = new HttpClientRegistry(plugin);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    @DisplayName("相同配置档的不同主机共用同一个客户端")
+    void testClientReuse() {
+        HttpClient notice = registry.get("https://fcnotice.baicaizhale.top/v2/notice.json");
+        HttpClient wiki = registry.get("https://zh.minecraft.wiki/api.php");
+
+        assertSame(notice, wiki);
+        assertSame(notice, registry.get("https://api.github.com/repos"));
+        assertEquals(1, registry.getClientCount());
+        assertEquals(HttpClient.Version.HTTP_2, notice.version());
+    }
+
+    @Test
+    @DisplayName("已登记的主机及其子域名使用对应配置档")
+    void testHostProfile() {
+        HttpClient metaso = registry.get("https://metaso.cn/api/v1/chat/completions");
+        assertEquals(HttpClient.Version.HTTP_1_1, metaso.version());
+        assertEquals(120, metaso.connectTimeout().orElseThrow().getSeconds());
+
+        registry.setHostProfile("example.com", HttpClientRegistry.Profile.BROWSER);
+        HttpClient browser = registry.get("https://www.example.com/page");
+        assertEquals(HttpClient.Redirect.NORMAL, browser.followRedirects());
+        assertSame(browser, registry.get(HttpClientRegistry.Profile.BROWSER, "https://other.org"));
+    }
+
+    @Test
+    @DisplayName("代理只作用于配置的域名")
+    void testProxyHosts() {
+        when(configManager.getNetworkProxy()).thenReturn("127.0.0.1:7890");
+        when(configManager.getNetworkProxyHosts()).thenReturn(List.of("tavily.com"));
+
+        HttpClient proxied = registry.get("https://api.tavily.com/search");
+        HttpClient direct = registry.get("https://zh.minecraft.wiki/api.php");
+
+        assertNotSame(proxied, direct);
+        assertTrue(proxied.proxy().isPresent());
+        assertFalse(direct.proxy().isPresent());
+    }
+
+    @Test
+    @DisplayName("所有客户端共用注册表的线程池")
+    void testSharedExecutor() {
+        HttpClient api = registry.get(HttpClientRegistry.Profile.API, "https://api.openai.com/v1");
+        HttpClient web = registry.get(HttpClientRegistry.Profile.BROWSER, "https://example.com");
+
+        assertSame(registry.getExecutor(), api.executor().orElseThrow());
+        assertSame(registry.getExecutor(), web.executor().orElseThrow());
+    }
+}
@@ -0,0 +1,137 @@
+package org.YanPl.api;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.manager.ConfigManager;
+import org.YanPl.model.AIResponse;
+import org.YanPl.model.DialogueSession;
+import org.YanPl.model.TodoItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ModelTierRouter 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ModelTierRouterTest {
+
+    @Mock
+    private FancyHelper plugin;
+
+    @Mock
+    private ConfigManager configManager;
+
+    private ModelTierRouter router;
+
+    @BeforeEach
+    void setUp() {
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        when(configManager.isRoutingTiersEnabled()).thenReturn(true);
+        when(configManager.getCompressionModelProvider()).thenReturn("cloudflare");
+        when(configManager.getCloudflareCfKey()).thenReturn("cf");
+        when(configManager.getCompressionCloudflareModel()).thenReturn("@cf/google/gemma");
+        router = new ModelTierRouter(plugin);
+    }
+
+    private DialogueSession sessionWith(String lastMessage) {
+        DialogueSession session = new DialogueSession();
+        session.addMessage("user", "帮我配置一下领地插件");
+        session.addMessage("assistant", "#run: res help");
+        session.addMessage("user", lastMessage);
+        return session;
+    }
+
+    @Test
+    @DisplayName("确认与简单查询使用快速模型，规划类请求使用主模型")
+    void testPlayerMessages() {
+        assertEquals(ModelTierRouter.Tier.FAST, ModelTierRouter.classify("好的，谢谢", false));
+        assertEquals(ModelTierRouter.Tier.FAST, ModelTierRouter.classify("ok!", false));
+        assertEquals(ModelTierRouter.Tier.FAST, ModelTierRouter.classify("现在服务器有几个玩家", false));
+        assertEquals(ModelTierRouter.Tier.MAIN, ModelTierRouter.classify("帮我把主城的传送点移到出生点", false));
+        assertEquals(ModelTierRouter.Tier.MAIN, ModelTierRouter.classify("为什么红石不工作", false));
+        assertEquals(ModelTierRouter.Tier.MAIN, ModelTierRouter.classify("把所有玩家的金币清零，然后给每个人发一把钻石剑", false));
+    }
+
+    @Test
+    @DisplayName("工具输出总结使用快速模型，出错、待办与规划类工具使用主模型")
+    void testToolResults() {
+        assertEquals(ModelTierRouter.Tier.FAST, ModelTierRouter.classify("#run_result: 已给予 Steve 1 个苹果", false));
+        assertEquals(ModelTierRouter.Tier.FAST, ModelTierRouter.classify("#ls_result: plugins/\nserver.properties", false));
+        assertEquals(ModelTierRouter.Tier.FAST, ModelTierRouter.classify("#batch_result: 共 2 个工具的结果（按调用顺序）\n\n[1] ...", false));
+        assertEquals(ModelTierRouter.Tier.MAIN, ModelTierRouter.classify("#run_result: 错误 - 未知命令", false));
+        assertEquals(ModelTierRouter.Tier.MAIN, ModelTierRouter.classify("#run_result: 已给予 Steve 1 个苹果", true));
+        assertEquals(ModelTierRouter.Tier.MAIN, ModelTierRouter.classify("#todo_result: 已更新 3 项任务", false));
+        assertEquals(ModelTierRouter.Tier.MAIN, ModelTierRouter.classify("#ask_result: MySQL", false));
+        assertEquals(ModelTierRouter.Tier.MAIN, ModelTierRouter.classify("#error: 用户拒绝了此操作。", false));
+        assertEquals(ModelTierRouter.Tier.MAIN, ModelTierRouter.classify("#read_result: " + "x".repeat(ModelTierRouter.FAST_MAX_RESULT_CHARS), false));
+    }
+
+    @Test
+    @DisplayName("只有未完成的待办才会升级到主模型")
+    void testTodoState() {
+        DialogueSession session = sessionWith("#get_result: difficulty=hard");
+
+        assertEquals(ModelTierRouter.Tier.FAST, router.classify(session, List.of(
+                new TodoItem("1", "查看难度", TodoItem.Status.COMPLETED))));
+        assertEquals(ModelTierRouter.Tier.MAIN, router.classify(session, List.of(
+                new TodoItem("1", "查看难度", TodoItem.Status.COMPLETED),
+                new TodoItem("2", "修改难度", TodoItem.Status.PENDING))));
+    }
+
+    @Test
+    @DisplayName("未启用分层或未配置副模型密钥时始终使用主模型")
+    void testDisabled() {
+        DialogueSession session = sessionWith("好的");
+        assertEquals(ModelTierRouter.Tier.FAST, router.classify(session, List.of()));
+
+        when(configManager.getCloudflareCfKey()).thenReturn("");
+        assertNull(router.getFastProvider());
+        assertEquals(ModelTierRouter.Tier.MAIN, router.classify(session, List.of()));
+
+        when(configManager.getCloudflareCfKey()).thenReturn("cf");
+        when(configManager.isRoutingTiersEnabled()).thenReturn(false);
+        assertEquals(ModelTierRouter.Tier.MAIN, router.classify(session, List.of()));
+    }
+
+    @Test
+    @DisplayName("OpenAI 副模型未单独配置密钥时沿用主模型的地址与密钥")
+    void testOpenAiFastProvider() {
+        when(configManager.getCompressionModelProvider()).thenReturn("openai");
+        when(configManager.getCompressionOpenAiApiKey()).thenReturn("");
+        when(configManager.getOpenAiApiKey()).thenReturn("sk-main");
+        when(configManager.getOpenAiApiUrl()).thenReturn("https://api.deepseek.com/chat/completions");
+        when(configManager.getCompressionOpenAiModel()).thenReturn("deepseek-chat");
+
+        ProviderRouter.Provider provider = router.getFastProvider();
+
+        assertEquals(ProviderRouter.Type.OPENAI, provider.getType());
+        assertEquals("sk-main", provider.getApiKey());
+        assertEquals("https://api.deepseek.com/chat/completions", provider.getApiUrl());
+        assertEquals("deepseek-chat", provider.getModel());
+    }
+
+    @Test
+    @DisplayName("按层级累计延迟与 Token 用量")
+    void testStats() {
+        router.record(ModelTierRouter.Tier.FAST, 300, new AIResponse("ok", null, 1000, 20));
+        router.record(ModelTierRouter.Tier.FAST, 500, new AIResponse("ok", null, 1200, 30));
+        router.recordEscalation();
+
+        ModelTierRouter.TierStats fast = router.statsOf(ModelTierRouter.Tier.FAST);
+        assertEquals(2, fast.getRequests());
+        assertEquals(400, fast.getAverageLatency());
+        assertEquals(2200, fast.getPromptTokens());
+        assertEquals(50, fast.getCompletionTokens());
+        assertEquals(1, fast.getEscalations());
+        assertEquals(0, router.statsOf(ModelTierRouter.Tier.MAIN).getRequests());
+    }
+}
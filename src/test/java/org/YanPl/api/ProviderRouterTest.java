@@ -0,0 +1,224 @@
+package org.YanPl.api;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.manager.ConfigManager;
+import org.YanPl.util.IoExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ProviderRouter 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ProviderRouterTest {
+
+    @Mock
+    private FancyHelper plugin;
+
+    @Mock
+    private ConfigManager configManager;
+
+    private IoExecutor ioExecutor;
+    private ProviderRouter router;
+
+    private final ProviderRouter.Provider fast = new ProviderRouter.Provider(ProviderRouter.Type.OPENAI, "https://a.example.com/v1", "k", "fast");
+    private final ProviderRouter.Provider slow = new ProviderRouter.Provider(ProviderRouter.Type.OPENAI, "https://b.example.com/v1", "k", "slow");
+
+    @BeforeEach
+    void setUp() {
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("ProviderRouterTest"));
+        when(configManager.isDebug()).thenReturn(false);
+        when(configManager.getIoExecutorMode()).thenReturn("auto");
+        when(configManager.getIoMaxThreads()).thenReturn(8);
+        when(configManager.isRoutingHedgeEnabled()).thenReturn(true);
+        when(configManager.getRoutingHedgeDelayMillis()).thenReturn(0L);
+        when(configManager.getRoutingHedgeMinDelayMillis()).thenReturn(2000L);
+        when(configManager.getRoutingProviders()).thenReturn(List.of());
+        when(configManager.getApiTimeoutSeconds()).thenReturn(120);
+        ioExecutor = new IoExecutor(plugin);
+        when(plugin.getIoExecutor()).thenReturn(ioExecutor);
+        router = new ProviderRouter(plugin);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ioExecutor.shutdown();
+    }
+
+    @Test
+    @DisplayName("未配置路由列表时沿用单一服务商配置")
+    void testLegacyProviders() {
+        when(configManager.isOpenAiEnabled()).thenReturn(false);
+        when(configManager.getCloudflareCfKey()).thenReturn("cf");
+        when(configManager.getCloudflareModel()).thenReturn("@cf/model");
+
+        List<ProviderRouter.Provider> providers = router.getProviders();
+        assertEquals(1, providers.size());
+        assertEquals(ProviderRouter.Type.CLOUDFLARE, providers.get(0).getType());
+        assertEquals("@cf/model", providers.get(0).getModel());
+
+        when(configManager.getRoutingProviders()).thenReturn(List.of(
+                Map.of("type", "openai", "api_url", "https://api.deepseek.com/chat/completions", "api_key", "sk", "model", "deepseek-chat"),
+                Map.of("type", "cloudflare", "model", "@cf/other")));
+        providers = router.getProviders();
+        assertEquals(2, providers.size());
+        assertEquals("deepseek-chat", providers.get(0).getModel());
+        assertEquals("cf", providers.get(1).getApiKey());
+    }
+
+    @Test
+    @DisplayName("按 EWMA 延迟排序，不健康的服务商排在最后")
+    void testRanking() {
+        router.statsOf(slow).recordSuccess(3000);
+        router.statsOf(fast).recordSuccess(500);
+        assertEquals(List.of(fast, slow), router.rank(List.of(slow, fast)));
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            router.statsOf(fast).recordFailure(now);
+        }
+        assertEquals(List.of(slow, fast), router.rank(List.of(slow, fast)));
+    }
+
+    @Test
+    @DisplayName("5xx 时自动切换到下一个服务商")
+    void testFailover() throws IOException {
+        when(configManager.isRoutingHedgeEnabled()).thenReturn(false);
+        List<String> called = new CopyOnWriteArrayList<>();
+
+        String result = router.execute(List.of(fast, slow), provider -> {
+            called.add(provider.getModel());
+            if (provider == fast) {
+                throw new ProviderRouter.ProviderException("服务不可用", 503, true);
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(List.of("fast", "slow"), called);
+        assertEquals(1, router.statsOf(fast).getFailures());
+        assertEquals(1, router.statsOf(slow).getSuccesses());
+    }
+
+    @Test
+    @DisplayName("不可重试的错误（如 401）直接抛出，不再切换服务商")
+    void testNonRetryableError() {
+        when(configManager.isRoutingHedgeEnabled()).thenReturn(false);
+        List<String> called = new CopyOnWriteArrayList<>();
+
+        ProviderRouter.ProviderException error = assertThrows(ProviderRouter.ProviderException.class,
+                () -> router.execute(List.of(fast, slow), provider -> {
+                    called.add(provider.getModel());
+                    throw new ProviderRouter.ProviderException("API-key 不正确", 401, false);
+                }));
+
+        assertEquals(401, error.getStatusCode());
+        assertEquals(List.of("fast"), called);
+    }
+
+    @Test
+    @DisplayName("超过对冲延迟后向下一个服务商发送对冲请求，先返回者胜出")
+    void testHedge() throws IOException {
+        when(configManager.getRoutingHedgeDelayMillis()).thenReturn(100L);
+
+        long start = System.currentTimeMillis();
+        String result = router.execute(List.of(fast, slow), provider -> {
+            if (provider == fast) {
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted");
+                }
+                return "late";
+            }
+            return "hedged";
+        });
+
+        assertEquals("hedged", result);
+        assertTrue(System.currentTimeMillis() - start < 3000);
+        // 落败请求被取消，不计入错误
+        assertEquals(0, router.statsOf(fast).getFailures());
+    }
+
+    @Test
+    @DisplayName("服务商超过 API 超时时间未响应时转移到下一个服务商")
+    void testTimeoutFailover() throws IOException {
+        when(configManager.isRoutingHedgeEnabled()).thenReturn(false);
+        when(configManager.getApiTimeoutSeconds()).thenReturn(1);
+
+        long start = System.currentTimeMillis();
+        String result = router.execute(List.of(fast, slow), provider -> {
+            if (provider == fast) {
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted");
+                }
+                return "late";
+            }
+            return "failover";
+        });
+
+        assertEquals("failover", result);
+        assertTrue(System.currentTimeMillis() - start < 3000);
+    }
+
+    @Test
+    @DisplayName("I/O 线程池占满时在 I/O 任务中路由不会互相等待")
+    void testNestedOnSaturatedPool() throws Exception {
+        ioExecutor.shutdown();
+        when(configManager.getIoExecutorMode()).thenReturn("platform");
+        when(configManager.getIoMaxThreads()).thenReturn(1);
+        when(configManager.isRoutingHedgeEnabled()).thenReturn(false);
+        ioExecutor = new IoExecutor(plugin);
+        when(plugin.getIoExecutor()).thenReturn(ioExecutor);
+
+        CountDownLatch done = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            ioExecutor.execute(() -> {
+                try {
+                    if ("ok".equals(router.execute(List.of(fast, slow), provider -> "ok"))) {
+                        done.countDown();
+                    }
+                } catch (IOException ignored) {
+                }
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("自适应对冲延迟取 p95 且不低于下限")
+    void testHedgeDelay() {
+        assertEquals(8000, router.hedgeDelay(fast));
+        for (int i = 1; i <= 100; i++) {
+            router.statsOf(fast).recordSuccess(i * 100L);
+        }
+        assertEquals(router.statsOf(fast).getP95Latency(), router.hedgeDelay(fast));
+        assertTrue(router.statsOf(fast).getP95Latency() >= 9000);
+
+        router.statsOf(slow).recordSuccess(10);
+        assertEquals(2000, router.hedgeDelay(slow));
+    }
+}
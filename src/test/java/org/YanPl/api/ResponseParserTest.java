@@ -7,6 +7,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @DisplayName("ResponseParser 测试")
@@ -838,4 +843,79 @@ class ResponseParserTest {
         
         assertNull(response);
     }
+
+    @Test
+    @DisplayName("从响应流解码：字段顺序任意，同时提取 usage 与 finish_reason")
+    void testDecodeStream() throws IOException {
+        String json = """
+            {
+                "id": "chatcmpl-1",
+                "choices": [{
+                    "finish_reason": "stop",
+                    "message": {
+                        "reasoning_content": "思考过程",
+                        "content": "流式回复",
+                        "tool_calls": [{"id": "x", "function": {"arguments": "{}"}}]
+                    }
+                }, {
+                    "message": {"content": "第二个候选"}
+                }],
+                "usage": {"prompt_tokens": 120, "completion_tokens": 30, "total_tokens": 150}
+            }
+            """;
+
+        ResponseParser.Decoded decoded = parser.decode(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), 0);
+
+        assertEquals("流式回复", decoded.getResponse().getContent());
+        assertEquals("思考过程", decoded.getResponse().getThought());
+        assertEquals("stop", decoded.getFinishReason());
+        assertTrue(decoded.hasUsage());
+        assertEquals(120, decoded.getResponse().getPromptTokens());
+        assertEquals(30, decoded.getCompletionTokens());
+        assertEquals(150, decoded.getTotalTokens());
+        assertNull(decoded.getRaw());
+    }
+
+    @Test
+    @DisplayName("从响应流解码：output 项的 type 在 content 之后，使用 result.usage")
+    void testDecodeOutputTypeAfterContent() throws IOException {
+        String json = """
+            {
+                "output": [{
+                    "content": [{"text": "推理", "type": "reasoning_text"}],
+                    "type": "reasoning"
+                }, {
+                    "content": [{"text": "回复", "type": "output_text"}],
+                    "type": "message"
+                }],
+                "result": {"usage": {"prompt_tokens": 7, "completion_tokens": 3}}
+            }
+            """;
+
+        ResponseParser.Decoded decoded = parser.decode(new StringReader(json), 0);
+
+        assertEquals("回复", decoded.getResponse().getContent());
+        assertEquals("推理", decoded.getResponse().getThought());
+        assertEquals(7, decoded.getPromptTokens());
+        assertEquals(3, decoded.getResponse().getCompletionTokens());
+    }
+
+    @Test
+    @DisplayName("只在要求时保留原始响应体，并按上限截断")
+    void testDecodeKeepsRawOnlyWhenAsked() throws IOException {
+        String json = "{\"choices\":[{\"message\":{\"content\":\"回复\"}}]}  \n";
+
+        assertEquals(json, parser.decode(new StringReader(json), Integer.MAX_VALUE).getRaw());
+        assertEquals(json.substring(0, 10), parser.decode(new StringReader(json), 10).getRaw());
+        assertNull(parser.decode(new StringReader(json), 0).getRaw());
+    }
+
+    @Test
+    @DisplayName("截断的响应体抛出 IOException，非对象响应返回空结果")
+    void testDecodeMalformed() throws IOException {
+        assertThrows(IOException.class, () -> parser.decode(new StringReader("{\"choices\":[{\"message\":"), 0));
+        ResponseParser.Decoded decoded = parser.decode(new StringReader("[1, 2]"), 0);
+        assertNull(decoded.getResponse());
+        assertFalse(decoded.hasUsage());
+    }
 }
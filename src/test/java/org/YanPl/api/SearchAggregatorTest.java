@@ -0,0 +1,213 @@
+package org.YanPl.api;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.manager.ConfigManager;
+import org.YanPl.util.IoExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("SearchAggregator 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SearchAggregatorTest {
+
+    @Mock
+    private FancyHelper plugin;
+
+    @Mock
+    private ConfigManager configManager;
+
+    private IoExecutor ioExecutor;
+    private SearchAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("SearchAggregatorTest"));
+        when(configManager.isDebug()).thenReturn(false);
+        when(configManager.getIoExecutorMode()).thenReturn("auto");
+        when(configManager.getIoMaxThreads()).thenReturn(16);
+        ioExecutor = new IoExecutor(plugin);
+        when(plugin.getIoExecutor()).thenReturn(ioExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ioExecutor.shutdown();
+    }
+
+    private static SearchAggregator.Hit hit(String source, String title, String url, double score) {
+        return new SearchAggregator.Hit(source, title, url, title + " 内容", score);
+    }
+
+    private static SearchAggregator.Backend backend(String name, boolean general, SearchAggregator.SearchFunction function) {
+        return new SearchAggregator.SimpleBackend(name, general, 10000, 0, () -> true, function);
+    }
+
+    @Test
+    @DisplayName("慢后端不阻塞结果，首个有效结果后只等待宽限期")
+    void testSlowBackendDoesNotGate() {
+        aggregator = new SearchAggregator(plugin, List.of(
+                backend("Wiki", false, q -> new SearchAggregator.BackendResult(null,
+                        List.of(hit("Wiki", "红石", "https://zh.minecraft.wiki/w/红石", 1.0)))),
+                backend("Metaso", true, q -> {
+                    Thread.sleep(8000);
+                    return new SearchAggregator.BackendResult("迟到的回答", List.of());
+                })));
+
+        long start = System.currentTimeMillis();
+        String result = aggregator.search("红石");
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue(elapsed < SearchAggregator.GRACE_MILLIS + 1500, "耗时 " + elapsed + "ms");
+        assertTrue(result.contains("红石"));
+        assertFalse(result.contains("迟到的回答"));
+        assertTrue(result.contains("Metaso 未及时响应"));
+    }
+
+    @Test
+    @DisplayName("不同后端的相同链接只保留得分更高的一条，并按得分排序")
+    void testDedupeAndRanking() {
+        aggregator = new SearchAggregator(plugin, List.of(
+                backend("Metaso", true, q -> new SearchAggregator.BackendResult("摘要答案", List.of(
+                        hit("Metaso", "低分", "https://example.com/a/", 0.3),
+                        hit("Metaso", "中分", "https://example.com/b", 0.6)))),
+                backend("Tavily", true, q -> new SearchAggregator.BackendResult(null, List.of(
+                        hit("Tavily", "高分", "http://www.example.com/a", 0.9))))));
+
+        String result = aggregator.search("query");
+
+        assertTrue(result.contains("摘要答案"));
+        assertFalse(result.contains("低分"));
+        int high = result.indexOf("1. 高分");
+        int middle = result.indexOf("2. 中分");
+        assertTrue(high > 0 && middle > high, result);
+    }
+
+    @Test
+    @DisplayName("查询包含 widely 时跳过非全网后端")
+    void testWidelySkipsWiki() {
+        AtomicBoolean wikiCalled = new AtomicBoolean();
+        aggregator = new SearchAggregator(plugin, List.of(
+                backend("Wiki", false, q -> {
+                    wikiCalled.set(true);
+                    return new SearchAggregator.BackendResult(null, List.of());
+                }),
+                backend("Tavily", true, q -> new SearchAggregator.BackendResult(null,
+                        List.of(hit("Tavily", q, "https://example.com", 0.5))))));
+
+        String result = aggregator.search("paper 优化 widely");
+
+        assertFalse(wikiCalled.get());
+        assertTrue(result.contains("1. paper 优化 [Tavily]"), result);
+    }
+
+    @Test
+    @DisplayName("超过对冲阈值后发起第二次请求并采用先返回的结果")
+    void testHedgedRequest() {
+        AtomicInteger calls = new AtomicInteger();
+        aggregator = new SearchAggregator(plugin, List.of(
+                new SearchAggregator.SimpleBackend("Wiki", false, 10000, 200, () -> true, q -> {
+                    if (calls.incrementAndGet() == 1) {
+                        Thread.sleep(8000);
+                    }
+                    return new SearchAggregator.BackendResult(null, List.of(hit("Wiki", "对冲结果", "", 1.0)));
+                })));
+
+        long start = System.currentTimeMillis();
+        String result = aggregator.search("对冲");
+
+        assertTrue(System.currentTimeMillis() - start < 3000);
+        assertEquals(2, calls.get());
+        assertTrue(result.contains("对冲结果"));
+    }
+
+    @Test
+    @DisplayName("返回结果后取消仍未响应的后端请求")
+    void testSlowBackendCancelled() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        aggregator = new SearchAggregator(plugin, List.of(
+                backend("Wiki", false, q -> new SearchAggregator.BackendResult(null,
+                        List.of(hit("Wiki", "红石", "", 1.0)))),
+                backend("Metaso", true, q -> {
+                    try {
+                        Thread.sleep(8000);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                        throw e;
+                    }
+                    return new SearchAggregator.BackendResult("迟到的回答", List.of());
+                })));
+
+        aggregator.search("红石");
+
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("I/O 线程池占满时在 I/O 任务中搜索不会互相等待")
+    void testNestedSearchOnSaturatedPool() throws Exception {
+        ioExecutor.shutdown();
+        when(configManager.getIoExecutorMode()).thenReturn("platform");
+        when(configManager.getIoMaxThreads()).thenReturn(1);
+        ioExecutor = new IoExecutor(plugin);
+        when(plugin.getIoExecutor()).thenReturn(ioExecutor);
+        aggregator = new SearchAggregator(plugin, List.of(
+                backend("Tavily", true, q -> new SearchAggregator.BackendResult(null,
+                        List.of(hit("Tavily", q, "https://example.com", 0.5))))));
+
+        CountDownLatch done = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            ioExecutor.execute(() -> {
+                if (aggregator.search("嵌套").contains("嵌套 [Tavily]")) {
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("所有后端无结果或失败时给出提示并附带失败原因")
+    void testNoResults() {
+        aggregator = new SearchAggregator(plugin, List.of(
+                backend("Wiki", false, q -> new SearchAggregator.BackendResult(null, List.of())),
+                backend("Tavily", true, q -> {
+                    throw new java.io.IOException("HTTP 401");
+                })));
+
+        String result = aggregator.search("不存在的东西");
+
+        assertTrue(result.startsWith("未找到相关搜索结果。"));
+        assertTrue(result.contains("Tavily 失败: HTTP 401"));
+        assertFalse(result.contains("Wiki 未及时响应"));
+    }
+
+    @Test
+    @DisplayName("没有可用后端时提示配置搜索服务")
+    void testNoBackendAvailable() {
+        aggregator = new SearchAggregator(plugin, List.of(
+                new SearchAggregator.SimpleBackend("Tavily", true, 10000, 0, () -> false,
+                        q -> new SearchAggregator.BackendResult(null, List.of()))));
+
+        assertTrue(aggregator.search("anything widely").startsWith("搜索服务不可用"));
+    }
+}
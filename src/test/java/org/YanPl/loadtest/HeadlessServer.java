@@ -0,0 +1,435 @@
+package org.YanPl.loadtest;
+
+import org.YanPl.util.MetricsRegistry;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * 无界面的 Bukkit 服务器：单线程模拟主线程，按 tick 间隔执行调度任务，
+ * 玩家与命令执行均为轻量代理，不记录调用，适合长时间压测。
+ * Bukkit 的静态服务器只能设置一次，因此全局代理始终转发到当前实例。
+ */
+public class HeadlessServer {
+    private static volatile HeadlessServer current;
+    private static Server bukkitServer;
+
+    private final long tickMillis;
+    private final File worldContainer;
+    private final Logger logger;
+    private final ScheduledThreadPoolExecutor mainThread;
+    private final ScheduledThreadPoolExecutor asyncThreads;
+    private final BukkitScheduler scheduler;
+    private final Map<UUID, Player> players = new ConcurrentHashMap<>();
+    private final Map<Integer, Future<?>> tasks = new ConcurrentHashMap<>();
+    private final AtomicInteger taskIds = new AtomicInteger();
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder taskErrors = new LongAdder();
+    private final MetricsRegistry.Histogram mainThreadTasks = new MetricsRegistry.Histogram();
+    private volatile Thread mainThreadRef;
+
+    /**
+     * @param tickMillis     每个 tick 的毫秒数（真实服务器为 50）
+     * @param worldContainer 服务器根目录
+     */
+    public HeadlessServer(long tickMillis, File worldContainer, Logger logger) {
+        this.tickMillis = tickMillis;
+        this.worldContainer = worldContainer;
+        this.logger = logger;
+        this.mainThread = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "Server thread");
+            thread.setDaemon(true);
+            mainThreadRef = thread;
+            return thread;
+        });
+        AtomicInteger counter = new AtomicInteger();
+        this.asyncThreads = new ScheduledThreadPoolExecutor(4, r -> {
+            Thread thread = new Thread(r, "Craft Scheduler Thread - " + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.mainThread.setRemoveOnCancelPolicy(true);
+        this.asyncThreads.setRemoveOnCancelPolicy(true);
+        this.scheduler = proxy(BukkitScheduler.class, this::invokeScheduler);
+    }
+
+    /**
+     * 将本实例设为 Bukkit 的当前服务器
+     */
+    public void install() {
+        synchronized (HeadlessServer.class) {
+            current = this;
+            if (bukkitServer == null) {
+                bukkitServer = proxy(Server.class, (proxy, method, args) -> current.invokeServer(method, args));
+                Bukkit.setServer(bukkitServer);
+            }
+        }
+    }
+
+    public void shutdown() {
+        mainThread.shutdownNow();
+        asyncThreads.shutdownNow();
+        players.clear();
+    }
+
+    /**
+     * 在主线程上执行并等待结果
+     */
+    public <T> T callSync(Callable<T> callable) throws InterruptedException {
+        try {
+            return mainThread.submit(wrap(callable)).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * 在主线程上执行
+     */
+    public void runSync(Runnable runnable) {
+        mainThread.execute(wrap(runnable));
+    }
+
+    // ==================== 玩家 ====================
+
+    /**
+     * 创建一名在线玩家；发给玩家的消息只计数
+     */
+    public Player addPlayer(String name) {
+        UUID uuid = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        Player.Spigot spigot = mock(Player.Spigot.class, withSettings().stubOnly().defaultAnswer(invocation -> {
+            if (invocation.getMethod().getName().equals("sendMessage")) {
+                messages.increment();
+            }
+            return null;
+        }));
+        Player[] self = new Player[1];
+        self[0] = proxy(Player.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getUniqueId":
+                    return uuid;
+                case "getName":
+                case "getDisplayName":
+                case "getPlayerListName":
+                    return name;
+                case "isOnline":
+                case "isValid":
+                case "isOp":
+                case "hasPermission":
+                    return true;
+                case "spigot":
+                    return spigot;
+                case "getServer":
+                    return bukkitServer;
+                case "sendMessage":
+                case "sendRawMessage":
+                case "sendActionBar":
+                case "sendTitle":
+                    messages.increment();
+                    return null;
+                case "performCommand":
+                    return dispatch(self[0], (String) args[0]);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return uuid.hashCode();
+                case "toString":
+                    return "HeadlessPlayer{" + name + "}";
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+        players.put(uuid, self[0]);
+        return self[0];
+    }
+
+    // ==================== Server ====================
+
+    private Object invokeServer(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getScheduler":
+                return scheduler;
+            case "getLogger":
+                return logger;
+            case "getName":
+                return "Headless";
+            case "getVersion":
+                return "headless (MC: 1.21)";
+            case "getBukkitVersion":
+                return "1.21-R0.1-SNAPSHOT";
+            case "getPlayer":
+                return args[0] instanceof UUID ? players.get(args[0]) : findPlayer(String.valueOf(args[0]));
+            case "getPlayerExact":
+                return findPlayer(String.valueOf(args[0]));
+            case "getOnlinePlayers":
+                return new ArrayList<>(players.values());
+            case "getWorldContainer":
+                return worldContainer;
+            case "dispatchCommand":
+                return dispatch((CommandSender) args[0], (String) args[1]);
+            case "getConsoleSender":
+                return proxy(ConsoleCommandSender.class, (proxy, m, a) -> {
+                    if (m.getName().equals("sendMessage")) {
+                        messages.increment();
+                    }
+                    return m.getName().equals("getName") ? "CONSOLE" : defaultValue(m.getReturnType());
+                });
+            case "isPrimaryThread":
+                return Thread.currentThread() == mainThreadRef;
+            case "hashCode":
+                return System.identityHashCode(this);
+            case "equals":
+                return args[0] == bukkitServer;
+            case "toString":
+                return "HeadlessServer";
+            default:
+                return defaultValue(method.getReturnType());
+        }
+    }
+
+    private Player findPlayer(String name) {
+        for (Player player : players.values()) {
+            if (player.getName().equalsIgnoreCase(name)) {
+                return player;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 模拟命令执行：向执行者回显一行与命令相关的输出
+     */
+    private boolean dispatch(CommandSender sender, String commandLine) {
+        commands.increment();
+        String label = commandLine.trim().split(" ")[0].toLowerCase();
+        switch (label) {
+            case "list":
+                sender.sendMessage("There are " + players.size() + " of a max of 100 players online: "
+                        + String.join(", ", players.values().stream().limit(10).map(Player::getName).toArray(String[]::new)));
+                return true;
+            case "tps":
+                sender.sendMessage("TPS from last 1m, 5m, 15m: 20.0, 20.0, 20.0");
+                return true;
+            case "unknown":
+                return false;
+            default:
+                sender.sendMessage("Executed: " + commandLine);
+                return true;
+        }
+    }
+
+    // ==================== 调度器 ====================
+
+    private Object invokeScheduler(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        switch (name) {
+            case "cancelTask": {
+                Future<?> future = tasks.remove((Integer) args[0]);
+                if (future != null) {
+                    future.cancel(false);
+                }
+                return null;
+            }
+            case "cancelTasks":
+                tasks.values().forEach(future -> future.cancel(false));
+                tasks.clear();
+                return null;
+            case "isCurrentlyRunning":
+            case "isQueued":
+                return tasks.containsKey((Integer) args[0]);
+            case "callSyncMethod":
+                return mainThread.submit(wrap((Callable<?>) args[1]));
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "HeadlessScheduler";
+            default:
+                break;
+        }
+
+        Runnable body = null;
+        long[] ticks = new long[2];
+        int tickCount = 0;
+        int id = taskIds.incrementAndGet();
+        BukkitTask task = proxy(BukkitTask.class, (p, m, a) -> taskMethod(id, m, a));
+        for (Object arg : args != null ? args : new Object[0]) {
+            if (arg instanceof Runnable) {
+                body = (Runnable) arg;
+            } else if (arg instanceof Consumer) {
+                @SuppressWarnings("unchecked")
+                Consumer<BukkitTask> consumer = (Consumer<BukkitTask>) arg;
+                body = () -> consumer.accept(task);
+            } else if (arg instanceof Long && tickCount < 2) {
+                ticks[tickCount++] = (Long) arg;
+            }
+        }
+        if (body == null) {
+            return defaultValue(method.getReturnType());
+        }
+
+        boolean async = name.contains("Async");
+        boolean repeating = name.contains("Timer") || name.contains("Repeating");
+        ScheduledThreadPoolExecutor executor = async ? asyncThreads : mainThread;
+        Runnable timed = async ? body : wrap(body);
+        // 一次性任务执行完即不再需要按 id 取消
+        Runnable wrapped = repeating ? timed : () -> {
+            try {
+                timed.run();
+            } finally {
+                tasks.remove(id);
+            }
+        };
+        long delay = Math.max(0, ticks[0]) * tickMillis;
+        Future<?> future;
+        if (repeating) {
+            long period = Math.max(1, ticks[1]) * tickMillis;
+            future = executor.scheduleAtFixedRate(wrapped, delay, period, TimeUnit.MILLISECONDS);
+        } else {
+            future = executor.schedule(wrapped, delay, TimeUnit.MILLISECONDS);
+        }
+        tasks.put(id, future);
+        if (future.isDone()) {
+            tasks.remove(id);
+        }
+        if (int.class.equals(method.getReturnType())) {
+            return id;
+        }
+        return BukkitTask.class.isAssignableFrom(method.getReturnType()) ? task : defaultValue(method.getReturnType());
+    }
+
+    private Object taskMethod(int id, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getTaskId":
+                return id;
+            case "isSync":
+                return true;
+            case "isCancelled": {
+                Future<?> future = tasks.get(id);
+                return future == null || future.isCancelled();
+            }
+            case "cancel": {
+                Future<?> future = tasks.remove(id);
+                if (future != null) {
+                    future.cancel(false);
+                }
+                return null;
+            }
+            case "hashCode":
+                return id;
+            case "equals":
+                return false;
+            case "toString":
+                return "HeadlessTask{" + id + "}";
+            default:
+                return defaultValue(method.getReturnType());
+        }
+    }
+
+    /**
+     * 主线程任务：记录执行耗时，异常只计数（与 CraftScheduler 一样不会打断主线程）
+     */
+    private Runnable wrap(Runnable runnable) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                runnable.run();
+            } catch (Throwable t) {
+                taskErrors.increment();
+                logger.warning("[Headless] 主线程任务异常: " + t);
+            } finally {
+                mainThreadTasks.record((System.nanoTime() - start) / 1000);
+            }
+        };
+    }
+
+    private <T> Callable<T> wrap(Callable<T> callable) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                return callable.call();
+            } finally {
+                mainThreadTasks.record((System.nanoTime() - start) / 1000);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(HeadlessServer.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0.0d;
+        }
+        if (type == float.class) {
+            return 0.0f;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        return (byte) 0;
+    }
+
+    public long getMessages() {
+        return messages.sum();
+    }
+
+    public long getCommands() {
+        return commands.sum();
+    }
+
+    public long getTaskErrors() {
+        return taskErrors.sum();
+    }
+
+    /**
+     * 主线程任务的执行耗时（微秒）
+     */
+    public MetricsRegistry.Histogram getMainThreadTasks() {
+        return mainThreadTasks;
+    }
+}
@@ -0,0 +1,538 @@
+package org.YanPl.loadtest;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.api.CircuitBreakerRegistry;
+import org.YanPl.api.HttpClientRegistry;
+import org.YanPl.api.ModelTierRouter;
+import org.YanPl.api.ProviderRouter;
+import org.YanPl.manager.CLIManager;
+import org.YanPl.manager.ConfigManager;
+import org.YanPl.manager.EulaManager;
+import org.YanPl.manager.InstructionManager;
+import org.YanPl.manager.PresetIndex;
+import org.YanPl.manager.TodoManager;
+import org.YanPl.manager.VerificationManager;
+import org.YanPl.manager.WorkspaceIndexer;
+import org.YanPl.util.CloudErrorReport;
+import org.YanPl.util.IoExecutor;
+import org.YanPl.util.MetricsRegistry;
+import org.bukkit.entity.Player;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * 无界面的端到端压测：N 名模拟玩家在 CLI 模式下连续对话，
+ * 请求经由真实的 CLIManager、ToolExecutor、CloudFlareAI 与网络组件发往本地桩服务。
+ * 结束后输出吞吐量、单轮耗时分位数、线程数与分配速率。
+ * <p>
+ * 用法：{@code mvn -Ploadtest verify -Dloadtest.players=50 -Dloadtest.turns=5}，
+ * 或直接运行 {@link #main(String[])}，参数形如 {@code --players=50 --latency=300}。
+ */
+public class LoadHarness {
+    private static final Set<CLIManager.GenerationStatus> DONE = EnumSet.of(
+            CLIManager.GenerationStatus.COMPLETED, CLIManager.GenerationStatus.ERROR,
+            CLIManager.GenerationStatus.CANCELLED, CLIManager.GenerationStatus.IDLE);
+    private static final Set<CLIManager.GenerationStatus> FAILED = EnumSet.of(
+            CLIManager.GenerationStatus.ERROR, CLIManager.GenerationStatus.CANCELLED);
+    private static final String[] QUESTIONS = {
+            "帮我看看服务器现在有多少人在线",
+            "插件目录里都装了什么？",
+            "最近服务器有点卡，帮我检查一下",
+            "怎么给新玩家设置出生点",
+            "列一下当前的插件和在线玩家"
+    };
+
+    /**
+     * 压测参数
+     */
+    public static final class Settings {
+        int players = 20;
+        int turns = 3;
+        long rampMillis = 2_000;
+        long thinkMillis = 500;
+        long turnTimeoutSeconds = 120;
+        long tickMillis = 50;
+        StubAiServer.Options stub = new StubAiServer.Options();
+
+        /**
+         * 解析 --key=value 形式的参数
+         */
+        static Settings parse(String[] args) {
+            Settings settings = new Settings();
+            long latency = settings.stub.latencyMillis;
+            long jitter = settings.stub.jitterMillis;
+            int throttleEvery = 0;
+            int retryAfter = 1;
+            int chunks = 1;
+            long chunkDelay = 0;
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("无法识别的参数: " + arg);
+                }
+                String key = arg.substring(2, arg.indexOf('='));
+                String value = arg.substring(arg.indexOf('=') + 1);
+                switch (key) {
+                    case "players": settings.players = Integer.parseInt(value); break;
+                    case "turns": settings.turns = Integer.parseInt(value); break;
+                    case "ramp": settings.rampMillis = Long.parseLong(value); break;
+                    case "think": settings.thinkMillis = Long.parseLong(value); break;
+                    case "timeout": settings.turnTimeoutSeconds = Long.parseLong(value); break;
+                    case "tick": settings.tickMillis = Long.parseLong(value); break;
+                    case "latency": latency = Long.parseLong(value); break;
+                    case "jitter": jitter = Long.parseLong(value); break;
+                    case "throttle-every": throttleEvery = Integer.parseInt(value); break;
+                    case "retry-after": retryAfter = Integer.parseInt(value); break;
+                    case "chunks": chunks = Integer.parseInt(value); break;
+                    case "chunk-delay": chunkDelay = Long.parseLong(value); break;
+                    case "format": settings.stub.format(StubAiServer.Format.valueOf(value.toUpperCase(Locale.ROOT))); break;
+                    default: throw new IllegalArgumentException("未知参数: " + key);
+                }
+            }
+            settings.stub.latency(latency, jitter).throttleEvery(throttleEvery, retryAfter).streaming(chunks, chunkDelay);
+            return settings;
+        }
+    }
+
+    /**
+     * 一次压测的结果
+     */
+    public static final class Report {
+        int players;
+        int turns;
+        long completed;
+        long failed;
+        long timedOut;
+        long wallMillis;
+        long stubRequests;
+        long stubThrottled;
+        int stubMaxInFlight;
+        long stubBytesIn;
+        long stubBytesOut;
+        final MetricsRegistry.Histogram turnLatency = new MetricsRegistry.Histogram();
+        int peakThreads;
+        Map<String, Integer> threadsAtPeak = new TreeMap<>();
+        long allocatedBytes = -1;
+        long gcCount;
+        long gcMillis;
+        long mainThreadP99Micros;
+        long mainThreadMaxMicros;
+        long mainThreadTaskErrors;
+        long playerMessages;
+        long commands;
+        String pluginMetrics = "";
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getTimedOut() {
+            return timedOut;
+        }
+
+        public long getStubRequests() {
+            return stubRequests;
+        }
+
+        public long getCommands() {
+            return commands;
+        }
+
+        public MetricsRegistry.Histogram getTurnLatency() {
+            return turnLatency;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = wallMillis / 1000.0;
+            StringBuilder sb = new StringBuilder();
+            sb.append("==== FancyHelper 压测结果 ====\n");
+            sb.append(String.format(Locale.ROOT, "玩家 %d × 轮次 %d，耗时 %.1fs%n", players, turns, seconds));
+            sb.append(String.format(Locale.ROOT, "完成 %d，失败 %d，超时 %d，吞吐 %.2f 轮/s%n",
+                    completed, failed, timedOut, seconds > 0 ? completed / seconds : 0));
+            sb.append(String.format(Locale.ROOT, "单轮耗时 p50 %.0fms，p90 %.0fms，p99 %.0fms，最大 %.0fms%n",
+                    turnLatency.quantile(0.5) / 1000.0, turnLatency.quantile(0.9) / 1000.0,
+                    turnLatency.quantile(0.99) / 1000.0, turnLatency.getMax() / 1000.0));
+            sb.append(String.format(Locale.ROOT, "桩服务请求 %d（%.1f/s），429 %d 次，最大并发 %d，上行 %dKB，下行 %dKB%n",
+                    stubRequests, seconds > 0 ? stubRequests / seconds : 0, stubThrottled, stubMaxInFlight,
+                    stubBytesIn / 1024, stubBytesOut / 1024));
+            sb.append(String.format(Locale.ROOT, "命令执行 %d 次，发给玩家的消息 %d 条%n", commands, playerMessages));
+            sb.append(String.format(Locale.ROOT, "主线程任务 p99 %dµs，最大 %dµs，异常 %d%n",
+                    mainThreadP99Micros, mainThreadMaxMicros, mainThreadTaskErrors));
+            sb.append("峰值线程数 ").append(peakThreads).append("，峰值时按名称分组: ").append(threadsAtPeak).append('\n');
+            if (allocatedBytes >= 0) {
+                sb.append(String.format(Locale.ROOT, "分配速率 %.1f MB/s（共 %.1f MB，含桩服务线程）%n",
+                        seconds > 0 ? allocatedBytes / seconds / 1048576.0 : 0, allocatedBytes / 1048576.0));
+            }
+            sb.append(String.format(Locale.ROOT, "GC %d 次，共 %dms%n", gcCount, gcMillis));
+            sb.append(pluginMetrics);
+            return sb.toString();
+        }
+    }
+
+    private final Settings settings;
+
+    public LoadHarness(Settings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Report report = new LoadHarness(Settings.parse(args)).run();
+        System.out.println(report);
+        System.exit(report.failed + report.timedOut > 0 ? 1 : 0);
+    }
+
+    /**
+     * 执行一次完整的压测
+     */
+    public Report run() throws Exception {
+        Path root = Files.createTempDirectory("fancyhelper-loadtest");
+        Path dataFolder = Files.createDirectories(root.resolve("plugins").resolve("FancyHelper"));
+        Logger logger = Logger.getLogger("FancyHelper-LoadTest");
+        logger.setLevel(Level.SEVERE);
+
+        StubAiServer stub = new StubAiServer(settings.stub);
+        String url = stub.start();
+        HeadlessServer server = new HeadlessServer(settings.tickMillis, root.toFile(), logger);
+        server.install();
+
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < settings.players; i++) {
+            players.add(server.addPlayer("Tester" + i));
+        }
+        writePlayerList(dataFolder.resolve("agreed_players.txt"), players);
+        writePlayerList(dataFolder.resolve("yolo_mode_players.txt"), players);
+
+        Plugin plugin = new Plugin(dataFolder.toFile(), logger, url);
+        Report report = new Report();
+        report.players = settings.players;
+        report.turns = settings.turns;
+        try {
+            CLIManager cli = server.callSync(() -> new CLIManager(plugin.mock));
+            plugin.cliManager.set(cli);
+            drive(server, cli, players, report);
+        } finally {
+            report.stubRequests = stub.getRequests();
+            report.stubThrottled = stub.getThrottled();
+            report.stubMaxInFlight = stub.getMaxInFlight();
+            report.stubBytesIn = stub.getBytesIn();
+            report.stubBytesOut = stub.getBytesOut();
+            report.mainThreadP99Micros = server.getMainThreadTasks().quantile(0.99);
+            report.mainThreadMaxMicros = server.getMainThreadTasks().getMax();
+            report.mainThreadTaskErrors = server.getTaskErrors();
+            report.playerMessages = server.getMessages();
+            report.commands = server.getCommands();
+            report.pluginMetrics = summarize(plugin.metrics);
+            CLIManager cli = plugin.cliManager.get();
+            if (cli != null) {
+                try {
+                    server.callSync(() -> {
+                        cli.shutdown();
+                        return null;
+                    });
+                } catch (RuntimeException e) {
+                    logger.warning("[LoadTest] 关闭 CLIManager 失败: " + e);
+                }
+            }
+            plugin.shutdown();
+            server.shutdown();
+            stub.stop();
+            deleteRecursively(root);
+        }
+        return report;
+    }
+
+    private void drive(HeadlessServer server, CLIManager cli, List<Player> players, Report report) throws InterruptedException {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        long allocatedBefore = allocatedBytes(threads);
+        long[] gcBefore = gcTotals();
+
+        LongAdder completed = new LongAdder();
+        LongAdder failed = new LongAdder();
+        LongAdder timedOut = new LongAdder();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicReference<Map<String, Integer>> atPeak = new AtomicReference<>(Map.of());
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "LoadTest-Sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 峰值线程数由 JVM 统计，峰值时的分组由采样得到
+        sampler.scheduleAtFixedRate(() -> {
+            Set<Thread> live = Thread.getAllStackTraces().keySet();
+            if (live.size() > peak.get()) {
+                peak.set(live.size());
+                atPeak.set(groupByName(live));
+            }
+        }, 0, 100, TimeUnit.MILLISECONDS);
+
+        CountDownLatch done = new CountDownLatch(players.size());
+        long start = System.nanoTime();
+        for (int i = 0; i < players.size(); i++) {
+            Player player = players.get(i);
+            long delay = players.size() > 1 ? settings.rampMillis * i / (players.size() - 1) : 0;
+            Thread driver = new Thread(() -> {
+                try {
+                    Thread.sleep(delay);
+                    runPlayer(server, cli, player, report.turnLatency, completed, failed, timedOut);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "LoadTest-Player-" + i);
+            driver.setDaemon(true);
+            driver.start();
+        }
+        done.await();
+        report.wallMillis = (System.nanoTime() - start) / 1_000_000;
+        sampler.shutdownNow();
+
+        report.completed = completed.sum();
+        report.failed = failed.sum();
+        report.timedOut = timedOut.sum();
+        report.peakThreads = Math.max(peak.get(), threads.getPeakThreadCount());
+        report.threadsAtPeak = atPeak.get();
+        long allocatedAfter = allocatedBytes(threads);
+        report.allocatedBytes = allocatedBefore >= 0 && allocatedAfter >= 0 ? allocatedAfter - allocatedBefore : -1;
+        long[] gcAfter = gcTotals();
+        report.gcCount = gcAfter[0] - gcBefore[0];
+        report.gcMillis = gcAfter[1] - gcBefore[1];
+    }
+
+    /**
+     * 单名玩家：进入 CLI，等待问候语，然后按轮次提问；每轮从发出消息到状态结束计时
+     */
+    private void runPlayer(HeadlessServer server, CLIManager cli, Player player, MetricsRegistry.Histogram latency,
+                           LongAdder completed, LongAdder failed, LongAdder timedOut) throws InterruptedException {
+        UUID uuid = player.getUniqueId();
+        server.callSync(() -> {
+            cli.enterCLI(player);
+            return null;
+        });
+        if (!await(server, () -> !cli.isGenerating(uuid), settings.turnTimeoutSeconds)) {
+            timedOut.add(settings.turns);
+            return;
+        }
+
+        for (int turn = 0; turn < settings.turns; turn++) {
+            long start = System.nanoTime();
+            // 与真实服务器一样，聊天消息在异步聊天线程上进入 CLIManager
+            cli.handleChat(player, QUESTIONS[(turn + uuid.hashCode() & 0x7fffffff) % QUESTIONS.length]);
+            boolean finished = await(server, () -> {
+                if (cli.getGenerationState(uuid) == CLIManager.GenerationStatus.WAITING_CONFIRM) {
+                    cli.handleChat(player, "y");
+                    return false;
+                }
+                return !cli.isGenerating(uuid) && DONE.contains(cli.getGenerationState(uuid));
+            }, settings.turnTimeoutSeconds);
+            if (!finished) {
+                timedOut.increment();
+                server.callSync(() -> cli.handleChat(player, "stop"));
+                continue;
+            }
+            latency.record((System.nanoTime() - start) / 1000);
+            if (FAILED.contains(cli.getGenerationState(uuid))) {
+                failed.increment();
+            } else {
+                completed.increment();
+            }
+            Thread.sleep(settings.thinkMillis);
+        }
+    }
+
+    /**
+     * 每 10ms 在主线程上检查一次条件，避免与主线程上的状态切换产生竞争
+     */
+    private static boolean await(HeadlessServer server, java.util.concurrent.Callable<Boolean> condition, long timeoutSeconds)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (System.nanoTime() < deadline) {
+            if (server.callSync(condition)) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    private static Map<String, Integer> groupByName(Set<Thread> threads) {
+        Map<String, Integer> groups = new TreeMap<>();
+        for (Thread thread : threads) {
+            String name = thread.getName().replaceAll("[-#\\s]*\\d+$", "");
+            groups.merge(name.isEmpty() ? "(unnamed)" : name, 1, Integer::sum);
+        }
+        return groups;
+    }
+
+    private static long allocatedBytes(java.lang.management.ThreadMXBean threads) {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) threads;
+            if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled()) {
+                return sun.getTotalThreadAllocatedBytes();
+            }
+        }
+        return -1;
+    }
+
+    private static long[] gcTotals() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[]{count, millis};
+    }
+
+    /**
+     * 汇总插件自身记录的耗时指标
+     */
+    private static String summarize(MetricsRegistry metrics) {
+        StringBuilder sb = new StringBuilder();
+        for (String name : new String[]{MetricsRegistry.AI_QUEUE_SECONDS, MetricsRegistry.AI_NETWORK_SECONDS,
+                MetricsRegistry.AI_PARSE_SECONDS, MetricsRegistry.TOOL_SECONDS, MetricsRegistry.CAPTURE_WAIT_SECONDS}) {
+            MetricsRegistry.Family family = metrics.getFamilies().get(name);
+            if (family == null) {
+                continue;
+            }
+            for (Map.Entry<String, MetricsRegistry.Histogram> entry : family.histograms().entrySet()) {
+                MetricsRegistry.Histogram histogram = entry.getValue();
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                sb.append(String.format(Locale.ROOT, "%s%s: n=%d p50 %.1fms p99 %.1fms%n", name, entry.getKey(),
+                        histogram.getCount(), histogram.quantile(0.5) / 1000.0, histogram.quantile(0.99) / 1000.0));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void writePlayerList(Path file, List<Player> players) throws IOException {
+        Files.write(file, players.stream().map(p -> p.getUniqueId().toString()).collect(Collectors.toList()), StandardCharsets.UTF_8);
+    }
+
+    private static void deleteRecursively(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException ignored) {
+            // 临时目录，清理失败不影响结果
+        }
+    }
+
+    /**
+     * 插件主类的替身：配置与持久化相关的组件为桩，网络、执行器与路由使用真实实现
+     */
+    static final class Plugin {
+        final FancyHelper mock = mock(FancyHelper.class, withSettings().stubOnly());
+        final ConfigManager config = mock(ConfigManager.class, withSettings().stubOnly());
+        final AtomicReference<CLIManager> cliManager = new AtomicReference<>();
+        final IoExecutor ioExecutor;
+        final HttpClientRegistry httpClients;
+        final CircuitBreakerRegistry circuitBreakers;
+        final MetricsRegistry metrics;
+
+        Plugin(File dataFolder, Logger logger, String url) {
+            when(config.getIoExecutorMode()).thenReturn("auto");
+            when(config.getIoMaxThreads()).thenReturn(32);
+            when(config.getNetworkMaxThreads()).thenReturn(8);
+            when(config.getNetworkProxy()).thenReturn("");
+            when(config.getApiTimeoutSeconds()).thenReturn(120);
+            when(config.isOpenAiEnabled()).thenReturn(true);
+            when(config.getOpenAiApiUrl()).thenReturn(url);
+            when(config.getOpenAiApiKey()).thenReturn("sk-stub");
+            when(config.getOpenAiModel()).thenReturn("stub-model");
+            when(config.getCompressionModelProvider()).thenReturn("openai");
+            when(config.getCompressionOpenAiModel()).thenReturn("stub-compress");
+            when(config.isPlayerToolEnabled(any(), anyString())).thenReturn(true);
+            when(config.getPlayerDisplayPosition(any())).thenReturn("actionbar");
+            when(config.getAntiLoopThresholdCount()).thenReturn(3);
+            when(config.getAntiLoopSimilarityThreshold()).thenReturn(0.8);
+            when(config.getAntiLoopMaxChainCount()).thenReturn(10);
+            when(config.getTimeoutMinutes()).thenReturn(10);
+            when(config.getLogRetentionDays()).thenReturn(15);
+            when(config.getTokenWarningThreshold()).thenReturn(500);
+            when(config.isMetricsEnabled()).thenReturn(true);
+            when(config.getMetricsHttpHost()).thenReturn("127.0.0.1");
+            when(config.getMetricsHttpPort()).thenReturn(0);
+
+            EulaManager eula = mock(EulaManager.class, withSettings().stubOnly());
+            when(eula.isEulaValid()).thenReturn(true);
+            WorkspaceIndexer indexer = mock(WorkspaceIndexer.class, withSettings().stubOnly());
+            when(indexer.getIndexedCommands()).thenReturn(List.of("list", "tps", "gamemode", "tp", "give", "time", "weather",
+                    "spawn", "home", "warp", "res", "lp", "co", "plugins", "version"));
+            when(indexer.getIndexedPresets()).thenReturn(List.of("residence.txt", "luckperms.txt"));
+
+            when(mock.isEnabled()).thenReturn(true);
+            when(mock.getDataFolder()).thenReturn(dataFolder);
+            when(mock.getLogger()).thenReturn(logger);
+            when(mock.getName()).thenReturn("FancyHelper");
+            when(mock.getConfigManager()).thenReturn(config);
+            when(mock.getEulaManager()).thenReturn(eula);
+            when(mock.getWorkspaceIndexer()).thenReturn(indexer);
+            when(mock.getVerificationManager()).thenReturn(mock(VerificationManager.class, withSettings().stubOnly()));
+            when(mock.getTodoManager()).thenReturn(mock(TodoManager.class, withSettings().stubOnly()));
+            when(mock.getPresetIndex()).thenReturn(mock(PresetIndex.class, withSettings().stubOnly()));
+            when(mock.getInstructionManager()).thenReturn(mock(InstructionManager.class, withSettings().stubOnly()));
+            when(mock.getCloudErrorReport()).thenReturn(mock(CloudErrorReport.class, withSettings().stubOnly()));
+            when(mock.getCliManager()).thenAnswer(invocation -> cliManager.get());
+
+            ioExecutor = new IoExecutor(mock);
+            when(mock.getIoExecutor()).thenReturn(ioExecutor);
+            httpClients = new HttpClientRegistry(mock);
+            when(mock.getHttpClients()).thenReturn(httpClients);
+            circuitBreakers = new CircuitBreakerRegistry(mock);
+            when(mock.getCircuitBreakers()).thenReturn(circuitBreakers);
+            metrics = new MetricsRegistry(mock);
+            when(mock.getMetrics()).thenReturn(metrics);
+            metrics.reload();
+            ProviderRouter providerRouter = new ProviderRouter(mock);
+            when(mock.getProviderRouter()).thenReturn(providerRouter);
+            ModelTierRouter tierRouter = new ModelTierRouter(mock);
+            when(mock.getModelTierRouter()).thenReturn(tierRouter);
+        }
+
+        void shutdown() {
+            metrics.shutdown();
+            circuitBreakers.shutdown();
+            httpClients.shutdown();
+            ioExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.YanPl.loadtest;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 端到端冒烟测试会设置 Bukkit 的全局服务器（每个 JVM 只能设置一次），
+ * 因此默认不随单元测试运行，使用 -Dloadtest.smoke=true 启用。
+ */
+@DisplayName("LoadHarness 单元测试")
+class LoadHarnessTest {
+
+    @Test
+    @DisplayName("解析命令行参数")
+    void testParseSettings() {
+        LoadHarness.Settings settings = LoadHarness.Settings.parse(new String[]{
+                "--players=50", "--turns=4", "--latency=300", "--jitter=100", "--throttle-every=10",
+                "--retry-after=2", "--chunks=8", "--format=cloudflare"});
+
+        assertEquals(50, settings.players);
+        assertEquals(4, settings.turns);
+        assertEquals(300, settings.stub.latencyMillis);
+        assertEquals(100, settings.stub.jitterMillis);
+        assertEquals(10, settings.stub.throttleEvery);
+        assertEquals(2, settings.stub.retryAfterSeconds);
+        assertEquals(8, settings.stub.chunks);
+        assertEquals(StubAiServer.Format.CLOUDFLARE, settings.stub.format);
+        assertThrows(IllegalArgumentException.class, () -> LoadHarness.Settings.parse(new String[]{"--unknown=1"}));
+        assertThrows(IllegalArgumentException.class, () -> LoadHarness.Settings.parse(new String[]{"players"}));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "loadtest.smoke", matches = "true")
+    @DisplayName("少量玩家完整跑完多轮对话（含工具调用）")
+    void testSmokeRun() throws Exception {
+        LoadHarness.Settings settings = LoadHarness.Settings.parse(new String[]{
+                "--players=3", "--turns=2", "--ramp=0", "--think=0", "--tick=5", "--latency=10", "--timeout=30"});
+
+        LoadHarness.Report report = new LoadHarness(settings).run();
+
+        assertEquals(6, report.getCompleted(), report.toString());
+        assertEquals(0, report.getFailed());
+        assertEquals(0, report.getTimedOut());
+        // 默认脚本每轮三次请求：#run、#list、最终回答
+        assertTrue(report.getStubRequests() >= 18, report.toString());
+        assertEquals(6, report.getCommands());
+        assertEquals(6, report.getTurnLatency().getCount());
+    }
+}
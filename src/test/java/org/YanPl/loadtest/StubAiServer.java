@@ -0,0 +1,325 @@
+package org.YanPl.loadtest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 本地的 OpenAI 兼容桩服务：按脚本回复工具调用，可模拟模型延迟、分块输出与 429 限流。
+ * 回复可以是 OpenAI choices 格式，也可以是 CloudFlare result 格式（两者都由 ResponseParser 解析）。
+ */
+public class StubAiServer {
+    private static final Pattern PLAYER_LINE = Pattern.compile("(?m)^Player: (.*)$");
+
+    private final Options options;
+    private final Gson gson = new Gson();
+    private final Random random;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * 回复格式
+     */
+    public enum Format {
+        OPENAI,
+        CLOUDFLARE
+    }
+
+    /**
+     * 桩服务的行为配置
+     */
+    public static final class Options {
+        /**
+         * 模型“思考”的基础延迟与随机抖动（毫秒）
+         */
+        long latencyMillis = 200;
+        long jitterMillis = 0;
+        /**
+         * 每收到 N 个请求返回一次 429，0 表示不限流
+         */
+        int throttleEvery = 0;
+        /**
+         * 429 响应携带的 Retry-After（秒）
+         */
+        int retryAfterSeconds = 1;
+        /**
+         * 大于 1 时按块写出响应体（分块传输），块之间间隔 chunkDelayMillis；请求带 stream: true 时改为 SSE
+         */
+        int chunks = 1;
+        long chunkDelayMillis = 0;
+        Format format = Format.OPENAI;
+        /**
+         * 按对话步骤依次返回的回复，超出部分重复最后一条；支持 {turn} 与 {player} 占位符
+         */
+        List<String> script = new ArrayList<>(List.of(
+                "我先看一下服务器状态。\n#run: list",
+                "再看看插件目录。\n#list: plugins",
+                "第 {turn} 轮处理完成，{player}。"));
+        long seed = 42L;
+
+        public Options latency(long millis, long jitter) {
+            this.latencyMillis = millis;
+            this.jitterMillis = jitter;
+            return this;
+        }
+
+        public Options throttleEvery(int every, int retryAfterSeconds) {
+            this.throttleEvery = every;
+            this.retryAfterSeconds = retryAfterSeconds;
+            return this;
+        }
+
+        public Options streaming(int chunks, long chunkDelayMillis) {
+            this.chunks = Math.max(1, chunks);
+            this.chunkDelayMillis = chunkDelayMillis;
+            return this;
+        }
+
+        public Options format(Format format) {
+            this.format = format;
+            return this;
+        }
+
+        public Options script(List<String> script) {
+            this.script = new ArrayList<>(script);
+            return this;
+        }
+
+        public Options seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+    }
+
+    public StubAiServer(Options options) {
+        this.options = options;
+        this.random = new Random(options.seed);
+    }
+
+    /**
+     * 在随机端口上启动
+     *
+     * @return OpenAI 兼容的 chat/completions 地址
+     */
+    public String start() throws IOException {
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "StubAI-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions";
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            byte[] requestBody;
+            try (InputStream in = exchange.getRequestBody()) {
+                requestBody = in.readAllBytes();
+            }
+            bytesIn.addAndGet(requestBody.length);
+            if (!"POST".equals(exchange.getRequestMethod()) || !exchange.getRequestURI().getPath().endsWith("/chat/completions")) {
+                send(exchange, 404, "{\"error\":\"not found\"}", false);
+                return;
+            }
+
+            long count = requests.incrementAndGet();
+            if (options.throttleEvery > 0 && count % options.throttleEvery == 0) {
+                throttled.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(options.retryAfterSeconds));
+                send(exchange, 429, "{\"error\":{\"message\":\"Rate limit reached\",\"type\":\"rate_limit_error\"}}", false);
+                return;
+            }
+
+            JsonObject request = gson.fromJson(new String(requestBody, StandardCharsets.UTF_8), JsonObject.class);
+            String reply = replyFor(request.getAsJsonArray("messages"));
+            sleep(options.latencyMillis + (options.jitterMillis > 0 ? nextJitter() : 0));
+
+            boolean stream = request.has("stream") && request.get("stream").getAsBoolean();
+            send(exchange, 200, stream ? sseOf(reply) : bodyOf(reply, requestBody.length), stream);
+        } catch (RuntimeException e) {
+            send(exchange, 500, "{\"error\":\"" + e.getClass().getSimpleName() + "\"}", false);
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private synchronized long nextJitter() {
+        return (long) (random.nextDouble() * options.jitterMillis);
+    }
+
+    /**
+     * 按本轮玩家消息之后已有的 assistant 回复数决定脚本步骤
+     */
+    String replyFor(JsonArray messages) {
+        int turn = 0;
+        int step = 0;
+        String player = "player";
+        for (JsonElement element : messages) {
+            JsonObject message = element.getAsJsonObject();
+            String role = message.get("role").getAsString();
+            String content = message.has("content") && !message.get("content").isJsonNull() ? message.get("content").getAsString() : "";
+            if ("system".equals(role)) {
+                Matcher matcher = PLAYER_LINE.matcher(content);
+                if (matcher.find()) {
+                    player = matcher.group(1).trim();
+                }
+            } else if ("user".equals(role) && !content.startsWith("#")) {
+                turn++;
+                step = 0;
+            } else if ("assistant".equals(role) && turn > 0) {
+                step++;
+            }
+        }
+        String reply = options.script.get(Math.min(step, options.script.size() - 1));
+        return reply.replace("{turn}", String.valueOf(turn)).replace("{player}", player);
+    }
+
+    private String bodyOf(String reply, int promptBytes) {
+        JsonObject usage = new JsonObject();
+        usage.addProperty("prompt_tokens", promptBytes / 4);
+        usage.addProperty("completion_tokens", reply.length());
+        JsonObject body = new JsonObject();
+        if (options.format == Format.CLOUDFLARE) {
+            JsonObject result = new JsonObject();
+            result.addProperty("response", reply);
+            result.add("usage", usage);
+            body.add("result", result);
+            body.addProperty("success", true);
+            return gson.toJson(body);
+        }
+        JsonObject message = new JsonObject();
+        message.addProperty("role", "assistant");
+        message.addProperty("content", reply);
+        JsonObject choice = new JsonObject();
+        choice.addProperty("index", 0);
+        choice.add("message", message);
+        choice.addProperty("finish_reason", "stop");
+        JsonArray choices = new JsonArray();
+        choices.add(choice);
+        body.addProperty("id", "chatcmpl-stub-" + requests.get());
+        body.addProperty("object", "chat.completion");
+        body.addProperty("model", "stub");
+        body.add("choices", choices);
+        body.add("usage", usage);
+        return gson.toJson(body);
+    }
+
+    /**
+     * SSE 格式：每块一个 chat.completion.chunk，最后是 [DONE]
+     */
+    private String sseOf(String reply) {
+        StringBuilder sb = new StringBuilder();
+        int size = Math.max(1, (reply.length() + options.chunks - 1) / options.chunks);
+        for (int i = 0; i < reply.length(); i += size) {
+            JsonObject delta = new JsonObject();
+            delta.addProperty("content", reply.substring(i, Math.min(reply.length(), i + size)));
+            JsonObject choice = new JsonObject();
+            choice.addProperty("index", 0);
+            choice.add("delta", delta);
+            JsonArray choices = new JsonArray();
+            choices.add(choice);
+            JsonObject chunk = new JsonObject();
+            chunk.addProperty("object", "chat.completion.chunk");
+            chunk.add("choices", choices);
+            sb.append("data: ").append(gson.toJson(chunk)).append("\n\n");
+        }
+        return sb.append("data: [DONE]\n\n").toString();
+    }
+
+    private void send(HttpExchange exchange, int status, String body, boolean sse) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", sse ? "text/event-stream" : "application/json; charset=utf-8");
+        boolean chunked = options.chunks > 1 && status == 200;
+        exchange.sendResponseHeaders(status, chunked ? 0 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (!chunked) {
+                out.write(bytes);
+            } else {
+                int size = Math.max(1, (bytes.length + options.chunks - 1) / options.chunks);
+                for (int i = 0; i < bytes.length; i += size) {
+                    out.write(bytes, i, Math.min(size, bytes.length - i));
+                    out.flush();
+                    if (i + size < bytes.length) {
+                        sleep(options.chunkDelayMillis);
+                    }
+                }
+            }
+        }
+        bytesOut.addAndGet(bytes.length);
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    public long getBytesIn() {
+        return bytesIn.get();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.get();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+}
@@ -0,0 +1,114 @@
+package org.YanPl.loadtest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.YanPl.api.ResponseParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("StubAiServer 单元测试")
+class StubAiServerTest {
+
+    private final Gson gson = new Gson();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private StubAiServer stub;
+
+    @AfterEach
+    void tearDown() {
+        if (stub != null) {
+            stub.stop();
+        }
+    }
+
+    private static JsonArray messages(String... roleAndContent) {
+        JsonArray messages = new JsonArray();
+        for (int i = 0; i < roleAndContent.length; i += 2) {
+            JsonObject message = new JsonObject();
+            message.addProperty("role", roleAndContent[i]);
+            message.addProperty("content", roleAndContent[i + 1]);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private HttpResponse<String> post(String url, JsonArray messages) throws Exception {
+        JsonObject body = new JsonObject();
+        body.addProperty("model", "stub-model");
+        body.add("messages", messages);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(body)))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    @DisplayName("按本轮已有的 assistant 回复数推进脚本，并替换轮次与玩家名")
+    void testScriptStepping() {
+        stub = new StubAiServer(new StubAiServer.Options().script(List.of("#run: list", "第 {turn} 轮，{player}")));
+        String system = "[Environment]\nPlayer: Steve\n";
+
+        assertEquals("#run: list", stub.replyFor(messages("system", system, "assistant", "你好", "user", "在线人数")));
+        assertEquals("第 1 轮，Steve", stub.replyFor(messages("system", system, "assistant", "你好", "user", "在线人数",
+                "assistant", "#run: list", "user", "#run_result: 3 players")));
+        // 工具结果不算新的一轮，超出脚本长度时重复最后一条
+        assertEquals("第 2 轮，Steve", stub.replyFor(messages("system", system, "user", "a", "assistant", "x",
+                "user", "b", "assistant", "#run: list", "user", "#run_result: ok", "assistant", "第 2 轮")));
+    }
+
+    @Test
+    @DisplayName("每 N 个请求返回一次带 Retry-After 的 429")
+    void testThrottle() throws Exception {
+        stub = new StubAiServer(new StubAiServer.Options().latency(0, 0).throttleEvery(3, 2));
+        String url = stub.start();
+        JsonArray messages = messages("user", "hello");
+
+        assertEquals(200, post(url, messages).statusCode());
+        assertEquals(200, post(url, messages).statusCode());
+        HttpResponse<String> throttled = post(url, messages);
+        assertEquals(429, throttled.statusCode());
+        assertEquals("2", throttled.headers().firstValue("Retry-After").orElse(null));
+        assertEquals(200, post(url, messages).statusCode());
+        assertEquals(4, stub.getRequests());
+        assertEquals(1, stub.getThrottled());
+    }
+
+    @Test
+    @DisplayName("分块输出与 CloudFlare 格式的响应都能被 ResponseParser 解析")
+    void testFormats() throws Exception {
+        ResponseParser parser = new ResponseParser();
+        for (StubAiServer.Format format : StubAiServer.Format.values()) {
+            stub = new StubAiServer(new StubAiServer.Options().latency(0, 0).streaming(4, 5).format(format)
+                    .script(List.of("结果如下 #end")));
+            String url = stub.start();
+
+            HttpResponse<String> response = post(url, messages("user", "hello"));
+
+            assertEquals(200, response.statusCode());
+            JsonObject body = gson.fromJson(response.body(), JsonObject.class);
+            assertEquals("结果如下 #end", parser.parseResponse(body).getContent(), format.name());
+            stub.stop();
+        }
+        stub = null;
+    }
+
+    @Test
+    @DisplayName("未知路径返回 404")
+    void testNotFound() throws Exception {
+        stub = new StubAiServer(new StubAiServer.Options().latency(0, 0));
+        String url = stub.start().replace("/chat/completions", "/models");
+
+        assertEquals(404, post(url, messages("user", "hello")).statusCode());
+        assertEquals(0, stub.getRequests());
+    }
+}
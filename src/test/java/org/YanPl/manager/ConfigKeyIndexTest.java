@@ -0,0 +1,138 @@
+package org.YanPl.manager;
+
+import org.YanPl.FancyHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ConfigKeyIndex 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ConfigKeyIndexTest {
+
+    @Mock
+    private FancyHelper plugin;
+
+    @Mock
+    private ConfigManager configManager;
+
+    @TempDir
+    Path tempDir;
+
+    private ConfigKeyIndex index;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("ConfigKeyIndexTest"));
+
+        write("Essentials/config.yml",
+                "# 注释\n"
+                        + "teleport-cooldown: 0\n"
+                        + "homes:\n"
+                        + "  max: 3\n"
+                        + "  groups:\n"
+                        + "    - default\n"
+                        + "    - vip\n"
+                        + "spawn-on-join: false\n");
+        write("LuckPerms/config.yml", "server: global\nstorage-method: h2\n");
+        write("Essentials/userdata/0000.yml", "money: 100\n");
+
+        index = new ConfigKeyIndex(plugin, tempDir);
+        index.rebuild();
+    }
+
+    private Path write(String relative, String content) throws IOException {
+        Path file = tempDir.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    @DisplayName("完整键路径返回文件、行号与当前值")
+    void testFullKeyLookup() {
+        assertTrue(index.query("essentials.teleport-cooldown")
+                .contains("plugins/Essentials/config.yml:2 teleport-cooldown = 0"));
+        assertTrue(index.query("Essentials.homes.max")
+                .contains("plugins/Essentials/config.yml:4 homes.max = 3"));
+    }
+
+    @Test
+    @DisplayName("配置节的行号范围覆盖其全部子键")
+    void testSectionRange() {
+        assertTrue(index.query("essentials.homes").contains("config.yml:3-7 homes (section)"));
+        assertTrue(index.query("homes.groups").contains("config.yml:5-7 homes.groups = [default, vip]"));
+    }
+
+    @Test
+    @DisplayName("可按不含插件名的键路径或最后一级键名查找")
+    void testPartialLookup() {
+        assertTrue(index.query("storage-method").contains("plugins/LuckPerms/config.yml:2"));
+        assertTrue(index.query("max").contains("homes.max = 3"));
+        assertTrue(index.query("money").startsWith("未找到"));
+    }
+
+    @Test
+    @DisplayName("空参数返回插件摘要，插件名返回顶层键")
+    void testSummary() {
+        String summary = index.query("");
+        assertTrue(summary.contains("Essentials: config.yml(5)"));
+        assertTrue(summary.contains("LuckPerms: config.yml(2)"));
+
+        String essentials = index.query("essentials");
+        assertTrue(essentials.contains("顶层键: teleport-cooldown, homes, spawn-on-join"));
+    }
+
+    @Test
+    @DisplayName("文件变动后增量更新，语法错误的文件会在摘要中标记")
+    void testIncrementalUpdate() throws IOException {
+        Path file = write("LuckPerms/config.yml", "server: lobby\n");
+        index.onPathChanged(file);
+        assertTrue(index.query("luckperms.server").contains("server = lobby"));
+        assertTrue(index.query("storage-method").startsWith("未找到"));
+
+        write("LuckPerms/config.yml", "server: [unclosed\n");
+        index.onPathChanged(file);
+        assertTrue(index.query("").contains("config.yml(解析失败)"));
+
+        Files.delete(file);
+        index.onPathChanged(file);
+        assertFalse(index.query("").contains("LuckPerms"));
+        assertFalse(index.query("luckperms").contains("plugins/LuckPerms/config.yml"));
+    }
+
+    @Test
+    @DisplayName("全量重建期间查询仍能命中旧索引")
+    void testQueryDuringRebuild() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            write("Plugin" + i + "/config.yml", "enabled: true\nlimit: " + i + "\n");
+        }
+        Thread rebuilder = new Thread(() -> {
+            for (int i = 0; i < 20; i++) {
+                index.rebuild();
+            }
+        });
+        rebuilder.start();
+        while (rebuilder.isAlive()) {
+            assertTrue(index.query("essentials.homes.max").contains("homes.max = 3"));
+        }
+        rebuilder.join();
+        assertTrue(index.query("plugin49.limit").contains("limit = 49"));
+    }
+}
@@ -0,0 +1,143 @@
+package org.YanPl.manager;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.util.LineIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("FileEditEngine 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class FileEditEngineTest {
+
+    private static final UUID PLAYER = UUID.randomUUID();
+
+    @Mock
+    private FancyHelper plugin;
+
+    @Mock
+    private LineIndexCache lineIndexCache;
+
+    @TempDir
+    Path tempDir;
+
+    private FileEditEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        when(plugin.getLineIndexCache()).thenReturn(lineIndexCache);
+        engine = new FileEditEngine(plugin);
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = tempDir.resolve("config.yml");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private LineIndex index(Path file) throws IOException {
+        return LineIndex.build(file, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+    }
+
+    private String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("findMatches 返回所有连续匹配的起始行")
+    void testFindMatches() throws IOException {
+        Path file = write("a: 1\nb: 2\nc: 3\nb: 2\nc: 4\n");
+        LineIndex index = index(file);
+
+        assertEquals(List.of(2, 4), engine.findMatches(file, index, 1, 5, new String[]{"b: 2"}));
+        assertEquals(List.of(2), engine.findMatches(file, index, 1, 4, new String[]{"b: 2", "c: 3"}));
+        assertEquals(List.of(4), engine.findMatches(file, index, 3, 5, new String[]{"b"}));
+    }
+
+    @Test
+    @DisplayName("replaceLines 保留 CRLF 换行与窗口外的内容")
+    void testReplacePreservesCrlf() throws IOException {
+        Path file = write("a: 1\r\nb: 2\r\nc: 3\r\n");
+
+        engine.replaceLines(PLAYER, file, index(file), 2, 1, List.of("b: 20", "d: 4"));
+
+        assertEquals("a: 1\r\nb: 20\r\nd: 4\r\nc: 3\r\n", read(file));
+        verify(lineIndexCache).invalidate(file.toRealPath());
+    }
+
+    @Test
+    @DisplayName("replaceLines 不会给没有结尾换行的文件追加换行")
+    void testReplaceLastLineWithoutTerminator() throws IOException {
+        Path file = write("a: 1\nb: 2");
+
+        engine.replaceLines(PLAYER, file, index(file), 2, 1, List.of("b: 3"));
+
+        assertEquals("a: 1\nb: 3", read(file));
+    }
+
+    @Test
+    @DisplayName("replaceLines 保留 UTF-8 BOM")
+    void testReplaceKeepsBom() throws IOException {
+        Path file = write("\uFEFFa: 1\nb: 2\n");
+
+        engine.replaceLines(PLAYER, file, index(file), 1, 1, List.of("a: 9"));
+
+        assertEquals("\uFEFFa: 9\nb: 2\n", read(file));
+    }
+
+    @Test
+    @DisplayName("undoLast 依次撤销修改，区域被改动后拒绝撤销")
+    void testUndo() throws IOException {
+        String original = "a: 1\nb: 2\nc: 3\n";
+        Path file = write(original);
+
+        engine.replaceLines(PLAYER, file, index(file), 1, 1, List.of("a: 10"));
+        engine.replaceLines(PLAYER, file, index(file), 3, 1, List.of("c: 30", "e: 5"));
+        assertEquals("a: 10\nb: 2\nc: 30\ne: 5\n", read(file));
+
+        assertTrue(engine.undoLast(PLAYER, file));
+        assertTrue(engine.undoLast(PLAYER, file));
+        assertEquals(original, read(file));
+        assertFalse(engine.undoLast(PLAYER, file));
+
+        engine.replaceLines(PLAYER, file, index(file), 2, 1, List.of("b: 20"));
+        Files.write(file, "a: 1\nb: 21\nc: 3\n".getBytes(StandardCharsets.UTF_8));
+        assertFalse(engine.undoLast(PLAYER, file));
+    }
+
+    @Test
+    @DisplayName("撤销记录按玩家区分，会话结束后清除")
+    void testUndoPerPlayer() throws IOException {
+        UUID other = UUID.randomUUID();
+        Path file = write("a: 1\nb: 2\n");
+
+        engine.replaceLines(PLAYER, file, index(file), 1, 1, List.of("a: 10"));
+        engine.replaceLines(other, file, index(file), 2, 1, List.of("b: 3"));
+
+        // 只撤销自己的修改，不影响其他玩家之后的修改
+        assertTrue(engine.undoLast(PLAYER, file));
+        assertEquals("a: 1\nb: 3\n", read(file));
+        assertFalse(engine.undoLast(PLAYER, file));
+
+        engine.forget(other);
+        assertFalse(engine.undoLast(other, file));
+        assertEquals("a: 1\nb: 3\n", read(file));
+    }
+}
@@ -0,0 +1,149 @@
+package org.YanPl.manager;
+
+import org.YanPl.FancyHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("FileEventHub 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class FileEventHubTest {
+
+    @Mock
+    private FancyHelper plugin;
+
+    @TempDir
+    Path tempDir;
+
+    private FileEventHub hub;
+
+    @BeforeEach
+    void setUp() {
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("FileEventHubTest"));
+        hub = new FileEventHub(plugin);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.shutdown();
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 等待直到条件满足或超时（WatchService 在部分平台上为轮询实现，延迟可达数秒）
+     */
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    @DisplayName("防抖窗口内的多次修改只投递一次")
+    void testDebounce() throws Exception {
+        Path file = tempDir.resolve("config.yml");
+        write(file, "a: 0\n");
+        List<FileEventHub.FileEvent> events = new CopyOnWriteArrayList<>();
+        hub.subscribe(tempDir, 300L, events::add);
+
+        for (int i = 1; i <= 5; i++) {
+            write(file, "a: " + i + "\n");
+        }
+        await(() -> !events.isEmpty());
+        Thread.sleep(600);
+
+        assertEquals(1, events.stream().filter(e -> e.getPath().equals(file)).count());
+    }
+
+    @Test
+    @DisplayName("递归订阅会注册新建的子目录，并遵循目录过滤")
+    void testRecursiveSubscription() throws Exception {
+        Files.createDirectories(tempDir.resolve("logs"));
+        List<Path> paths = new CopyOnWriteArrayList<>();
+        hub.subscribeRecursive(tempDir, dir -> !dir.getFileName().toString().equals("logs"), 0L,
+                event -> paths.add(event.getPath()));
+
+        Path nested = Files.createDirectories(tempDir.resolve("plugins/Essentials"));
+        Path config = nested.resolve("config.yml");
+        write(config, "a: 1\n");
+        write(tempDir.resolve("logs/latest.log"), "ignored\n");
+
+        await(() -> paths.contains(config));
+        assertTrue(paths.contains(config));
+        assertFalse(paths.contains(tempDir.resolve("logs/latest.log")));
+    }
+
+    @Test
+    @DisplayName("非递归订阅不接收子目录中的事件，取消后不再投递")
+    void testNonRecursiveAndCancel() throws Exception {
+        Path sub = Files.createDirectories(tempDir.resolve("sub"));
+        List<Path> paths = new CopyOnWriteArrayList<>();
+        FileEventHub.Subscription subscription = hub.subscribe(tempDir, 0L, event -> paths.add(event.getPath()));
+        hub.subscribeRecursive(sub, dir -> true, 0L, event -> { });
+
+        write(sub.resolve("inner.txt"), "x");
+        Path top = tempDir.resolve("top.txt");
+        write(top, "x");
+        await(() -> paths.contains(top));
+        assertFalse(paths.contains(sub.resolve("inner.txt")));
+
+        subscription.cancel();
+        paths.clear();
+        write(tempDir.resolve("after.txt"), "x");
+        Thread.sleep(500);
+        assertTrue(paths.isEmpty());
+    }
+
+    @Test
+    @DisplayName("耗时的订阅者不会推迟其他订阅的回调")
+    void testSlowListenerIsolated() throws Exception {
+        Path slowDir = Files.createDirectories(tempDir.resolve("slow"));
+        Path fastDir = Files.createDirectories(tempDir.resolve("fast"));
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        hub.subscribe(slowDir, 0L, event -> {
+            slowStarted.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        List<Path> fast = new CopyOnWriteArrayList<>();
+        hub.subscribe(fastDir, 0L, event -> fast.add(event.getPath()));
+
+        write(slowDir.resolve("index.txt"), "x");
+        assertTrue(slowStarted.await(15, TimeUnit.SECONDS));
+        Path eula = fastDir.resolve("eula.txt");
+        write(eula, "eula=true");
+        await(() -> fast.contains(eula));
+        assertTrue(fast.contains(eula));
+        release.countDown();
+    }
+}
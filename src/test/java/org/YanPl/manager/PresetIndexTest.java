@@ -0,0 +1,111 @@
+package org.YanPl.manager;
+
+import org.YanPl.FancyHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("PresetIndex 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PresetIndexTest {
+
+    @Mock
+    private FancyHelper plugin;
+
+    @Mock
+    private ConfigManager configManager;
+
+    @TempDir
+    Path tempDir;
+
+    private PresetIndex index;
+    private final UUID playerId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(plugin.getDataFolder()).thenReturn(tempDir.toFile());
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("PresetIndexTest"));
+
+        Path presetDir = Files.createDirectories(tempDir.resolve("preset"));
+        Files.write(presetDir.resolve("small.txt"), "【插件检查】\n无需插件\n".getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder large = new StringBuilder("【插件检查】\n请先执行 /co version 检查 CoreProtect 是否安装。\n\n");
+        for (int i = 1; i <= 12; i++) {
+            if (i == 7) {
+                large.append("【回档与恢复】\n/co rollback u:Steve t:1h r:10 - 回档指定玩家一小时内的改动\n");
+            }
+            large.append("【章节").append(i).append("】\n");
+            for (int j = 0; j < 30; j++) {
+                large.append("这是第").append(i).append("章的普通说明文字，用于填充内容。\n");
+            }
+        }
+        Files.write(presetDir.resolve("coreprotect.txt"), large.toString().getBytes(StandardCharsets.UTF_8));
+
+        index = new PresetIndex(plugin);
+        index.rebuild();
+    }
+
+    @Test
+    @DisplayName("分词对中文输出单字与二元组，对英文输出整词")
+    void testTokenize() {
+        List<String> tokens = PresetIndex.tokenize("回档 Rollback t:1h");
+        assertTrue(tokens.containsAll(List.of("回", "档", "回档", "rollback", "1h")));
+        assertFalse(tokens.contains("t"));
+    }
+
+    @Test
+    @DisplayName("小预设整份返回")
+    void testSmallPresetReturnedWhole() {
+        assertEquals("【插件检查】\n无需插件\n", index.get(playerId, "small.txt", "任意问题"));
+        assertEquals("【插件检查】\n无需插件\n", index.get(playerId, "SMALL", ""));
+    }
+
+    @Test
+    @DisplayName("大预设只返回首个片段与最相关的片段，并支持 more 续读")
+    void testRelevantChunksAndMore() {
+        String result = index.get(playerId, "coreprotect.txt", "怎么回档玩家的操作");
+
+        assertTrue(result.contains("/co version"));
+        assertTrue(result.contains("/co rollback"));
+        assertTrue(result.contains("|more"));
+        assertFalse(result.contains("第12章"));
+
+        String more = index.get(playerId, "coreprotect.txt|more", "");
+        assertTrue(more.contains("后续片段"));
+        assertFalse(more.contains("/co rollback"));
+    }
+
+    @Test
+    @DisplayName("显式关键词优先于玩家提问")
+    void testExplicitQuery() {
+        String result = index.get(playerId, "coreprotect.txt|章节7", "怎么回档");
+        assertTrue(result.contains("第7章"));
+    }
+
+    @Test
+    @DisplayName("文件不存在时在所有预设中检索")
+    void testFallbackSearch() {
+        assertTrue(index.get(playerId, "rollback", "").contains("coreprotect.txt"));
+        assertEquals("文件不存在", index.get(playerId, "nothing-matches-xyz.txt", ""));
+        assertTrue(index.get(playerId, "more", "").startsWith("没有可继续"));
+    }
+}
@@ -0,0 +1,124 @@
+package org.YanPl.manager;
+
+import net.md_5.bungee.api.ChatMessageType;
+import net.md_5.bungee.api.chat.BaseComponent;
+import org.YanPl.FancyHelper;
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("StatusRenderer 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class StatusRendererTest {
+
+    @Mock
+    private FancyHelper plugin;
+
+    @Mock
+    private ConfigManager configManager;
+
+    @Mock
+    private Player player;
+
+    @Mock
+    private Player.Spigot spigot;
+
+    private final UUID uuid = UUID.randomUUID();
+    private StatusRenderer renderer;
+
+    @BeforeEach
+    void setUp() {
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        when(configManager.getPlayerDisplayPosition(player)).thenReturn("actionbar");
+        when(player.getUniqueId()).thenReturn(uuid);
+        when(player.isOnline()).thenReturn(true);
+        when(player.spigot()).thenReturn(spigot);
+        renderer = new StatusRenderer(plugin);
+    }
+
+    @Test
+    @DisplayName("相同文本在刷新间隔内不重复发送")
+    void testUnchangedTextIsNotResent() {
+        assertTrue(renderer.render(player, "...."));
+        renderer.advance();
+        assertFalse(renderer.render(player, "...."));
+        verify(spigot, times(1)).sendMessage(eq(ChatMessageType.ACTION_BAR), any(BaseComponent.class));
+    }
+
+    @Test
+    @DisplayName("文本变化时立即发送")
+    void testChangedTextIsSent() {
+        assertTrue(renderer.render(player, "- 思考中 1s -"));
+        assertTrue(renderer.render(player, "- 思考中 2s -"));
+        verify(spigot, times(2)).sendMessage(eq(ChatMessageType.ACTION_BAR), any(BaseComponent.class));
+    }
+
+    @Test
+    @DisplayName("达到 Actionbar 刷新间隔后重新发送")
+    void testRefreshBeforeFade() {
+        renderer.render(player, "....");
+        for (long t = 0; t < StatusRenderer.ACTIONBAR_REFRESH_TICKS; t += StatusRenderer.TICKS_PER_SLOT) {
+            renderer.advance();
+        }
+        assertTrue(renderer.render(player, "...."));
+    }
+
+    @Test
+    @DisplayName("Subtitle 模式使用更短的刷新间隔")
+    void testSubtitleRefresh() {
+        when(configManager.getPlayerDisplayPosition(player)).thenReturn("subtitle");
+        renderer.render(player, "....");
+        for (long t = 0; t < StatusRenderer.SUBTITLE_REFRESH_TICKS; t += StatusRenderer.TICKS_PER_SLOT) {
+            renderer.advance();
+        }
+        assertTrue(renderer.render(player, "...."));
+        verify(player, times(2)).sendTitle("", "....", 0, 20, 0);
+    }
+
+    @Test
+    @DisplayName("时间轮到期后清除显示")
+    void testScheduledClear() {
+        renderer.render(player, "- ✓ -");
+        renderer.scheduleClear(uuid, 40L);
+        for (int i = 0; i < 7; i++) {
+            renderer.advance();
+        }
+        verify(spigot, times(1)).sendMessage(eq(ChatMessageType.ACTION_BAR), any(BaseComponent.class));
+        renderer.advance();
+        verify(spigot, times(2)).sendMessage(eq(ChatMessageType.ACTION_BAR), any(BaseComponent.class));
+    }
+
+    @Test
+    @DisplayName("清除前渲染新状态会取消已安排的清除")
+    void testNewRenderCancelsClear() {
+        renderer.render(player, "- ✓ -");
+        renderer.scheduleClear(uuid, 10L);
+        renderer.render(player, "- 思考中 0s -");
+        renderer.advance();
+        renderer.advance();
+        renderer.advance();
+        verify(spigot, times(2)).sendMessage(eq(ChatMessageType.ACTION_BAR), any(BaseComponent.class));
+    }
+
+    @Test
+    @DisplayName("forget 后再次渲染相同文本会重新发送")
+    void testForgetResetsState() {
+        renderer.render(player, "....");
+        renderer.forget(uuid);
+        assertTrue(renderer.render(player, "...."));
+    }
+}
@@ -183,4 +183,48 @@ class ToolExecutorTest {
 
         assertTrue(result);
     }
+
+    @Test
+    @DisplayName("canRunInBatch 只允许已启用的只读工具")
+    void testCanRunInBatch() {
+        VerificationManager verificationManager = mock(VerificationManager.class);
+        when(plugin.getVerificationManager()).thenReturn(verificationManager);
+        when(verificationManager.getPlayerFreezeRemaining(player)).thenReturn(0L);
+        when(configManager.isPlayerToolEnabled(player, "read")).thenReturn(true);
+        when(configManager.isPlayerToolEnabled(player, "ls")).thenReturn(false);
+
+        assertTrue(toolExecutor.canRunInBatch(player, "#getpreset: coreprotect.txt"));
+        assertTrue(toolExecutor.canRunInBatch(player, "#search: rollback"));
+        assertTrue(toolExecutor.canRunInBatch(player, "#read: server.properties"));
+        assertTrue(toolExecutor.canRunInBatch(player, "#grep: spawn"));
+        assertFalse(toolExecutor.canRunInBatch(player, "#list: plugins"));
+        assertFalse(toolExecutor.canRunInBatch(player, "#run: say hello"));
+        assertFalse(toolExecutor.canRunInBatch(player, "#edit: a.yml|1-1|a|b"));
+        assertFalse(toolExecutor.canRunInBatch(player, "#undo: a.yml"));
+
+        when(verificationManager.getPlayerFreezeRemaining(player)).thenReturn(30L);
+        assertFalse(toolExecutor.canRunInBatch(player, "#read: server.properties"));
+    }
+
+    @Test
+    @DisplayName("computeReadOnlyResult 返回与单独调用一致的反馈格式")
+    void testComputeReadOnlyResult() {
+        PresetIndex presetIndex = mock(PresetIndex.class);
+        when(plugin.getPresetIndex()).thenReturn(presetIndex);
+        when(presetIndex.get(testUuid, "coreprotect.txt", "怎么回档")).thenReturn("【回档】");
+
+        assertEquals("#get_result: 【回档】", toolExecutor.computeReadOnlyResult(player, "#getpreset: coreprotect.txt", "怎么回档"));
+        assertTrue(toolExecutor.computeReadOnlyResult(player, "#webread:", "").startsWith("#webread_result: error"));
+    }
+
+    @Test
+    @DisplayName("isErrorResult 区分批量执行中失败与成功的工具结果")
+    void testIsErrorResult() {
+        assertFalse(ToolExecutor.isErrorResult("#get_result: 【回档】"));
+        assertFalse(ToolExecutor.isErrorResult("#grep_result: 未找到包含 \"spawn\" 的内容"));
+        assertTrue(ToolExecutor.isErrorResult("#read_result: 错误: 文件不存在"));
+        assertTrue(ToolExecutor.isErrorResult("#search_result: 错误 - timeout"));
+        assertTrue(ToolExecutor.isErrorResult("#webread_result: error - 需要提供URL参数"));
+        assertTrue(ToolExecutor.isErrorResult("#error: 工具 #run 不能并行执行"));
+    }
 }
@@ -0,0 +1,118 @@
+package org.YanPl.manager;
+
+import org.YanPl.FancyHelper;
+import org.bukkit.command.Command;
+import org.bukkit.command.PluginIdentifiableCommand;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("WorkspaceIndexer 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class WorkspaceIndexerTest {
+
+    @Mock
+    private FancyHelper plugin;
+
+    @Mock
+    private ConfigManager configManager;
+
+    private final Map<String, Command> knownCommands = new HashMap<>();
+    private WorkspaceIndexer indexer;
+
+    @BeforeEach
+    void setUp() {
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("WorkspaceIndexerTest"));
+        when(configManager.isDebug()).thenReturn(false);
+
+        register("minecraft", mockCommand("gamemode", List.of("gm"), null));
+        register("essentials", pluginCommand("home", List.of("homes"), "Essentials"));
+
+        indexer = new WorkspaceIndexer(plugin);
+        indexer.setKnownCommands(knownCommands);
+        indexer.indexCommands();
+    }
+
+    private Command mockCommand(String name, List<String> aliases, String permission) {
+        Command command = mock(Command.class);
+        when(command.getName()).thenReturn(name);
+        when(command.getAliases()).thenReturn(aliases);
+        when(command.getPermission()).thenReturn(permission);
+        when(command.getUsage()).thenReturn("/" + name);
+        when(command.getDescription()).thenReturn("");
+        return command;
+    }
+
+    private Command pluginCommand(String name, List<String> aliases, String pluginName) {
+        Command command = mock(Command.class, withSettings().extraInterfaces(PluginIdentifiableCommand.class));
+        when(command.getName()).thenReturn(name);
+        when(command.getAliases()).thenReturn(aliases);
+        when(command.getPermission()).thenReturn(pluginName.toLowerCase() + "." + name);
+        when(command.getUsage()).thenReturn("/" + name);
+        when(command.getDescription()).thenReturn("");
+        Plugin owner = mock(Plugin.class);
+        when(owner.getName()).thenReturn(pluginName);
+        when(((PluginIdentifiableCommand) command).getPlugin()).thenReturn(owner);
+        return command;
+    }
+
+    private void register(String prefix, Command command) {
+        knownCommands.put(command.getName(), command);
+        knownCommands.put(prefix + ":" + command.getName(), command);
+        for (String alias : command.getAliases()) {
+            knownCommands.put(alias, command);
+            knownCommands.put(prefix + ":" + alias, command);
+        }
+    }
+
+    @Test
+    @DisplayName("全量索引忽略带前缀的标签并记录命令元数据")
+    void testFullIndex() {
+        assertEquals(List.of("gamemode", "gm", "home", "homes"), indexer.getIndexedCommands());
+
+        WorkspaceIndexer.CommandInfo home = indexer.getCommandInfo("HOMES");
+        assertEquals("home", home.getName());
+        assertEquals("Essentials", home.getPlugin());
+        assertEquals("essentials.home", home.getPermission());
+        assertEquals(List.of("homes"), home.getAliases());
+        assertEquals("minecraft", indexer.getCommandInfo("gm").getPlugin());
+    }
+
+    @Test
+    @DisplayName("插件启用后只增量加入该插件的命令")
+    void testPluginEnable() {
+        List<String> before = indexer.getIndexedCommands();
+        register("plugman", mockCommand("plugman", List.of(), "plugman.admin"));
+        indexer.updatePluginCommands("PlugMan", true);
+
+        assertTrue(indexer.getIndexedCommands().contains("plugman"));
+        assertEquals("plugman", indexer.getCommandInfo("plugman").getPlugin());
+        // 旧快照不受影响
+        assertFalse(before.contains("plugman"));
+    }
+
+    @Test
+    @DisplayName("插件禁用后移除其全部命令与别名")
+    void testPluginDisable() {
+        indexer.updatePluginCommands("Essentials", false);
+
+        assertEquals(List.of("gamemode", "gm"), indexer.getIndexedCommands());
+        assertNull(indexer.getCommandInfo("home"));
+    }
+}
@@ -0,0 +1,135 @@
+package org.YanPl.manager;
+
+import org.YanPl.FancyHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("WorkspaceSearchIndex 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class WorkspaceSearchIndexTest {
+
+    @Mock
+    private FancyHelper plugin;
+
+    @Mock
+    private ConfigManager configManager;
+
+    @TempDir
+    Path tempDir;
+
+    private WorkspaceSearchIndex index;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("WorkspaceSearchIndexTest"));
+        when(configManager.isDebug()).thenReturn(false);
+
+        write("server.properties", "spawn-protection=16\nmotd=A Minecraft Server\n");
+        write("plugins/Essentials/config.yml", "ops-name-color: '4'\nteleport-cooldown: 0\nspawn-on-join: false\n");
+        write("plugins/LuckPerms/config.yml", "server: global\nstorage-method: h2\n");
+        write("world/level.dat", "spawn-protection in a world folder");
+        write("logs/latest.log", "spawn-protection in a log");
+
+        index = new WorkspaceSearchIndex(plugin, tempDir);
+        index.rebuild();
+    }
+
+    private Path write(String relative, String content) throws IOException {
+        Path file = tempDir.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    @DisplayName("grep 返回 path:line 格式且忽略大小写")
+    void testGrep() {
+        String result = index.grep("SPAWN");
+
+        assertTrue(result.contains("server.properties:1: spawn-protection=16"));
+        assertTrue(result.contains("plugins/Essentials/config.yml:3: spawn-on-join: false"));
+        assertFalse(result.contains("level.dat"));
+        assertFalse(result.contains("latest.log"));
+    }
+
+    @Test
+    @DisplayName("grep 支持路径前缀过滤与短关键字")
+    void testGrepWithPrefix() {
+        String result = index.grep("server|plugins/");
+
+        assertTrue(result.contains("plugins/LuckPerms/config.yml:1: server: global"));
+        assertFalse(result.contains("server.properties"));
+        assertTrue(index.grep("h2").contains("plugins/LuckPerms/config.yml:2"));
+        assertTrue(index.grep("not-present-anywhere").startsWith("未找到"));
+    }
+
+    @Test
+    @DisplayName("find 按路径片段查找文件")
+    void testFind() {
+        String result = index.find("config.yml");
+
+        assertTrue(result.contains("plugins/Essentials/config.yml"));
+        assertTrue(result.contains("plugins/LuckPerms/config.yml"));
+        assertFalse(result.contains("server.properties"));
+        assertEquals(3, index.getIndexedFileCount());
+    }
+
+    @Test
+    @DisplayName("文件变动事件会增量更新索引")
+    void testIncrementalUpdate() throws IOException {
+        Path file = write("plugins/Essentials/config.yml", "teleport-cooldown: 5\n");
+        index.handleChange(file, FileEventHub.Kind.MODIFY);
+        assertFalse(index.grep("spawn-on-join").contains("Essentials"));
+        assertTrue(index.grep("cooldown: 5").contains("plugins/Essentials/config.yml:1"));
+
+        Path created = write("plugins/Vault/config.yml", "update-check: true\n");
+        index.handleChange(created, FileEventHub.Kind.CREATE);
+        assertTrue(index.grep("update-check").contains("plugins/Vault/config.yml:1"));
+
+        Files.delete(created);
+        index.handleChange(created, FileEventHub.Kind.DELETE);
+        assertTrue(index.find("Vault").startsWith("未找到"));
+    }
+
+    @Test
+    @DisplayName("反复修改同一文件不会累计倒排条目，删除后扣除")
+    void testPostingCountAfterEdits() throws IOException {
+        long before = index.getPostingCount();
+        Path file = tempDir.resolve("server.properties");
+        for (int i = 0; i < 20; i++) {
+            write("server.properties", "spawn-protection=16\nmotd=A Minecraft Server\n");
+            index.handleChange(file, FileEventHub.Kind.MODIFY);
+        }
+        assertEquals(before, index.getPostingCount());
+
+        Files.delete(file);
+        index.handleChange(file, FileEventHub.Kind.DELETE);
+        assertTrue(index.getPostingCount() < before);
+        assertTrue(index.grep("motd").startsWith("未找到"));
+    }
+
+    @Test
+    @DisplayName("含 NUL 字节的内容视为二进制")
+    void testBinaryDetection() {
+        assertNull(WorkspaceSearchIndex.extractTrigrams(new byte[]{'a', 'b', 0, 'c'}));
+        assertEquals(2, WorkspaceSearchIndex.extractTrigrams("abcd".getBytes(StandardCharsets.UTF_8)).length);
+    }
+}
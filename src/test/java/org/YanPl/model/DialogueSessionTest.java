@@ -3,7 +3,13 @@ package org.YanPl.model;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -167,6 +173,48 @@ class DialogueSessionTest {
         assertEquals("/path/to/log.txt", session.getLogFilePath());
     }
 
+    @Test
+    @DisplayName("会话日志交给写入线程按提交顺序写入，任务中再提交的日志直接写入")
+    void testLogWriterOrder(@TempDir Path dir) throws IOException {
+        Path log = dir.resolve("session.log");
+        List<Runnable> queued = new ArrayList<>();
+        session.setLogFilePath(log.toString());
+        session.setLogWriter(queued::add);
+
+        session.appendLog("USER_INPUT", "第一条");
+        session.submitLog(() -> {
+            session.logSystemPrompt("系统提示词");
+            session.logAIRequest("请求内容");
+        });
+        session.appendLog("TOOL_EXECUTION", "第二条");
+
+        // 提交时不写文件
+        assertFalse(Files.exists(log));
+        assertEquals(3, queued.size());
+        queued.forEach(Runnable::run);
+
+        String content = Files.readString(log, StandardCharsets.UTF_8);
+        int first = content.indexOf("[USER_INPUT] 第一条");
+        int prompt = content.indexOf("[SYSTEM_PROMPT]");
+        int request = content.indexOf("请求内容");
+        int second = content.indexOf("[TOOL_EXECUTION] 第二条");
+        assertTrue(first >= 0 && first < prompt && prompt < request && request < second, content);
+    }
+
+    @Test
+    @DisplayName("未开启会话日志时不执行日志任务")
+    void testSubmitLogWithoutLogFile() {
+        List<Runnable> queued = new ArrayList<>();
+        session.setLogWriter(queued::add);
+        boolean[] ran = {false};
+
+        session.submitLog(() -> ran[0] = true);
+        session.appendLog("USER_INPUT", "内容");
+
+        assertFalse(ran[0]);
+        assertTrue(queued.isEmpty());
+    }
+
     @Test
     @DisplayName("addToolCall 应该正确添加工具调用")
     void testAddToolCall() {
@@ -0,0 +1,284 @@
+package org.YanPl.util;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.manager.ConfigManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("CloudErrorReport 去重与暂存测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CloudErrorReportTest {
+
+    @Mock
+    private FancyHelper plugin;
+
+    @Mock
+    private ConfigManager configManager;
+
+    @TempDir
+    File dataFolder;
+
+    /**
+     * 不访问网络的上报器，按预设响应码返回
+     */
+    private static class StubReporter extends CloudErrorReport {
+        private final AtomicInteger posts = new AtomicInteger();
+        private volatile int responseCode = 200;
+        private volatile CountDownLatch uploading;
+        private volatile CountDownLatch release;
+
+        StubReporter(FancyHelper plugin) {
+            super(plugin);
+        }
+
+        @Override
+        int postBundle(File bundle) throws IOException {
+            posts.incrementAndGet();
+            if (release != null) {
+                uploading.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (responseCode < 0) {
+                throw new IOException("无法连接");
+            }
+            return responseCode;
+        }
+    }
+
+    private StubReporter reporter;
+
+    @BeforeEach
+    void setUp() {
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("CloudErrorReportTest"));
+        when(plugin.getDataFolder()).thenReturn(dataFolder);
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        // 插件未启用时不注册定时任务，由测试直接调用 flush / drainSpool
+        when(plugin.isEnabled()).thenReturn(false);
+        when(configManager.isAutoReportEnabled()).thenReturn(true);
+        when(configManager.getErrorReportDedupMinutes()).thenReturn(60);
+        when(configManager.getErrorReportBatchSeconds()).thenReturn(30);
+        when(configManager.getErrorReportMaxUploadsPerHour()).thenReturn(6);
+        when(configManager.getErrorReportSpoolMaxKb()).thenReturn(2048);
+        reporter = new StubReporter(plugin);
+    }
+
+    /**
+     * 固定抛出位置的异常，便于在不同测试行构造指纹相同的错误
+     */
+    private static RuntimeException failAt(String message) {
+        RuntimeException e = new IllegalStateException(message);
+        e.setStackTrace(new StackTraceElement[]{
+                new StackTraceElement("org.YanPl.api.CloudFlareAI", "chat", "CloudFlareAI.java", 120),
+                new StackTraceElement("org.YanPl.manager.CLIManager", "handleChat", "CLIManager.java", 480)
+        });
+        return e;
+    }
+
+    @Test
+    @DisplayName("指纹只取异常类型与堆栈帧，不受异常消息影响")
+    void testFingerprint() {
+        RuntimeException first = failAt("玩家 Steve 的请求失败");
+        RuntimeException second = failAt("玩家 Alex 的请求失败");
+        assertEquals(CloudErrorReport.fingerprint(first), CloudErrorReport.fingerprint(second));
+
+        RuntimeException otherType = new IllegalArgumentException("x");
+        otherType.setStackTrace(first.getStackTrace());
+        assertNotEquals(CloudErrorReport.fingerprint(first), CloudErrorReport.fingerprint(otherType));
+
+        RuntimeException otherCause = failAt("x");
+        otherCause.initCause(new IOException("timeout"));
+        assertNotEquals(CloudErrorReport.fingerprint(first), CloudErrorReport.fingerprint(otherCause));
+
+        RuntimeException otherLine = failAt("x");
+        StackTraceElement[] frames = otherLine.getStackTrace();
+        frames[0] = new StackTraceElement("org.YanPl.api.CloudFlareAI", "chat", "CloudFlareAI.java", 121);
+        otherLine.setStackTrace(frames);
+        assertNotEquals(CloudErrorReport.fingerprint(first), CloudErrorReport.fingerprint(otherLine));
+    }
+
+    @Test
+    @DisplayName("相同错误风暴只生成一个报告包并记录出现次数")
+    void testStormProducesOneBundle() throws Exception {
+        long now = System.currentTimeMillis();
+        int scheduled = 0;
+        for (int i = 0; i < 500; i++) {
+            if (reporter.offer(failAt("HTTP 500 #" + (i % 3 == 0 ? i : 0)), now + i)) {
+                scheduled++;
+            }
+        }
+        assertEquals(1, scheduled);
+        assertEquals(1, reporter.getPendingCount());
+
+        reporter.flush();
+        assertEquals(1, reporter.posts.get());
+        assertTrue(reporter.listSpool().isEmpty());
+
+        // 去重窗口内再次出现不再上报，窗口过后重新上报
+        assertFalse(reporter.offer(failAt("again"), now + 1000));
+        assertEquals(0, reporter.getPendingCount());
+        assertTrue(reporter.offer(failAt("again"), now + 61 * 60_000L));
+        assertEquals(1, reporter.getPendingCount());
+    }
+
+    @Test
+    @DisplayName("报告包包含错误次数、已上报错误的重复次数、终端日志与配置文件")
+    void testBundleContents() throws Exception {
+        Files.writeString(new File(dataFolder, "config.yml").toPath(), "settings:\n  debug: false\n");
+        long now = System.currentTimeMillis();
+        RuntimeException reported = failAt("first");
+        reporter.offer(reported, now);
+        reporter.spoolPending();
+        reporter.offer(reported, now + 1);
+        reporter.offer(reported, now + 2);
+        for (int i = 0; i < 3; i++) {
+            reporter.offer(new UnsupportedOperationException("new"), now + 3);
+        }
+
+        assertTrue(reporter.spoolPending());
+        List<File> bundles = reporter.listSpool();
+        assertEquals(2, bundles.size());
+        try (ZipFile zip = new ZipFile(bundles.get(1))) {
+            assertNotNull(zip.getEntry("console.log"));
+            assertNotNull(zip.getEntry("config.yml"));
+            String messages = new String(zip.getInputStream(zip.getEntry("messages.log")).readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(messages.contains("java.lang.UnsupportedOperationException: new"));
+            assertTrue(messages.contains("次数: 3"));
+            assertTrue(messages.contains("[" + CloudErrorReport.fingerprint(reported) + "] 次数: 2"));
+            assertFalse(messages.contains("IllegalStateException: first"));
+        }
+    }
+
+    @Test
+    @DisplayName("上报服务不可达时保留报告包并按指数退避")
+    void testBackoffWhenUnreachable() {
+        reporter.responseCode = -1;
+        reporter.offer(failAt("offline"), System.currentTimeMillis());
+        long before = System.currentTimeMillis();
+        reporter.flush();
+
+        assertEquals(1, reporter.posts.get());
+        assertEquals(1, reporter.listSpool().size());
+        assertTrue(reporter.getNextAttemptAt() >= before + CloudErrorReport.BASE_BACKOFF_MILLIS);
+
+        // 退避期间不再尝试上传
+        reporter.drainSpool();
+        assertEquals(1, reporter.posts.get());
+        assertEquals(1, reporter.listSpool().size());
+    }
+
+    @Test
+    @DisplayName("服务端拒绝的报告包不再重试")
+    void testRejectedBundleDeleted() {
+        reporter.responseCode = 413;
+        reporter.offer(failAt("too large"), System.currentTimeMillis());
+        reporter.flush();
+
+        assertTrue(reporter.listSpool().isEmpty());
+        assertEquals(0, reporter.getNextAttemptAt());
+    }
+
+    @Test
+    @DisplayName("每小时上传次数受限，超出的报告包留在暂存目录")
+    void testRateLimit() throws Exception {
+        when(configManager.getErrorReportMaxUploadsPerHour()).thenReturn(2);
+        for (int i = 0; i < 3; i++) {
+            reporter.writeBundle(List.of(new CloudErrorReport.PendingError("fp" + i, "stack", 0)), Map.of());
+        }
+        reporter.drainSpool();
+
+        assertEquals(2, reporter.posts.get());
+        assertEquals(1, reporter.listSpool().size());
+    }
+
+    @Test
+    @DisplayName("暂存目录超过容量上限时删除最早的报告包")
+    void testSpoolBounded() throws Exception {
+        when(configManager.getErrorReportSpoolMaxKb()).thenReturn(64);
+        // 无法压缩的配置文件，使每个报告包约 40KB
+        byte[] noise = new byte[40 * 1024];
+        new Random(1).nextBytes(noise);
+        Files.write(new File(dataFolder, "config.yml").toPath(), noise);
+
+        Map<String, File> written = new HashMap<>();
+        for (int i = 0; i < 3; i++) {
+            written.put("bundle" + i, reporter.writeBundle(
+                    List.of(new CloudErrorReport.PendingError("fp" + i, "stack", 0)), Map.of()));
+        }
+
+        List<File> bundles = reporter.listSpool();
+        assertEquals(1, bundles.size());
+        assertEquals(written.get("bundle2"), bundles.get(0));
+    }
+
+    @Test
+    @DisplayName("关闭时未上传的错误写入暂存目录，启动时清理未写完的报告包")
+    void testShutdownSpoolsAndStartCleansParts() throws Exception {
+        reporter.offer(failAt("during shutdown"), System.currentTimeMillis());
+        reporter.shutdown();
+
+        assertEquals(0, reporter.posts.get());
+        assertEquals(1, reporter.listSpool().size());
+
+        File part = new File(reporter.spoolDir(), "report-broken.part");
+        Files.writeString(part.toPath(), "partial");
+        new StubReporter(plugin).start();
+        assertFalse(part.exists());
+        assertEquals(1, reporter.listSpool().size());
+    }
+
+    @Test
+    @DisplayName("上传进行中时关闭不等待网络，期间写入的报告包由同一线程随后上传")
+    void testShutdownNotBlockedByUpload() throws Exception {
+        reporter.uploading = new CountDownLatch(1);
+        reporter.release = new CountDownLatch(1);
+        reporter.offer(failAt("slow upload"), System.currentTimeMillis());
+        Thread uploader = new Thread(reporter::flush);
+        uploader.start();
+        assertTrue(reporter.uploading.await(5, TimeUnit.SECONDS));
+
+        reporter.offer(new UnsupportedOperationException("during upload"), System.currentTimeMillis());
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            reporter.shutdown();
+            // 已有线程在上传时不重复发送同一个报告包
+            reporter.drainSpool();
+        });
+        assertEquals(1, reporter.posts.get());
+        assertEquals(2, reporter.listSpool().size());
+
+        reporter.release.countDown();
+        uploader.join(5000);
+        assertFalse(uploader.isAlive());
+        assertEquals(2, reporter.posts.get());
+        assertTrue(reporter.listSpool().isEmpty());
+    }
+}
@@ -0,0 +1,152 @@
+package org.YanPl.util;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.manager.ConfigManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("IoExecutor 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class IoExecutorTest {
+
+    @Mock
+    private FancyHelper plugin;
+
+    @Mock
+    private ConfigManager configManager;
+
+    @BeforeEach
+    void setUp() {
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("IoExecutorTest"));
+        when(configManager.isDebug()).thenReturn(false);
+        when(configManager.getIoExecutorMode()).thenReturn("auto");
+        when(configManager.getIoMaxThreads()).thenReturn(4);
+    }
+
+    @Test
+    @DisplayName("auto 模式下 Java 21+ 使用虚拟线程，否则使用平台线程池")
+    void testAutoMode() throws Exception {
+        IoExecutor executor = new IoExecutor(plugin);
+        try {
+            IoExecutor.Mode expected = Runtime.version().feature() >= 21 ? IoExecutor.Mode.VIRTUAL : IoExecutor.Mode.PLATFORM;
+            assertEquals(expected, executor.getMode());
+            String threadName = executor.supply(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+            assertTrue(threadName.startsWith("FancyHelper-IO-"), threadName);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("platform 模式强制使用有界平台线程池")
+    void testPlatformMode() throws Exception {
+        when(configManager.getIoExecutorMode()).thenReturn("platform");
+        IoExecutor executor = new IoExecutor(plugin);
+        try {
+            assertEquals(IoExecutor.Mode.PLATFORM, executor.getMode());
+            // 线程数有上限，超出的任务排队执行而不是被拒绝
+            CountDownLatch done = new CountDownLatch(20);
+            for (int i = 0; i < 20; i++) {
+                executor.execute(() -> {
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("任务抛出异常不影响后续任务，关闭后提交的任务被丢弃")
+    void testErrorsAndShutdown() throws Exception {
+        IoExecutor executor = new IoExecutor(plugin);
+        executor.execute(() -> {
+            throw new IllegalStateException("boom");
+        });
+        CountDownLatch ran = new CountDownLatch(1);
+        executor.execute(ran::countDown);
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+
+        executor.shutdown();
+        assertDoesNotThrow(() -> executor.execute(() -> fail("关闭后不应再执行任务")));
+    }
+
+    @Test
+    @DisplayName("队列已满或已关闭时拒绝任务并在调用线程上执行 onRejected")
+    void testRejectedCallback() throws Exception {
+        when(configManager.getIoExecutorMode()).thenReturn("platform");
+        when(configManager.getIoMaxThreads()).thenReturn(1);
+        IoExecutor executor = new IoExecutor(plugin);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < IoExecutor.QUEUE_PER_THREAD; i++) {
+                executor.execute(() -> { }, () -> fail("队列未满时不应拒绝"));
+            }
+
+            Thread caller = Thread.currentThread();
+            AtomicReference<Thread> rejectedOn = new AtomicReference<>();
+            executor.execute(() -> fail("队列已满时不应执行"), () -> rejectedOn.set(Thread.currentThread()));
+            assertSame(caller, rejectedOn.get());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+
+        AtomicBoolean rejectedAfterShutdown = new AtomicBoolean();
+        executor.execute(() -> fail("关闭后不应再执行任务"), () -> rejectedAfterShutdown.set(true));
+        assertTrue(rejectedAfterShutdown.get());
+    }
+
+    @Test
+    @DisplayName("关闭时中断仍在阻塞的任务")
+    void testShutdownInterrupts() throws Exception {
+        IoExecutor executor = new IoExecutor(plugin);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(60000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        executor.shutdown();
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,138 @@
+package org.YanPl.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LineIndex 测试")
+class LineIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path writeLines(int count, String lineEnding) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= count; i++) {
+            sb.append("line-").append(i).append(lineEnding);
+        }
+        Path file = tempDir.resolve("test.txt");
+        Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private LineIndex index(Path file) throws IOException {
+        return LineIndex.build(file, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+    }
+
+    private List<String> read(LineIndex index, Path file, int start, int max) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return index.readLines(channel, start, max);
+        }
+    }
+
+    @Test
+    @DisplayName("行数与 BufferedReader 计数一致")
+    void testLineCount() throws IOException {
+        Path file = writeLines(1000, "\n");
+        assertEquals(1000, index(file).getLineCount());
+
+        Files.write(file, "a\nb".getBytes(StandardCharsets.UTF_8));
+        assertEquals(2, index(file).getLineCount());
+
+        Files.write(file, new byte[0]);
+        assertEquals(0, index(file).getLineCount());
+    }
+
+    @Test
+    @DisplayName("跨检查点读取任意行范围")
+    void testReadRangeAcrossCheckpoints() throws IOException {
+        Path file = writeLines(5000, "\n");
+        LineIndex index = index(file);
+
+        List<String> lines = read(index, file, LineIndex.STRIDE * 10 + 3, 5);
+        assertEquals(5, lines.size());
+        assertEquals("line-" + (LineIndex.STRIDE * 10 + 3), lines.get(0));
+        assertEquals("line-" + (LineIndex.STRIDE * 10 + 7), lines.get(4));
+
+        List<String> tail = read(index, file, 4999, 10);
+        assertEquals(List.of("line-4999", "line-5000"), tail);
+    }
+
+    @Test
+    @DisplayName("CRLF 换行会去掉行尾的 \\r")
+    void testCrlf() throws IOException {
+        Path file = writeLines(200, "\r\n");
+        LineIndex index = index(file);
+
+        assertEquals(200, index.getLineCount());
+        assertEquals(List.of("line-130"), read(index, file, 130, 1));
+    }
+
+    @Test
+    @DisplayName("仅追加内容时可增量扩展索引")
+    void testExtendAppendOnly() throws IOException {
+        Path file = writeLines(2000, "\n");
+        LineIndex index = index(file);
+
+        Files.write(file, "appended-1\nappended-2\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        LineIndex extended = index.extend(file, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+
+        assertEquals(2002, extended.getLineCount());
+        assertEquals(List.of("line-2000", "appended-1", "appended-2"), read(extended, file, 2000, 10));
+        assertEquals(List.of("line-1500"), read(extended, file, 1500, 1));
+    }
+
+    @Test
+    @DisplayName("文件变小后扩展会完整重建")
+    void testExtendAfterTruncate() throws IOException {
+        Path file = writeLines(2000, "\n");
+        LineIndex index = index(file);
+
+        writeLines(10, "\n");
+        LineIndex rebuilt = index.extend(file, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+
+        assertEquals(10, rebuilt.getLineCount());
+        assertEquals(List.of("line-10"), read(rebuilt, file, 10, 5));
+    }
+
+    @Test
+    @DisplayName("中间内容被修改且文件变大时扩展会完整重建")
+    void testExtendAfterMidFileGrowth() throws IOException {
+        Path file = writeLines(2000, "\n");
+        LineIndex index = index(file);
+
+        String content = Files.readString(file).replace("line-1000\n", "line-1000\nline-1000b\nline-1000c\n");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        LineIndex rebuilt = index.extend(file, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+
+        assertEquals(2002, rebuilt.getLineCount());
+        assertEquals(List.of("line-1500"), read(rebuilt, file, 1502, 1));
+        assertEquals(List.of("line-1999", "line-2000"), read(rebuilt, file, 2001, 5));
+    }
+
+    @Test
+    @DisplayName("lineStart 返回行首字节偏移")
+    void testLineStart() throws IOException {
+        Path file = tempDir.resolve("offsets.txt");
+        Files.write(file, "ab\ncde\n\nf".getBytes(StandardCharsets.UTF_8));
+        LineIndex index = index(file);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertEquals(0L, index.lineStart(channel, 1));
+            assertEquals(3L, index.lineStart(channel, 2));
+            assertEquals(7L, index.lineStart(channel, 3));
+            assertEquals(8L, index.lineStart(channel, 4));
+        }
+        assertEquals(4, index.getLineCount());
+    }
+}
@@ -0,0 +1,122 @@
+package org.YanPl.util;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.api.AnswerCache;
+import org.YanPl.manager.CLIManager;
+import org.YanPl.manager.ConfigManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("MetricsRegistry 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class MetricsRegistryTest {
+
+    @Mock
+    private FancyHelper plugin;
+
+    @Mock
+    private ConfigManager configManager;
+
+    @Mock
+    private CLIManager cliManager;
+
+    @Mock
+    private AnswerCache answerCache;
+
+    private MetricsRegistry metrics;
+
+    @BeforeEach
+    void setUp() {
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("MetricsRegistryTest"));
+        when(plugin.getCliManager()).thenReturn(cliManager);
+        when(plugin.getAnswerCache()).thenReturn(answerCache);
+        when(configManager.isMetricsEnabled()).thenReturn(true);
+        when(configManager.getMetricsHttpHost()).thenReturn("127.0.0.1");
+        when(configManager.getMetricsHttpPort()).thenReturn(0);
+        metrics = new MetricsRegistry(plugin);
+        metrics.reload();
+    }
+
+    @AfterEach
+    void tearDown() {
+        metrics.shutdown();
+    }
+
+    @Test
+    @DisplayName("未启用时不记录任何序列")
+    void testDisabled() {
+        when(configManager.isMetricsEnabled()).thenReturn(false);
+        metrics.reload();
+
+        metrics.increment(MetricsRegistry.ERROR_REPORTS, "result", "uploaded");
+        metrics.observeNanos(MetricsRegistry.TOOL_SECONDS, 5_000_000L, "tool", "read");
+
+        assertTrue(metrics.getFamilies().get(MetricsRegistry.ERROR_REPORTS).values().isEmpty());
+        assertTrue(metrics.getFamilies().get(MetricsRegistry.TOOL_SECONDS).histograms().isEmpty());
+        assertNull(metrics.getServerAddress());
+    }
+
+    @Test
+    @DisplayName("计数器按标签累加，标签值中的引号与换行会被转义")
+    void testCounters() {
+        metrics.add(MetricsRegistry.AI_TOKENS, 1200, "provider", "deepseek-chat@api.deepseek.com", "direction", "in");
+        metrics.add(MetricsRegistry.AI_TOKENS, 800, "provider", "deepseek-chat@api.deepseek.com", "direction", "in");
+        metrics.add(MetricsRegistry.AI_TOKENS, 50, "provider", "deepseek-chat@api.deepseek.com", "direction", "out");
+
+        assertEquals(2000L, metrics.getFamilies().get(MetricsRegistry.AI_TOKENS).values()
+                .get("provider=\"deepseek-chat@api.deepseek.com\",direction=\"in\""));
+        assertEquals("tool=\"a\\\"b\\nc\"", MetricsRegistry.labelsOf("tool", "a\"b\nc"));
+    }
+
+    @Test
+    @DisplayName("直方图分位数的相对误差不超过一个子桶")
+    void testHistogramAccuracy() {
+        MetricsRegistry.Histogram histogram = new MetricsRegistry.Histogram();
+        for (long ms = 1; ms <= 1000; ms++) {
+            histogram.record(ms * 1000);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000L, histogram.getMax());
+        assertEquals(500_000, histogram.quantile(0.5), 500_000 * 0.07);
+        assertEquals(990_000, histogram.quantile(0.99), 990_000 * 0.07);
+        assertTrue(histogram.quantile(1.0) <= histogram.getMax());
+        // 超出范围的值计入最后一个桶，不会越界
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getMax());
+    }
+
+    @Test
+    @DisplayName("输出 Prometheus 文本格式，直方图以秒为单位输出分位数")
+    void testScrape() {
+        when(cliManager.getActivePlayersCount()).thenReturn(3);
+        when(answerCache.getHits()).thenReturn(7L);
+        // 2^18 微秒恰好是桶的下界，分位数不会超过记录到的最大值
+        metrics.observeNanos(MetricsRegistry.TOOL_SECONDS, 262_144_000L, "tool", "search");
+        metrics.increment(MetricsRegistry.ERROR_REPORTS, "result", "failed");
+
+        String text = metrics.scrape();
+
+        assertTrue(text.contains("# TYPE fancyhelper_tool_duration_seconds summary\n"));
+        assertTrue(text.contains("fancyhelper_tool_duration_seconds{tool=\"search\",quantile=\"0.5\"} 0.262144\n"));
+        assertTrue(text.contains("fancyhelper_tool_duration_seconds_count{tool=\"search\"} 1\n"));
+        assertTrue(text.contains("fancyhelper_tool_duration_seconds_sum{tool=\"search\"} 0.262144\n"));
+        assertTrue(text.contains("# TYPE fancyhelper_cli_sessions gauge\nfancyhelper_cli_sessions 3\n"));
+        assertTrue(text.contains("fancyhelper_cache_requests_total{cache=\"answer\",result=\"hit\"} 7\n"));
+        assertTrue(text.contains("fancyhelper_error_reports_total{result=\"failed\"} 1\n"));
+    }
+}
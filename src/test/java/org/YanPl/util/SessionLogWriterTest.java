@@ -0,0 +1,70 @@
+package org.YanPl.util;
+
+import org.YanPl.FancyHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("SessionLogWriter 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SessionLogWriterTest {
+
+    @Mock
+    private FancyHelper plugin;
+
+    @BeforeEach
+    void setUp() {
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("SessionLogWriterTest"));
+    }
+
+    @Test
+    @DisplayName("按提交顺序在同一后台线程执行，关闭时写完剩余任务")
+    void testOrderAndFlushOnShutdown() {
+        SessionLogWriter writer = new SessionLogWriter(plugin);
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int n = i;
+            writer.execute(() -> {
+                order.add(n);
+                threads.add(Thread.currentThread().getName());
+            });
+        }
+        writer.shutdown();
+
+        assertEquals(200, order.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, order.get(i));
+        }
+        assertTrue(threads.stream().allMatch("FancyHelper-SessionLog"::equals));
+    }
+
+    @Test
+    @DisplayName("任务异常不影响后续任务，关闭后提交的任务在当前线程执行")
+    void testFailureAndAfterShutdown() {
+        SessionLogWriter writer = new SessionLogWriter(plugin);
+        List<String> done = new CopyOnWriteArrayList<>();
+        writer.execute(() -> {
+            throw new IllegalStateException("写入失败");
+        });
+        writer.execute(() -> done.add("after failure"));
+        writer.shutdown();
+
+        writer.execute(() -> done.add(Thread.currentThread().getName()));
+
+        assertEquals(List.of("after failure", Thread.currentThread().getName()), done);
+    }
+}
@@ -0,0 +1,172 @@
+package org.YanPl.util;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.manager.ConfigManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("TickProfiler 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class TickProfilerTest {
+
+    @Mock
+    private FancyHelper plugin;
+
+    @Mock
+    private ConfigManager configManager;
+
+    @Mock
+    private Logger logger;
+
+    private TickProfiler profiler;
+
+    @BeforeEach
+    void setUp() {
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        when(plugin.getLogger()).thenReturn(logger);
+        // 插件未启用时 start() 只记录主线程，不注册逐 tick 任务，由测试手动调用 onTick()
+        when(plugin.isEnabled()).thenReturn(false);
+        when(configManager.isProfilerEnabled()).thenReturn(true);
+        when(configManager.getProfilerWarnMillis()).thenReturn(0.0);
+        when(configManager.getProfilerWindowSeconds()).thenReturn(60);
+        profiler = new TickProfiler(plugin);
+        profiler.start();
+    }
+
+    private static void spin(long micros) {
+        long end = System.nanoTime() + micros * 1000;
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private TickProfiler.Summary summaryOf(String name) {
+        return profiler.getSummaries().stream().filter(s -> s.getName().equals(name)).findFirst().orElse(null);
+    }
+
+    @Test
+    @DisplayName("按操作归类耗时，嵌套操作只在最外层计入 tick 合计")
+    void testNestedSections() {
+        try (TickProfiler.Section outer = profiler.enter("cli.ai_response")) {
+            spin(200);
+            try (TickProfiler.Section inner = profiler.enter("cli.execute_tool")) {
+                spin(200);
+            }
+        }
+        profiler.onTick();
+
+        TickProfiler.Summary outer = summaryOf("cli.ai_response");
+        TickProfiler.Summary inner = summaryOf("cli.execute_tool");
+        assertNotNull(outer);
+        assertNotNull(inner);
+        assertEquals(1, outer.getHistogram().getCount());
+        assertTrue(outer.getTotalNanos() >= inner.getTotalNanos());
+        assertTrue(inner.getTotalNanos() >= 200_000);
+        // 合计等于最外层的耗时，而不是两者之和
+        MetricsRegistry.Histogram ticks = profiler.getTickHistogram();
+        assertEquals(1, ticks.getCount());
+        assertEquals(outer.getTotalNanos() / 1000, ticks.getSum());
+        assertEquals(1, profiler.getWindowTicks());
+        assertEquals(outer.getTotalNanos(), outer.getNanosPerTick());
+        // 按总耗时排序
+        assertEquals("cli.ai_response", profiler.getSummaries().get(0).getName());
+    }
+
+    @Test
+    @DisplayName("其他线程上的操作只记录单次耗时，不计入主线程 tick 合计")
+    void testOffThreadSections() throws Exception {
+        Thread worker = new Thread(profiler.wrap("listener.chat", () -> spin(100)));
+        worker.start();
+        worker.join();
+        profiler.onTick();
+
+        assertEquals(1, summaryOf("listener.chat").getHistogram().getCount());
+        assertEquals(0, profiler.getTickHistogram().getSum());
+    }
+
+    @Test
+    @DisplayName("单次操作超过预算时警告，同一操作一分钟内只警告一次")
+    void testBudgetWarning() {
+        when(configManager.getProfilerWarnMillis()).thenReturn(0.05);
+        profiler.reload();
+
+        for (int i = 0; i < 3; i++) {
+            try (TickProfiler.Section ignored = profiler.enter("config.save")) {
+                spin(100);
+            }
+        }
+        try (TickProfiler.Section ignored = profiler.enter("cli.estimate_tokens")) {
+            // 不超过预算
+        }
+
+        verify(logger, times(1)).warning(contains("config.save"));
+        verify(logger, never()).warning(contains("cli.estimate_tokens"));
+    }
+
+    @Test
+    @DisplayName("滚动窗口轮换后旧的记录被丢弃")
+    void testWindowRotation() {
+        when(configManager.getProfilerWindowSeconds()).thenReturn(6);
+        profiler.reload();
+        try (TickProfiler.Section ignored = profiler.enter("cli.save_session")) {
+            spin(50);
+        }
+        // 每段 20 tick，共 6 段
+        for (int i = 0; i < 20 * (TickProfiler.SEGMENTS - 1); i++) {
+            profiler.onTick();
+        }
+        assertNotNull(summaryOf("cli.save_session"));
+
+        for (int i = 0; i < 20; i++) {
+            profiler.onTick();
+        }
+        assertNull(summaryOf("cli.save_session"));
+        assertTrue(profiler.getWindowTicks() <= 20L * TickProfiler.SEGMENTS);
+    }
+
+    @Test
+    @DisplayName("关闭后不记录，reset 清空统计")
+    void testDisabledAndReset() {
+        try (TickProfiler.Section ignored = profiler.enter("tool.get")) {
+            spin(10);
+        }
+        profiler.onTick();
+        profiler.reset();
+        assertTrue(profiler.getSummaries().isEmpty());
+        assertEquals(0, profiler.getWindowTicks());
+
+        when(configManager.isProfilerEnabled()).thenReturn(false);
+        profiler.reload();
+        try (TickProfiler.Section ignored = profiler.enter("tool.get")) {
+            spin(10);
+        }
+        List<TickProfiler.Summary> summaries = profiler.getSummaries();
+        assertTrue(summaries.isEmpty());
+        assertFalse(profiler.isEnabled());
+    }
+
+    @Test
+    @DisplayName("插件尚未创建分析器时静态入口不计时")
+    void testStaticEnterWithoutProfiler() {
+        when(plugin.getTickProfiler()).thenReturn(null);
+        assertDoesNotThrow(() -> {
+            try (TickProfiler.Section ignored = TickProfiler.enter(plugin, "listener.quit")) {
+                spin(1);
+            }
+        });
+        assertTrue(profiler.getSummaries().isEmpty());
+    }
+}